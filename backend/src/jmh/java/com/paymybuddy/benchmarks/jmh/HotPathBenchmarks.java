@@ -0,0 +1,65 @@
+package com.paymybuddy.benchmarks.jmh;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.paymybuddy.models.dtos.CreateTransactionRequestDTO;
+
+/**
+ * JMH benchmarks of the service and repository hot paths. Run with
+ * mvn -Pbenchmarks test-compile exec:exec@jmh; results (throughput, average
+ * time and, through the GC profiler, allocation rate) go to
+ * target/jmh-result.json.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class HotPathBenchmarks {
+
+    /** Walks distinct (user, connection) pairs so that addConnection never hits a duplicate */
+    private static final AtomicLong CONNECTION_PAIRS = new AtomicLong();
+
+    @Benchmark
+    public Object createTransaction(PersistenceState state) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int senderId = 1 + random.nextInt(state.users);
+
+        CreateTransactionRequestDTO request = new CreateTransactionRequestDTO();
+        request.setReceiverId(1 + (senderId + random.nextInt(state.users - 1)) % state.users);
+        request.setAmountInCents(1L + random.nextInt(100));
+        request.setDescription("jmh");
+        return state.transactionService.createTransaction(senderId, request);
+    }
+
+    @Benchmark
+    public Object getUserTransactionsFirstPage(PersistenceState state) {
+        int userId = 1 + ThreadLocalRandom.current().nextInt(state.users);
+        return state.transactionService.getUserTransactions(userId, null, null);
+    }
+
+    @Benchmark
+    public Object addConnection(PersistenceState state) {
+        long pair = CONNECTION_PAIRS.getAndIncrement();
+        int userId = 1 + (int) (pair % state.users);
+        int offset = 1 + (int) ((pair / state.users) % (state.users - 1));
+        int connectionId = 1 + (userId - 1 + offset) % state.users;
+        return state.userConnectionService.addConnection(userId, PersistenceState.email(connectionId));
+    }
+
+    @Benchmark
+    public Object findByEmail(PersistenceState state) {
+        int userId = 1 + ThreadLocalRandom.current().nextInt(state.users);
+        return state.userRepository.findByEmail(PersistenceState.email(userId));
+    }
+}
@@ -0,0 +1,109 @@
+package com.paymybuddy.benchmarks.jmh;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.paymybuddy.PayMyBuddyApplication;
+import com.paymybuddy.repository.IdSequenceRepository;
+import com.paymybuddy.repository.UserRepository;
+import com.paymybuddy.services.interfaces.TransactionService;
+import com.paymybuddy.services.interfaces.UserConnectionService;
+
+/**
+ * Boots the application against an embedded H2 database (MySQL mode) and
+ * seeds it with the configured number of users and transactions. Shared by
+ * every benchmark thread of a trial.
+ */
+@State(Scope.Benchmark)
+public class PersistenceState {
+
+    @Param("10000")
+    public int users;
+
+    @Param("200000")
+    public int transactions;
+
+    ConfigurableApplicationContext context;
+    TransactionService transactionService;
+    UserConnectionService userConnectionService;
+    UserRepository userRepository;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(PayMyBuddyApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:jmh;MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                        "spring.datasource.driver-class-name=org.h2.Driver",
+                        "spring.datasource.username=sa",
+                        "spring.datasource.password=",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "spring.jpa.show-sql=false",
+                        "logging.level.root=WARN",
+                        "logging.level.com.paymybuddy=WARN")
+                .run();
+        transactionService = context.getBean(TransactionService.class);
+        userConnectionService = context.getBean(UserConnectionService.class);
+        userRepository = context.getBean(UserRepository.class);
+        seed(context.getBean(JdbcTemplate.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    static String email(int userId) {
+        return "jmh" + userId + "@bench.example.com";
+    }
+
+    private void seed(JdbcTemplate jdbcTemplate) {
+        List<Object[]> batch = new ArrayList<>();
+        for (int id = 1; id <= users; id++) {
+            batch.add(new Object[] { id, "jmh" + id, email(id), email(id), "hash" });
+            if (batch.size() == 10_000) {
+                jdbcTemplate.batchUpdate("INSERT INTO users (id, username, email, email_lower, password) "
+                        + "VALUES (?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (id, username, email, email_lower, password) "
+                + "VALUES (?, ?, ?, ?, ?)", batch);
+        batch.clear();
+        jdbcTemplate.update("INSERT INTO wallets (user_id, balance_in_cents, version) SELECT id, ?, 0 FROM users",
+                Long.MAX_VALUE / 4);
+
+        Random random = new Random(42);
+        for (int id = 1; id <= transactions; id++) {
+            int sender = 1 + random.nextInt(users);
+            int receiver = 1 + (sender + random.nextInt(users - 1)) % users;
+            batch.add(new Object[] { id, sender, receiver, "jmh", 1L + random.nextInt(10_000) });
+            if (batch.size() == 10_000) {
+                insertTransactions(jdbcTemplate, batch);
+                batch.clear();
+            }
+        }
+        insertTransactions(jdbcTemplate, batch);
+
+        // Explicit ids: the id generator must continue after them
+        IdSequenceRepository idSequenceRepository = context.getBean(IdSequenceRepository.class);
+        idSequenceRepository.advanceTo("users", users + 1L);
+        idSequenceRepository.advanceTo("transactions", transactions + 1L);
+    }
+
+    private static void insertTransactions(JdbcTemplate jdbcTemplate, List<Object[]> batch) {
+        jdbcTemplate.batchUpdate("INSERT INTO transactions (id, sender_id, receiver_id, description, amount_in_cents) "
+                + "VALUES (?, ?, ?, ?, ?)", batch);
+    }
+}
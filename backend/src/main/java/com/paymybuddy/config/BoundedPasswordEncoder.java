@@ -0,0 +1,171 @@
+package com.paymybuddy.config;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.paymybuddy.exceptions.ServiceOverloadedException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Runs password hashing and verification on a dedicated, bounded pool so that
+ * a burst of logins cannot take every request thread's CPU. Work beyond the
+ * queue capacity, or queued longer than maxWaitMillis without reaching a
+ * worker, is rejected with a {@link ServiceOverloadedException} and dropped
+ * from the queue. A hash that has started always runs to completion, however
+ * long it takes: the time limit bounds the queueing only. The workers stay platform threads even
+ * with spring.threads.virtual.enabled: hashing is CPU-bound, and the pool
+ * size is what caps it.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, AutoCloseable {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final long maxWaitMillis;
+    private final long retryAfterSeconds;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejectedCounter;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, long maxWaitMillis,
+            long retryAfterSeconds, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.maxWaitMillis = maxWaitMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("paymybuddy.password.queue.depth", executor, pool -> pool.getQueue().size())
+                .description("Password hashing tasks waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("paymybuddy.password.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Password hashing workers busy")
+                .register(meterRegistry);
+        this.encodeTimer = Timer.builder("paymybuddy.password.hash")
+                .description("Time spent hashing or verifying a password, excluding queueing")
+                .tag("operation", "encode")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.matchesTimer = Timer.builder("paymybuddy.password.hash")
+                .description("Time spent hashing or verifying a password, excluding queueing")
+                .tag("operation", "matches")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("paymybuddy.password.rejected")
+                .description("Password hashing requests rejected because the pool was saturated")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(() -> delegate.encode(rawPassword), encodeTimer);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> delegate.matches(rawPassword, encodedPassword), matchesTimer);
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private <T> T run(Callable<T> task, Timer timer) {
+        QueuedTask<T> queued = new QueuedTask<>(() -> timer.recordCallable(task));
+        try {
+            executor.execute(queued);
+        } catch (RejectedExecutionException e) {
+            throw overloaded();
+        }
+
+        try {
+            if (!queued.awaitStart(maxWaitMillis)) {
+                executor.remove(queued);
+                throw overloaded();
+            }
+            return queued.get();
+        } catch (InterruptedException e) {
+            // A hash that already started is left to finish; only a queued one is dropped
+            if (queued.abandon()) {
+                executor.remove(queued);
+            }
+            Thread.currentThread().interrupt();
+            throw overloaded();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException("Password hashing failed", cause);
+        }
+    }
+
+    private ServiceOverloadedException overloaded() {
+        rejectedCounter.increment();
+        return new ServiceOverloadedException("Password hashing is saturated, please retry later",
+                retryAfterSeconds);
+    }
+
+    /**
+     * Task claimed exactly once: by the worker that dequeues it, which then
+     * runs it, or by the caller that gave up waiting, in which case the worker
+     * skips it
+     */
+    private static class QueuedTask<T> extends FutureTask<T> {
+
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final CountDownLatch started = new CountDownLatch(1);
+
+        QueuedTask(Callable<T> callable) {
+            super(callable);
+        }
+
+        @Override
+        public void run() {
+            if (claimed.compareAndSet(false, true)) {
+                started.countDown();
+                super.run();
+            }
+        }
+
+        /**
+         * Waits for a worker to start the task, and abandons it if none did in
+         * time. Returns whether it started.
+         */
+        boolean awaitStart(long timeoutMillis) throws InterruptedException {
+            return started.await(timeoutMillis, TimeUnit.MILLISECONDS) || !abandon();
+        }
+
+        boolean abandon() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.paymybuddy.config;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.paymybuddy.logging.LoggingService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Retries {@link RetryOnConflict} methods that lost a concurrency conflict:
+ * an account lock or row lock wait that ran out, a deadlock the database
+ * broke by rolling this transaction back, or a version check that found the
+ * row changed since it was read. A lock wait that ran out is retried however
+ * the driver reports it: H2 raises a statement timeout, which Spring
+ * translates to a QueryTimeoutException rather than a lock failure.
+ *
+ * Ordered before the transaction interceptor, so every attempt runs in a
+ * transaction of its own and reads fresh rows. Attempts are spaced by an
+ * exponential backoff with random jitter (app.transfers.retry.jitter is the
+ * randomized share of each delay), so that the transfers that collided do not
+ * collide again on the next attempt. A method joining a transaction started
+ * by its caller is not retried: only the owner of the transaction can start
+ * over.
+ */
+@Aspect
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class ConflictRetryAspect {
+
+    private final LoggingService loggingService;
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final double jitter;
+
+    public ConflictRetryAspect(LoggingService loggingService, MeterRegistry meterRegistry,
+            @Value("${app.transfers.retry.max-attempts:4}") int maxAttempts,
+            @Value("${app.transfers.retry.initial-backoff-ms:5}") long initialBackoffMillis,
+            @Value("${app.transfers.retry.max-backoff-ms:200}") long maxBackoffMillis,
+            @Value("${app.transfers.retry.jitter:0.5}") double jitter) {
+        this.loggingService = loggingService;
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffMillis = Math.max(1, initialBackoffMillis);
+        this.maxBackoffMillis = Math.max(this.initialBackoffMillis, maxBackoffMillis);
+        this.jitter = Math.clamp(jitter, 0.0, 1.0);
+    }
+
+    @Around(value = "@annotation(retryOnConflict)", argNames = "joinPoint,retryOnConflict")
+    public Object retry(ProceedingJoinPoint joinPoint, RetryOnConflict retryOnConflict) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+        String operation = joinPoint.getSignature().getName();
+        int attempts = retryOnConflict.maxAttempts() > 0 ? retryOnConflict.maxAttempts() : maxAttempts;
+        long initialBackoff = retryOnConflict.initialBackoffMs() > 0 ? retryOnConflict.initialBackoffMs()
+                : initialBackoffMillis;
+        long maxBackoff = Math.max(initialBackoff,
+                retryOnConflict.maxBackoffMs() > 0 ? retryOnConflict.maxBackoffMs() : maxBackoffMillis);
+
+        for (int attempt = 1;; attempt++) {
+            try {
+                return joinPoint.proceed();
+            } catch (TransientDataAccessException e) {
+                if (!(e instanceof ConcurrencyFailureException) && !LockTimeoutExceptionOverride.isLockTimeout(e)) {
+                    throw e;
+                }
+                String conflict = e instanceof OptimisticLockingFailureException ? "optimistic" : "pessimistic";
+                if (attempt >= attempts) {
+                    meterRegistry.counter("paymybuddy.transfers.retry.exhausted", "operation", operation,
+                            "conflict", conflict).increment();
+                    loggingService.error("Giving up " + operation + " after " + attempt + " attempts - "
+                            + e.getMessage());
+                    throw e;
+                }
+                meterRegistry.counter("paymybuddy.transfers.retries", "operation", operation, "conflict", conflict)
+                        .increment();
+                long delay = backoffMillis(attempt, initialBackoff, maxBackoff);
+                loggingService.warn("Conflict in " + operation + " (attempt " + attempt + "), retrying in "
+                        + delay + " ms - " + e.getMessage());
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    long backoffMillis(int attempt, long initialBackoff, long maxBackoff) {
+        // Doubling ceiling; the jitter share of it is drawn at random
+        long ceiling = Math.min(maxBackoff, initialBackoff << Math.min(attempt - 1, 20));
+        long random = (long) (ceiling * jitter);
+        return ceiling - random + ThreadLocalRandom.current().nextLong(random + 1);
+    }
+}
@@ -0,0 +1,39 @@
+package com.paymybuddy.config;
+
+import java.sql.SQLException;
+
+import com.zaxxer.hikari.SQLExceptionOverride;
+
+/**
+ * Keeps a connection in the pool when its statement only ran out of time
+ * waiting for a row lock. Hikari evicts a connection on any
+ * SQLTimeoutException, which H2 raises for a lock wait; the rollback that
+ * follows then fails on a closed connection and hides the conflict from
+ * {@link ConflictRetryAspect}.
+ */
+public class LockTimeoutExceptionOverride implements SQLExceptionOverride {
+
+    // H2 LOCK_TIMEOUT_1 and MySQL ER_LOCK_WAIT_TIMEOUT
+    private static final int H2_LOCK_TIMEOUT = 50200;
+    private static final int MYSQL_LOCK_WAIT_TIMEOUT = 1205;
+
+    // Override here names Hikari's verdict enum, inherited from the interface
+    @java.lang.Override
+    public Override adjudicate(SQLException sqlException) {
+        return isLockTimeout(sqlException) ? Override.DO_NOT_EVICT : Override.CONTINUE_EVICT;
+    }
+
+    /**
+     * Whether the exception, or one of its causes, is a lock wait that ran out
+     */
+    static boolean isLockTimeout(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException
+                    && (sqlException.getErrorCode() == H2_LOCK_TIMEOUT
+                            || sqlException.getErrorCode() == MYSQL_LOCK_WAIT_TIMEOUT)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,35 @@
+package com.paymybuddy.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs the annotated transactional method again, in a new transaction, when
+ * it fails on a concurrency conflict: lock wait timeout, deadlock victim or
+ * stale version. See {@link ConflictRetryAspect} for the policy. Attributes
+ * left at 0 take their value from app.transfers.retry.*.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface RetryOnConflict {
+
+    /**
+     * @return attempts in total, the first one included
+     */
+    int maxAttempts() default 0;
+
+    /**
+     * @return backoff ceiling before the second attempt, doubled after each
+     *         further failure
+     */
+    long initialBackoffMs() default 0;
+
+    /**
+     * @return upper bound of the backoff ceiling
+     */
+    long maxBackoffMs() default 0;
+}
@@ -1,21 +1,33 @@
 package com.paymybuddy.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
 import org.springframework.security.web.csrf.CsrfTokenRequestAttributeHandler;
 import org.springframework.security.web.csrf.CsrfFilter;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.boot.web.servlet.server.CookieSameSiteSupplier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import com.paymybuddy.services.IdempotencyService;
+import com.paymybuddy.services.JwtService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
 import java.util.Arrays;
 import java.util.List;
 
@@ -24,7 +36,11 @@ import java.util.List;
 public class SecurityConfig {
 
         @Bean
-        public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+        public SecurityFilterChain filterChain(HttpSecurity http, JwtService jwtService) throws Exception {
+
+                if (jwtService.isEnabled()) {
+                        return statelessFilterChain(http, jwtService);
+                }
 
                 CsrfTokenRequestAttributeHandler requestHandler = new CsrfTokenRequestAttributeHandler();
                 requestHandler.setCsrfRequestAttributeName("_csrf");
@@ -48,9 +64,42 @@ public class SecurityConfig {
                 return http.build();
         }
 
+        /**
+         * Stateless mode (app.security.mode=jwt): no HTTP session, every request
+         * carries its own bearer token, so any node can serve it. Tokens travel
+         * in headers rather than cookies, hence no CSRF protection is needed.
+         */
+        private SecurityFilterChain statelessFilterChain(HttpSecurity http, JwtService jwtService) throws Exception {
+                http.authorizeHttpRequests(authz -> authz
+                                .requestMatchers("/register", "/csrf", "/login", "/token/refresh").permitAll()
+                                .anyRequest().authenticated())
+                                .csrf(csrf -> csrf.disable())
+                                .httpBasic(httpBasic -> httpBasic.disable())
+                                .cors(cors -> cors.configurationSource(corsConfigurationSource()))
+                                .sessionManagement(session -> session
+                                                .sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                                .exceptionHandling(exceptions -> exceptions
+                                                .authenticationEntryPoint(
+                                                                new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)))
+                                .addFilterBefore(new JwtAuthenticationFilter(jwtService),
+                                                UsernamePasswordAuthenticationFilter.class);
+
+                return http.build();
+        }
+
+        /**
+         * BCrypt on a dedicated pool sized to the cores (threads=0), so that a
+         * login storm queues there instead of starving request threads
+         */
         @Bean
-        public PasswordEncoder passwordEncoder() {
-                return new BCryptPasswordEncoder();
+        public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry,
+                        @Value("${app.password-hashing.threads:0}") int threads,
+                        @Value("${app.password-hashing.queue-capacity:64}") int queueCapacity,
+                        @Value("${app.password-hashing.max-wait-ms:2000}") long maxWaitMillis,
+                        @Value("${app.password-hashing.retry-after-seconds:1}") long retryAfterSeconds) {
+                int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+                return new BoundedPasswordEncoder(new BCryptPasswordEncoder(), poolSize, queueCapacity,
+                                maxWaitMillis, retryAfterSeconds, meterRegistry);
         }
 
         @Bean
@@ -72,13 +121,19 @@ public class SecurityConfig {
                                 "Content-Type",
                                 "Accept",
                                 "X-Requested-With",
-                                "X-XSRF-TOKEN"));
+                                "X-XSRF-TOKEN",
+                                HttpHeaders.AUTHORIZATION,
+                                JwtService.REFRESH_TOKEN_HEADER,
+                                IdempotencyService.HEADER));
 
                 configuration.setAllowCredentials(true);
 
                 configuration.setExposedHeaders(Arrays.asList(
                                 "Content-Type",
-                                "X-XSRF-TOKEN"));
+                                "X-XSRF-TOKEN",
+                                HttpHeaders.AUTHORIZATION,
+                                JwtService.REFRESH_TOKEN_HEADER,
+                                IdempotencyService.REPLAYED_HEADER));
 
                 configuration.setMaxAge(3600L);
 
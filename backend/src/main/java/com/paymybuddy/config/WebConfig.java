@@ -1,19 +1,26 @@
 package com.paymybuddy.config;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 
 import org.springframework.lang.NonNull;
 
+import jakarta.persistence.EntityManagerFactory;
+
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
     private final RequestLoggingInterceptor requestLoggingInterceptor;
+    private final ObjectProvider<EntityManagerFactory> entityManagerFactory;
 
-    public WebConfig(RequestLoggingInterceptor requestLoggingInterceptor) {
+    public WebConfig(RequestLoggingInterceptor requestLoggingInterceptor,
+            ObjectProvider<EntityManagerFactory> entityManagerFactory) {
         this.requestLoggingInterceptor = requestLoggingInterceptor;
+        this.entityManagerFactory = entityManagerFactory;
     }
 
     @Override
@@ -21,5 +28,15 @@ public class WebConfig implements WebMvcConfigurer {
         registry.addInterceptor(requestLoggingInterceptor)
                 .addPathPatterns("/**")
                 .excludePathPatterns("/error");
+
+        // Replaces spring.jpa.open-in-view, which is off: the export reads one page per short
+        // transaction and must not hold the request's connection for the whole download
+        entityManagerFactory.ifAvailable(factory -> {
+            OpenEntityManagerInViewInterceptor openEntityManagerInView = new OpenEntityManagerInViewInterceptor();
+            openEntityManagerInView.setEntityManagerFactory(factory);
+            registry.addWebRequestInterceptor(openEntityManagerInView)
+                    .addPathPatterns("/**")
+                    .excludePathPatterns("/transactions/export");
+        });
     }
 }
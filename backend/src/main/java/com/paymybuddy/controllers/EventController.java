@@ -0,0 +1,57 @@
+package com.paymybuddy.controllers;
+
+import java.util.Optional;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.paymybuddy.models.dtos.BalanceEventDTO;
+import com.paymybuddy.services.EventHub;
+import com.paymybuddy.services.interfaces.UserService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+@RestController
+@Tag(name = "Events", description = "Flux d'événements du compte (Server-Sent Events)")
+public class EventController {
+
+    private final EventHub eventHub;
+    private final UserService userService;
+
+    public EventController(EventHub eventHub, UserService userService) {
+        this.eventHub = eventHub;
+        this.userService = userService;
+    }
+
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Suivre le compte en direct", description = "Flux SSE : balance-changed (nouveau solde) et transaction-received (virement reçu)")
+    @SecurityRequirement(name = "sessionAuth")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Flux ouvert, le solde actuel est envoyé en premier"),
+            @ApiResponse(responseCode = "401", description = "Utilisateur non authentifié")
+    })
+    public ResponseEntity<SseEmitter> events(
+            @AuthenticationPrincipal org.springframework.security.core.userdetails.User principal) {
+        Optional<Integer> userId = userService.resolveUserId(principal);
+        if (userId.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        // The current balance first, so that the client needs no separate poll on (re)connect
+        SseEmitter emitter = eventHub.subscribe(userId.get(), EventHub.BALANCE_CHANGED,
+                () -> userService.findBalance(userId.get())
+                        .map(balance -> new BalanceEventDTO(balance.balanceInCents()))
+                        .orElse(null));
+        return ResponseEntity.ok()
+                .header("X-Accel-Buffering", "no")
+                .body(emitter);
+    }
+}
@@ -3,64 +3,155 @@ package com.paymybuddy.controllers;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.paymybuddy.models.Transaction;
-import com.paymybuddy.models.User;
+import com.paymybuddy.models.dtos.BatchTransactionRequestDTO;
+import com.paymybuddy.models.dtos.BatchTransactionResultDTO;
 import com.paymybuddy.models.dtos.CreateTransactionRequestDTO;
 import com.paymybuddy.models.dtos.PublicTransactionDTO;
+import com.paymybuddy.models.dtos.PublicUserDTO;
+import com.paymybuddy.models.dtos.TransactionPageDTO;
+import com.paymybuddy.services.GroupCommitTransferWriter;
+import com.paymybuddy.services.IdempotencyService;
+import com.paymybuddy.services.interfaces.TransactionExportService;
 import com.paymybuddy.services.interfaces.TransactionService;
 import com.paymybuddy.services.interfaces.UserService;
 import com.paymybuddy.logging.LoggingService;
 
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.Optional;
-import java.util.List;
 
 @RestController
 public class TransactionController {
 
     private final TransactionService transactionService;
+    private final TransactionExportService transactionExportService;
     private final UserService userService;
+    private final IdempotencyService idempotencyService;
+    private final GroupCommitTransferWriter groupCommitTransferWriter;
     private final LoggingService loggingService;
 
-    public TransactionController(TransactionService transactionService, UserService userService,
+    public TransactionController(TransactionService transactionService,
+            TransactionExportService transactionExportService, UserService userService,
+            IdempotencyService idempotencyService, GroupCommitTransferWriter groupCommitTransferWriter,
             LoggingService loggingService) {
         this.transactionService = transactionService;
+        this.transactionExportService = transactionExportService;
         this.userService = userService;
+        this.idempotencyService = idempotencyService;
+        this.groupCommitTransferWriter = groupCommitTransferWriter;
         this.loggingService = loggingService;
     }
 
     @PostMapping("/transaction")
-    public ResponseEntity<Transaction> createTransaction(@RequestBody @Valid CreateTransactionRequestDTO request,
+    public ResponseEntity<PublicTransactionDTO> createTransaction(@RequestBody @Valid CreateTransactionRequestDTO request,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             @AuthenticationPrincipal org.springframework.security.core.userdetails.User principal) {
 
-        String userEmail = principal.getUsername();
-        Optional<User> user = userService.findByEmail(userEmail);
-
-        if (user.isEmpty()) {
-            loggingService.error("TransactionController: User not found: " + userEmail);
+        Optional<Integer> userId = userService.resolveUserId(principal);
+        if (userId.isEmpty()) {
+            loggingService.error("TransactionController: User not found: " + principal.getUsername());
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
-        if (request.getReceiverId() == user.get().getId()) {
-            loggingService.error("TransactionController: User not allowed to create transaction: " + userEmail);
+        if (idempotencyKey == null) {
+            return createTransaction(userId.get(), request, principal);
+        }
+        // A retry replays the response of the first attempt instead of paying twice
+        return idempotencyService.execute(userId.get(), idempotencyKey, request, PublicTransactionDTO.class,
+                () -> createTransaction(userId.get(), request, principal));
+    }
+
+    private ResponseEntity<PublicTransactionDTO> createTransaction(Integer userId,
+            CreateTransactionRequestDTO request, org.springframework.security.core.userdetails.User principal) {
+        if (userId.equals(request.getReceiverId())) {
+            loggingService.error("TransactionController: User not allowed to create transaction: "
+                    + principal.getUsername());
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
 
-        Transaction transaction = transactionService.createTransaction(user.get(), request);
-        return ResponseEntity.ok(transaction);
+        // The sender is loaded with the receiver inside the transfer; with group commit, the transfer
+        // shares its database transaction with concurrent ones
+        Transaction transaction = groupCommitTransferWriter.isEnabled()
+                ? groupCommitTransferWriter.submit(userId, request)
+                : transactionService.createTransaction(userId, request);
+        if (transaction == null) {
+            return ResponseEntity.ok().build();
+        }
+        return ResponseEntity.ok(new PublicTransactionDTO(transaction.getId(),
+                new PublicUserDTO(transaction.getSender().getId(), transaction.getSender().getUsername(),
+                        transaction.getSender().getEmail()),
+                new PublicUserDTO(transaction.getReceiver().getId(), transaction.getReceiver().getUsername(),
+                        transaction.getReceiver().getEmail()),
+                transaction.getDescription(), transaction.getAmountInCents()));
+    }
+
+    @PostMapping("/transactions/batch")
+    public ResponseEntity<BatchTransactionResultDTO> createTransactions(
+            @RequestBody @Valid BatchTransactionRequestDTO request,
+            @AuthenticationPrincipal org.springframework.security.core.userdetails.User principal) {
+        // The principal is resolved once for the whole batch
+        Optional<Integer> userId = userService.resolveUserId(principal);
+        if (userId.isEmpty()) {
+            loggingService.error("TransactionController: User not found: " + principal.getUsername());
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        BatchTransactionResultDTO result = transactionService.createTransactions(userId.get(), request.getItems(),
+                request.getMode());
+        if (result.getCreated() == 0) {
+            return ResponseEntity.unprocessableEntity().body(result);
+        }
+        return ResponseEntity.ok(result);
     }
 
     @GetMapping("/transactions")
-    public ResponseEntity<List<PublicTransactionDTO>> getTransactions(
+    public ResponseEntity<TransactionPageDTO> getTransactions(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Integer before,
+            @AuthenticationPrincipal org.springframework.security.core.userdetails.User principal) {
+        Optional<Integer> userId = userService.resolveUserId(principal);
+        if (userId.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok(transactionService.getUserTransactions(userId.get(), before, limit));
+    }
+
+    @GetMapping("/transactions/export")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
+            @RequestParam(defaultValue = "csv") String format,
             @AuthenticationPrincipal org.springframework.security.core.userdetails.User principal) {
-        String userEmail = principal.getUsername();
-        Optional<User> user = userService.findByEmail(userEmail);
-        return ResponseEntity.ok(transactionService.getUserTransactions(user.get().getId()));
+        TransactionExportService.Format exportFormat;
+        try {
+            exportFormat = TransactionExportService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported export format: " + format);
+        }
+
+        Optional<Integer> resolvedUserId = userService.resolveUserId(principal);
+        if (resolvedUserId.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        Integer userId = resolvedUserId.get();
+        // Written on an async thread, row by row, while the request thread is released
+        StreamingResponseBody body = outputStream -> transactionExportService.exportUserTransactions(userId,
+                exportFormat, outputStream);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getMediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"transactions." + exportFormat.getExtension() + "\"")
+                .body(body);
     }
 }
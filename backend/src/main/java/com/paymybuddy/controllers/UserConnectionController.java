@@ -13,7 +13,6 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 
 import com.paymybuddy.models.dtos.AddConnectionRequestDTO;
 import com.paymybuddy.models.dtos.PublicUserDTO;
-import com.paymybuddy.models.User;
 import com.paymybuddy.models.UserConnection;
 import com.paymybuddy.services.interfaces.UserConnectionService;
 import com.paymybuddy.services.interfaces.UserService;
@@ -42,17 +41,16 @@ public class UserConnectionController {
             @AuthenticationPrincipal org.springframework.security.core.userdetails.User principal) {
 
         String userEmail = principal.getUsername();
-        loggingService.info("UserConnectionController: Looking for user with email: " + userEmail);
-        Optional<User> user = userService.findByEmail(userEmail);
+        Optional<Integer> userId = userService.resolveUserId(principal);
 
-        if (user.isEmpty() || user.get() == null) {
+        if (userId.isEmpty()) {
             loggingService.error("UserConnectionController: User not found with email: " + userEmail);
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
-        loggingService.info("UserConnectionController: User found: " + user.get().getUsername());
+        loggingService.info("UserConnectionController: User found: " + userId.get());
 
-        UserConnection connection = userConnectionService.addConnection(user.get().getId(),
+        UserConnection connection = userConnectionService.addConnection(userId.get(),
                 request.getConnectionEmail());
         loggingService.info("UserConnectionController: Connection added: " + connection.getConnection().getUsername());
         return ResponseEntity.ok(new PublicUserDTO(connection.getConnection().getId(),
@@ -63,14 +61,13 @@ public class UserConnectionController {
     public ResponseEntity<List<PublicUserDTO>> getConnections(
             @AuthenticationPrincipal org.springframework.security.core.userdetails.User principal) {
 
-        String userEmail = principal.getUsername();
-        Optional<User> user = userService.findByEmail(userEmail);
+        Optional<Integer> userId = userService.resolveUserId(principal);
 
-        if (user.isEmpty()) {
+        if (userId.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
-        List<UserConnection> connections = userConnectionService.getConnections(user.get().getId());
+        List<UserConnection> connections = userConnectionService.getConnections(userId.get());
         return ResponseEntity.ok(connections.stream()
                 .map(connection -> new PublicUserDTO(connection.getConnection().getId(),
                         connection.getConnection().getUsername(), connection.getConnection().getEmail()))
@@ -6,21 +6,26 @@ import org.springframework.web.server.ResponseStatusException;
 
 import jakarta.validation.Valid;
 
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
 
 import com.paymybuddy.models.User;
+import com.paymybuddy.models.WalletBalance;
 import com.paymybuddy.models.dtos.UserCredentialsDTO;
 import com.paymybuddy.services.interfaces.UserService;
 import com.paymybuddy.services.AuthenticationService;
+import com.paymybuddy.services.JwtService;
 import com.paymybuddy.models.dtos.PublicUserDTO;
 import com.paymybuddy.models.dtos.UpdateUserRequest;
 import com.paymybuddy.logging.LoggingService;
@@ -41,12 +46,14 @@ public class UserController {
 
     private final UserService userService;
     private final AuthenticationService authenticationService;
+    private final JwtService jwtService;
     private final LoggingService loggingService;
 
     public UserController(UserService userService, AuthenticationService authenticationService,
-            LoggingService loggingService) {
+            JwtService jwtService, LoggingService loggingService) {
         this.userService = userService;
         this.authenticationService = authenticationService;
+        this.jwtService = jwtService;
         this.loggingService = loggingService;
     }
 
@@ -72,15 +79,46 @@ public class UserController {
     })
     public ResponseEntity<PublicUserDTO> login(@RequestBody @Valid UserCredentialsDTO userCredentials,
             HttpServletRequest request) {
-        if (authenticationService.authenticate(userCredentials, request)) {
+        boolean authenticated = jwtService.isEnabled()
+                ? authenticationService.verifyCredentials(userCredentials)
+                : authenticationService.authenticate(userCredentials, request);
+        if (authenticated) {
             Optional<PublicUserDTO> user = userService.login(userCredentials);
+            if (user.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+            }
             loggingService.info("UserController: User logged in: " + user.get().getUsername());
-            return user.isPresent() ? ResponseEntity.ok(user.get())
-                    : ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+            if (jwtService.isEnabled()) {
+                JwtService.TokenPair tokens = jwtService.issueTokens(user.get().getId(), user.get().getEmail());
+                return ResponseEntity.ok().headers(tokens.toHeaders()).body(user.get());
+            }
+            return ResponseEntity.ok(user.get());
         }
         return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
     }
 
+    @PostMapping("/token/refresh")
+    @Operation(summary = "Renouveler les jetons", description = "Échanger un jeton de rafraîchissement contre une nouvelle paire de jetons (mode JWT)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Nouveaux jetons dans les en-têtes Authorization et X-Refresh-Token"),
+            @ApiResponse(responseCode = "401", description = "Jeton de rafraîchissement invalide, expiré ou révoqué"),
+            @ApiResponse(responseCode = "404", description = "Mode JWT désactivé")
+    })
+    public ResponseEntity<Void> refreshToken(
+            @RequestHeader(value = JwtService.REFRESH_TOKEN_HEADER, required = false) String refreshToken) {
+        if (!jwtService.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+
+        // The email may have changed since the token was issued, so reload it by id
+        Optional<User> user = jwtService.consumeRefreshToken(refreshToken).flatMap(userService::findById);
+        if (user.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        JwtService.TokenPair tokens = jwtService.issueTokens(user.get().getId(), user.get().getEmail());
+        return ResponseEntity.ok().headers(tokens.toHeaders()).build();
+    }
+
     @PostMapping("/log-out")
     @Operation(summary = "Déconnexion utilisateur", description = "Déconnecter l'utilisateur actuellement connecté")
     @SecurityRequirement(name = "sessionAuth")
@@ -99,6 +137,12 @@ public class UserController {
                 loggingService.info("UserController: Logout requested but no user authenticated");
             }
 
+            // In JWT mode there is no session: revoke the presented tokens instead
+            if (jwtService.isEnabled()) {
+                jwtService.revoke(request.getHeader(HttpHeaders.AUTHORIZATION));
+                jwtService.revoke(request.getHeader(JwtService.REFRESH_TOKEN_HEADER));
+            }
+
             // Clear security context
             org.springframework.security.core.context.SecurityContextHolder.clearContext();
 
@@ -130,7 +174,7 @@ public class UserController {
     public ResponseEntity<PublicUserDTO> getUser(
             @AuthenticationPrincipal org.springframework.security.core.userdetails.User principal) {
 
-        Optional<User> user = userService.findByEmail(principal.getUsername());
+        Optional<User> user = userService.resolveUserId(principal).flatMap(userService::findById);
         if (user.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
@@ -142,35 +186,43 @@ public class UserController {
     @Operation(summary = "Ajouter de l'argent au compte", description = "Ajouter un montant au solde de l'utilisateur connecté")
     @SecurityRequirement(name = "sessionAuth")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Argent ajouté avec succès"),
+            @ApiResponse(responseCode = "200", description = "Argent ajouté avec succès, nouveau solde en centimes"),
+            @ApiResponse(responseCode = "400", description = "Montant invalide"),
             @ApiResponse(responseCode = "401", description = "Utilisateur non authentifié"),
             @ApiResponse(responseCode = "500", description = "Erreur interne du serveur")
     })
-    public ResponseEntity<Void> addMoney(@RequestBody @Valid Long amountInCents,
+    public ResponseEntity<Long> addMoney(@RequestBody @Valid Long amountInCents,
             @AuthenticationPrincipal org.springframework.security.core.userdetails.User principal) {
 
-        try {
-            Optional<User> user = userService.findByEmail(principal.getUsername());
-            userService.addMoney(user.get(), amountInCents);
-            if (user.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-            }
-        } catch (Exception e) {
-            loggingService.error("UserController: Add money error - " + e.getMessage());
-            e.printStackTrace();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        // Only the id is needed: the increment runs on the row, no user is loaded
+        Optional<Integer> userId = userService.resolveUserId(principal);
+        if (userId.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
-        return ResponseEntity.ok().build();
+        return ResponseEntity.ok(userService.addMoney(userId.get(), amountInCents));
     }
 
     @GetMapping("/user/balance")
+    @Operation(summary = "Obtenir le solde", description = "Solde en centimes de l'utilisateur connecté, avec un ETag : un If-None-Match inchangé reçoit 304 sans corps")
+    @SecurityRequirement(name = "sessionAuth")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Solde en centimes"),
+            @ApiResponse(responseCode = "304", description = "Solde inchangé depuis l'ETag envoyé"),
+            @ApiResponse(responseCode = "401", description = "Utilisateur non authentifié")
+    })
     public ResponseEntity<Long> getBalance(
             @AuthenticationPrincipal org.springframework.security.core.userdetails.User principal) {
-        Optional<User> user = userService.findByEmail(principal.getUsername());
-        if (user.isEmpty()) {
+        // One primary key read of the wallet, not the profile row
+        Optional<WalletBalance> balance = userService.resolveUserId(principal).flatMap(userService::findBalance);
+        if (balance.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
-        return ResponseEntity.ok(user.get().getBalanceInCents());
+        // Spring answers 304 without a body when If-None-Match carries this tag; no-cache makes
+        // browsers revalidate every poll instead of reusing a stale balance
+        return ResponseEntity.ok()
+                .eTag(balance.get().eTag())
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(balance.get().balanceInCents());
     }
 
     @PutMapping("/user")
@@ -186,7 +238,7 @@ public class UserController {
             @AuthenticationPrincipal org.springframework.security.core.userdetails.User principal,
             HttpServletRequest request) {
         try {
-            Optional<User> currentUser = userService.findByEmail(principal.getUsername());
+            Optional<User> currentUser = userService.resolveUserId(principal).flatMap(userService::findById);
             if (currentUser.isEmpty()) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
             }
@@ -0,0 +1,12 @@
+package com.paymybuddy.exceptions;
+
+/**
+ * Thrown when an Idempotency-Key is sent again with a different request body
+ * (mapped to 422)
+ */
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+    public IdempotencyKeyReusedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package com.paymybuddy.exceptions;
+
+/**
+ * Thrown when the original request of an Idempotency-Key is still running and
+ * did not finish in time for the duplicate to replay it (mapped to 409)
+ */
+public class IdempotentRequestInProgressException extends RuntimeException {
+
+    public IdempotentRequestInProgressException(String message) {
+        super(message);
+    }
+}
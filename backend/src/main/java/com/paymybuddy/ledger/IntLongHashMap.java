@@ -0,0 +1,106 @@
+package com.paymybuddy.ledger;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing int to long map with linear probing, so that balances are
+ * held without boxing. Not thread safe: each ledger partition owns its map.
+ * Key 0 marks free slots and cannot be stored (user ids start at 1).
+ */
+public class IntLongHashMap {
+
+    private static final int FREE = 0;
+
+    private int[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+
+    public IntLongHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        allocate(capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean containsKey(int key) {
+        return keys[indexOf(key)] == key;
+    }
+
+    /**
+     * @return the value of the key, or missingValue if it is absent
+     */
+    public long get(int key, long missingValue) {
+        int index = indexOf(key);
+        return keys[index] == key ? values[index] : missingValue;
+    }
+
+    public void put(int key, long value) {
+        int index = indexOf(key);
+        if (keys[index] == FREE) {
+            keys[index] = key;
+            values[index] = value;
+            if (++size * 2 > keys.length) {
+                resize();
+            }
+        } else {
+            values[index] = value;
+        }
+    }
+
+    /**
+     * Add a delta to the value of the key, starting from 0 if it is absent
+     *
+     * @return the new value
+     */
+    public long addTo(int key, long delta) {
+        int index = indexOf(key);
+        if (keys[index] == key) {
+            values[index] += delta;
+            return values[index];
+        }
+        put(key, delta);
+        return delta;
+    }
+
+    /**
+     * @return the slot holding the key, or the free slot where it belongs
+     */
+    private int indexOf(int key) {
+        if (key == FREE) {
+            throw new IllegalArgumentException("Key 0 is reserved");
+        }
+        int index = hash(key) & mask;
+        while (keys[index] != FREE && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(keys.length << 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int index = indexOf(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new long[capacity];
+        Arrays.fill(keys, FREE);
+        mask = capacity - 1;
+    }
+}
@@ -0,0 +1,7 @@
+package com.paymybuddy.ledger;
+
+/**
+ * What the ledger journal writes: transfers and top-ups
+ */
+sealed interface JournalEntry permits LedgerTransfer, LedgerTopUp {
+}
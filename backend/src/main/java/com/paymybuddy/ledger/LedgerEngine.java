@@ -0,0 +1,646 @@
+package com.paymybuddy.ledger;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.paymybuddy.exceptions.ServiceOverloadedException;
+import com.paymybuddy.exceptions.TransactionException;
+import com.paymybuddy.exceptions.UserNotFoundException;
+import com.paymybuddy.logging.LoggingService;
+import com.paymybuddy.models.TopUp;
+import com.paymybuddy.models.Transaction;
+import com.paymybuddy.models.User;
+import com.paymybuddy.repository.TopUpRepository;
+import com.paymybuddy.repository.TransactionRepository;
+import com.paymybuddy.repository.UserRepository;
+import com.paymybuddy.repository.WalletBatchRepositoryImpl;
+import com.paymybuddy.repository.WalletRepository;
+import com.paymybuddy.services.AccountEvents;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Balances held in memory, the database acting as the journal.
+ *
+ * Users are partitioned by id. Each partition owns a primitive id to balance
+ * map and a single writer thread fed by a lock-free ring buffer, so transfers
+ * are validated and applied without locks or database round trips:
+ * <ol>
+ * <li>the sender's partition checks and debits the balance,</li>
+ * <li>the receiver's partition checks the receiver exists (refunding the
+ * sender otherwise),</li>
+ * <li>the journal thread writes whatever transfers are ready in one database
+ * transaction (rows and balance deltas), then completes their callers and
+ * credits the receivers in memory.</li>
+ * </ol>
+ * Credits only become spendable once written, so the database never holds a
+ * debit funded by an unwritten credit, and a caller is only answered once its
+ * transfer is durable. Top-ups ({@link LedgerTopUp}) take the same route: the
+ * user's partition checks the user exists, the journal writes the credit with
+ * its top-up row, then the partition adds it to the balance. If a batch
+ * cannot be written, its entries are written one by one; the debit of a
+ * transfer that still fails is refunded and its caller gets a
+ * {@link TransactionException}. On startup (or after a
+ * crash) the balances are rebuilt from the wallets and their slots; users created
+ * later are loaded on first use.
+ *
+ * While the engine is on, balances must only change through it (transfers and
+ * top-ups): a direct UPDATE on wallets.balance_in_cents would not be seen by
+ * the in-memory state.
+ */
+@Component
+@ConditionalOnProperty(name = "app.transfers.engine", havingValue = "ledger")
+public class LedgerEngine implements AutoCloseable {
+
+    private static final int DRAIN_LIMIT = 256;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long BACKLOG_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(20);
+    private static final long CLOSE_TIMEOUT_MILLIS = 5_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UserRepository userRepository;
+    private final WalletRepository walletRepository;
+    private final TransactionRepository transactionRepository;
+    private final TopUpRepository topUpRepository;
+    private final LoggingService loggingService;
+    private final AccountEvents accountEvents;
+    private final long retryAfterSeconds;
+    private final Partition[] partitions;
+    private final Journal journal;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final DistributionSummary journalBatchSummary;
+    private volatile boolean running;
+    private volatile boolean halted;
+
+    public LedgerEngine(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            UserRepository userRepository, WalletRepository walletRepository,
+            TransactionRepository transactionRepository, TopUpRepository topUpRepository,
+            LoggingService loggingService, AccountEvents accountEvents, MeterRegistry meterRegistry,
+            @Value("${app.ledger.partitions:4}") int partitionCount,
+            @Value("${app.ledger.ring-capacity:65536}") int ringCapacity,
+            @Value("${app.ledger.journal-batch-size:512}") int journalBatchSize,
+            @Value("${app.ledger.retry-after-seconds:1}") long retryAfterSeconds) {
+        if (partitionCount < 1) {
+            throw new IllegalArgumentException("app.ledger.partitions must be at least 1");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.userRepository = userRepository;
+        this.walletRepository = walletRepository;
+        this.transactionRepository = transactionRepository;
+        this.topUpRepository = topUpRepository;
+        this.loggingService = loggingService;
+        this.accountEvents = accountEvents;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.partitions = new Partition[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = new Partition(i, ringCapacity);
+        }
+        this.journal = new Journal(ringCapacity, journalBatchSize);
+
+        Gauge.builder("paymybuddy.ledger.queue.depth", this, LedgerEngine::queueDepth)
+                .description("Ledger commands waiting in the partition and journal ring buffers")
+                .register(meterRegistry);
+        Gauge.builder("paymybuddy.ledger.in-flight", inFlight, AtomicInteger::get)
+                .description("Transfers accepted by the ledger and not yet answered")
+                .register(meterRegistry);
+        this.journalBatchSummary = DistributionSummary.builder("paymybuddy.ledger.journal.batch.size")
+                .description("Transfers written per database transaction")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+
+        rebuild();
+        running = true;
+        for (Partition partition : partitions) {
+            partition.thread.start();
+        }
+        journal.thread.start();
+    }
+
+    /**
+     * Hand a transfer to the sender's partition
+     *
+     * @param transfer the transfer, its legs pre-validated (positive amounts,
+     *                 receiver other than the sender)
+     * @return the transfer result, completed once it is written or rejected
+     */
+    public CompletableFuture<LedgerTransfer> submit(LedgerTransfer transfer) {
+        if (!running) {
+            throw new IllegalStateException("The ledger engine is stopped");
+        }
+        inFlight.incrementAndGet();
+        if (!partitionOf(transfer.getSenderId()).commands.offer(new Debit(transfer))) {
+            inFlight.decrementAndGet();
+            throw new ServiceOverloadedException("Too many transfers in flight, please retry later",
+                    retryAfterSeconds);
+        }
+        return transfer.getResult().whenComplete((done, failure) -> inFlight.decrementAndGet());
+    }
+
+    /**
+     * Hand a top-up to the partition of its first user
+     *
+     * @param topUp the top-up, its amounts pre-validated (positive)
+     * @return the written top-ups, completed once they are durable and
+     *         spendable
+     */
+    public CompletableFuture<List<TopUp>> topUp(LedgerTopUp topUp) {
+        if (!running) {
+            throw new IllegalStateException("The ledger engine is stopped");
+        }
+        inFlight.incrementAndGet();
+        if (!partitionOf(topUp.userIdAt(0)).commands.offer(new Credit(topUp, 0))) {
+            inFlight.decrementAndGet();
+            throw new ServiceOverloadedException("Too many transfers in flight, please retry later",
+                    retryAfterSeconds);
+        }
+        return topUp.getResult().whenComplete((done, failure) -> inFlight.decrementAndGet());
+    }
+
+    /**
+     * Read a balance as the engine sees it
+     *
+     * @param userId the user ID
+     * @return the spendable balance, or null if the user does not exist
+     */
+    public CompletableFuture<Long> balance(int userId) {
+        CompletableFuture<Long> balance = new CompletableFuture<>();
+        if (!partitionOf(userId).commands.offer(new Query(userId, balance))) {
+            throw new ServiceOverloadedException("Too many transfers in flight, please retry later",
+                    retryAfterSeconds);
+        }
+        return balance;
+    }
+
+    /**
+     * Stop accepting transfers and stop once those in flight are answered
+     */
+    @Override
+    public void close() {
+        running = false;
+        long deadline = System.currentTimeMillis() + CLOSE_TIMEOUT_MILLIS;
+        while (inFlight.get() > 0 && System.currentTimeMillis() < deadline) {
+            sleepQuietly(10);
+        }
+        if (inFlight.get() > 0) {
+            loggingService.error("Ledger engine stopped with " + inFlight.get() + " transfers unanswered");
+        }
+        halt();
+    }
+
+    /**
+     * Stop immediately, as a crash would: queued commands are dropped and a
+     * batch written after this point is not acknowledged
+     */
+    void halt() {
+        running = false;
+        halted = true;
+        for (Partition partition : partitions) {
+            partition.thread.interrupt();
+        }
+        journal.thread.interrupt();
+        for (Partition partition : partitions) {
+            joinQuietly(partition.thread);
+        }
+        joinQuietly(journal.thread);
+    }
+
+    private void rebuild() {
+        long start = System.nanoTime();
+        AtomicInteger loaded = new AtomicInteger();
+        String query = "SELECT w.user_id, " + WalletBatchRepositoryImpl.VISIBLE_BALANCE + " FROM wallets w";
+        jdbcTemplate.query(query, rs -> {
+            int userId = rs.getInt(1);
+            partitionOf(userId).balances.put(userId, rs.getLong(2));
+            loaded.incrementAndGet();
+        });
+        loggingService.info(String.format("Ledger rebuilt from the database: %,d balances in %d ms on %d partitions",
+                loaded.get(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), partitions.length));
+    }
+
+    private Partition partitionOf(int userId) {
+        return partitions[Math.floorMod(userId, partitions.length)];
+    }
+
+    private int queueDepth() {
+        int depth = journal.entries.size();
+        for (Partition partition : partitions) {
+            depth += partition.commands.size();
+        }
+        return depth;
+    }
+
+    private sealed interface Command permits Debit, Confirm, Credit, Refund, Settle, Query {
+    }
+
+    private record Debit(LedgerTransfer transfer) implements Command {
+    }
+
+    private record Confirm(LedgerTransfer transfer, LedgerTransfer.Leg leg) implements Command {
+    }
+
+    /**
+     * Check of the index-th user of a top-up, passed on to the next user's
+     * partition, then to the journal
+     */
+    private record Credit(LedgerTopUp topUp, int index) implements Command {
+    }
+
+    private record Refund(int userId, long amountInCents) implements Command {
+    }
+
+    private record Settle(int userId, long amountInCents) implements Command {
+    }
+
+    private record Query(int userId, CompletableFuture<Long> balance) implements Command {
+    }
+
+    private record Outgoing<T>(MpscRingBuffer<T> ring, T item) {
+        boolean offer() {
+            return ring.offer(item);
+        }
+    }
+
+    /**
+     * Base of the engine threads: messages to another ring that is full wait in
+     * a local outbox instead of blocking, so two threads can never wait on
+     * each other
+     */
+    private abstract class Worker implements Runnable {
+
+        protected final ArrayDeque<Outgoing<?>> outbox = new ArrayDeque<>();
+        protected final Thread thread;
+
+        Worker(String name) {
+            this.thread = new Thread(this, name);
+            this.thread.setDaemon(true);
+        }
+
+        protected <T> void send(MpscRingBuffer<T> ring, T item) {
+            if (!outbox.isEmpty() || !ring.offer(item)) {
+                outbox.add(new Outgoing<>(ring, item));
+            }
+        }
+
+        protected void flushOutbox() {
+            while (!outbox.isEmpty() && outbox.peek().offer()) {
+                outbox.poll();
+            }
+        }
+
+        protected void idle(MpscRingBuffer<?> ring) {
+            ring.await(outbox.isEmpty() ? IDLE_PARK_NANOS : BACKLOG_PARK_NANOS);
+        }
+
+        @Override
+        public void run() {
+            while (!halted) {
+                try {
+                    flushOutbox();
+                    if (!work()) {
+                        idle(ring());
+                    }
+                } catch (RuntimeException e) {
+                    loggingService.error(thread.getName() + " failed - " + e.getMessage());
+                }
+            }
+        }
+
+        /**
+         * @return whether anything was processed
+         */
+        protected abstract boolean work();
+
+        protected abstract MpscRingBuffer<?> ring();
+    }
+
+    private final class Partition extends Worker {
+
+        private final MpscRingBuffer<Command> commands;
+        private final IntLongHashMap balances = new IntLongHashMap(1024);
+
+        Partition(int index, int ringCapacity) {
+            super("ledger-partition-" + index);
+            this.commands = new MpscRingBuffer<>(ringCapacity);
+        }
+
+        @Override
+        protected boolean work() {
+            return commands.drain(this::handle, DRAIN_LIMIT) > 0;
+        }
+
+        @Override
+        protected MpscRingBuffer<?> ring() {
+            return commands;
+        }
+
+        private void handle(Command command) {
+            switch (command) {
+                case Debit debit -> debit(debit.transfer());
+                case Confirm confirm -> confirm(confirm.transfer(), confirm.leg());
+                case Credit credit -> credit(credit.topUp(), credit.index());
+                case Refund refund -> balances.addTo(refund.userId(), refund.amountInCents());
+                case Settle settle -> balances.addTo(settle.userId(), settle.amountInCents());
+                case Query query -> query.balance().complete(
+                        load(query.userId()) ? balances.get(query.userId(), 0L) : null);
+            }
+        }
+
+        private void debit(LedgerTransfer transfer) {
+            int senderId = transfer.getSenderId();
+            List<LedgerTransfer.Leg> legs = transfer.getLegs();
+            if (!load(senderId)) {
+                legs.forEach(leg -> leg.reject("user not found with ID: " + senderId));
+                transfer.getResult().complete(transfer);
+                return;
+            }
+
+            long balance = balances.get(senderId, 0L);
+            long debited = 0;
+            int accepted = 0;
+            while (accepted < legs.size() && legs.get(accepted).getAmountInCents() <= balance - debited) {
+                debited += legs.get(accepted).getAmountInCents();
+                accepted++;
+            }
+            if (accepted < legs.size() && !transfer.isPartial()) {
+                accepted = 0;
+                debited = 0;
+            }
+            for (int i = accepted; i < legs.size(); i++) {
+                legs.get(i).reject("Solde insuffisant");
+            }
+            if (accepted == 0) {
+                transfer.getResult().complete(transfer);
+                return;
+            }
+
+            balances.put(senderId, balance - debited);
+            transfer.pendingLegs().set(accepted);
+            for (int i = 0; i < accepted; i++) {
+                LedgerTransfer.Leg leg = legs.get(i);
+                leg.accept();
+                send(partitionOf(leg.getReceiverId()).commands, new Confirm(transfer, leg));
+            }
+        }
+
+        private void confirm(LedgerTransfer transfer, LedgerTransfer.Leg leg) {
+            if (!load(leg.getReceiverId())) {
+                leg.reject("user not found with ID: " + leg.getReceiverId());
+                send(partitionOf(transfer.getSenderId()).commands,
+                        new Refund(transfer.getSenderId(), leg.getAmountInCents()));
+            }
+            // The last leg to be confirmed hands the transfer over
+            if (transfer.pendingLegs().decrementAndGet() == 0) {
+                if (transfer.hasAcceptedLegs()) {
+                    send(journal.entries, transfer);
+                } else {
+                    transfer.getResult().complete(transfer);
+                }
+            }
+        }
+
+        private void credit(LedgerTopUp topUp, int index) {
+            int userId = topUp.userIdAt(index);
+            // Loaded before the write, so that the Settle sent once written adds to the old balance
+            if (!load(userId)) {
+                topUp.getResult().completeExceptionally(new UserNotFoundException(
+                        "user not found with ID: " + userId));
+                return;
+            }
+            if (index + 1 < topUp.userCount()) {
+                send(partitionOf(topUp.userIdAt(index + 1)).commands, new Credit(topUp, index + 1));
+            } else {
+                send(journal.entries, topUp);
+            }
+        }
+
+        /**
+         * Make sure the user's balance is in memory, reading it from the
+         * database for users created since the rebuild
+         *
+         * @return false if the user does not exist
+         */
+        private boolean load(int userId) {
+            if (balances.containsKey(userId)) {
+                return true;
+            }
+            Optional<Long> balance = walletRepository.findBalanceById(userId);
+            balance.ifPresent(value -> balances.put(userId, value));
+            return balance.isPresent();
+        }
+    }
+
+    private final class Journal extends Worker {
+
+        private final MpscRingBuffer<JournalEntry> entries;
+        private final int batchSize;
+        private final List<JournalEntry> batch = new ArrayList<>();
+
+        Journal(int ringCapacity, int batchSize) {
+            super("ledger-journal");
+            this.entries = new MpscRingBuffer<>(ringCapacity);
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        protected MpscRingBuffer<?> ring() {
+            return entries;
+        }
+
+        @Override
+        protected boolean work() {
+            // No timer: whatever arrived while the previous batch was written forms the next one
+            if (entries.drain(batch::add, batchSize) == 0) {
+                return false;
+            }
+            try {
+                write();
+            } finally {
+                batch.clear();
+            }
+            return true;
+        }
+
+        private void write() {
+            journalBatchSummary.record(batch.size());
+            try {
+                transactionTemplate.executeWithoutResult(status -> persist(batch));
+            } catch (RuntimeException e) {
+                loggingService.error("Ledger journal failed to write " + batch.size()
+                        + " entries, writing them one by one - " + e.getMessage());
+                // Keep one bad entry from failing the others of its batch
+                for (JournalEntry entry : batch) {
+                    writeAlone(entry);
+                }
+                return;
+            }
+            batch.forEach(this::acknowledge);
+        }
+
+        private void writeAlone(JournalEntry entry) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> persist(List.of(entry)));
+            } catch (RuntimeException e) {
+                switch (entry) {
+                    case LedgerTransfer transfer -> {
+                        loggingService.error("Ledger journal failed to write the transfer of user "
+                                + transfer.getSenderId() + ", refunding it - " + e.getMessage());
+                        send(partitionOf(transfer.getSenderId()).commands,
+                                new Refund(transfer.getSenderId(), transfer.getDebitedInCents()));
+                        transfer.getResult().completeExceptionally(
+                                new TransactionException("The transfer could not be recorded", e));
+                    }
+                    case LedgerTopUp topUp -> {
+                        // Nothing to undo: top-ups only reach the balances once written
+                        loggingService.error("Ledger journal failed to write the top-up of users "
+                                + topUp.getCredits().keySet() + " - " + e.getMessage());
+                        topUp.getResult().completeExceptionally(e instanceof UserNotFoundException ? e
+                                : new TransactionException("The top-up could not be recorded", e));
+                    }
+                }
+                return;
+            }
+            acknowledge(entry);
+        }
+
+        private void acknowledge(JournalEntry entry) {
+            if (halted) {
+                // Crashed after the commit: written but never acknowledged
+                return;
+            }
+            switch (entry) {
+                case LedgerTransfer transfer -> {
+                    for (LedgerTransfer.Leg leg : transfer.getLegs()) {
+                        if (leg.getStatus() == LedgerTransfer.Status.ACCEPTED) {
+                            send(partitionOf(leg.getReceiverId()).commands,
+                                    new Settle(leg.getReceiverId(), leg.getAmountInCents()));
+                        }
+                    }
+                    transfer.getResult().complete(transfer);
+                }
+                case LedgerTopUp topUp -> {
+                    topUp.getCredits().forEach((userId, amount) -> send(partitionOf(userId).commands,
+                            new Settle(userId, amount)));
+                    topUp.getResult().complete(topUp.getTopUps());
+                }
+            }
+        }
+
+        /**
+         * Insert the rows, their outbox events and the balance deltas of the
+         * transfers and top-ups
+         */
+        private void persist(List<JournalEntry> entries) {
+            List<LedgerTransfer> transfers = new ArrayList<>();
+            List<LedgerTopUp> topUps = new ArrayList<>();
+            Set<Integer> userIds = new HashSet<>();
+            for (JournalEntry entry : entries) {
+                switch (entry) {
+                    case LedgerTransfer transfer -> {
+                        transfers.add(transfer);
+                        userIds.add(transfer.getSenderId());
+                        for (LedgerTransfer.Leg leg : transfer.getLegs()) {
+                            userIds.add(leg.getReceiverId());
+                        }
+                    }
+                    case LedgerTopUp topUp -> topUps.add(topUp);
+                }
+            }
+            // Loaded rather than referenced so that the callers can read names and emails
+            Map<Integer, User> users = new HashMap<>();
+            if (!userIds.isEmpty()) {
+                for (User user : userRepository.findAllById(userIds)) {
+                    users.put(user.getId(), user);
+                }
+            }
+
+            SortedMap<Integer, Long> deltas = new TreeMap<>();
+            List<Transaction> rows = new ArrayList<>();
+            for (LedgerTransfer transfer : transfers) {
+                for (LedgerTransfer.Leg leg : transfer.getLegs()) {
+                    if (leg.getStatus() != LedgerTransfer.Status.ACCEPTED) {
+                        continue;
+                    }
+                    deltas.merge(transfer.getSenderId(), -leg.getAmountInCents(), Long::sum);
+                    deltas.merge(leg.getReceiverId(), leg.getAmountInCents(), Long::sum);
+
+                    Transaction transaction = new Transaction();
+                    transaction.setSender(users.get(transfer.getSenderId()));
+                    transaction.setReceiver(users.get(leg.getReceiverId()));
+                    transaction.setAmountInCents(leg.getAmountInCents());
+                    transaction.setDescription(leg.getDescription());
+                    rows.add(transaction);
+                    leg.written(transaction);
+                }
+            }
+            for (LedgerTopUp topUp : topUps) {
+                topUp.getCredits().forEach((userId, amount) -> deltas.merge(userId, amount, Long::sum));
+            }
+
+            if (walletRepository.applyBalanceDeltas(deltas) > 0) {
+                throw new UserNotFoundException("A user of the batch no longer exists");
+            }
+            transactionRepository.saveAll(rows);
+            accountEvents.transfersCreated(rows);
+            if (!topUps.isEmpty()) {
+                persistTopUps(topUps);
+            }
+        }
+
+        private void persistTopUps(List<LedgerTopUp> topUps) {
+            Set<Integer> userIds = new HashSet<>();
+            topUps.forEach(topUp -> userIds.addAll(topUp.getCredits().keySet()));
+            // The balance once the whole batch is applied, like a concurrent transfer would show it
+            Map<Integer, Long> balances = walletRepository.findBalances(userIds);
+            Instant now = Instant.now();
+            List<TopUp> rows = new ArrayList<>();
+            for (LedgerTopUp topUp : topUps) {
+                List<TopUp> written = new ArrayList<>(topUp.getCredits().size());
+                topUp.getCredits().forEach((userId, amount) -> written.add(
+                        new TopUp(null, userId, amount, balances.get(userId), now)));
+                topUp.written(written);
+                rows.addAll(written);
+            }
+            topUpRepository.saveAll(rows);
+            accountEvents.topUpsCreated(rows);
+        }
+    }
+
+    private static void joinQuietly(Thread thread) {
+        try {
+            thread.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.paymybuddy.ledger;
+
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+import com.paymybuddy.models.TopUp;
+
+/**
+ * Money added from outside to one or more users, all or nothing, handled by
+ * the ledger engine: the partition of each user in turn checks that the user
+ * exists, the journal writes the credits with their top-up rows, and only
+ * then are the credits added to the in-memory balances. The result completes
+ * with the written top-ups, or exceptionally if a user does not exist or the
+ * write failed.
+ */
+public final class LedgerTopUp implements JournalEntry {
+
+    private final SortedMap<Integer, Long> credits;
+    private final int[] userIds;
+    private final CompletableFuture<List<TopUp>> result = new CompletableFuture<>();
+    private List<TopUp> topUps = List.of();
+
+    /**
+     * @param credits the positive amount to add per user ID, not empty
+     */
+    public LedgerTopUp(SortedMap<Integer, Long> credits) {
+        this.credits = new TreeMap<>(credits);
+        this.userIds = this.credits.keySet().stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    public static LedgerTopUp single(int userId, long amountInCents) {
+        SortedMap<Integer, Long> credits = new TreeMap<>();
+        credits.put(userId, amountInCents);
+        return new LedgerTopUp(credits);
+    }
+
+    /**
+     * @return the amount to add per user ID, in ascending ID order
+     */
+    public SortedMap<Integer, Long> getCredits() {
+        return credits;
+    }
+
+    public CompletableFuture<List<TopUp>> getResult() {
+        return result;
+    }
+
+    int userCount() {
+        return userIds.length;
+    }
+
+    int userIdAt(int index) {
+        return userIds[index];
+    }
+
+    List<TopUp> getTopUps() {
+        return topUps;
+    }
+
+    void written(List<TopUp> stored) {
+        topUps = stored;
+    }
+}
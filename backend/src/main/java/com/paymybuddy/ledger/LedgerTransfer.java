@@ -0,0 +1,142 @@
+package com.paymybuddy.ledger;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.paymybuddy.models.Transaction;
+
+/**
+ * Payments from one sender handled by the ledger engine as a unit: one debit
+ * for the legs the balance covers, then one credit per leg. The result
+ * completes once the accepted legs are written to the database, or
+ * exceptionally if the write failed (the debit is then refunded).
+ */
+public final class LedgerTransfer implements JournalEntry {
+
+    public enum Status {
+        PENDING, ACCEPTED, REJECTED
+    }
+
+    private final int senderId;
+    private final List<Leg> legs;
+    private final boolean partial;
+    private final AtomicInteger pendingLegs = new AtomicInteger();
+    private final CompletableFuture<LedgerTransfer> result = new CompletableFuture<>();
+
+    /**
+     * @param senderId the sender user ID
+     * @param legs     the payments, in order
+     * @param partial  keep the longest prefix of legs the balance covers
+     *                 instead of rejecting them all
+     */
+    public LedgerTransfer(int senderId, List<Leg> legs, boolean partial) {
+        this.senderId = senderId;
+        this.legs = List.copyOf(legs);
+        this.partial = partial;
+    }
+
+    public static LedgerTransfer single(int senderId, int receiverId, long amountInCents, String description) {
+        return new LedgerTransfer(senderId, List.of(new Leg(receiverId, amountInCents, description)), false);
+    }
+
+    public int getSenderId() {
+        return senderId;
+    }
+
+    public List<Leg> getLegs() {
+        return legs;
+    }
+
+    public boolean isPartial() {
+        return partial;
+    }
+
+    public CompletableFuture<LedgerTransfer> getResult() {
+        return result;
+    }
+
+    /**
+     * @return the sum of the accepted legs
+     */
+    public long getDebitedInCents() {
+        long debited = 0;
+        for (Leg leg : legs) {
+            if (leg.status == Status.ACCEPTED) {
+                debited += leg.amountInCents;
+            }
+        }
+        return debited;
+    }
+
+    boolean hasAcceptedLegs() {
+        for (Leg leg : legs) {
+            if (leg.status == Status.ACCEPTED) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    AtomicInteger pendingLegs() {
+        return pendingLegs;
+    }
+
+    public static class Leg {
+        private final int receiverId;
+        private final long amountInCents;
+        private final String description;
+        private Status status = Status.PENDING;
+        private String message;
+        private Transaction transaction;
+
+        public Leg(int receiverId, long amountInCents, String description) {
+            this.receiverId = receiverId;
+            this.amountInCents = amountInCents;
+            this.description = description;
+        }
+
+        public int getReceiverId() {
+            return receiverId;
+        }
+
+        public long getAmountInCents() {
+            return amountInCents;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * @return why the leg was rejected, null otherwise
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        /**
+         * @return the stored transaction once the leg is written
+         */
+        public Transaction getTransaction() {
+            return transaction;
+        }
+
+        void accept() {
+            status = Status.ACCEPTED;
+        }
+
+        void reject(String reason) {
+            status = Status.REJECTED;
+            message = reason;
+        }
+
+        void written(Transaction stored) {
+            transaction = stored;
+        }
+    }
+}
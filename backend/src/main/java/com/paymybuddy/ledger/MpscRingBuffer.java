@@ -0,0 +1,133 @@
+package com.paymybuddy.ledger;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Bounded lock-free queue for many producers and one consumer thread.
+ *
+ * Producers claim a slot with a CAS on the tail and publish it by bumping the
+ * slot sequence; the consumer reads slots in order and hands them back by
+ * moving their sequence one lap ahead. A full buffer is reported to the
+ * producer instead of blocking it. An idle consumer parks and the next offer
+ * wakes it up.
+ */
+public class MpscRingBuffer<E> {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    // Only touched by the consumer thread
+    private long head;
+    // Lagging copy of head for size() readers
+    private final AtomicLong consumed = new AtomicLong();
+    private volatile Thread parkedConsumer;
+
+    public MpscRingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring buffer capacity must be a power of two: " + capacity);
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.elements = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Add an element, from any thread
+     *
+     * @return false if the buffer is full
+     */
+    public boolean offer(E element) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long available = sequences.get(index) - position;
+            if (available == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.lazySet(index, element);
+                    sequences.set(index, position + 1);
+                    Thread consumer = parkedConsumer;
+                    if (consumer != null) {
+                        LockSupport.unpark(consumer);
+                    }
+                    return true;
+                }
+            } else if (available < 0) {
+                return false;
+            }
+            // Another producer claimed the slot first: try the next one
+        }
+    }
+
+    /**
+     * Take the next element, consumer thread only
+     *
+     * @return the element, or null if none is published yet
+     */
+    public E poll() {
+        int index = (int) head & mask;
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        E element = elements.get(index);
+        elements.lazySet(index, null);
+        sequences.set(index, head + capacity);
+        head++;
+        consumed.lazySet(head);
+        return element;
+    }
+
+    /**
+     * Hand up to limit elements to the handler, consumer thread only
+     *
+     * @return the number of elements handled
+     */
+    public int drain(Consumer<? super E> handler, int limit) {
+        int drained = 0;
+        E element;
+        while (drained < limit && (element = poll()) != null) {
+            handler.accept(element);
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * Park the consumer until an offer or the timeout, unless an element is
+     * already waiting
+     */
+    public void await(long timeoutNanos) {
+        parkedConsumer = Thread.currentThread();
+        try {
+            // Checked after registering, so an offer racing with the check still unparks us
+            if (isEmpty()) {
+                LockSupport.parkNanos(this, timeoutNanos);
+            }
+        } finally {
+            parkedConsumer = null;
+        }
+    }
+
+    /**
+     * Whether the next element is still missing, consumer thread only
+     */
+    public boolean isEmpty() {
+        return sequences.get((int) head & mask) != head + 1;
+    }
+
+    /**
+     * Approximate number of elements, from any thread
+     */
+    public int size() {
+        return (int) Math.max(0, Math.min(capacity, tail.get() - consumed.get()));
+    }
+}
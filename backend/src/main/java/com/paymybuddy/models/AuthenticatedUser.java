@@ -0,0 +1,27 @@
+package com.paymybuddy.models;
+
+import java.util.Collection;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * Security principal for a Pay My Buddy account. It carries the database id
+ * of the user so that controllers can resolve the caller without looking the
+ * email up again on every request.
+ */
+@Getter
+@EqualsAndHashCode(callSuper = true)
+public class AuthenticatedUser extends User {
+
+    private final Integer id;
+
+    public AuthenticatedUser(Integer id, String email, String password,
+            Collection<? extends GrantedAuthority> authorities) {
+        super(email, password, authorities);
+        this.id = id;
+    }
+}
@@ -0,0 +1,39 @@
+package com.paymybuddy.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * Shared record of an Idempotency-Key, used when the guarantee must hold
+ * across nodes. Read and written with plain JDBC by
+ * {@link com.paymybuddy.repository.IdempotencyRecordRepository}; a null status
+ * means the original request is still running.
+ */
+@Entity
+@Table(name = "idempotency_records")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+
+    /**
+     * "<user id>:<Idempotency-Key>", keys are scoped to their user
+     */
+    @Id
+    @Column(name = "id", length = 300)
+    private String id;
+
+    @Column(name = "request_fingerprint", nullable = false, length = 64)
+    private String requestFingerprint;
+
+    @Column(name = "status_code")
+    private Integer statusCode;
+
+    @Column(name = "response_body", length = 4000)
+    private String responseBody;
+
+    @Column(name = "expires_at", nullable = false)
+    private Long expiresAt;
+}
@@ -0,0 +1,72 @@
+package com.paymybuddy.models;
+
+import java.time.Instant;
+
+import org.hibernate.annotations.ColumnDefault;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * Side effect of a money movement, written in the same database transaction
+ * as the movement itself and handed to the in-process subscribers by the
+ * outbox relay once committed. Pending events are the rows without
+ * processed_at; next_attempt_at holds a pending event back while a relay
+ * dispatches it, or after a failed delivery until its backoff expires.
+ */
+@Entity
+@Table(name = "outbox", indexes = {
+        @Index(name = "idx_outbox_processed_at_id", columnList = "processed_at, id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent {
+
+    public static final String TRANSFER_CREATED = "transfer-created";
+    public static final String TOP_UP_CREATED = "top-up-created";
+
+    @Id
+    @PooledTableId("outbox")
+    private Long id;
+
+    @Column(name = "event_type", nullable = false, length = 50)
+    private String eventType;
+
+    /**
+     * The event as JSON: a TransactionEventDTO for transfers, a TopUp for
+     * top-ups
+     */
+    @Column(name = "payload", nullable = false, length = 1000)
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "processed_at")
+    private Instant processedAt;
+
+    /** Failed deliveries so far; defaults to 0 for rows inserted without it, as in migration 011 */
+    @ColumnDefault("0")
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    /** The event cannot be claimed before this time: lease or retry backoff */
+    @Column(name = "next_attempt_at")
+    private Instant nextAttemptAt;
+
+    /**
+     * Comma-separated names of the subscribers that still have to handle the
+     * event after a failed delivery, null for all of them
+     */
+    @Column(name = "pending_subscribers", length = 500)
+    private String pendingSubscribers;
+
+    public OutboxEvent(String eventType, String payload, Instant createdAt) {
+        this.eventType = eventType;
+        this.payload = payload;
+        this.createdAt = createdAt;
+    }
+}
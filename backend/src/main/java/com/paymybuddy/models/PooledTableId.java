@@ -0,0 +1,26 @@
+package com.paymybuddy.models;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+/**
+ * Generates the annotated id from a segment of the id_sequences table, handing
+ * out blocks of ids (see {@link PooledTableIdGenerator}). Unlike IDENTITY, the
+ * id is known before the INSERT, so Hibernate can batch inserts.
+ */
+@IdGeneratorType(PooledTableIdGenerator.class)
+@Retention(RUNTIME)
+@Target({ FIELD, METHOD })
+public @interface PooledTableId {
+
+    /**
+     * @return the segment (row) of id_sequences, by convention the table name
+     */
+    String value();
+}
@@ -0,0 +1,70 @@
+package com.paymybuddy.models;
+
+import java.lang.reflect.Member;
+import java.util.Properties;
+
+import org.hibernate.MappingException;
+import org.hibernate.cfg.MappingSettings;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.config.spi.StandardConverters;
+import org.hibernate.id.OptimizableGenerator;
+import org.hibernate.id.enhanced.TableGenerator;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+/**
+ * Table-backed id generator shared by every entity: one row per segment in
+ * id_sequences (sequence_name, next_val), which works the same on MySQL and
+ * H2. With the pooled-lo optimizer a single UPDATE reserves allocation-size
+ * ids [next_val, next_val + allocation-size), so next_val is always the next
+ * free id. That requires hibernate.id.generator.stored_last_used=false: by
+ * default Hibernate 6 stores the last id of the block instead, so
+ * {@link #configure} refuses to start without it. Rows inserted with explicit
+ * ids must advance next_val, see
+ * {@link com.paymybuddy.repository.IdSequenceRepository}.
+ *
+ * The block is reserved in its own transaction, on a second pooled
+ * connection, while every other insert of the segment waits for it: keep the
+ * connection pool larger than the number of transactions that insert at once.
+ *
+ * Each node hands out ids from its own block, so ids are unique but not
+ * chronological across nodes: a row committed later can get a lower id. The
+ * history and its keyset pages are ordered by id, which only approximates
+ * creation order when several nodes write; no row is skipped or repeated.
+ *
+ * The block size comes from the Hibernate setting paymybuddy.id.allocation_size
+ * (spring.jpa.properties.paymybuddy.id.allocation_size), 50 by default.
+ */
+public class PooledTableIdGenerator extends TableGenerator {
+
+    public static final String TABLE = "id_sequences";
+    public static final String ALLOCATION_SIZE_SETTING = "paymybuddy.id.allocation_size";
+    public static final int DEFAULT_ALLOCATION_SIZE = 50;
+
+    private final String segment;
+
+    public PooledTableIdGenerator(PooledTableId config, Member member, CustomIdGeneratorCreationContext context) {
+        this.segment = config.value();
+    }
+
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) throws MappingException {
+        ConfigurationService settings = serviceRegistry.requireService(ConfigurationService.class);
+        if (settings.getSetting(MappingSettings.TABLE_GENERATOR_STORE_LAST_USED, StandardConverters.BOOLEAN, true)) {
+            throw new MappingException(MappingSettings.TABLE_GENERATOR_STORE_LAST_USED
+                    + " must be false: id_sequences.next_val holds the next free id");
+        }
+        int allocationSize = settings.getSetting(ALLOCATION_SIZE_SETTING, value -> Integer.valueOf(value.toString()),
+                DEFAULT_ALLOCATION_SIZE);
+
+        parameters.put(TABLE_PARAM, TABLE);
+        parameters.put(SEGMENT_COLUMN_PARAM, "sequence_name");
+        parameters.put(VALUE_COLUMN_PARAM, "next_val");
+        parameters.put(SEGMENT_VALUE_PARAM, segment);
+        parameters.put(INITIAL_PARAM, "1");
+        parameters.put(INCREMENT_PARAM, String.valueOf(allocationSize));
+        parameters.put(OptimizableGenerator.OPT_PARAM, "pooled-lo");
+        super.configure(type, parameters, serviceRegistry);
+    }
+}
@@ -0,0 +1,35 @@
+package com.paymybuddy.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * Refresh token that can still be exchanged, shared by every node (JWT mode).
+ * Read and written with plain JDBC by
+ * {@link com.paymybuddy.repository.RefreshTokenRepository}: the row is deleted
+ * when the token is used or revoked, so a token works once, on any node.
+ */
+@Entity
+@Table(name = "refresh_tokens", indexes = {
+        @Index(name = "idx_refresh_tokens_expires_at", columnList = "expires_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RefreshToken {
+
+    /**
+     * The jti claim of the token
+     */
+    @Id
+    @Column(name = "id", length = 36)
+    private String id;
+
+    @Column(name = "user_id", nullable = false)
+    private Integer userId;
+
+    @Column(name = "expires_at", nullable = false)
+    private Long expiresAt;
+}
@@ -0,0 +1,43 @@
+package com.paymybuddy.models;
+
+import java.time.Instant;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * Ledger entry of money added to an account from outside (POST /add-money or
+ * a settlement batch), with the balance it left so that top-ups can be
+ * audited against the balance history.
+ */
+@Entity
+@Table(name = "top_ups", indexes = {
+        @Index(name = "idx_top_ups_user_id_id", columnList = "user_id, id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopUp {
+
+    @Id
+    @PooledTableId("top_ups")
+    private Integer id;
+
+    /**
+     * Plain column rather than an association: top-ups are written without
+     * loading the user
+     */
+    @Column(name = "user_id", nullable = false)
+    private Integer userId;
+
+    @Column(name = "amount_in_cents", nullable = false)
+    private Long amountInCents;
+
+    @Column(name = "balance_after_in_cents", nullable = false)
+    private Long balanceAfterInCents;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+}
@@ -1,5 +1,9 @@
 package com.paymybuddy.models;
 
+import java.util.Locale;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
@@ -9,14 +13,16 @@ import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_users_email_lower", columnNames = "email_lower")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class User {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @PooledTableId("users")
     private Integer id;
 
     @NotBlank(message = "Username is required")
@@ -29,11 +35,35 @@ public class User {
     @Column(name = "email", nullable = false, unique = true, length = 100)
     private String email;
 
+    /**
+     * Lowercased copy of the email, used for exact-match (indexed) lookups
+     */
+    @JsonIgnore
+    @Column(name = "email_lower", nullable = false, length = 100)
+    private String emailLower;
+
     @NotBlank(message = "Password is required")
     @Size(min = 6, message = "Password must be at least 6 characters")
     @Column(name = "password", nullable = false)
     private String password;
 
-    @Column(name = "balance_in_cents", nullable = false, columnDefinition = "BIGINT DEFAULT 0")
-    private Long balanceInCents = 0L;
+    /**
+     * Bumped by every write to the row, including the profile UPDATE
+     * statements, so that a save from a stale copy fails instead of
+     * overwriting a concurrent change. The balance lives in {@link Wallet}.
+     */
+    @Version
+    @JsonIgnore
+    @Column(name = "version", nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long version;
+
+    @PrePersist
+    @PreUpdate
+    void normalizeEmail() {
+        emailLower = normalizeEmail(email);
+    }
+
+    public static String normalizeEmail(String email) {
+        return email == null ? null : email.toLowerCase(Locale.ROOT);
+    }
 }
@@ -0,0 +1,43 @@
+package com.paymybuddy.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * Balance of a user, kept apart from the profile row: transfers and top-ups
+ * lock and rewrite only this narrow row, so profile reads and edits do not
+ * wait behind payment traffic.
+ */
+@Entity
+@Table(name = "wallets")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Wallet {
+
+    /**
+     * The id of the owning user, assigned rather than generated
+     */
+    @Id
+    @Column(name = "user_id")
+    private Integer userId;
+
+    @Column(name = "balance_in_cents", nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long balanceInCents = 0L;
+
+    /**
+     * Bumped by every write to the row, including the balance UPDATE
+     * statements, so that a save from a stale copy fails instead of
+     * overwriting a concurrent change
+     */
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long version;
+
+    public Wallet(Integer userId, Long balanceInCents) {
+        this.userId = userId;
+        this.balanceInCents = balanceInCents;
+    }
+}
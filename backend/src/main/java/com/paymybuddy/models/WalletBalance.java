@@ -0,0 +1,19 @@
+package com.paymybuddy.models;
+
+/**
+ * Balance of a user as read for display, with the version of its wallet row
+ *
+ * @param balanceInCents the wallet plus its slots
+ * @param version        the wallet row version, bumped by every write to it
+ */
+public record WalletBalance(Long balanceInCents, Long version) {
+
+    /**
+     * Entity tag of this balance. The version alone misses the credits to the
+     * slots of a hot account, which leave the wallet row untouched, so the
+     * balance is part of the tag too.
+     */
+    public String eTag() {
+        return "\"" + Long.toHexString(version) + "-" + Long.toHexString(balanceInCents) + "\"";
+    }
+}
@@ -0,0 +1,42 @@
+package com.paymybuddy.models;
+
+import java.io.Serializable;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * Sub-balance of a hot account. Credits to a hot account are spread over its
+ * slots so that they do not all queue on the wallet row; the visible balance
+ * is the wallet balance plus every slot, and a debit the wallet alone does not
+ * cover first folds the slots back into the wallet.
+ */
+@Entity
+@Table(name = "wallet_slots")
+@IdClass(WalletSlot.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WalletSlot {
+
+    @Id
+    @Column(name = "user_id")
+    private Integer userId;
+
+    @Id
+    @Column(name = "slot")
+    private Integer slot;
+
+    @Column(name = "balance_in_cents", nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long balanceInCents = 0L;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Integer userId;
+        private Integer slot;
+    }
+}
@@ -0,0 +1,15 @@
+package com.paymybuddy.models.dtos;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * Payload of the balance-changed event of GET /events
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalanceEventDTO {
+    private Long balanceInCents;
+}
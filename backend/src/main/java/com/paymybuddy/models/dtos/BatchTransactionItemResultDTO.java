@@ -0,0 +1,29 @@
+package com.paymybuddy.models.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchTransactionItemResultDTO {
+
+    public enum Status {
+        CREATED,
+        /** The item itself cannot be executed (validation, unknown receiver, balance) */
+        REJECTED,
+        /** Valid item not executed because the all-or-nothing batch failed */
+        NOT_EXECUTED
+    }
+
+    /**
+     * Position of the item in the request
+     */
+    private int index;
+    private Status status;
+    private Integer transactionId;
+    private Integer receiverId;
+    private Long amountInCents;
+    private String message;
+}
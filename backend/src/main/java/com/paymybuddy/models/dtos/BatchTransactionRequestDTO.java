@@ -0,0 +1,32 @@
+package com.paymybuddy.models.dtos;
+
+import java.util.List;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+@Data
+public class BatchTransactionRequestDTO {
+
+    public static final int MAX_ITEMS = 1000;
+
+    public enum Mode {
+        /** Every item is executed or none is */
+        ALL_OR_NOTHING,
+        /** Valid items are executed, in order, as long as the balance covers them */
+        BEST_EFFORT
+    }
+
+    /**
+     * Items are validated one by one by the service, so that an invalid item is
+     * reported in its outcome instead of failing the whole request
+     */
+    @NotEmpty
+    @Size(max = MAX_ITEMS, message = "A batch holds at most " + MAX_ITEMS + " transactions")
+    private List<CreateTransactionRequestDTO> items;
+
+    @NotNull
+    private Mode mode = Mode.ALL_OR_NOTHING;
+}
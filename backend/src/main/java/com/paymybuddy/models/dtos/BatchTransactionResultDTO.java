@@ -0,0 +1,26 @@
+package com.paymybuddy.models.dtos;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchTransactionResultDTO {
+    private BatchTransactionRequestDTO.Mode mode;
+    private int created;
+    private int rejected;
+
+    /**
+     * Total debited from the sender, the sum of the created items
+     */
+    private long debitedInCents;
+
+    /**
+     * One outcome per request item, in request order
+     */
+    private List<BatchTransactionItemResultDTO> items;
+}
@@ -14,4 +14,14 @@ public class PublicTransactionDTO {
     private String description;
     private Long amountInCents;
 
+    /**
+     * Flat constructor used by JPQL constructor expressions, so the history can
+     * be read in a single joined SELECT without loading any entity
+     */
+    public PublicTransactionDTO(Integer id, Integer senderId, String senderUsername, String senderEmail,
+            Integer receiverId, String receiverUsername, String receiverEmail, String description,
+            Long amountInCents) {
+        this(id, new PublicUserDTO(senderId, senderUsername, senderEmail),
+                new PublicUserDTO(receiverId, receiverUsername, receiverEmail), description, amountInCents);
+    }
 }
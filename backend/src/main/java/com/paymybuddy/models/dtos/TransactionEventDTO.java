@@ -0,0 +1,20 @@
+package com.paymybuddy.models.dtos;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * Payload of the transaction-received event of GET /events. Ids only, so that
+ * it is built without loading the users; the history gives the details.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionEventDTO {
+    private Integer transactionId;
+    private Integer senderId;
+    private Integer receiverId;
+    private String description;
+    private Long amountInCents;
+}
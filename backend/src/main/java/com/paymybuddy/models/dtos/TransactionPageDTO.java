@@ -0,0 +1,19 @@
+package com.paymybuddy.models.dtos;
+
+import java.util.List;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionPageDTO {
+    private List<PublicTransactionDTO> items;
+
+    /**
+     * Id to pass as {@code before} to fetch the next page, null on the last page
+     */
+    private Integer nextCursor;
+}
@@ -0,0 +1,262 @@
+package com.paymybuddy.perf;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import com.paymybuddy.logging.LoggingService;
+import com.paymybuddy.repository.IdSequenceRepository;
+
+/**
+ * Loads a production-scale synthetic dataset into the perf profile database at
+ * startup: users sharing one precomputed password hash, a power-law connection
+ * graph and transactions skewed toward hot receivers.
+ *
+ * Every phase is split into chunks of batch-size rows, generated and inserted
+ * with JDBC batches on a fixed pool. Each chunk draws from its own random
+ * stream derived from the seed, so a given configuration always produces the
+ * same graph and history (connection ids aside).
+ */
+@Component
+@Profile("perf")
+@ConditionalOnProperty(name = "perf.generator.enabled", havingValue = "true")
+public class PerfDataGenerator implements ApplicationRunner {
+
+    static final String INSERT_USER = "INSERT INTO users (id, username, email, email_lower, password) "
+            + "VALUES (?, ?, ?, ?, ?)";
+    static final String INSERT_WALLET = "INSERT INTO wallets (user_id, balance_in_cents, version) VALUES (?, ?, 0)";
+    static final String INSERT_CONNECTION = "INSERT INTO user_connections (id, user_id, connection_id) "
+            + "VALUES (?, ?, ?)";
+    static final String INSERT_TRANSACTION = "INSERT INTO transactions (id, sender_id, receiver_id, description, "
+            + "amount_in_cents) VALUES (?, ?, ?, ?, ?)";
+
+    static final long INITIAL_BALANCE_IN_CENTS = 1_000_000L;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final IdSequenceRepository idSequenceRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final LoggingService loggingService;
+
+    private final int users;
+    private final int transactions;
+    private final int maxConnectionsPerUser;
+    private final String password;
+    private final double degreeSkew;
+    private final double popularitySkew;
+    private final int threads;
+    private final int batchSize;
+    private final long seed;
+
+    public PerfDataGenerator(JdbcTemplate jdbcTemplate, IdSequenceRepository idSequenceRepository,
+            PasswordEncoder passwordEncoder, LoggingService loggingService,
+            @Value("${perf.generator.users:1000000}") int users,
+            @Value("${perf.generator.transactions:10000000}") int transactions,
+            @Value("${perf.generator.max-connections-per-user:50}") int maxConnectionsPerUser,
+            @Value("${perf.generator.password:perf-password}") String password,
+            @Value("${perf.generator.degree-skew:1.5}") double degreeSkew,
+            @Value("${perf.generator.popularity-skew:1.1}") double popularitySkew,
+            @Value("${perf.generator.threads:0}") int threads,
+            @Value("${perf.generator.batch-size:5000}") int batchSize,
+            @Value("${perf.generator.seed:42}") long seed) {
+        if (users < 2) {
+            throw new IllegalArgumentException("perf.generator.users must be at least 2");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.idSequenceRepository = idSequenceRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.loggingService = loggingService;
+        this.users = users;
+        this.transactions = transactions;
+        this.maxConnectionsPerUser = Math.min(maxConnectionsPerUser, users - 1);
+        this.password = password;
+        this.degreeSkew = degreeSkew;
+        this.popularitySkew = popularitySkew;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.batchSize = batchSize;
+        this.seed = seed;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Integer existing = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class);
+        if (existing != null && existing > 0) {
+            loggingService.info("Perf dataset skipped: the users table already holds " + existing + " rows");
+            return;
+        }
+        generate();
+    }
+
+    /**
+     * Generate and insert the whole dataset
+     */
+    public void generate() {
+        loggingService.info("Generating perf dataset: " + users + " users, " + transactions + " transactions on "
+                + threads + " threads");
+        // One hash for every user: hashing millions of passwords would dominate the load
+        String passwordHash = passwordEncoder.encode(password);
+        ZipfDistribution degrees = new ZipfDistribution(maxConnectionsPerUser, degreeSkew);
+        ZipfDistribution popularity = new ZipfDistribution(users, popularitySkew);
+        AtomicInteger connectionIds = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            runPhase(executor, "users", users, (first, last, random) -> insertUsers(first, last, passwordHash));
+            runPhase(executor, "connections", users,
+                    (first, last, random) -> insertConnections(first, last, random, degrees, popularity,
+                            connectionIds));
+            runPhase(executor, "transactions", transactions,
+                    (first, last, random) -> insertTransactions(first, last, random, popularity));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Rows were inserted with explicit ids: the id generator must continue after them
+        idSequenceRepository.advanceTo("users", users + 1L);
+        idSequenceRepository.advanceTo("user_connections", connectionIds.get() + 1L);
+        idSequenceRepository.advanceTo("transactions", transactions + 1L);
+    }
+
+    private void runPhase(ExecutorService executor, String name, int rows, Chunk chunk) {
+        long start = System.nanoTime();
+        List<Future<Integer>> futures = new ArrayList<>();
+        int chunkIndex = 0;
+        for (int first = 1; first <= rows; first += batchSize) {
+            int from = first;
+            int to = Math.min(rows, first + batchSize - 1);
+            SplittableRandom random = new SplittableRandom(seed * 31 + name.hashCode() * 17L + chunkIndex++);
+            futures.add(executor.submit(() -> chunk.insert(from, to, random)));
+        }
+
+        long inserted = 0;
+        try {
+            for (Future<Integer> future : futures) {
+                inserted += future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Perf data generation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Perf data generation failed while inserting " + name, e.getCause());
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        loggingService.info(String.format("Perf dataset: %,d %s in %.1f s (%,.0f rows/s)", inserted, name, seconds,
+                inserted / Math.max(seconds, 1e-9)));
+    }
+
+    private int insertUsers(int firstId, int lastId, String passwordHash) {
+        batchInsert(INSERT_USER, lastId - firstId + 1, (ps, i) -> {
+            int id = firstId + i;
+            String email = email(id);
+            ps.setInt(1, id);
+            ps.setString(2, "user" + id);
+            ps.setString(3, email);
+            ps.setString(4, email);
+            ps.setString(5, passwordHash);
+        });
+        batchInsert(INSERT_WALLET, lastId - firstId + 1, (ps, i) -> {
+            ps.setInt(1, firstId + i);
+            ps.setLong(2, INITIAL_BALANCE_IN_CENTS);
+        });
+        return lastId - firstId + 1;
+    }
+
+    private int insertConnections(int firstUserId, int lastUserId, SplittableRandom random,
+            ZipfDistribution degrees, ZipfDistribution popularity, AtomicInteger connectionIds) {
+        List<int[]> pairs = new ArrayList<>();
+        Set<Integer> targets = new HashSet<>();
+        for (int userId = firstUserId; userId <= lastUserId; userId++) {
+            int degree = degrees.sample(random);
+            targets.clear();
+            // Popular users collect most of the connections; bail out rather than spin on collisions
+            for (int attempt = 0; targets.size() < degree && attempt < degree * 4; attempt++) {
+                int target = popularity.sample(random);
+                if (target != userId && targets.add(target)) {
+                    pairs.add(new int[] { userId, target });
+                }
+            }
+        }
+
+        int firstId = connectionIds.getAndAdd(pairs.size()) + 1;
+        for (int from = 0; from < pairs.size(); from += batchSize) {
+            int offset = from;
+            batchInsert(INSERT_CONNECTION, Math.min(batchSize, pairs.size() - from), (ps, i) -> {
+                int[] pair = pairs.get(offset + i);
+                ps.setInt(1, firstId + offset + i);
+                ps.setInt(2, pair[0]);
+                ps.setInt(3, pair[1]);
+            });
+        }
+        return pairs.size();
+    }
+
+    private int insertTransactions(int firstId, int lastId, SplittableRandom random, ZipfDistribution popularity) {
+        batchInsert(INSERT_TRANSACTION, lastId - firstId + 1, (ps, i) -> {
+            int sender = 1 + random.nextInt(users);
+            int receiver = popularity.sample(random);
+            if (receiver == sender) {
+                receiver = sender % users + 1;
+            }
+            ps.setInt(1, firstId + i);
+            ps.setInt(2, sender);
+            ps.setInt(3, receiver);
+            ps.setString(4, "perf transfer");
+            // Log-normal amounts: median around 11 euros, long tail of larger transfers
+            ps.setLong(5, Math.max(1L, Math.round(Math.exp(7 + 1.2 * random.nextGaussian()))));
+        });
+        return lastId - firstId + 1;
+    }
+
+    private void batchInsert(String sql, int size, RowSetter rowSetter) {
+        jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                rowSetter.set(ps, i);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return size;
+            }
+        });
+    }
+
+    /**
+     * Email of a generated user, also its login
+     *
+     * @param userId the user ID
+     * @return the email
+     */
+    public static String email(int userId) {
+        return "user" + userId + "@perf.example.com";
+    }
+
+    @FunctionalInterface
+    private interface Chunk {
+        int insert(int first, int last, SplittableRandom random);
+    }
+
+    @FunctionalInterface
+    private interface RowSetter {
+        void set(PreparedStatement ps, int i) throws SQLException;
+    }
+}
@@ -0,0 +1,47 @@
+package com.paymybuddy.perf;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Zipf (power-law) distribution over the ranks 1..n: rank k is drawn with a
+ * probability proportional to 1 / k^exponent. The cumulative distribution is
+ * computed once, so sampling is a binary search and the instance can be
+ * shared between threads.
+ */
+public class ZipfDistribution {
+
+    private final double[] cumulative;
+
+    public ZipfDistribution(int n, double exponent) {
+        if (n < 1) {
+            throw new IllegalArgumentException("n must be at least 1");
+        }
+        cumulative = new double[n];
+        double sum = 0;
+        for (int rank = 1; rank <= n; rank++) {
+            sum += 1.0 / Math.pow(rank, exponent);
+            cumulative[rank - 1] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cumulative[i] /= sum;
+        }
+    }
+
+    /**
+     * Draw a rank
+     * 
+     * @param random the random source of the calling thread
+     * @return a rank between 1 and n, 1 being the most likely
+     */
+    public int sample(RandomGenerator random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        // Insertion point of the draw: first rank whose cumulative probability exceeds it
+        int rank = index >= 0 ? index + 1 : -index;
+        return Math.min(rank, cumulative.length);
+    }
+
+    public int size() {
+        return cumulative.length;
+    }
+}
@@ -0,0 +1,37 @@
+package com.paymybuddy.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.paymybuddy.models.PooledTableIdGenerator;
+
+/**
+ * Access to the id_sequences table behind {@link PooledTableIdGenerator}, for
+ * code that inserts rows with explicit ids (bulk loads, seeding).
+ */
+@Repository
+public class IdSequenceRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdSequenceRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Make sure the generator never hands out an id below the given one. Ids
+     * already reserved by running instances are unaffected, so only call this
+     * for ids that no instance has reserved yet (typically after a bulk load).
+     *
+     * @param segment the segment, by convention the table name
+     * @param nextId  the lowest id the generator may still hand out
+     */
+    public void advanceTo(String segment, long nextId) {
+        int updated = jdbcTemplate.update("UPDATE " + PooledTableIdGenerator.TABLE
+                + " SET next_val = GREATEST(next_val, ?) WHERE sequence_name = ?", nextId, segment);
+        if (updated == 0) {
+            jdbcTemplate.update("INSERT INTO " + PooledTableIdGenerator.TABLE + " (sequence_name, next_val) "
+                    + "VALUES (?, ?)", segment, nextId);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.paymybuddy.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.paymybuddy.models.IdempotencyRecord;
+
+/**
+ * JDBC access to idempotency_records. Claims are auto-committed statements, so
+ * that they are visible to the other nodes immediately. A claim is identified
+ * by its lease expiry: taking it over sets a new one, and the writes of the
+ * previous owner then match no row. The response may be stored inside the
+ * caller's transaction, see {@link #complete}.
+ */
+@Repository
+public class IdempotencyRecordRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdempotencyRecordRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Claim a key for execution. The primary key arbitrates between nodes:
+     * only one INSERT can succeed. A completed record past its time to live is
+     * replaced; a claim that was never completed is not, see
+     * {@link #takeOver}.
+     *
+     * @param id          the scoped key
+     * @param fingerprint hash of the request body
+     * @param leaseUntil  epoch millis until which the claim is expected to
+     *                    complete, it also identifies the claim
+     * @return true if the caller now owns the key
+     */
+    public boolean tryClaim(String id, String fingerprint, long leaseUntil) {
+        jdbcTemplate.update("DELETE FROM idempotency_records WHERE id = ? AND status_code IS NOT NULL "
+                + "AND expires_at < ?", id, System.currentTimeMillis());
+        try {
+            jdbcTemplate.update("INSERT INTO idempotency_records (id, request_fingerprint, expires_at) "
+                    + "VALUES (?, ?, ?)", id, fingerprint, leaseUntil);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Take over a claim whose lease ran out. Only safe when the previous owner
+     * can only commit its work together with {@link #complete}, which then
+     * fails for it.
+     *
+     * @param previousLeaseUntil the lease of the claim as read
+     * @param leaseUntil         the lease of the new claim
+     * @return true if the caller now owns the key
+     */
+    public boolean takeOver(String id, long previousLeaseUntil, long leaseUntil) {
+        return jdbcTemplate.update("UPDATE idempotency_records SET expires_at = ? WHERE id = ? "
+                + "AND status_code IS NULL AND expires_at = ?", leaseUntil, id, previousLeaseUntil) == 1;
+    }
+
+    /**
+     * Find a record
+     *
+     * @param id the scoped key
+     * @return optional containing the record if present
+     */
+    public Optional<IdempotencyRecord> findById(String id) {
+        List<IdempotencyRecord> records = jdbcTemplate.query("SELECT id, request_fingerprint, status_code, "
+                + "response_body, expires_at FROM idempotency_records WHERE id = ?",
+                (rs, rowNum) -> new IdempotencyRecord(rs.getString(1), rs.getString(2),
+                        rs.getObject(3, Integer.class), rs.getString(4), rs.getLong(5)),
+                id);
+        return records.stream().findFirst();
+    }
+
+    /**
+     * Store the response of a claimed key and keep it until its time to live.
+     * Runs in the caller's transaction if there is one, so that the response
+     * commits or rolls back with the work it describes.
+     *
+     * @param leaseUntil the lease of the caller's claim
+     * @param expiresAt  epoch millis after which the response is forgotten
+     * @return false if the claim is no longer the caller's (taken over)
+     */
+    public boolean complete(String id, long leaseUntil, int statusCode, String responseBody, long expiresAt) {
+        return jdbcTemplate.update("UPDATE idempotency_records SET status_code = ?, response_body = ?, "
+                + "expires_at = ? WHERE id = ? AND status_code IS NULL AND expires_at = ?", statusCode,
+                responseBody, expiresAt, id, leaseUntil) == 1;
+    }
+
+    /**
+     * Drop a claimed key whose request failed, so that the client can retry it
+     *
+     * @param leaseUntil the lease of the caller's claim
+     */
+    public void release(String id, long leaseUntil) {
+        jdbcTemplate.update("DELETE FROM idempotency_records WHERE id = ? AND status_code IS NULL "
+                + "AND expires_at = ?", id, leaseUntil);
+    }
+
+    /**
+     * Delete every completed record past its time to live. Claims that never
+     * completed are kept: whether their request ran is for an operator to find
+     * out.
+     *
+     * @return the number of deleted records
+     */
+    public int purgeExpired() {
+        return jdbcTemplate.update("DELETE FROM idempotency_records WHERE status_code IS NOT NULL "
+                + "AND expires_at < ?", System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,99 @@
+package com.paymybuddy.repository;
+
+import com.paymybuddy.models.OutboxEvent;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Lock the oldest pending events that are due (no lease or backoff in the
+     * future) for the rest of the transaction, with SELECT ... FOR UPDATE SKIP
+     * LOCKED: rows locked by another relay are skipped instead of waited for.
+     * The caller leases them with {@link #lease} before committing, so the
+     * lock lasts only as long as the claim. A lock timeout of -2 is
+     * Hibernate's SKIP_LOCKED; dialects without it fall back to a plain FOR
+     * UPDATE.
+     *
+     * @param now   the current time
+     * @param limit the maximum number of events
+     * @return the claimed events, in id order
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM OutboxEvent e WHERE e.processedAt IS NULL "
+            + "AND (e.nextAttemptAt IS NULL OR e.nextAttemptAt <= :now) ORDER BY e.id")
+    List<OutboxEvent> claimPending(@Param("now") Instant now, Limit limit);
+
+    /**
+     * Hide claimed events from the other relays while they are dispatched
+     *
+     * @param ids   the event IDs
+     * @param until the end of the lease
+     * @return the number of updated rows
+     */
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.nextAttemptAt = :until WHERE e.id IN :ids")
+    int lease(@Param("ids") Collection<Long> ids, @Param("until") Instant until);
+
+    /**
+     * Mark events as dispatched
+     *
+     * @param ids         the event IDs
+     * @param processedAt the dispatch time
+     * @return the number of updated rows
+     */
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.processedAt = :processedAt, e.pendingSubscribers = NULL WHERE e.id IN :ids")
+    int markProcessed(@Param("ids") Collection<Long> ids, @Param("processedAt") Instant processedAt);
+
+    /**
+     * Keep an event pending after a failed delivery
+     *
+     * @param id                 the event ID
+     * @param attempts           the failed deliveries so far
+     * @param nextAttemptAt      the end of the backoff
+     * @param pendingSubscribers the subscribers that failed, comma-separated
+     * @return the number of updated rows
+     */
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.attempts = :attempts, e.nextAttemptAt = :nextAttemptAt, "
+            + "e.pendingSubscribers = :pendingSubscribers WHERE e.id = :id")
+    int reschedule(@Param("id") Long id, @Param("attempts") int attempts,
+            @Param("nextAttemptAt") Instant nextAttemptAt, @Param("pendingSubscribers") String pendingSubscribers);
+
+    /**
+     * Count the events not dispatched yet
+     *
+     * @return the relay backlog
+     */
+    @Query("SELECT COUNT(e) FROM OutboxEvent e WHERE e.processedAt IS NULL")
+    long countPending();
+
+    /**
+     * Delete the events dispatched before a given time
+     *
+     * @param before the oldest dispatch time to keep
+     * @return the number of deleted rows
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM OutboxEvent e WHERE e.processedAt < :before")
+    int deleteProcessedBefore(@Param("before") Instant before);
+}
@@ -0,0 +1,61 @@
+package com.paymybuddy.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * JDBC access to refresh_tokens. Every call runs in its own auto-commit
+ * statement so that a used or revoked token is refused by the other nodes
+ * immediately.
+ */
+@Repository
+public class RefreshTokenRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public RefreshTokenRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Record an issued refresh token
+     *
+     * @param id        the token id (jti claim)
+     * @param userId    the user the token was issued to
+     * @param expiresAt epoch millis of the token expiry
+     */
+    public void save(String id, Integer userId, long expiresAt) {
+        jdbcTemplate.update("INSERT INTO refresh_tokens (id, user_id, expires_at) VALUES (?, ?, ?)", id, userId,
+                expiresAt);
+    }
+
+    /**
+     * Use a refresh token. The DELETE arbitrates between nodes: only one can
+     * remove the row, so a token is exchanged at most once.
+     *
+     * @param id the token id (jti claim)
+     * @return true if the token was still valid and is now used
+     */
+    public boolean consume(String id) {
+        return jdbcTemplate.update("DELETE FROM refresh_tokens WHERE id = ? AND expires_at >= ?", id,
+                System.currentTimeMillis()) == 1;
+    }
+
+    /**
+     * Revoke a refresh token
+     *
+     * @param id the token id (jti claim)
+     */
+    public void delete(String id) {
+        jdbcTemplate.update("DELETE FROM refresh_tokens WHERE id = ?", id);
+    }
+
+    /**
+     * Delete every expired token
+     *
+     * @return the number of deleted tokens
+     */
+    public int purgeExpired() {
+        return jdbcTemplate.update("DELETE FROM refresh_tokens WHERE expires_at < ?", System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,20 @@
+package com.paymybuddy.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.paymybuddy.models.TopUp;
+
+@Repository
+public interface TopUpRepository extends JpaRepository<TopUp, Integer> {
+
+    /**
+     * Find the top-ups of a user, oldest first
+     *
+     * @param userId the user ID
+     * @return the top-ups of the user
+     */
+    List<TopUp> findByUserIdOrderByIdAsc(Integer userId);
+}
@@ -1,7 +1,10 @@
 package com.paymybuddy.repository;
 
 import com.paymybuddy.models.Transaction;
+import com.paymybuddy.models.dtos.PublicTransactionDTO;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -13,12 +16,20 @@ import java.util.List;
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Integer> {
 
+        /**
+         * Selects only the columns of the public history, with both users joined
+         */
+        String HISTORY_PROJECTION = "SELECT new com.paymybuddy.models.dtos.PublicTransactionDTO("
+                        + "t.id, s.id, s.username, s.email, r.id, r.username, r.email, t.description, t.amountInCents) "
+                        + "FROM Transaction t JOIN t.sender s JOIN t.receiver r ";
+
         /**
          * Find all transactions where user is sender
          * 
          * @param senderId the sender user ID
          * @return list of transactions sent by the user
          */
+        @EntityGraph(attributePaths = { "sender", "receiver" })
         List<Transaction> findBySenderId(Integer senderId);
 
         /**
@@ -27,16 +38,36 @@ public interface TransactionRepository extends JpaRepository<Transaction, Intege
          * @param receiverId the receiver user ID
          * @return list of transactions received by the user
          */
+        @EntityGraph(attributePaths = { "sender", "receiver" })
         List<Transaction> findByReceiverId(Integer receiverId);
 
         /**
-         * Find all transactions for a user (both sent and received)
+         * Find the transactions sent by a user, newest first. Served by the
+         * (sender_id, id) index without a sort, and projected straight into
+         * DTOs so no entity is loaded.
          * 
-         * @param userId the user ID
-         * @return list of all transactions for the user
+         * @param senderId the sender user ID
+         * @param before   only transactions with an id strictly lower are returned
+         * @param pageable the maximum number of rows (unpaged for the full history)
+         * @return the sent transactions
+         */
+        @Query(HISTORY_PROJECTION + "WHERE t.sender.id = :senderId AND t.id < :before ORDER BY t.id DESC")
+        List<PublicTransactionDTO> findSentBefore(@Param("senderId") Integer senderId, @Param("before") Integer before,
+                        Pageable pageable);
+
+        /**
+         * Find the transactions received by a user, newest first. Served by the
+         * (receiver_id, id) index without a sort, and projected straight into
+         * DTOs so no entity is loaded.
+         * 
+         * @param receiverId the receiver user ID
+         * @param before     only transactions with an id strictly lower are returned
+         * @param pageable   the maximum number of rows (unpaged for the full history)
+         * @return the received transactions
          */
-        @Query("SELECT t FROM Transaction t WHERE t.sender.id = :userId OR t.receiver.id = :userId ORDER BY t.id DESC")
-        List<Transaction> findAllTransactionsForUser(@Param("userId") Integer userId);
+        @Query(HISTORY_PROJECTION + "WHERE t.receiver.id = :receiverId AND t.id < :before ORDER BY t.id DESC")
+        List<PublicTransactionDTO> findReceivedBefore(@Param("receiverId") Integer receiverId, @Param("before") Integer before,
+                        Pageable pageable);
 
         /**
          * Save a transaction
@@ -1,6 +1,7 @@
 package com.paymybuddy.repository;
 
 import com.paymybuddy.models.UserConnection;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 import org.springframework.lang.NonNull;
@@ -11,11 +12,13 @@ import java.util.List;
 public interface UserConnectionRepository extends JpaRepository<UserConnection, Integer> {
 
     /**
-     * Find all connections for a specific user
+     * Find all connections for a specific user, fetching the connected users in
+     * the same SELECT
      * 
      * @param userId the user ID
      * @return list of user connections
      */
+    @EntityGraph(attributePaths = "connection")
     List<UserConnection> findByUserId(Integer userId);
 
     /**
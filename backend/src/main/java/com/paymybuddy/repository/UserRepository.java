@@ -9,20 +9,41 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Integer> {
 
     /**
-     * Find a user by email (case insensitive)
+     * Find a user by email (case insensitive). Matches the normalized
+     * email_lower column exactly so the lookup stays on its unique index.
      * 
      * @param email the user email
      * @return optional containing the user if found
      */
-    @Query("SELECT u FROM User u WHERE LOWER(u.email) = LOWER(:email)")
+    @Query("SELECT u FROM User u WHERE u.emailLower = LOWER(:email)")
     Optional<User> findByEmail(@Param("email") String email);
 
+    /**
+     * Find only the id of a user by email (case insensitive)
+     * 
+     * @param email the user email
+     * @return optional containing the user ID if found
+     */
+    @Query("SELECT u.id FROM User u WHERE u.emailLower = LOWER(:email)")
+    Optional<Integer> findIdByEmail(@Param("email") String email);
+
+    /**
+     * Keep the ids that belong to an existing user
+     *
+     * @param ids the user IDs to check
+     * @return the existing IDs among them
+     */
+    @Query("SELECT u.id FROM User u WHERE u.id IN :ids")
+    List<Integer> findExistingIds(@Param("ids") Collection<Integer> ids);
+
     /**
      * Get password for a specific email
      * 
@@ -37,15 +58,16 @@ public interface UserRepository extends JpaRepository<User, Integer> {
      */
     @Modifying
     @Transactional
-    @Query("UPDATE User u SET u.username = :username WHERE u.id = :id")
+    @Query("UPDATE User u SET u.username = :username, u.version = u.version + 1 WHERE u.id = :id")
     void updateUsername(@Param("id") Integer id, @Param("username") String username);
 
     /**
-     * Update a user's email
+     * Update a user's email and its normalized copy
      */
     @Modifying
     @Transactional
-    @Query("UPDATE User u SET u.email = :email WHERE u.id = :id")
+    @Query("UPDATE User u SET u.email = :email, u.emailLower = LOWER(:email), u.version = u.version + 1 "
+            + "WHERE u.id = :id")
     void updateEmail(@Param("id") Integer id, @Param("email") String email);
 
     /**
@@ -53,7 +75,7 @@ public interface UserRepository extends JpaRepository<User, Integer> {
      */
     @Modifying
     @Transactional
-    @Query("UPDATE User u SET u.password = :password WHERE u.id = :id")
+    @Query("UPDATE User u SET u.password = :password, u.version = u.version + 1 WHERE u.id = :id")
     void updatePassword(@Param("id") Integer id, @Param("password") String password);
 
 }
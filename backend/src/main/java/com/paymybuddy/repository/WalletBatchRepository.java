@@ -0,0 +1,87 @@
+package com.paymybuddy.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+import com.paymybuddy.models.Wallet;
+
+/**
+ * Wallet balance writes in plain JDBC and the wallet row locks of pessimistic
+ * transfers, mixed into {@link WalletRepository}.
+ * Credits to hot accounts go to their sub-balance slots (wallet_slots), and
+ * balances read here are the wallet plus its slots.
+ */
+public interface WalletBatchRepository {
+
+    /**
+     * Lock the wallets of the given users for the rest of the transaction
+     * (SELECT ... FOR UPDATE). Rows are read, and therefore locked, in
+     * ascending id order, the same order for every transfer. The wait is
+     * bounded by app.transfers.locks.wait-ms where the dialect supports a lock
+     * timeout; on MySQL set innodb_lock_wait_timeout instead (sessionVariables
+     * in DB_URL).
+     *
+     * @param userIds the user IDs whose wallets to lock
+     * @return the locked wallets
+     */
+    List<Wallet> lockAllById(Collection<Integer> userIds);
+
+    /**
+     * Debit a user's balance only if it covers the amount. The check and the
+     * write happen in a single statement, so concurrent debits cannot overdraw.
+     * When the wallet alone does not cover the amount, the slots are folded
+     * back into it and the debit is tried once more.
+     *
+     * @param userId        the user ID
+     * @param amountInCents the amount to debit
+     * @return the number of updated rows (0 if the balance is insufficient)
+     */
+    int debitBalance(Integer userId, Long amountInCents);
+
+    /**
+     * Credit a user's balance with an atomic increment, on one of its slots if
+     * the account is hot
+     *
+     * @param userId        the user ID
+     * @param amountInCents the amount to credit
+     * @return the number of updated rows (0 if the user has no wallet)
+     */
+    int creditBalance(Integer userId, Long amountInCents);
+
+    /**
+     * Credit several users in one JDBC batch, in ascending id order so that
+     * concurrent batches always lock wallet rows in the same order
+     *
+     * @param amountsByUserId amount to credit per user ID
+     * @return the number of wallets not found (0 when every credit was applied)
+     */
+    int creditBalances(SortedMap<Integer, Long> amountsByUserId);
+
+    /**
+     * Add a signed delta to several balances in one JDBC batch, in ascending id
+     * order. No balance check is made: the caller has already validated debits.
+     *
+     * @param deltasByUserId amount to add (negative to debit) per user ID
+     * @return the number of wallets not found (0 when every delta was applied)
+     */
+    int applyBalanceDeltas(SortedMap<Integer, Long> deltasByUserId);
+
+    /**
+     * Move the slot balances of a user into its wallet. The slots stay locked
+     * until the transaction ends, so credits to them wait meanwhile.
+     *
+     * @param userId the user ID
+     * @return the amount moved (0 if the slots were empty)
+     */
+    long consolidateSlots(Integer userId);
+
+    /**
+     * Read the balances of several users with as few queries as possible
+     *
+     * @param userIds the user IDs
+     * @return balance per user ID, without the users that have no wallet
+     */
+    Map<Integer, Long> findBalances(Collection<Integer> userIds);
+}
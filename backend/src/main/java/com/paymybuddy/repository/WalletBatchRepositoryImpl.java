@@ -0,0 +1,211 @@
+package com.paymybuddy.repository;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.paymybuddy.models.Wallet;
+import com.paymybuddy.services.HotAccounts;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * Runs on the JDBC connection of the current JPA transaction. Every UPDATE of
+ * a wallet bumps its version column, so that a Wallet entity read before it
+ * fails its version check on save instead of overwriting the new balance.
+ */
+public class WalletBatchRepositoryImpl implements WalletBatchRepository {
+
+    /** Bound on the IN list of one balance query */
+    private static final int READ_CHUNK_SIZE = 1_000;
+
+    private static final String CREDIT_WALLET = "UPDATE wallets SET balance_in_cents = balance_in_cents + ?, "
+            + "version = version + 1 WHERE user_id = ?";
+    private static final String DEBIT_WALLET = "UPDATE wallets SET balance_in_cents = balance_in_cents - ?, "
+            + "version = version + 1 WHERE user_id = ? AND balance_in_cents >= ?";
+    private static final String CREDIT_SLOT = "UPDATE wallet_slots SET balance_in_cents = balance_in_cents + ? "
+            + "WHERE user_id = ? AND slot = ?";
+    // From the wallet, so that crediting the first slot of an unknown user still reports it missing
+    private static final String CREATE_SLOT = "INSERT INTO wallet_slots (user_id, slot, balance_in_cents) "
+            + "SELECT user_id, ?, ? FROM wallets WHERE user_id = ?";
+    // Plain read: unlike the FOR UPDATE of consolidateSlots, it takes no gap lock when the user has no slot
+    private static final String HAS_SLOT_BALANCE = "SELECT 1 FROM wallet_slots WHERE user_id = ? "
+            + "AND balance_in_cents > 0 LIMIT 1";
+    /** Balance of the wallet aliased w, slots included */
+    public static final String VISIBLE_BALANCE = "w.balance_in_cents + COALESCE((SELECT SUM(s.balance_in_cents) "
+            + "FROM wallet_slots s WHERE s.user_id = w.user_id), 0)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final HotAccounts hotAccounts;
+    private final long lockWaitMillis;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public WalletBatchRepositoryImpl(JdbcTemplate jdbcTemplate, HotAccounts hotAccounts,
+            @Value("${app.transfers.locks.wait-ms:2000}") long lockWaitMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.hotAccounts = hotAccounts;
+        this.lockWaitMillis = lockWaitMillis;
+    }
+
+    @Override
+    @Transactional
+    public List<Wallet> lockAllById(Collection<Integer> userIds) {
+        return entityManager.createQuery("SELECT w FROM Wallet w WHERE w.userId IN :userIds ORDER BY w.userId",
+                Wallet.class)
+                .setParameter("userIds", userIds)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                // Hibernate only accepts an Integer here
+                .setHint("jakarta.persistence.lock.timeout", Math.toIntExact(lockWaitMillis))
+                .getResultList();
+    }
+
+    @Override
+    @Transactional
+    public int debitBalance(Integer userId, Long amountInCents) {
+        int updated = jdbcTemplate.update(DEBIT_WALLET, amountInCents, userId, amountInCents);
+        if (updated == 0 && maySpendFromSlots(userId) && consolidateSlots(userId) > 0) {
+            updated = jdbcTemplate.update(DEBIT_WALLET, amountInCents, userId, amountInCents);
+        }
+        return updated;
+    }
+
+    @Override
+    @Transactional
+    public int creditBalance(Integer userId, Long amountInCents) {
+        if (hotAccounts.isHot(userId)) {
+            return creditSlot(userId, amountInCents);
+        }
+        long start = System.nanoTime();
+        int updated = jdbcTemplate.update(CREDIT_WALLET, amountInCents, userId);
+        if (updated == 1) {
+            hotAccounts.recordCredit(userId, System.nanoTime() - start);
+        }
+        return updated;
+    }
+
+    @Override
+    @Transactional
+    public int creditBalances(SortedMap<Integer, Long> amountsByUserId) {
+        SortedMap<Integer, Long> wallets = amountsByUserId;
+        int missing = 0;
+        for (Map.Entry<Integer, Long> credit : amountsByUserId.entrySet()) {
+            if (hotAccounts.isHot(credit.getKey())) {
+                if (wallets == amountsByUserId) {
+                    wallets = new TreeMap<>(amountsByUserId);
+                }
+                wallets.remove(credit.getKey());
+                missing += creditSlot(credit.getKey(), credit.getValue()) == 0 ? 1 : 0;
+            }
+        }
+        return wallets.isEmpty() ? missing : missing + applyBalanceDeltas(wallets);
+    }
+
+    @Override
+    public int applyBalanceDeltas(SortedMap<Integer, Long> deltasByUserId) {
+        List<Object[]> deltas = new ArrayList<>(deltasByUserId.size());
+        for (Map.Entry<Integer, Long> delta : deltasByUserId.entrySet()) {
+            deltas.add(new Object[] { delta.getValue(), delta.getKey() });
+        }
+        int[] updated = jdbcTemplate.batchUpdate(CREDIT_WALLET, deltas);
+
+        int missing = 0;
+        for (int count : updated) {
+            if (count == Statement.SUCCESS_NO_INFO) {
+                // The driver ran the batch without counting rows: ask the table which wallets exist
+                return deltasByUserId.size() - countExisting(deltasByUserId.keySet());
+            }
+            if (count == 0) {
+                missing++;
+            }
+        }
+        return missing;
+    }
+
+    @Override
+    @Transactional
+    public long consolidateSlots(Integer userId) {
+        // FOR UPDATE on the rows rather than the sum, which not every database allows
+        long total = 0;
+        for (Long balance : jdbcTemplate.queryForList(
+                "SELECT balance_in_cents FROM wallet_slots WHERE user_id = ? FOR UPDATE", Long.class, userId)) {
+            total += balance;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        jdbcTemplate.update("UPDATE wallet_slots SET balance_in_cents = 0 WHERE user_id = ?", userId);
+        jdbcTemplate.update(CREDIT_WALLET, total, userId);
+        hotAccounts.recordConsolidation();
+        return total;
+    }
+
+    @Override
+    public Map<Integer, Long> findBalances(Collection<Integer> userIds) {
+        List<Integer> ids = new ArrayList<>(userIds);
+        Map<Integer, Long> balances = new HashMap<>(ids.size() * 2);
+        for (int from = 0; from < ids.size(); from += READ_CHUNK_SIZE) {
+            List<Integer> chunk = ids.subList(from, Math.min(ids.size(), from + READ_CHUNK_SIZE));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            jdbcTemplate.query("SELECT w.user_id, " + VISIBLE_BALANCE
+                    + " FROM wallets w WHERE w.user_id IN (" + placeholders + ")",
+                    (RowCallbackHandler) row -> balances.put(row.getInt(1), row.getLong(2)), chunk.toArray());
+        }
+        return balances;
+    }
+
+    /**
+     * Count the wallets among the given user ids, as findExistingIds does,
+     * read in chunks of {@link #READ_CHUNK_SIZE}
+     */
+    private int countExisting(Collection<Integer> userIds) {
+        List<Integer> ids = new ArrayList<>(userIds);
+        int existing = 0;
+        for (int from = 0; from < ids.size(); from += READ_CHUNK_SIZE) {
+            List<Integer> chunk = ids.subList(from, Math.min(ids.size(), from + READ_CHUNK_SIZE));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            existing += jdbcTemplate.queryForObject("SELECT COUNT(*) FROM wallets WHERE user_id IN ("
+                    + placeholders + ")", Integer.class, chunk.toArray());
+        }
+        return existing;
+    }
+
+    /**
+     * Whether a short wallet may be topped up from its slots. Most failed
+     * debits are plain insufficient balances: the slots are only locked when
+     * this node knows the account is hot or a slot holds money, which covers
+     * accounts promoted on another node or since cooled down.
+     */
+    private boolean maySpendFromSlots(Integer userId) {
+        return hotAccounts.isHot(userId)
+                || !jdbcTemplate.queryForList(HAS_SLOT_BALANCE, Integer.class, userId).isEmpty();
+    }
+
+    private int creditSlot(Integer userId, long amountInCents) {
+        int slot = hotAccounts.slotFor(userId);
+        if (jdbcTemplate.update(CREDIT_SLOT, amountInCents, userId, slot) == 1) {
+            return 1;
+        }
+        try {
+            return jdbcTemplate.update(CREATE_SLOT, slot, amountInCents, userId);
+        } catch (DuplicateKeyException e) {
+            // Created by a concurrent credit in the meantime
+            return jdbcTemplate.update(CREDIT_SLOT, amountInCents, userId, slot);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.paymybuddy.repository;
+
+import com.paymybuddy.models.Wallet;
+import com.paymybuddy.models.WalletBalance;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface WalletRepository extends JpaRepository<Wallet, Integer>, WalletBatchRepository {
+
+    /**
+     * Keep the ids that belong to a user with a wallet
+     *
+     * @param userIds the user IDs to check
+     * @return the existing IDs among them
+     */
+    @Query("SELECT w.userId FROM Wallet w WHERE w.userId IN :userIds")
+    List<Integer> findExistingIds(@Param("userIds") Collection<Integer> userIds);
+
+    /**
+     * Read only the balance of a user: the wallet plus its slots
+     *
+     * @param userId the user ID
+     * @return optional containing the balance if the user has a wallet
+     */
+    @Query("SELECT w.balanceInCents + COALESCE((SELECT SUM(s.balanceInCents) FROM WalletSlot s "
+            + "WHERE s.userId = w.userId), 0) FROM Wallet w WHERE w.userId = :userId")
+    Optional<Long> findBalanceById(@Param("userId") Integer userId);
+
+    /**
+     * Read the balance of a user with the version of its wallet, to answer
+     * balance polls with an entity tag
+     *
+     * @param userId the user ID
+     * @return optional containing the balance if the user has a wallet
+     */
+    @Query("SELECT new com.paymybuddy.models.WalletBalance(w.balanceInCents + COALESCE("
+            + "(SELECT SUM(s.balanceInCents) FROM WalletSlot s WHERE s.userId = w.userId), 0), w.version) "
+            + "FROM Wallet w WHERE w.userId = :userId")
+    Optional<WalletBalance> findBalanceWithVersionById(@Param("userId") Integer userId);
+
+}
@@ -0,0 +1,156 @@
+package com.paymybuddy.services;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paymybuddy.logging.LoggingService;
+import com.paymybuddy.models.OutboxEvent;
+import com.paymybuddy.models.TopUp;
+import com.paymybuddy.models.Transaction;
+import com.paymybuddy.models.dtos.BalanceEventDTO;
+import com.paymybuddy.models.dtos.TransactionEventDTO;
+import com.paymybuddy.repository.OutboxEventRepository;
+import com.paymybuddy.repository.WalletRepository;
+
+/**
+ * Side effects of balance changes, called from inside the writing
+ * transaction:
+ * <ul>
+ * <li>one outbox row per change, written in that transaction so that it
+ * commits or rolls back with the change; {@link OutboxRelay} hands it to the
+ * subscribers later, off the payment path,</li>
+ * <li>{@link EventHub} events for the users with an open stream on this node,
+ * published once the transaction commits and never if it rolls back.</li>
+ * </ul>
+ */
+@Component
+public class AccountEvents {
+
+    private final EventHub eventHub;
+    private final WalletRepository walletRepository;
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+    private final LoggingService loggingService;
+
+    public AccountEvents(EventHub eventHub, WalletRepository walletRepository,
+            OutboxEventRepository outboxEventRepository, ObjectMapper objectMapper, LoggingService loggingService) {
+        this.eventHub = eventHub;
+        this.walletRepository = walletRepository;
+        this.outboxEventRepository = outboxEventRepository;
+        this.objectMapper = objectMapper;
+        this.loggingService = loggingService;
+    }
+
+    /**
+     * Record the transfers in the outbox, then tell the receivers that money
+     * arrived and every party its new balance
+     *
+     * @param transactions the created transactions, IDs assigned
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void transfersCreated(Collection<Transaction> transactions) {
+        Instant now = Instant.now();
+        List<OutboxEvent> outbox = new ArrayList<>(transactions.size());
+        List<TransactionEventDTO> received = new ArrayList<>();
+        Set<Integer> parties = new TreeSet<>();
+        for (Transaction transaction : transactions) {
+            // Ids only: reading them does not initialize the user references
+            Integer senderId = transaction.getSender().getId();
+            Integer receiverId = transaction.getReceiver().getId();
+            TransactionEventDTO event = new TransactionEventDTO(transaction.getId(), senderId, receiverId,
+                    transaction.getDescription(), transaction.getAmountInCents());
+            outbox.add(new OutboxEvent(OutboxEvent.TRANSFER_CREATED, serialize(event), now));
+            if (eventHub.hasSubscribers(receiverId)) {
+                received.add(event);
+                parties.add(receiverId);
+            }
+            if (eventHub.hasSubscribers(senderId)) {
+                parties.add(senderId);
+            }
+        }
+        outboxEventRepository.saveAll(outbox);
+
+        if (parties.isEmpty()) {
+            return;
+        }
+        afterCommit(() -> {
+            for (TransactionEventDTO event : received) {
+                eventHub.publish(event.getReceiverId(), EventHub.TRANSACTION_RECEIVED, event);
+            }
+            // Read once committed, in one query for every party
+            publishBalances(walletRepository.findBalances(parties));
+        });
+    }
+
+    /**
+     * Record the top-ups in the outbox, then tell their users the new balance
+     *
+     * @param topUps the created top-ups, IDs assigned
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void topUpsCreated(Collection<TopUp> topUps) {
+        Instant now = Instant.now();
+        List<OutboxEvent> outbox = new ArrayList<>(topUps.size());
+        Map<Integer, Long> balances = new TreeMap<>();
+        for (TopUp topUp : topUps) {
+            outbox.add(new OutboxEvent(OutboxEvent.TOP_UP_CREATED, serialize(topUp), now));
+            if (eventHub.hasSubscribers(topUp.getUserId())) {
+                balances.put(topUp.getUserId(), topUp.getBalanceAfterInCents());
+            }
+        }
+        outboxEventRepository.saveAll(outbox);
+
+        if (!balances.isEmpty()) {
+            afterCommit(() -> publishBalances(balances));
+        }
+    }
+
+    private void publishBalances(Map<Integer, Long> balancesByUserId) {
+        balancesByUserId.forEach((userId, balance) -> eventHub.publish(userId, EventHub.BALANCE_CHANGED,
+                new BalanceEventDTO(balance)));
+    }
+
+    private String serialize(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Outbox event cannot be serialized", e);
+        }
+    }
+
+    private void afterCommit(Runnable publish) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            run(publish);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                run(publish);
+            }
+        });
+    }
+
+    private void run(Runnable publish) {
+        try {
+            publish.run();
+        } catch (RuntimeException e) {
+            // The change is committed whatever happens to its notification
+            loggingService.error("AccountEvents: events not published - " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.paymybuddy.services;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * In-JVM lock table for transfers in pessimistic mode
+ * (app.transfers.concurrency=pessimistic).
+ *
+ * User ids hash onto a fixed number of lock stripes. A transfer takes the
+ * stripes of every account it touches in ascending stripe order, each with a
+ * bounded wait, and keeps them until its database transaction completes.
+ * Two transfers sharing an account therefore queue here instead of inside the
+ * database, and cannot deadlock on each other. A wait that runs out raises
+ * {@link CannotAcquireLockException}, which the caller retries.
+ */
+@Component
+public class AccountLockManager {
+
+    private final boolean enabled;
+    private final ReentrantLock[] stripes;
+    private final int mask;
+    private final long waitNanos;
+    private final MeterRegistry meterRegistry;
+    private final AtomicLongArray contentions;
+    private final Timer waitTimer;
+    private final Counter timeoutCounter;
+
+    public AccountLockManager(MeterRegistry meterRegistry, TransferConcurrency transferConcurrency,
+            @Value("${app.transfers.locks.stripes:1024}") int stripeCount,
+            @Value("${app.transfers.locks.wait-ms:2000}") long waitMillis) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("app.transfers.locks.stripes must be positive");
+        }
+        this.enabled = transferConcurrency.isPessimistic();
+        // Power of two so that the stripe is a mask of the mixed id
+        int size = stripeCount == 1 ? 1 : Integer.highestOneBit(stripeCount - 1) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+        this.waitNanos = TimeUnit.MILLISECONDS.toNanos(waitMillis);
+        this.meterRegistry = meterRegistry;
+        this.contentions = new AtomicLongArray(size);
+        this.waitTimer = Timer.builder("paymybuddy.transfers.lock.wait")
+                .description("Time spent waiting for a contended account lock stripe")
+                .register(meterRegistry);
+        this.timeoutCounter = Counter.builder("paymybuddy.transfers.lock.timeouts")
+                .description("Account lock waits that ran out")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return true when transfers take account locks (pessimistic mode)
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Lock the stripes of the given users until the current transaction
+     * completes, whatever its outcome.
+     *
+     * @param userIds the accounts touched by the transfer
+     * @throws CannotAcquireLockException if a stripe stays busy longer than
+     *                                    the configured wait
+     */
+    public void lockUntilCompletion(Collection<Integer> userIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Account locks must be taken inside a transaction");
+        }
+        int[] held = lock(userIds);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                unlock(held);
+            }
+        });
+    }
+
+    /**
+     * Lock the stripes of the given users, in ascending stripe order.
+     *
+     * @return the locked stripes, to hand back to {@link #unlock(int[])}
+     */
+    int[] lock(Collection<Integer> userIds) {
+        int[] indexes = userIds.stream().mapToInt(this::stripeOf).distinct().sorted().toArray();
+        int acquired = 0;
+        try {
+            for (; acquired < indexes.length; acquired++) {
+                acquire(indexes[acquired]);
+            }
+            return indexes;
+        } finally {
+            if (acquired < indexes.length) {
+                unlock(Arrays.copyOf(indexes, acquired));
+            }
+        }
+    }
+
+    void unlock(int[] indexes) {
+        // Reverse order, so a waiter on the first stripe does not wake up to find the next one still held
+        for (int i = indexes.length - 1; i >= 0; i--) {
+            stripes[indexes[i]].unlock();
+        }
+    }
+
+    int stripeOf(Integer userId) {
+        // Spread sequential ids so that neighbours do not share a stripe
+        int h = userId * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private void acquire(int index) {
+        ReentrantLock stripe = stripes[index];
+        if (stripe.tryLock()) {
+            return;
+        }
+        recordContention(index);
+        long start = System.nanoTime();
+        boolean locked;
+        try {
+            locked = stripe.tryLock(waitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CannotAcquireLockException("Interrupted while waiting for an account lock", e);
+        } finally {
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        if (!locked) {
+            timeoutCounter.increment();
+            throw new CannotAcquireLockException("Account lock stripe " + index + " still busy after "
+                    + TimeUnit.NANOSECONDS.toMillis(waitNanos) + " ms");
+        }
+    }
+
+    private void recordContention(int index) {
+        // Per stripe meters only for stripes that ever contended, to keep the series count small
+        if (contentions.getAndIncrement(index) == 0) {
+            String stripe = Integer.toString(index);
+            FunctionCounter.builder("paymybuddy.transfers.lock.contentions", contentions, c -> c.get(index))
+                    .description("Lock attempts that found the stripe busy")
+                    .tag("stripe", stripe)
+                    .register(meterRegistry);
+            Gauge.builder("paymybuddy.transfers.lock.waiting", stripes[index], ReentrantLock::getQueueLength)
+                    .description("Threads currently waiting for the stripe")
+                    .tag("stripe", stripe)
+                    .register(meterRegistry);
+        }
+    }
+}
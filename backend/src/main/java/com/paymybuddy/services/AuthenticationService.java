@@ -6,6 +6,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
+import com.paymybuddy.exceptions.ServiceOverloadedException;
 import com.paymybuddy.models.dtos.UserCredentialsDTO;
 import com.paymybuddy.logging.LoggingService;
 
@@ -23,6 +24,31 @@ public class AuthenticationService {
         this.loggingService = loggingService;
     }
 
+    /**
+     * Check the credentials without creating a session, for the stateless
+     * (JWT) mode
+     * 
+     * @param userCredentials the user credentials
+     * @return true if the credentials are valid
+     */
+    public boolean verifyCredentials(UserCredentialsDTO userCredentials) {
+        try {
+            loggingService.info("AuthenticationService: Verifying credentials of user: " + userCredentials.getEmail());
+            authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(
+                            userCredentials.getEmail(),
+                            userCredentials.getPassword()));
+            return true;
+        } catch (ServiceOverloadedException e) {
+            // Not a credentials problem: let it surface as 503
+            throw e;
+        } catch (Exception e) {
+            loggingService.error("AuthenticationService: Authentication failed for user: " + userCredentials.getEmail()
+                    + " - " + e.getMessage());
+            return false;
+        }
+    }
+
     public boolean authenticate(UserCredentialsDTO userCredentials, HttpServletRequest request) {
         try {
             loggingService.info("AuthenticationService: Authenticating user: " + userCredentials.getEmail());
@@ -36,6 +62,9 @@ public class AuthenticationService {
             SecurityContextHolder.getContext().setAuthentication(authentication);
 
             return true;
+        } catch (ServiceOverloadedException e) {
+            // Not a credentials problem: let it surface as 503
+            throw e;
         } catch (Exception e) {
             loggingService.error("AuthenticationService: Authentication failed for user: " + userCredentials.getEmail()
                     + " - " + e.getMessage());
@@ -1,10 +1,12 @@
 package com.paymybuddy.services;
 
+import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import com.paymybuddy.models.AuthenticatedUser;
 import com.paymybuddy.models.User;
 import com.paymybuddy.services.interfaces.UserService;
 import com.paymybuddy.logging.LoggingService;
@@ -30,10 +32,8 @@ public class CustomUserDetailsService implements UserDetailsService {
                     return new UsernameNotFoundException("User not found: " + email);
                 });
 
-        return org.springframework.security.core.userdetails.User.builder()
-                .username(user.getEmail())
-                .password(user.getPassword())
-                .authorities("USER")
-                .build();
+        // The id travels with the principal so requests never look the email up again
+        return new AuthenticatedUser(user.getId(), user.getEmail(), user.getPassword(),
+                AuthorityUtils.createAuthorityList("USER"));
     }
 }
\ No newline at end of file
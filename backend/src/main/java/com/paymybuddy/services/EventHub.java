@@ -0,0 +1,276 @@
+package com.paymybuddy.services;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.paymybuddy.logging.LoggingService;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * In-process fan-out of account events to the open GET /events streams.
+ *
+ * An open stream holds no thread: the request is asynchronous and only its
+ * emitter is kept. Publishing never blocks either: events are queued on a
+ * bounded buffer per stream and written by a virtual thread started only while
+ * that buffer is not empty. A stream whose buffer is full, because its client
+ * reads too slowly or stopped reading, is evicted and its client reconnects.
+ * Heartbeat comments keep proxies from closing idle streams and reveal dead
+ * connections on the next write.
+ *
+ * Streams are local to this node: with several nodes, an event reaches only
+ * the streams of the node that published it.
+ */
+@Component
+public class EventHub implements AutoCloseable {
+
+    public static final String BALANCE_CHANGED = "balance-changed";
+    public static final String TRANSACTION_RECEIVED = "transaction-received";
+
+    private static final Event HEARTBEAT = new Event(null, null);
+
+    private final ConcurrentHashMap<Integer, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger streams = new AtomicInteger();
+    private final int bufferSize;
+    private final int maxStreamsPerUser;
+    private final long streamTimeoutMillis;
+    private final LoggingService loggingService;
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService heartbeats;
+    private final Counter publishedCounter;
+    private final Counter evictedCounter;
+
+    public EventHub(LoggingService loggingService, MeterRegistry meterRegistry,
+            @Value("${app.events.buffer-size:32}") int bufferSize,
+            @Value("${app.events.max-streams-per-user:4}") int maxStreamsPerUser,
+            @Value("${app.events.heartbeat-seconds:20}") long heartbeatSeconds,
+            @Value("${app.events.stream-timeout-minutes:30}") long streamTimeoutMinutes) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("app.events.buffer-size must be at least 1");
+        }
+        this.bufferSize = bufferSize;
+        this.maxStreamsPerUser = maxStreamsPerUser;
+        this.streamTimeoutMillis = TimeUnit.MINUTES.toMillis(streamTimeoutMinutes);
+        this.loggingService = loggingService;
+
+        Gauge.builder("paymybuddy.events.streams", streams, AtomicInteger::get)
+                .description("Open GET /events streams on this node")
+                .register(meterRegistry);
+        this.publishedCounter = Counter.builder("paymybuddy.events.published")
+                .description("Events queued to an open stream")
+                .register(meterRegistry);
+        this.evictedCounter = Counter.builder("paymybuddy.events.evicted")
+                .description("Streams closed because their client did not keep up")
+                .register(meterRegistry);
+
+        this.heartbeats = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "event-hub-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeats.scheduleAtFixedRate(this::heartbeat, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Open a stream for a user. Past max-streams-per-user, the oldest stream
+     * of the user is closed.
+     *
+     * @param userId the user ID
+     * @return the emitter to return from the controller
+     */
+    public SseEmitter subscribe(Integer userId) {
+        return subscribe(userId, null, () -> null);
+    }
+
+    /**
+     * Open a stream for a user and queue a first event for this stream only.
+     * The snapshot is taken once the stream receives the events of the user,
+     * so that no change published meanwhile is missed: it is either queued
+     * before the snapshot or reflected in it.
+     *
+     * @param userId      the user ID
+     * @param initialName the name of the first event
+     * @param initialData takes the payload of the first event, none if null
+     * @return the emitter to return from the controller
+     */
+    public SseEmitter subscribe(Integer userId, String initialName, Supplier<?> initialData) {
+        SseEmitter emitter = newEmitter(streamTimeoutMillis);
+        Subscriber subscriber = new Subscriber(userId, emitter);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+
+        List<Subscriber> userStreams = subscribers.compute(userId, (id, list) -> {
+            List<Subscriber> updated = list == null ? new CopyOnWriteArrayList<>() : list;
+            updated.add(subscriber);
+            return updated;
+        });
+        streams.incrementAndGet();
+        if (userStreams.size() > maxStreamsPerUser) {
+            close(userStreams.get(0));
+        }
+
+        Object data;
+        try {
+            data = initialData.get();
+        } catch (RuntimeException e) {
+            close(subscriber);
+            throw e;
+        }
+        if (data != null && subscriber.offer(new Event(initialName, data))) {
+            publishedCounter.increment();
+        }
+        return emitter;
+    }
+
+    /**
+     * @return true when the user has at least one open stream on this node
+     */
+    public boolean hasSubscribers(Integer userId) {
+        return subscribers.containsKey(userId);
+    }
+
+    /**
+     * Queue an event for every open stream of a user, without waiting for it
+     * to be written
+     *
+     * @param userId the user ID
+     * @param name   the event name
+     * @param data   the payload, written as JSON
+     */
+    public void publish(Integer userId, String name, Object data) {
+        List<Subscriber> userStreams = subscribers.get(userId);
+        if (userStreams == null) {
+            return;
+        }
+        Event event = new Event(name, data);
+        for (Subscriber subscriber : userStreams) {
+            if (subscriber.offer(event)) {
+                publishedCounter.increment();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        heartbeats.shutdownNow();
+        subscribers.values().forEach(userStreams -> userStreams.forEach(this::close));
+        senders.shutdown();
+    }
+
+    int streamCount() {
+        return streams.get();
+    }
+
+    SseEmitter newEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    private void heartbeat() {
+        for (List<Subscriber> userStreams : subscribers.values()) {
+            for (Subscriber subscriber : userStreams) {
+                subscriber.offer(HEARTBEAT);
+            }
+        }
+    }
+
+    private void evict(Subscriber subscriber) {
+        evictedCounter.increment();
+        loggingService.info("EventHub: slow stream of user " + subscriber.userId + " evicted");
+        close(subscriber);
+    }
+
+    private void close(Subscriber subscriber) {
+        if (remove(subscriber)) {
+            // Off the caller's thread: completing waits for a write in progress
+            senders.execute(subscriber.emitter::complete);
+        }
+    }
+
+    private boolean remove(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return false;
+        }
+        subscribers.computeIfPresent(subscriber.userId, (id, list) -> {
+            list.remove(subscriber);
+            return list.isEmpty() ? null : list;
+        });
+        streams.decrementAndGet();
+        return true;
+    }
+
+    private record Event(String name, Object data) {
+
+        SseEmitter.SseEventBuilder toSse() {
+            if (name == null) {
+                return SseEmitter.event().comment("heartbeat");
+            }
+            return SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON);
+        }
+    }
+
+    private final class Subscriber implements Runnable {
+
+        private final Integer userId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<Event> buffer = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Subscriber(Integer userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        boolean offer(Event event) {
+            if (closed.get()) {
+                return false;
+            }
+            if (!buffer.offer(event)) {
+                evict(this);
+                return false;
+            }
+            if (draining.compareAndSet(false, true)) {
+                senders.execute(this);
+            }
+            return true;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Event event;
+                while (!closed.get() && (event = buffer.poll()) != null) {
+                    emitter.send(event.toSse());
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The client went away; the container reports the error to the emitter
+                remove(this);
+            } finally {
+                draining.set(false);
+            }
+            // An event queued after the last poll but before the flag was cleared
+            if (!closed.get() && !buffer.isEmpty() && draining.compareAndSet(false, true)) {
+                senders.execute(this);
+            }
+        }
+    }
+}
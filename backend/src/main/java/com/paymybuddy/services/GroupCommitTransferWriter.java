@@ -0,0 +1,384 @@
+package com.paymybuddy.services;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.paymybuddy.exceptions.InsufficientBalanceException;
+import com.paymybuddy.exceptions.InvalidAmountException;
+import com.paymybuddy.exceptions.ServiceOverloadedException;
+import com.paymybuddy.exceptions.UserNotFoundException;
+import com.paymybuddy.logging.LoggingService;
+import com.paymybuddy.models.Transaction;
+import com.paymybuddy.models.User;
+import com.paymybuddy.models.dtos.CreateTransactionRequestDTO;
+import com.paymybuddy.repository.TransactionRepository;
+import com.paymybuddy.repository.UserRepository;
+import com.paymybuddy.repository.WalletRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Group commit for POST /transaction: concurrent transfers are queued and a
+ * single writer applies up to max-batch-size of them, or whatever arrived
+ * within max-wait-micros, in one database transaction, so that they share one
+ * commit (and one log flush) instead of paying for their own.
+ *
+ * Each transfer is validated before any write and debited with the guarded
+ * single-statement update, so a rejected item leaves nothing behind and the
+ * others of its batch still commit. Credits are applied per receiver in
+ * ascending id order. If the shared commit itself fails, every transfer of the
+ * batch is replayed in its own transaction. Callers block until their
+ * transfer is committed, so the HTTP semantics do not change. A full queue is
+ * rejected with a {@link ServiceOverloadedException}.
+ *
+ * The writer only supports app.transfers.concurrency=atomic, whose guarded
+ * updates it uses, with the jpa engine: it writes the wallets directly, so it
+ * refuses to start next to the ledger engine (whose in-memory balances would
+ * no longer match) or next to the pessimistic and optimistic modes (whose
+ * locks and version reads it would bypass). A transfer replayed alone after a
+ * failed group commit is retried on a concurrency conflict, like
+ * {@link com.paymybuddy.config.RetryOnConflict} methods.
+ */
+@Component
+public class GroupCommitTransferWriter implements AutoCloseable {
+
+    private static final long IDLE_POLL_MILLIS = 100;
+    private static final int MAX_ALONE_ATTEMPTS = 3;
+
+    private final TransactionTemplate transactionTemplate;
+    private final UserRepository userRepository;
+    private final WalletRepository walletRepository;
+    private final TransactionRepository transactionRepository;
+    private final LoggingService loggingService;
+    private final AccountEvents accountEvents;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final long retryAfterSeconds;
+    private final BlockingQueue<PendingTransfer> queue;
+    private final DistributionSummary batchSizeSummary;
+    private final Timer commitTimer;
+    private final Counter fallbackCounter;
+    private final Counter rejectedCounter;
+    private final Thread writer;
+    private volatile boolean running;
+
+    public GroupCommitTransferWriter(PlatformTransactionManager transactionManager, UserRepository userRepository,
+            WalletRepository walletRepository, TransactionRepository transactionRepository,
+            LoggingService loggingService, AccountEvents accountEvents, TransferConcurrency transferConcurrency,
+            MeterRegistry meterRegistry,
+            @Value("${app.transfers.engine:jpa}") String engine,
+            @Value("${app.transfers.group-commit.enabled:false}") boolean enabled,
+            @Value("${app.transfers.group-commit.max-batch-size:64}") int maxBatchSize,
+            @Value("${app.transfers.group-commit.max-wait-micros:500}") long maxWaitMicros,
+            @Value("${app.transfers.group-commit.queue-capacity:4096}") int queueCapacity,
+            @Value("${app.transfers.group-commit.retry-after-seconds:1}") long retryAfterSeconds) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("app.transfers.group-commit.max-batch-size must be at least 1");
+        }
+        if (enabled && "ledger".equalsIgnoreCase(engine.trim())) {
+            throw new IllegalStateException("app.transfers.group-commit.enabled=true cannot be combined with "
+                    + "app.transfers.engine=ledger: the writer would change balances behind the engine");
+        }
+        if (enabled && transferConcurrency.getMode() != TransferConcurrency.Mode.ATOMIC) {
+            throw new IllegalStateException("app.transfers.group-commit.enabled=true requires "
+                    + "app.transfers.concurrency=atomic, not " + transferConcurrency.getMode());
+        }
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.userRepository = userRepository;
+        this.walletRepository = walletRepository;
+        this.transactionRepository = transactionRepository;
+        this.loggingService = loggingService;
+        this.accountEvents = accountEvents;
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        Gauge.builder("paymybuddy.transfers.group-commit.queue.depth", queue, BlockingQueue::size)
+                .description("Transfers waiting for the group commit writer")
+                .register(meterRegistry);
+        this.batchSizeSummary = DistributionSummary.builder("paymybuddy.transfers.group-commit.batch.size")
+                .description("Transfers applied per database transaction")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.commitTimer = Timer.builder("paymybuddy.transfers.group-commit.commit")
+                .description("Time spent applying and committing one batch")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.fallbackCounter = Counter.builder("paymybuddy.transfers.group-commit.fallbacks")
+                .description("Batches whose shared commit failed and were replayed transfer by transfer")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("paymybuddy.transfers.group-commit.rejected")
+                .description("Transfers rejected because the writer queue was full")
+                .register(meterRegistry);
+
+        // A single platform thread: batches are serialized on purpose, and it blocks on JDBC most of the time
+        this.writer = new Thread(this::run, "group-commit-writer");
+        this.writer.setDaemon(true);
+        if (enabled) {
+            running = true;
+            writer.start();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queue a transfer for the next group commit and wait until it is written
+     *
+     * @param senderId           the sender ID
+     * @param transactionRequest the transaction request containing receiver ID,
+     *                           amount, and description
+     * @return the created transaction, or null if it was rejected (same
+     *         contract as TransactionService.createTransaction)
+     */
+    public Transaction submit(Integer senderId, CreateTransactionRequestDTO transactionRequest) {
+        if (!running) {
+            throw new IllegalStateException("Group commit is not running");
+        }
+        PendingTransfer pending = new PendingTransfer(senderId, transactionRequest);
+        if (!queue.offer(pending)) {
+            rejectedCounter.increment();
+            throw new ServiceOverloadedException("Too many transfers in flight, please retry later",
+                    retryAfterSeconds);
+        }
+        // Not interruptible on purpose: once queued, the transfer may commit and the caller must learn it
+        try {
+            return pending.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        writer.interrupt();
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        failAll(new ArrayList<>(queue));
+    }
+
+    private void run() {
+        List<PendingTransfer> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                PendingTransfer first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                collect(batch);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } catch (RuntimeException | Error e) {
+                loggingService.error("Group commit writer failed - " + e.getMessage());
+            } finally {
+                failAll(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Fill the batch with what is already queued, then with what arrives before
+     * the wait window closes
+     */
+    private void collect(List<PendingTransfer> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + maxWaitNanos;
+        while (batch.size() < maxBatchSize) {
+            if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            PendingTransfer next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void write(List<PendingTransfer> batch) {
+        batchSizeSummary.record(batch.size());
+        List<Object> outcomes;
+        try {
+            outcomes = commitTimer.record(() -> transactionTemplate.execute(status -> apply(batch)));
+        } catch (RuntimeException e) {
+            // Nothing of the batch was committed: give every transfer its own transaction
+            fallbackCounter.increment();
+            loggingService.error("Group commit of " + batch.size() + " transfers failed, replaying them one by one - "
+                    + e.getMessage());
+            outcomes = new ArrayList<>(batch.size());
+            for (PendingTransfer pending : batch) {
+                outcomes.add(applyAlone(pending));
+            }
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            Object outcome = outcomes.get(i);
+            if (outcome instanceof Transaction transaction) {
+                loggingService.info("Transaction created successfully with ID: " + transaction.getId());
+                batch.get(i).result.complete(transaction);
+            } else {
+                loggingService.error("Transaction failed before creation - " + ((Exception) outcome).getMessage());
+                batch.get(i).result.complete(null);
+            }
+        }
+    }
+
+    private Object applyAlone(PendingTransfer pending) {
+        for (int attempt = 1;; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> apply(List.of(pending))).get(0);
+            } catch (ConcurrencyFailureException e) {
+                // Deadlock victim or lock wait timeout: rolled back, so it can start over
+                if (attempt >= MAX_ALONE_ATTEMPTS) {
+                    return e;
+                }
+            } catch (RuntimeException e) {
+                return e;
+            }
+        }
+    }
+
+    /**
+     * Apply the batch inside the current transaction
+     *
+     * @return per transfer, the created transaction or the exception that
+     *         rejected it
+     */
+    private List<Object> apply(List<PendingTransfer> batch) {
+        // One query for every sender and receiver instead of a lookup per transfer
+        Set<Integer> userIds = new HashSet<>();
+        for (PendingTransfer pending : batch) {
+            userIds.add(pending.senderId);
+            if (pending.request.getReceiverId() != null) {
+                userIds.add(pending.request.getReceiverId());
+            }
+        }
+        Map<Integer, User> users = new HashMap<>();
+        for (User user : userRepository.findAllById(userIds)) {
+            users.put(user.getId(), user);
+        }
+
+        List<Object> outcomes = new ArrayList<>(batch.size());
+        List<Transaction> transactions = new ArrayList<>(batch.size());
+        SortedMap<Integer, Long> credits = new TreeMap<>();
+        for (PendingTransfer pending : batch) {
+            CreateTransactionRequestDTO request = pending.request;
+            Long amount = request.getAmountInCents();
+            User sender = users.get(pending.senderId);
+            User receiver = users.get(request.getReceiverId());
+            if (amount == null || amount <= 0) {
+                outcomes.add(new InvalidAmountException("Amount must be greater than 0"));
+                continue;
+            }
+            if (sender == null) {
+                outcomes.add(new UserNotFoundException("user not found with ID: " + pending.senderId));
+                continue;
+            }
+            if (receiver == null) {
+                outcomes.add(new UserNotFoundException("user not found with ID: " + request.getReceiverId()));
+                continue;
+            }
+            if (!debit(pending.senderId, amount, credits)) {
+                outcomes.add(new InsufficientBalanceException("Solde insuffisant"));
+                continue;
+            }
+            credits.merge(receiver.getId(), amount, Long::sum);
+
+            Transaction transaction = new Transaction();
+            transaction.setAmountInCents(amount);
+            transaction.setDescription(request.getDescription());
+            transaction.setSender(sender);
+            transaction.setReceiver(receiver);
+            transactions.add(transaction);
+            outcomes.add(transaction);
+        }
+
+        applyCredits(credits);
+        // Inserted in JDBC batches at commit, with ids from the pooled sequence
+        transactionRepository.saveAll(transactions);
+        accountEvents.transfersCreated(transactions);
+        return outcomes;
+    }
+
+    private boolean debit(Integer senderId, long amount, SortedMap<Integer, Long> credits) {
+        if (walletRepository.debitBalance(senderId, amount) == 1) {
+            return true;
+        }
+        // The sender may be covered by a credit received earlier in this batch
+        if (credits.containsKey(senderId)) {
+            applyCredits(credits);
+            return walletRepository.debitBalance(senderId, amount) == 1;
+        }
+        return false;
+    }
+
+    private void applyCredits(SortedMap<Integer, Long> credits) {
+        if (credits.isEmpty()) {
+            return;
+        }
+        int missing = walletRepository.creditBalances(credits);
+        if (missing > 0) {
+            // A receiver vanished after validation: roll back the batch and replay it transfer by transfer
+            throw new UserNotFoundException(missing + " receivers no longer exist");
+        }
+        credits.clear();
+    }
+
+    private void failAll(List<PendingTransfer> pendings) {
+        for (PendingTransfer pending : pendings) {
+            pending.result.completeExceptionally(new ServiceOverloadedException(
+                    "Transfer writer stopped before the transfer was written", retryAfterSeconds));
+        }
+    }
+
+    private static class PendingTransfer {
+        private final Integer senderId;
+        private final CreateTransactionRequestDTO request;
+        private final CompletableFuture<Transaction> result = new CompletableFuture<>();
+
+        private PendingTransfer(Integer senderId, CreateTransactionRequestDTO request) {
+            this.senderId = senderId;
+            this.request = request;
+        }
+    }
+}
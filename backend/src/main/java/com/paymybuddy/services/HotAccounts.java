@@ -0,0 +1,144 @@
+package com.paymybuddy.services;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.paymybuddy.logging.LoggingService;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Accounts whose credits are spread over sub-balance slots (wallet_slots)
+ * instead of all queueing on their wallet row, for receivers such as
+ * merchants that get many concurrent transfers.
+ *
+ * Accounts are listed in app.wallets.hot.accounts or promoted at runtime.
+ * With app.wallets.hot.auto-detect=true, an account is promoted once enough of
+ * its credits waited on the wallet row lock (slower than slow-credit-ms)
+ * within one window. Promotion only changes where new credits go: the
+ * balance read and the debit path take the slots into account for every
+ * account, so nodes that do not know an account is hot stay correct.
+ */
+@Component
+public class HotAccounts {
+
+    /** Bound on the accounts tracked for detection in one window */
+    private static final int MAX_TRACKED = 10_000;
+
+    private final Set<Integer> hot = ConcurrentHashMap.newKeySet();
+    private final int slots;
+    private final boolean autoDetect;
+    private final long slowCreditNanos;
+    private final int slowCreditsToPromote;
+    private final long windowNanos;
+    private final ConcurrentHashMap<Integer, AtomicInteger> slowCredits = new ConcurrentHashMap<>();
+    private final LoggingService loggingService;
+    private final Counter promotionCounter;
+    private final Counter slowCreditCounter;
+    private final Counter consolidationCounter;
+    private volatile long windowStart = System.nanoTime();
+
+    public HotAccounts(LoggingService loggingService, MeterRegistry meterRegistry,
+            @Value("${app.wallets.hot.accounts:}") String accounts,
+            @Value("${app.wallets.hot.slots:16}") int slots,
+            @Value("${app.wallets.hot.auto-detect:false}") boolean autoDetect,
+            @Value("${app.wallets.hot.slow-credit-ms:5}") long slowCreditMillis,
+            @Value("${app.wallets.hot.slow-credits-to-promote:50}") int slowCreditsToPromote,
+            @Value("${app.wallets.hot.window-ms:10000}") long windowMillis) {
+        if (slots < 1) {
+            throw new IllegalArgumentException("app.wallets.hot.slots must be at least 1");
+        }
+        this.slots = slots;
+        this.autoDetect = autoDetect;
+        this.slowCreditNanos = TimeUnit.MILLISECONDS.toNanos(slowCreditMillis);
+        this.slowCreditsToPromote = slowCreditsToPromote;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.loggingService = loggingService;
+        Arrays.stream(accounts.split(",")).map(String::trim).filter(id -> !id.isEmpty())
+                .map(Integer::valueOf).forEach(hot::add);
+
+        Gauge.builder("paymybuddy.wallets.hot.accounts", hot, Set::size)
+                .description("Accounts whose credits are spread over sub-balance slots")
+                .register(meterRegistry);
+        this.promotionCounter = Counter.builder("paymybuddy.wallets.hot.promotions")
+                .description("Accounts promoted to hot at runtime")
+                .register(meterRegistry);
+        this.slowCreditCounter = Counter.builder("paymybuddy.wallets.credit.slow")
+                .description("Wallet credits that waited longer than slow-credit-ms")
+                .register(meterRegistry);
+        this.consolidationCounter = Counter.builder("paymybuddy.wallets.hot.consolidations")
+                .description("Debits that folded the slots back into the wallet")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return true when credits to the account go to its slots
+     */
+    public boolean isHot(Integer userId) {
+        return !hot.isEmpty() && hot.contains(userId);
+    }
+
+    /**
+     * Slot for a credit by the current thread: a thread keeps hitting the
+     * same slot, and threads spread evenly over the slots
+     */
+    public int slotFor(Integer userId) {
+        long h = (Thread.currentThread().threadId() + userId) * 0x9E3779B97F4A7C15L;
+        return (int) Math.floorMod(h ^ (h >>> 32), (long) slots);
+    }
+
+    /**
+     * Spread the future credits of the account over its slots
+     */
+    public void promote(Integer userId) {
+        if (hot.add(userId)) {
+            promotionCounter.increment();
+            loggingService.info("HotAccounts: account " + userId + " promoted, credits spread over " + slots
+                    + " slots");
+        }
+    }
+
+    /**
+     * Feed the detector with the time a credit to a wallet row took,
+     * including the wait for its row lock
+     */
+    public void recordCredit(Integer userId, long elapsedNanos) {
+        if (elapsedNanos < slowCreditNanos) {
+            return;
+        }
+        slowCreditCounter.increment();
+        if (!autoDetect) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (now - windowStart > windowNanos) {
+            windowStart = now;
+            slowCredits.clear();
+        }
+        AtomicInteger count = slowCredits.get(userId);
+        if (count == null) {
+            if (slowCredits.size() >= MAX_TRACKED) {
+                return;
+            }
+            count = slowCredits.computeIfAbsent(userId, id -> new AtomicInteger());
+        }
+        if (count.incrementAndGet() == slowCreditsToPromote) {
+            promote(userId);
+        }
+    }
+
+    /**
+     * Count a debit that had to fold the slots back into the wallet
+     */
+    public void recordConsolidation() {
+        consolidationCounter.increment();
+    }
+}
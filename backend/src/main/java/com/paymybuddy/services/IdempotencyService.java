@@ -0,0 +1,415 @@
+package com.paymybuddy.services;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paymybuddy.exceptions.IdempotencyKeyReusedException;
+import com.paymybuddy.exceptions.IdempotentRequestInProgressException;
+import com.paymybuddy.logging.LoggingService;
+import com.paymybuddy.models.IdempotencyRecord;
+import com.paymybuddy.repository.IdempotencyRecordRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Runs a request at most once per (user, Idempotency-Key) and replays the
+ * stored response to duplicates without touching the ledger.
+ *
+ * Keys live in a bounded in-memory store (least recently used entries dropped
+ * first) and expire after a fixed time to live. Concurrent duplicates on the
+ * node wait for the running original instead of executing. With
+ * app.idempotency.persistent=true the key is also claimed in the
+ * idempotency_records table before running, so the guarantee holds across
+ * nodes.
+ *
+ * A claim whose response was never stored is ambiguous: the request may have
+ * paid, crashed before paying, or still be running. With the jpa engine and
+ * no group commit, the response is stored in the transaction of the transfer
+ * itself, so a claim past claim-lease-seconds can be taken over: the previous
+ * owner can then no longer store its response, and rolls back if it is still
+ * running. Otherwise (group commit, ledger) the transfer commits elsewhere,
+ * and a claim past its lease fails closed: duplicates get 409 until an
+ * operator reconciles the key. A failed original is forgotten so that the
+ * client can retry it.
+ */
+@Component
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    public static final int MAX_KEY_LENGTH = 255;
+
+    private static final long POLL_INTERVAL_MILLIS = 50;
+    private static final long PURGE_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final ObjectMapper objectMapper;
+    private final IdempotencyRecordRepository recordRepository;
+    private final LoggingService loggingService;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final long waitMillis;
+    private final long claimLeaseMillis;
+    private final boolean persistent;
+    private final boolean completesWithTransfer;
+    private final TransactionRunner transactionRunner;
+    private final Map<String, Entry> entries;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Counter executedCounter;
+    private final Counter replayedCounter;
+    private final Counter rejectedCounter;
+    private final Counter unresolvedCounter;
+    private volatile long nextPurgeAt;
+
+    public IdempotencyService(ObjectMapper objectMapper, IdempotencyRecordRepository recordRepository,
+            LoggingService loggingService, MeterRegistry meterRegistry, TransactionRunner transactionRunner,
+            @Value("${app.idempotency.max-entries:100000}") int maxEntries,
+            @Value("${app.idempotency.ttl-seconds:86400}") long ttlSeconds,
+            @Value("${app.idempotency.wait-ms:10000}") long waitMillis,
+            @Value("${app.idempotency.claim-lease-seconds:60}") long claimLeaseSeconds,
+            @Value("${app.idempotency.persistent:false}") boolean persistent,
+            @Value("${app.transfers.engine:jpa}") String transferEngine,
+            @Value("${app.transfers.group-commit.enabled:false}") boolean groupCommit) {
+        if (TimeUnit.SECONDS.toMillis(claimLeaseSeconds) <= waitMillis) {
+            // Duplicates waiting on a live claim would otherwise take it over or report it unresolved
+            throw new IllegalArgumentException("app.idempotency.claim-lease-seconds must be longer than wait-ms");
+        }
+        this.objectMapper = objectMapper;
+        this.recordRepository = recordRepository;
+        this.loggingService = loggingService;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        this.waitMillis = waitMillis;
+        this.claimLeaseMillis = TimeUnit.SECONDS.toMillis(claimLeaseSeconds);
+        this.persistent = persistent;
+        // Only then does the transfer run in a transaction of the calling thread that the response can join
+        this.completesWithTransfer = "jpa".equals(transferEngine) && !groupCommit;
+        this.transactionRunner = transactionRunner;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                // Never drop a running request: its duplicates would execute again
+                return size() > IdempotencyService.this.maxEntries && eldest.getValue().result.isDone();
+            }
+        };
+
+        Gauge.builder("paymybuddy.idempotency.store.size", this, IdempotencyService::size)
+                .description("Idempotency keys held in memory")
+                .register(meterRegistry);
+        this.executedCounter = requests(meterRegistry, "executed");
+        this.replayedCounter = requests(meterRegistry, "replayed");
+        this.rejectedCounter = requests(meterRegistry, "rejected");
+        this.unresolvedCounter = requests(meterRegistry, "unresolved");
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("paymybuddy.idempotency.requests")
+                .description("Requests carrying an Idempotency-Key; hit rate = replayed / all")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Run the action once for this user and key, or replay its response
+     *
+     * @param userId      the caller, keys are scoped to their user
+     * @param key         the Idempotency-Key header
+     * @param requestBody the request body, a key cannot be reused with another one
+     * @param bodyType    the response body type, to rebuild replayed responses
+     * @param action      the request handling
+     * @return the response of the action, or the stored one marked with the
+     *         Idempotent-Replayed header
+     */
+    public <T> ResponseEntity<T> execute(Integer userId, String key, Object requestBody, Class<T> bodyType,
+            Supplier<ResponseEntity<T>> action) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    HEADER + " must hold between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+        String scopedKey = userId + ":" + key;
+        String fingerprint = fingerprint(requestBody);
+
+        while (true) {
+            long now = System.currentTimeMillis();
+            Entry entry;
+            boolean owner;
+            lock.lock();
+            try {
+                entry = entries.get(scopedKey);
+                if (entry != null && entry.result.isDone() && entry.expiresAt <= now) {
+                    entries.remove(scopedKey);
+                    entry = null;
+                }
+                owner = entry == null;
+                if (owner) {
+                    entry = new Entry(fingerprint, now + ttlMillis);
+                    entries.put(scopedKey, entry);
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (!entry.fingerprint.equals(fingerprint)) {
+                rejectedCounter.increment();
+                throw new IdempotencyKeyReusedException(HEADER + " already used with a different request");
+            }
+            if (owner) {
+                return executeAsOwner(scopedKey, entry, bodyType, action);
+            }
+
+            Optional<StoredResponse> stored = await(entry);
+            if (stored.isPresent()) {
+                replayedCounter.increment();
+                return replay(stored.get(), bodyType);
+            }
+            // The original failed and was forgotten: this duplicate runs it again
+        }
+    }
+
+    private <T> ResponseEntity<T> executeAsOwner(String scopedKey, Entry entry, Class<T> bodyType,
+            Supplier<ResponseEntity<T>> action) {
+        boolean claimed = false;
+        try {
+            if (persistent) {
+                Optional<StoredResponse> previous = claimAcrossNodes(scopedKey, entry);
+                if (previous.isPresent()) {
+                    entry.result.complete(previous.get());
+                    replayedCounter.increment();
+                    return replay(previous.get(), bodyType);
+                }
+                claimed = true;
+            }
+
+            ResponseEntity<T> response;
+            if (persistent && completesWithTransfer) {
+                response = transactionRunner.run(status -> {
+                    ResponseEntity<T> result = action.get();
+                    if (status.isRollbackOnly()) {
+                        // Refused transfer: nothing commits, its response is stored below like any other
+                        status.setRollbackOnly();
+                        return result;
+                    }
+                    StoredResponse stored = stored(result);
+                    if (!recordRepository.complete(scopedKey, entry.leaseUntil, stored.status(), stored.body(),
+                            entry.expiresAt)) {
+                        // Taken over after the lease: the retry pays, this attempt must not commit
+                        throw new IdempotentRequestInProgressException("The request was retried meanwhile");
+                    }
+                    entry.stored = true;
+                    return result;
+                });
+            } else {
+                response = action.get();
+            }
+            StoredResponse stored = stored(response);
+            entry.result.complete(stored);
+            executedCounter.increment();
+            if (persistent && !entry.stored) {
+                store(scopedKey, entry, stored);
+            }
+            return response;
+        } catch (RuntimeException e) {
+            forget(scopedKey, entry);
+            if (claimed) {
+                recordRepository.release(scopedKey, entry.leaseUntil);
+            }
+            entry.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Store the response of a request that ran, after the fact. It may have
+     * committed, so a failure here must not release the claim: the key stays
+     * in progress and fails closed once its lease expires.
+     */
+    private void store(String scopedKey, Entry entry, StoredResponse stored) {
+        try {
+            if (!recordRepository.complete(scopedKey, entry.leaseUntil, stored.status(), stored.body(),
+                    entry.expiresAt)) {
+                loggingService.error("Idempotency response for " + scopedKey + " not stored, the claim is gone");
+            }
+        } catch (RuntimeException e) {
+            loggingService.error("Idempotency response for " + scopedKey + " not stored, the key needs "
+                    + "reconciliation after " + TimeUnit.MILLISECONDS.toSeconds(claimLeaseMillis) + "s - "
+                    + e.getMessage());
+        }
+    }
+
+    /**
+     * Claim the key in the shared table, or wait for the node that owns it
+     *
+     * @return the stored response if the key already completed, empty once claimed
+     */
+    private Optional<StoredResponse> claimAcrossNodes(String scopedKey, Entry entry) {
+        purgeExpiredRecords();
+        long deadline = System.currentTimeMillis() + waitMillis;
+        while (true) {
+            entry.leaseUntil = System.currentTimeMillis() + claimLeaseMillis;
+            if (recordRepository.tryClaim(scopedKey, entry.fingerprint, entry.leaseUntil)) {
+                return Optional.empty();
+            }
+            Optional<IdempotencyRecord> record = recordRepository.findById(scopedKey);
+            if (record.isEmpty()) {
+                // Released or purged meanwhile: claim again
+                continue;
+            }
+            if (!record.get().getRequestFingerprint().equals(entry.fingerprint)) {
+                rejectedCounter.increment();
+                throw new IdempotencyKeyReusedException(HEADER + " already used with a different request");
+            }
+            if (record.get().getStatusCode() != null) {
+                return Optional.of(new StoredResponse(record.get().getStatusCode(), record.get().getResponseBody()));
+            }
+            if (record.get().getExpiresAt() <= System.currentTimeMillis()) {
+                if (!completesWithTransfer) {
+                    unresolvedCounter.increment();
+                    loggingService.error("Idempotency claim " + scopedKey + " expired without a response: "
+                            + "reconcile the transfer, then complete or delete its record");
+                    throw new IdempotentRequestInProgressException(
+                            "The original request did not complete, it is being reconciled");
+                }
+                if (recordRepository.takeOver(scopedKey, record.get().getExpiresAt(), entry.leaseUntil)) {
+                    loggingService.warn("Idempotency claim " + scopedKey + " expired, taken over by a retry");
+                    return Optional.empty();
+                }
+                continue;
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                rejectedCounter.increment();
+                throw new IdempotentRequestInProgressException("The original request is still running");
+            }
+            sleep(POLL_INTERVAL_MILLIS);
+        }
+    }
+
+    private Optional<StoredResponse> await(Entry entry) {
+        try {
+            return Optional.of(entry.result.get(waitMillis, TimeUnit.MILLISECONDS));
+        } catch (ExecutionException e) {
+            return Optional.empty();
+        } catch (TimeoutException e) {
+            rejectedCounter.increment();
+            throw new IdempotentRequestInProgressException("The original request is still running");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotentRequestInProgressException("Interrupted while waiting for the original request");
+        }
+    }
+
+    private void forget(String scopedKey, Entry entry) {
+        lock.lock();
+        try {
+            entries.remove(scopedKey, entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void purgeExpiredRecords() {
+        long now = System.currentTimeMillis();
+        if (now >= nextPurgeAt) {
+            nextPurgeAt = now + PURGE_INTERVAL_MILLIS;
+            int purged = recordRepository.purgeExpired();
+            if (purged > 0) {
+                loggingService.debug("Purged " + purged + " expired idempotency records");
+            }
+        }
+    }
+
+    private StoredResponse stored(ResponseEntity<?> response) {
+        return new StoredResponse(response.getStatusCode().value(), serialize(response.getBody()));
+    }
+
+    private <T> ResponseEntity<T> replay(StoredResponse stored, Class<T> bodyType) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(stored.status()).header(REPLAYED_HEADER, "true");
+        if (stored.body() == null) {
+            return builder.build();
+        }
+        try {
+            return builder.body(objectMapper.readValue(stored.body(), bodyType));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable stored idempotent response", e);
+        }
+    }
+
+    private String serialize(Object body) {
+        if (body == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Response cannot be stored for replay", e);
+        }
+    }
+
+    /**
+     * SHA-256 of the JSON request body, stored with the key
+     */
+    String fingerprint(Object requestBody) {
+        String json = serialize(requestBody);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(json == null ? new byte[0] : json.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotentRequestInProgressException("Interrupted while waiting for the original request");
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private record StoredResponse(int status, String body) {
+    }
+
+    private static class Entry {
+        private final String fingerprint;
+        private final long expiresAt;
+        private final CompletableFuture<StoredResponse> result = new CompletableFuture<>();
+        // Owner thread only: lease of its claim in idempotency_records, and whether its response is stored there
+        private long leaseUntil;
+        private boolean stored;
+
+        private Entry(String fingerprint, long expiresAt) {
+            this.fingerprint = fingerprint;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
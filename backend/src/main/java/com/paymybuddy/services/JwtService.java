@@ -0,0 +1,186 @@
+package com.paymybuddy.services;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.SecretKey;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.stereotype.Service;
+
+import com.paymybuddy.models.AuthenticatedUser;
+import com.paymybuddy.repository.RefreshTokenRepository;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+
+/**
+ * Issues and verifies the signed tokens of the stateless authentication mode
+ * (app.security.mode=jwt). Verifying an access token needs neither the
+ * database nor a session: the user id and email are read from the token.
+ * Refresh tokens are long-lived, so they are also recorded in the shared
+ * refresh_tokens table: one can only be exchanged or revoked once, whichever
+ * node handles it.
+ */
+@Service
+public class JwtService {
+
+    public static final String REFRESH_TOKEN_HEADER = "X-Refresh-Token";
+    public static final String BEARER_PREFIX = "Bearer ";
+
+    private static final String USER_ID_CLAIM = "uid";
+    private static final String TOKEN_TYPE_CLAIM = "token_type";
+    private static final String ACCESS_TOKEN = "access";
+    private static final String REFRESH_TOKEN = "refresh";
+    private static final long PURGE_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private final boolean enabled;
+    private final SecretKey key;
+    private final long accessTokenTtlMillis;
+    private final long refreshTokenTtlMillis;
+    private final TokenRevocationList revocationList;
+    private final RefreshTokenRepository refreshTokenRepository;
+    private volatile long nextPurgeAt;
+
+    public JwtService(@Value("${app.security.mode:session}") String mode,
+            @Value("${app.security.jwt.secret:}") String secret,
+            @Value("${app.security.jwt.access-token-ttl-seconds:900}") long accessTokenTtlSeconds,
+            @Value("${app.security.jwt.refresh-token-ttl-seconds:604800}") long refreshTokenTtlSeconds,
+            TokenRevocationList revocationList, RefreshTokenRepository refreshTokenRepository) {
+        this.enabled = "jwt".equalsIgnoreCase(mode.trim());
+        if (secret == null || secret.isBlank()) {
+            if (enabled) {
+                throw new IllegalStateException("app.security.jwt.secret must be set when app.security.mode=jwt");
+            }
+            // Session mode never issues tokens; a throwaway key keeps the bean usable
+            this.key = Jwts.SIG.HS256.key().build();
+        } else {
+            this.key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        }
+        this.accessTokenTtlMillis = TimeUnit.SECONDS.toMillis(accessTokenTtlSeconds);
+        this.refreshTokenTtlMillis = TimeUnit.SECONDS.toMillis(refreshTokenTtlSeconds);
+        this.revocationList = revocationList;
+        this.refreshTokenRepository = refreshTokenRepository;
+    }
+
+    /**
+     * @return true when the application runs in stateless JWT mode
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Issue a new access and refresh token pair
+     * 
+     * @param userId the user ID
+     * @param email  the user email
+     * @return the token pair
+     */
+    public TokenPair issueTokens(Integer userId, String email) {
+        long now = System.currentTimeMillis();
+        String refreshTokenId = UUID.randomUUID().toString();
+        refreshTokenRepository.save(refreshTokenId, userId, now + refreshTokenTtlMillis);
+        if (now >= nextPurgeAt) {
+            nextPurgeAt = now + PURGE_INTERVAL_MILLIS;
+            refreshTokenRepository.purgeExpired();
+        }
+        return new TokenPair(
+                sign(UUID.randomUUID().toString(), userId, email, ACCESS_TOKEN, now, accessTokenTtlMillis),
+                sign(refreshTokenId, userId, email, REFRESH_TOKEN, now, refreshTokenTtlMillis));
+    }
+
+    /**
+     * Verify an access token and build the principal it stands for
+     * 
+     * @param token the access token, with or without the Bearer prefix
+     * @return the principal if the token is valid, unexpired and not revoked
+     */
+    public Optional<AuthenticatedUser> authenticate(String token) {
+        return verify(token, ACCESS_TOKEN).map(claims -> new AuthenticatedUser(
+                claims.get(USER_ID_CLAIM, Integer.class), claims.getSubject(), "",
+                AuthorityUtils.createAuthorityList("USER")));
+    }
+
+    /**
+     * Verify a refresh token and mark it used in the shared table, so that
+     * each refresh token can only be exchanged once, on any node
+     * 
+     * @param token the refresh token
+     * @return the user ID if the token is valid, unexpired and not used or
+     *         revoked
+     */
+    public Optional<Integer> consumeRefreshToken(String token) {
+        return parse(token)
+                .filter(claims -> REFRESH_TOKEN.equals(claims.get(TOKEN_TYPE_CLAIM, String.class)))
+                .filter(claims -> refreshTokenRepository.consume(claims.getId()))
+                .map(claims -> claims.get(USER_ID_CLAIM, Integer.class));
+    }
+
+    /**
+     * Revoke a token until it expires: a refresh token on every node, an
+     * access token on this node (it expires soon anyway). Invalid tokens are
+     * ignored.
+     * 
+     * @param token the access or refresh token
+     */
+    public void revoke(String token) {
+        parse(token).ifPresent(claims -> {
+            if (REFRESH_TOKEN.equals(claims.get(TOKEN_TYPE_CLAIM, String.class))) {
+                refreshTokenRepository.delete(claims.getId());
+            } else {
+                revocationList.revoke(claims.getId(), claims.getExpiration().getTime());
+            }
+        });
+    }
+
+    private String sign(String tokenId, Integer userId, String email, String type, long now, long ttlMillis) {
+        return Jwts.builder()
+                .id(tokenId)
+                .subject(email)
+                .claim(USER_ID_CLAIM, userId)
+                .claim(TOKEN_TYPE_CLAIM, type)
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + ttlMillis))
+                .signWith(key)
+                .compact();
+    }
+
+    private Optional<Claims> verify(String token, String expectedType) {
+        return parse(token)
+                .filter(claims -> expectedType.equals(claims.get(TOKEN_TYPE_CLAIM, String.class)))
+                .filter(claims -> !revocationList.isRevoked(claims.getId()));
+    }
+
+    private Optional<Claims> parse(String token) {
+        if (token == null || token.isBlank()) {
+            return Optional.empty();
+        }
+        String compact = token.startsWith(BEARER_PREFIX) ? token.substring(BEARER_PREFIX.length()) : token;
+        try {
+            return Optional.of(Jwts.parser().verifyWith(key).build().parseSignedClaims(compact.trim()).getPayload());
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Access and refresh tokens, sent to the client in response headers
+     */
+    public record TokenPair(String accessToken, String refreshToken) {
+
+        public HttpHeaders toHeaders() {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.AUTHORIZATION, BEARER_PREFIX + accessToken);
+            headers.set(REFRESH_TOKEN_HEADER, refreshToken);
+            return headers;
+        }
+    }
+}
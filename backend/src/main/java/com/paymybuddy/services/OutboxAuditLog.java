@@ -0,0 +1,25 @@
+package com.paymybuddy.services;
+
+import org.springframework.stereotype.Component;
+
+import com.paymybuddy.logging.LoggingService;
+import com.paymybuddy.models.OutboxEvent;
+
+/**
+ * Writes every committed money movement to the application log, one line per
+ * outbox event, off the payment path.
+ */
+@Component
+public class OutboxAuditLog implements OutboxSubscriber {
+
+    private final LoggingService loggingService;
+
+    public OutboxAuditLog(LoggingService loggingService) {
+        this.loggingService = loggingService;
+    }
+
+    @Override
+    public void onEvent(OutboxEvent event) {
+        loggingService.info("Audit: " + event.getEventType() + " #" + event.getId() + " " + event.getPayload());
+    }
+}
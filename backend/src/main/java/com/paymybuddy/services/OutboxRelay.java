@@ -0,0 +1,274 @@
+package com.paymybuddy.services;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.paymybuddy.logging.LoggingService;
+import com.paymybuddy.models.OutboxEvent;
+import com.paymybuddy.repository.OutboxEventRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Hands the outbox to the {@link OutboxSubscriber}s, so that consumers of
+ * money movements never run on (or slow down) the payment path.
+ *
+ * A single thread claims up to batch-size due events with SELECT ... FOR
+ * UPDATE SKIP LOCKED and leases them for lease-seconds in a short
+ * transaction, dispatches them in id order outside of any transaction, then
+ * marks them in a second short transaction, so a slow subscriber holds
+ * neither a connection nor row locks. Every node runs a relay: leased events
+ * are skipped by the others, so they share the backlog without handing an
+ * event twice. If a relay dies mid-batch the lease expires and the batch is
+ * claimed again (at-least-once delivery).
+ *
+ * An event a subscriber failed on stays pending for that subscriber only,
+ * with its attempt count, and is handed to it again after an exponential
+ * backoff from retry-initial-backoff-ms up to retry-max-backoff-ms. The relay
+ * polls again right away while batches come back full and sleeps poll-ms
+ * otherwise. Processed events are kept for retention-hours, then purged.
+ */
+@Component
+public class OutboxRelay implements AutoCloseable {
+
+    private static final long BACKLOG_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long PURGE_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxEventRepository outboxEventRepository;
+    private final List<OutboxSubscriber> subscribers;
+    private final LoggingService loggingService;
+    private final int batchSize;
+    private final long pollMillis;
+    private final Duration lease;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final long retentionHours;
+    private final AtomicLong backlog = new AtomicLong();
+    private final Counter relayedCounter;
+    private final Counter failureCounter;
+    private final Timer batchTimer;
+    private final Timer lagTimer;
+    private final Thread relay;
+    private volatile boolean running;
+    private long backlogRefreshedAt;
+    private long purgedAt;
+
+    public OutboxRelay(PlatformTransactionManager transactionManager, OutboxEventRepository outboxEventRepository,
+            List<OutboxSubscriber> subscribers, LoggingService loggingService, MeterRegistry meterRegistry,
+            @Value("${app.outbox.relay.enabled:true}") boolean enabled,
+            @Value("${app.outbox.relay.batch-size:200}") int batchSize,
+            @Value("${app.outbox.relay.poll-ms:200}") long pollMillis,
+            @Value("${app.outbox.relay.lease-seconds:60}") long leaseSeconds,
+            @Value("${app.outbox.relay.retry-initial-backoff-ms:1000}") long initialBackoffMillis,
+            @Value("${app.outbox.relay.retry-max-backoff-ms:300000}") long maxBackoffMillis,
+            @Value("${app.outbox.retention-hours:24}") long retentionHours) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("app.outbox.relay.batch-size must be at least 1");
+        }
+        if (leaseSeconds < 1 || initialBackoffMillis < 1 || maxBackoffMillis < initialBackoffMillis) {
+            throw new IllegalArgumentException("app.outbox.relay lease and backoff settings are out of range");
+        }
+        Set<String> names = new HashSet<>();
+        for (OutboxSubscriber subscriber : subscribers) {
+            if (subscriber.name().contains(",") || !names.add(subscriber.name())) {
+                throw new IllegalStateException("Outbox subscriber name " + subscriber.name()
+                        + " is not unique or contains a comma");
+            }
+        }
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.outboxEventRepository = outboxEventRepository;
+        this.subscribers = List.copyOf(subscribers);
+        this.loggingService = loggingService;
+        this.batchSize = batchSize;
+        this.pollMillis = pollMillis;
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.retentionHours = retentionHours;
+
+        Gauge.builder("paymybuddy.outbox.backlog", backlog, AtomicLong::get)
+                .description("Outbox events not relayed yet, refreshed at most once a second")
+                .register(meterRegistry);
+        this.relayedCounter = Counter.builder("paymybuddy.outbox.relayed")
+                .description("Outbox events handed to all of their subscribers")
+                .register(meterRegistry);
+        this.failureCounter = Counter.builder("paymybuddy.outbox.subscriber.failures")
+                .description("Deliveries of an outbox event that a subscriber failed to handle")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("paymybuddy.outbox.relay.batch")
+                .description("Time spent claiming, dispatching and marking one batch")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.lagTimer = Timer.builder("paymybuddy.outbox.lag")
+                .description("Time from the write of an event to its dispatch")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+
+        // A single platform thread: it blocks on JDBC and keeps the events of a node in order
+        this.relay = new Thread(this::run, "outbox-relay");
+        this.relay.setDaemon(true);
+        if (enabled) {
+            running = true;
+            relay.start();
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        relay.interrupt();
+        try {
+            relay.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Claim, dispatch and mark one batch of due events
+     *
+     * @return the number of events claimed
+     */
+    int relayBatch() {
+        return batchTimer.record(() -> {
+            List<OutboxEvent> events = claim();
+            if (events.isEmpty()) {
+                return 0;
+            }
+            List<Long> delivered = new ArrayList<>(events.size());
+            Map<OutboxEvent, List<String>> failed = new LinkedHashMap<>();
+            Instant now = Instant.now();
+            for (OutboxEvent event : events) {
+                if (event.getAttempts() == 0) {
+                    lagTimer.record(Duration.between(event.getCreatedAt(), now));
+                }
+                List<String> failures = dispatch(event);
+                if (failures.isEmpty()) {
+                    delivered.add(event.getId());
+                } else {
+                    failed.put(event, failures);
+                }
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                Instant markedAt = Instant.now();
+                if (!delivered.isEmpty()) {
+                    outboxEventRepository.markProcessed(delivered, markedAt);
+                }
+                failed.forEach((event, failures) -> {
+                    int attempts = event.getAttempts() + 1;
+                    outboxEventRepository.reschedule(event.getId(), attempts, markedAt.plus(backoff(attempts)),
+                            String.join(",", failures));
+                });
+            });
+            relayedCounter.increment(delivered.size());
+            return events.size();
+        });
+    }
+
+    /**
+     * Refresh the backlog gauge and purge the old processed events, each at
+     * most once per interval
+     */
+    void housekeep() {
+        long now = System.nanoTime();
+        if (now - backlogRefreshedAt >= BACKLOG_REFRESH_NANOS) {
+            backlogRefreshedAt = now;
+            backlog.set(outboxEventRepository.countPending());
+        }
+        if (purgedAt == 0 || now - purgedAt >= PURGE_INTERVAL_NANOS) {
+            purgedAt = now;
+            int purged = outboxEventRepository.deleteProcessedBefore(
+                    Instant.now().minus(retentionHours, ChronoUnit.HOURS));
+            if (purged > 0) {
+                loggingService.info("OutboxRelay: " + purged + " processed events purged");
+            }
+        }
+    }
+
+    /**
+     * Lock the due events, lease them and commit right away
+     */
+    private List<OutboxEvent> claim() {
+        return transactionTemplate.execute(status -> {
+            Instant now = Instant.now();
+            List<OutboxEvent> events = outboxEventRepository.claimPending(now, Limit.of(batchSize));
+            if (!events.isEmpty()) {
+                outboxEventRepository.lease(events.stream().map(OutboxEvent::getId).toList(), now.plus(lease));
+            }
+            return events;
+        });
+    }
+
+    /**
+     * Hand an event to the subscribers that still have to handle it
+     *
+     * @return the names of the subscribers that failed
+     */
+    private List<String> dispatch(OutboxEvent event) {
+        Set<String> pending = event.getPendingSubscribers() == null ? null
+                : Set.of(event.getPendingSubscribers().split(","));
+        List<String> failures = new ArrayList<>();
+        for (OutboxSubscriber subscriber : subscribers) {
+            if (pending != null && !pending.contains(subscriber.name())) {
+                continue;
+            }
+            try {
+                subscriber.onEvent(event);
+            } catch (RuntimeException e) {
+                // One broken consumer must not stall the outbox for the others
+                failureCounter.increment();
+                failures.add(subscriber.name());
+                loggingService.error("OutboxRelay: " + subscriber.name() + " failed on event " + event.getId()
+                        + " (attempt " + (event.getAttempts() + 1) + ") - " + e.getMessage());
+            }
+        }
+        return failures;
+    }
+
+    private Duration backoff(int attempts) {
+        long delay = initialBackoffMillis << Math.min(attempts - 1, 20);
+        return Duration.ofMillis(delay < 0 ? maxBackoffMillis : Math.min(delay, maxBackoffMillis));
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                int relayed = relayBatch();
+                housekeep();
+                if (relayed < batchSize) {
+                    Thread.sleep(pollMillis);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } catch (RuntimeException e) {
+                loggingService.error("Outbox relay failed - " + e.getMessage());
+                try {
+                    Thread.sleep(pollMillis);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    running = false;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.paymybuddy.services;
+
+import com.paymybuddy.models.OutboxEvent;
+
+/**
+ * In-process consumer of the outbox, called by {@link OutboxRelay} on its own
+ * thread, in id order (retries aside), after the change that wrote the event
+ * committed.
+ *
+ * Delivery is at least once: an event is handed again if the relay stops
+ * before marking it, so consumers must tolerate duplicates (the payload
+ * carries the ID of the transaction or top-up). When a subscriber throws, the
+ * event stays pending for that subscriber only and is handed to it again
+ * after a backoff; the other subscribers and events are not held back.
+ */
+public interface OutboxSubscriber {
+
+    /**
+     * @param event the committed event
+     */
+    void onEvent(OutboxEvent event);
+
+    /**
+     * Name under which failed deliveries are recorded in the outbox, so it
+     * must stay the same across restarts and must not contain a comma
+     *
+     * @return the subscriber name, its simple class name by default
+     */
+    default String name() {
+        return getClass().getSimpleName();
+    }
+}
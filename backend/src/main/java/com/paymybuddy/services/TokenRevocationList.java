@@ -0,0 +1,47 @@
+package com.paymybuddy.services;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory list of revoked access token ids (jti). Entries are kept until the
+ * token would have expired anyway, then purged.
+ * Note: the list is local to the node; with several nodes a revoked access
+ * token stays usable elsewhere until it expires, which is bounded by the
+ * short access token lifetime. Refresh tokens are revoked in the shared
+ * refresh_tokens table instead.
+ */
+@Component
+public class TokenRevocationList {
+
+    private static final long PURGE_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final Map<String, Long> revokedUntil = new ConcurrentHashMap<>();
+    private volatile long nextPurgeAt;
+
+    /**
+     * Revoke a token
+     * 
+     * @param tokenId         the token id (jti claim)
+     * @param expiresAtMillis the token expiry, after which the entry is dropped
+     */
+    public void revoke(String tokenId, long expiresAtMillis) {
+        revokedUntil.put(tokenId, expiresAtMillis);
+        long now = System.currentTimeMillis();
+        if (now >= nextPurgeAt) {
+            nextPurgeAt = now + PURGE_INTERVAL_MILLIS;
+            revokedUntil.values().removeIf(expiresAt -> expiresAt < now);
+        }
+    }
+
+    public boolean isRevoked(String tokenId) {
+        return revokedUntil.containsKey(tokenId);
+    }
+
+    public int size() {
+        return revokedUntil.size();
+    }
+}
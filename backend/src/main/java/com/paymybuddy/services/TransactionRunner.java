@@ -0,0 +1,30 @@
+package com.paymybuddy.services;
+
+import java.util.function.Function;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+
+import com.paymybuddy.config.RetryOnConflict;
+
+/**
+ * Runs work in a database transaction of its own, retried as a whole when it
+ * loses a concurrency conflict, like a {@link RetryOnConflict} service method.
+ * For callers that add their own writes to the transaction of a service call,
+ * e.g. the stored response of an idempotent transfer.
+ */
+@Component
+public class TransactionRunner {
+
+    /**
+     * @param work the work, given the status of its transaction
+     * @return the result of the work
+     */
+    @RetryOnConflict
+    @Transactional
+    public <T> T run(Function<TransactionStatus, T> work) {
+        return work.apply(TransactionAspectSupport.currentTransactionStatus());
+    }
+}
@@ -0,0 +1,45 @@
+package com.paymybuddy.services;
+
+import java.util.Locale;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * How concurrent balance writes are kept consistent
+ * (app.transfers.concurrency):
+ * <ul>
+ * <li>atomic (default): guarded single-statement updates, no read before the
+ * write. Best when conflicts are rare or the database is far away.</li>
+ * <li>pessimistic: account lock stripes, then row locks, held until commit.
+ * Conflicting transfers queue instead of failing; best for hot accounts.</li>
+ * <li>optimistic: balances are read, changed on the entity and written with a
+ * version check; a conflict rolls back and retries. Cheap without contention,
+ * wasteful on hot accounts.</li>
+ * </ul>
+ */
+@Component
+public class TransferConcurrency {
+
+    public enum Mode {
+        ATOMIC, PESSIMISTIC, OPTIMISTIC
+    }
+
+    private final Mode mode;
+
+    public TransferConcurrency(@Value("${app.transfers.concurrency:atomic}") String mode) {
+        this.mode = Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public boolean isPessimistic() {
+        return mode == Mode.PESSIMISTIC;
+    }
+
+    public boolean isOptimistic() {
+        return mode == Mode.OPTIMISTIC;
+    }
+}
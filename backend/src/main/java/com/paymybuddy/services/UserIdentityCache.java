@@ -0,0 +1,114 @@
+package com.paymybuddy.services;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded email to user id cache used to resolve principals that do not carry
+ * an id. Entries expire after a fixed time to live and the least recently used
+ * entry is dropped once the cache is full. Guarded by a ReentrantLock rather
+ * than synchronized so virtual threads never pin on it.
+ */
+@Component
+public class UserIdentityCache {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<String, Entry> entries;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public UserIdentityCache(@Value("${app.identity-cache.max-size:10000}") int maxSize,
+            @Value("${app.identity-cache.ttl-seconds:600}") long ttlSeconds) {
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > UserIdentityCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Get the cached user id for an email
+     * 
+     * @param email the user email, compared case-insensitively
+     * @return the user id if cached and not expired
+     */
+    public Optional<Integer> get(String email) {
+        String key = key(email);
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return Optional.empty();
+            }
+            if (System.nanoTime() - entry.cachedAt() >= ttlNanos) {
+                entries.remove(key);
+                return Optional.empty();
+            }
+            return Optional.of(entry.userId());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Cache the user id for an email
+     * 
+     * @param email  the user email
+     * @param userId the user ID
+     */
+    public void put(String email, Integer userId) {
+        String key = key(email);
+        lock.lock();
+        try {
+            entries.put(key, new Entry(userId, System.nanoTime()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drop every entry pointing at a user, e.g. after an email change
+     * 
+     * @param userId the user ID
+     */
+    public void evictUser(Integer userId) {
+        lock.lock();
+        try {
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().userId().equals(userId)) {
+                    iterator.remove();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static String key(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private record Entry(Integer userId, long cachedAt) {
+    }
+}
@@ -0,0 +1,165 @@
+package com.paymybuddy.services.implementations;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import com.paymybuddy.exceptions.InvalidAmountException;
+import com.paymybuddy.exceptions.ServiceOverloadedException;
+import com.paymybuddy.exceptions.TransactionException;
+import com.paymybuddy.ledger.LedgerEngine;
+import com.paymybuddy.ledger.LedgerTransfer;
+import com.paymybuddy.logging.LoggingService;
+import com.paymybuddy.models.Transaction;
+import com.paymybuddy.models.dtos.BatchTransactionItemResultDTO;
+import com.paymybuddy.models.dtos.BatchTransactionRequestDTO;
+import com.paymybuddy.models.dtos.BatchTransactionResultDTO;
+import com.paymybuddy.models.dtos.CreateTransactionRequestDTO;
+import com.paymybuddy.models.dtos.PublicTransactionDTO;
+import com.paymybuddy.models.dtos.TransactionPageDTO;
+import com.paymybuddy.repository.UserRepository;
+import com.paymybuddy.services.interfaces.TransactionService;
+
+/**
+ * Transfers applied by the in-memory {@link LedgerEngine}, selected with
+ * app.transfers.engine=ledger. History reads are unchanged and delegated to
+ * the JPA implementation.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "app.transfers.engine", havingValue = "ledger")
+public class LedgerTransactionServiceImpl implements TransactionService {
+
+    private final LedgerEngine ledgerEngine;
+    private final TransactionServiceImpl jpaTransactionService;
+    private final UserRepository userRepository;
+    private final LoggingService loggingService;
+
+    public LedgerTransactionServiceImpl(LedgerEngine ledgerEngine, TransactionServiceImpl jpaTransactionService,
+            UserRepository userRepository, LoggingService loggingService) {
+        this.ledgerEngine = ledgerEngine;
+        this.jpaTransactionService = jpaTransactionService;
+        this.userRepository = userRepository;
+        this.loggingService = loggingService;
+    }
+
+    @Override
+    public Transaction createTransaction(Integer senderId, CreateTransactionRequestDTO transactionRequest) {
+        try {
+            loggingService.info("Starting transaction creation for amount: " + transactionRequest.getAmountInCents()
+                    + " cents from user " + senderId + " to user "
+                    + transactionRequest.getReceiverId());
+            if (transactionRequest.getAmountInCents() <= 0) {
+                throw new InvalidAmountException("Amount must be greater than 0");
+            }
+
+            LedgerTransfer transfer = await(ledgerEngine.submit(LedgerTransfer.single(senderId,
+                    transactionRequest.getReceiverId(), transactionRequest.getAmountInCents(),
+                    transactionRequest.getDescription())));
+            LedgerTransfer.Leg leg = transfer.getLegs().get(0);
+            if (leg.getStatus() != LedgerTransfer.Status.ACCEPTED) {
+                throw new TransactionException(leg.getMessage());
+            }
+            loggingService.info("Transaction created successfully with ID: " + leg.getTransaction().getId());
+            return leg.getTransaction();
+        } catch (ServiceOverloadedException e) {
+            throw e;
+        } catch (Exception e) {
+            loggingService.error("Transaction failed before creation - " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public BatchTransactionResultDTO createTransactions(Integer senderId, List<CreateTransactionRequestDTO> requests,
+            BatchTransactionRequestDTO.Mode mode) {
+        boolean allOrNothing = mode == BatchTransactionRequestDTO.Mode.ALL_OR_NOTHING;
+        loggingService.info("Starting batch of " + requests.size() + " transactions from user " + senderId + " ("
+                + mode + ")");
+
+        Set<Integer> receiverIds = new HashSet<>();
+        for (CreateTransactionRequestDTO request : requests) {
+            if (request != null && request.getReceiverId() != null) {
+                receiverIds.add(request.getReceiverId());
+            }
+        }
+        Set<Integer> existingReceivers = receiverIds.isEmpty() ? Set.of()
+                : new HashSet<>(userRepository.findExistingIds(receiverIds));
+
+        List<BatchTransactionItemResultDTO> results = new ArrayList<>(requests.size());
+        List<Integer> executable = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            CreateTransactionRequestDTO request = requests.get(i);
+            String error = TransactionServiceImpl.validateBatchItem(senderId, request, existingReceivers);
+            results.add(TransactionServiceImpl.itemResult(i, request,
+                    error == null ? null : BatchTransactionItemResultDTO.Status.REJECTED, error));
+            if (error == null) {
+                executable.add(i);
+            }
+        }
+        if (executable.isEmpty() || (allOrNothing && executable.size() < requests.size())) {
+            for (Integer index : executable) {
+                results.get(index).setStatus(BatchTransactionItemResultDTO.Status.NOT_EXECUTED);
+            }
+            loggingService.error("Batch rejected, no transaction created");
+            return new BatchTransactionResultDTO(mode, 0, requests.size(), 0L, results);
+        }
+
+        // One ledger transfer: a single debit, best effort keeping the longest prefix the balance covers
+        List<LedgerTransfer.Leg> legs = new ArrayList<>(executable.size());
+        for (Integer index : executable) {
+            CreateTransactionRequestDTO request = requests.get(index);
+            legs.add(new LedgerTransfer.Leg(request.getReceiverId(), request.getAmountInCents(),
+                    request.getDescription()));
+        }
+        LedgerTransfer transfer = await(ledgerEngine.submit(new LedgerTransfer(senderId, legs, !allOrNothing)));
+
+        int created = 0;
+        for (int i = 0; i < executable.size(); i++) {
+            LedgerTransfer.Leg leg = transfer.getLegs().get(i);
+            BatchTransactionItemResultDTO result = results.get(executable.get(i));
+            if (leg.getStatus() == LedgerTransfer.Status.ACCEPTED) {
+                result.setStatus(BatchTransactionItemResultDTO.Status.CREATED);
+                result.setTransactionId(leg.getTransaction().getId());
+                created++;
+            } else {
+                result.setStatus(BatchTransactionItemResultDTO.Status.REJECTED);
+                result.setMessage(leg.getMessage());
+            }
+        }
+
+        loggingService.info("Batch from user " + senderId + ": " + created + " of " + requests.size()
+                + " transactions created, " + transfer.getDebitedInCents() + " cents debited");
+        return new BatchTransactionResultDTO(mode, created, requests.size() - created, transfer.getDebitedInCents(),
+                results);
+    }
+
+    @Override
+    public List<PublicTransactionDTO> getUserTransactions(Integer userId) {
+        return jpaTransactionService.getUserTransactions(userId);
+    }
+
+    @Override
+    public TransactionPageDTO getUserTransactions(Integer userId, Integer before, Integer limit) {
+        return jpaTransactionService.getUserTransactions(userId, before, limit);
+    }
+
+    private static LedgerTransfer await(CompletableFuture<LedgerTransfer> result) {
+        // Not interruptible on purpose: once submitted, the transfer may be written and the caller must learn it
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
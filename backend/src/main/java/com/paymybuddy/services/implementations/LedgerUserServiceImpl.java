@@ -0,0 +1,115 @@
+package com.paymybuddy.services.implementations;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+
+import com.paymybuddy.exceptions.InvalidAmountException;
+import com.paymybuddy.ledger.LedgerEngine;
+import com.paymybuddy.ledger.LedgerTopUp;
+import com.paymybuddy.logging.LoggingService;
+import com.paymybuddy.models.TopUp;
+import com.paymybuddy.models.User;
+import com.paymybuddy.models.WalletBalance;
+import com.paymybuddy.models.dtos.PublicUserDTO;
+import com.paymybuddy.models.dtos.UserCredentialsDTO;
+import com.paymybuddy.services.interfaces.UserService;
+
+/**
+ * Users with app.transfers.engine=ledger: top-ups go through the
+ * {@link LedgerEngine}, which holds the spendable balances, instead of
+ * updating the wallets behind its back. Everything else is delegated to the
+ * JPA implementation.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "app.transfers.engine", havingValue = "ledger")
+public class LedgerUserServiceImpl implements UserService {
+
+    private final LedgerEngine ledgerEngine;
+    private final UserServiceImpl jpaUserService;
+    private final LoggingService loggingService;
+
+    public LedgerUserServiceImpl(LedgerEngine ledgerEngine, UserServiceImpl jpaUserService,
+            LoggingService loggingService) {
+        this.ledgerEngine = ledgerEngine;
+        this.jpaUserService = jpaUserService;
+        this.loggingService = loggingService;
+    }
+
+    @Override
+    public long addMoney(Integer userId, Long amountInCents) {
+        if (amountInCents == null || amountInCents <= 0) {
+            throw new InvalidAmountException("Amount must be greater than 0");
+        }
+        List<TopUp> topUps = await(ledgerEngine.topUp(LedgerTopUp.single(userId, amountInCents)));
+        loggingService.info("UserService: Money added to user ID: " + userId + " amount: " + amountInCents);
+        return topUps.get(0).getBalanceAfterInCents();
+    }
+
+    @Override
+    public List<TopUp> addMoney(Map<Integer, Long> amountsByUserId) {
+        SortedMap<Integer, Long> credits = UserServiceImpl.validateCredits(amountsByUserId);
+        if (credits.isEmpty()) {
+            return List.of();
+        }
+        List<TopUp> topUps = await(ledgerEngine.topUp(new LedgerTopUp(credits)));
+        loggingService.info("UserService: " + topUps.size() + " top-ups applied in one batch");
+        return topUps;
+    }
+
+    @Override
+    public PublicUserDTO register(User user) {
+        return jpaUserService.register(user);
+    }
+
+    @Override
+    public Optional<PublicUserDTO> login(UserCredentialsDTO userCredentials) {
+        return jpaUserService.login(userCredentials);
+    }
+
+    @Override
+    public Optional<WalletBalance> findBalance(Integer userId) {
+        return jpaUserService.findBalance(userId);
+    }
+
+    @Override
+    public Optional<User> findById(Integer userId) {
+        return jpaUserService.findById(userId);
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return jpaUserService.findByEmail(email);
+    }
+
+    @Override
+    public Optional<Integer> resolveUserId(UserDetails principal) {
+        return jpaUserService.resolveUserId(principal);
+    }
+
+    @Override
+    public User updateUser(Integer userId, String username, String email, String password) {
+        return jpaUserService.updateUser(userId, username, email, password);
+    }
+
+    private static List<TopUp> await(CompletableFuture<List<TopUp>> result) {
+        // Not interruptible on purpose: once submitted, the top-up may be written and the caller must learn it
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
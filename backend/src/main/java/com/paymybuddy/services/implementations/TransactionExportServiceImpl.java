@@ -0,0 +1,147 @@
+package com.paymybuddy.services.implementations;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.IntFunction;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paymybuddy.logging.LoggingService;
+import com.paymybuddy.models.dtos.PublicTransactionDTO;
+import com.paymybuddy.repository.TransactionRepository;
+import com.paymybuddy.services.interfaces.TransactionExportService;
+
+@Service
+public class TransactionExportServiceImpl implements TransactionExportService {
+
+    static final String CSV_HEADER = "id,sender_id,sender_username,sender_email,receiver_id,receiver_username,"
+            + "receiver_email,description,amount_in_cents";
+    static final int FLUSH_EVERY_ROWS = 500;
+    static final int PAGE_SIZE = 1000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final TransactionRepository transactionRepository;
+    private final ObjectMapper objectMapper;
+    private final LoggingService loggingService;
+
+    public TransactionExportServiceImpl(TransactionRepository transactionRepository, ObjectMapper objectMapper,
+            LoggingService loggingService) {
+        this.transactionRepository = transactionRepository;
+        this.objectMapper = objectMapper;
+        this.loggingService = loggingService;
+    }
+
+    @Override
+    public long exportUserTransactions(Integer userId, Format format, OutputStream out) throws IOException {
+        loggingService.info("TransactionExportService: Exporting transactions of user " + userId + " as " + format);
+        long count = 0;
+        // Each page is a short read of its own, so no connection is held while the client downloads
+        Iterator<PublicTransactionDTO> sent = pages(before -> transactionRepository.findSentBefore(userId, before,
+                PageRequest.ofSize(PAGE_SIZE)));
+        Iterator<PublicTransactionDTO> received = pages(before -> transactionRepository.findReceivedBefore(userId,
+                before, PageRequest.ofSize(PAGE_SIZE)));
+        Iterator<PublicTransactionDTO> rows = TransactionHistoryMerger.newestFirst(sent, received,
+                PublicTransactionDTO::getId);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        if (format == Format.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+        while (rows.hasNext()) {
+            PublicTransactionDTO row = rows.next();
+            if (format == Format.CSV) {
+                writeCsvRow(writer, row);
+            } else {
+                writer.write(objectMapper.writeValueAsString(row));
+                writer.write('\n');
+            }
+            // Push each chunk to the client instead of buffering the whole response
+            if (++count % FLUSH_EVERY_ROWS == 0) {
+                writer.flush();
+            }
+        }
+        writer.flush();
+        loggingService.info("TransactionExportService: Exported " + count + " transactions of user " + userId);
+        return count;
+    }
+
+    /**
+     * Iterate over a newest-first history one page at a time, asking each
+     * page for the ids strictly below the last one returned. The pages are
+     * separate reads, not one snapshot: a transfer committed meanwhile is
+     * exported only if its id is below the cursor at that point.
+     */
+    private static Iterator<PublicTransactionDTO> pages(IntFunction<List<PublicTransactionDTO>> pageBefore) {
+        return new Iterator<PublicTransactionDTO>() {
+            private List<PublicTransactionDTO> page = pageBefore.apply(Integer.MAX_VALUE);
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                if (index == page.size() && page.size() == PAGE_SIZE) {
+                    page = pageBefore.apply(page.get(PAGE_SIZE - 1).getId());
+                    index = 0;
+                }
+                return index < page.size();
+            }
+
+            @Override
+            public PublicTransactionDTO next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.get(index++);
+            }
+        };
+    }
+
+    private void writeCsvRow(Writer writer, PublicTransactionDTO row) throws IOException {
+        writer.write(String.valueOf(row.getId()));
+        writer.write(',');
+        writer.write(String.valueOf(row.getSender().getId()));
+        writer.write(',');
+        writer.write(csv(row.getSender().getUsername()));
+        writer.write(',');
+        writer.write(csv(row.getSender().getEmail()));
+        writer.write(',');
+        writer.write(String.valueOf(row.getReceiver().getId()));
+        writer.write(',');
+        writer.write(csv(row.getReceiver().getUsername()));
+        writer.write(',');
+        writer.write(csv(row.getReceiver().getEmail()));
+        writer.write(',');
+        writer.write(csv(row.getDescription()));
+        writer.write(',');
+        writer.write(String.valueOf(row.getAmountInCents()));
+        writer.write('\n');
+    }
+
+    /**
+     * Quote a free-text field (RFC 4180) and neutralize values a spreadsheet
+     * would evaluate as a formula
+     */
+    static String csv(String value) {
+        if (value == null || value.isEmpty()) {
+            return "";
+        }
+        String escaped = value;
+        char first = value.charAt(0);
+        if (first == '=' || first == '+' || first == '-' || first == '@') {
+            escaped = "'" + escaped;
+        }
+        if (escaped.indexOf(',') >= 0 || escaped.indexOf('"') >= 0 || escaped.indexOf('\n') >= 0
+                || escaped.indexOf('\r') >= 0) {
+            escaped = '"' + escaped.replace("\"", "\"\"") + '"';
+        }
+        return escaped;
+    }
+}
@@ -0,0 +1,95 @@
+package com.paymybuddy.services.implementations;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.ToIntFunction;
+
+/**
+ * Merges the sent and received history streams of a user. Both inputs must
+ * already be sorted by id descending, which is what the (sender_id, id) and
+ * (receiver_id, id) indexes return without a filesort.
+ */
+final class TransactionHistoryMerger {
+
+    private TransactionHistoryMerger() {
+    }
+
+    /**
+     * Merge two id-descending lists into one, keeping at most {@code limit}
+     * elements. An id present in both lists is only kept once.
+     *
+     * @param sent     the sent transactions, newest first
+     * @param received the received transactions, newest first
+     * @param idOf     extracts the transaction id
+     * @param limit    the maximum number of elements to return
+     * @return the merged list, newest first
+     */
+    static <T> List<T> newestFirst(List<T> sent, List<T> received, ToIntFunction<T> idOf, int limit) {
+        List<T> merged = new ArrayList<>(Math.min(limit, sent.size() + received.size()));
+        int i = 0;
+        int j = 0;
+        while (merged.size() < limit && (i < sent.size() || j < received.size())) {
+            if (j >= received.size()) {
+                merged.add(sent.get(i++));
+            } else if (i >= sent.size()) {
+                merged.add(received.get(j++));
+            } else {
+                int sentId = idOf.applyAsInt(sent.get(i));
+                int receivedId = idOf.applyAsInt(received.get(j));
+                if (sentId > receivedId) {
+                    merged.add(sent.get(i++));
+                } else if (receivedId > sentId) {
+                    merged.add(received.get(j++));
+                } else {
+                    merged.add(sent.get(i++));
+                    j++;
+                }
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Lazily merge two id-descending iterators. Only the current head of each
+     * side is held in memory, so the merge of two paged queries runs in
+     * constant space.
+     *
+     * @param sent     the sent transactions, newest first
+     * @param received the received transactions, newest first
+     * @param idOf     extracts the transaction id
+     * @return an iterator over both sides, newest first
+     */
+    static <T> Iterator<T> newestFirst(Iterator<T> sent, Iterator<T> received, ToIntFunction<T> idOf) {
+        return new Iterator<T>() {
+            private T nextSent = sent.hasNext() ? sent.next() : null;
+            private T nextReceived = received.hasNext() ? received.next() : null;
+
+            @Override
+            public boolean hasNext() {
+                return nextSent != null || nextReceived != null;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                T result;
+                if (nextReceived == null
+                        || (nextSent != null && idOf.applyAsInt(nextSent) >= idOf.applyAsInt(nextReceived))) {
+                    result = nextSent;
+                    if (nextReceived != null && idOf.applyAsInt(nextSent) == idOf.applyAsInt(nextReceived)) {
+                        nextReceived = received.hasNext() ? received.next() : null;
+                    }
+                    nextSent = sent.hasNext() ? sent.next() : null;
+                } else {
+                    result = nextReceived;
+                    nextReceived = received.hasNext() ? received.next() : null;
+                }
+                return result;
+            }
+        };
+    }
+}
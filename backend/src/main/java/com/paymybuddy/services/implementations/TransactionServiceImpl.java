@@ -1,46 +1,83 @@
 package com.paymybuddy.services.implementations;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.stereotype.Service;
 
+import com.paymybuddy.config.RetryOnConflict;
 import com.paymybuddy.exceptions.InsufficientBalanceException;
 import com.paymybuddy.exceptions.InvalidAmountException;
 import com.paymybuddy.exceptions.UserNotFoundException;
 import com.paymybuddy.logging.LoggingService;
 import com.paymybuddy.models.Transaction;
 import com.paymybuddy.models.User;
+import com.paymybuddy.models.Wallet;
 import com.paymybuddy.repository.TransactionRepository;
 import com.paymybuddy.repository.UserRepository;
+import com.paymybuddy.repository.WalletRepository;
+import com.paymybuddy.services.AccountEvents;
+import com.paymybuddy.services.AccountLockManager;
+import com.paymybuddy.services.HotAccounts;
+import com.paymybuddy.services.TransferConcurrency;
 import com.paymybuddy.services.interfaces.TransactionService;
 
+import com.paymybuddy.models.dtos.BatchTransactionItemResultDTO;
+import com.paymybuddy.models.dtos.BatchTransactionRequestDTO;
+import com.paymybuddy.models.dtos.BatchTransactionResultDTO;
 import com.paymybuddy.models.dtos.CreateTransactionRequestDTO;
 import com.paymybuddy.models.dtos.PublicTransactionDTO;
-import com.paymybuddy.models.dtos.PublicUserDTO;
+import com.paymybuddy.models.dtos.TransactionPageDTO;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @Service
 public class TransactionServiceImpl implements TransactionService {
 
+    static final int DEFAULT_PAGE_SIZE = 20;
+    static final int MAX_PAGE_SIZE = 100;
+
     private final TransactionRepository transactionRepository;
     private final UserRepository userRepository;
+    private final WalletRepository walletRepository;
     private final LoggingService loggingService;
+    private final AccountLockManager accountLockManager;
+    private final TransferConcurrency transferConcurrency;
+    private final HotAccounts hotAccounts;
+    private final AccountEvents accountEvents;
 
     public TransactionServiceImpl(TransactionRepository transactionRepository, UserRepository userRepository,
-            LoggingService loggingService) {
+            WalletRepository walletRepository, LoggingService loggingService, AccountLockManager accountLockManager,
+            TransferConcurrency transferConcurrency, HotAccounts hotAccounts, AccountEvents accountEvents) {
         this.transactionRepository = transactionRepository;
         this.userRepository = userRepository;
+        this.walletRepository = walletRepository;
         this.loggingService = loggingService;
+        this.accountLockManager = accountLockManager;
+        this.transferConcurrency = transferConcurrency;
+        this.hotAccounts = hotAccounts;
+        this.accountEvents = accountEvents;
     }
 
     @Override
+    @RetryOnConflict
     @Transactional
-    public Transaction createTransaction(User sender, CreateTransactionRequestDTO transactionRequest) {
+    public Transaction createTransaction(Integer senderId, CreateTransactionRequestDTO transactionRequest) {
         Transaction finalTransaction = null;
         try {
             loggingService.info("Starting transaction creation for amount: " + transactionRequest.getAmountInCents()
-                    + " cents from user " + sender.getId() + " to user "
+                    + " cents from user " + senderId + " to user "
                     + transactionRequest.getReceiverId());
 
             // Amount validation
@@ -48,15 +85,35 @@ public class TransactionServiceImpl implements TransactionService {
                 throw new InvalidAmountException("Amount must be greater than 0");
             }
 
-            User receiver = userRepository.findById(transactionRequest.getReceiverId())
-                    .orElseThrow(() -> new UserNotFoundException(
-                            "user not found with ID: " + transactionRequest.getReceiverId()));
+            // Non-locking read of both users for the response, in one query; balances are only
+            // locked and written on the wallets
+            Map<Integer, User> users = new HashMap<>();
+            for (User user : userRepository.findAllById(List.of(senderId, transactionRequest.getReceiverId()))) {
+                users.put(user.getId(), user);
+            }
+            User sender = users.get(senderId);
+            if (sender == null) {
+                throw new UserNotFoundException("user not found with ID: " + senderId);
+            }
+            User receiver = users.get(transactionRequest.getReceiverId());
+            if (receiver == null) {
+                throw new UserNotFoundException("user not found with ID: " + transactionRequest.getReceiverId());
+            }
+            lockAccounts(List.of(sender.getId(), receiver.getId()));
 
-            // Balance check
-            if (sender.getBalanceInCents() < transactionRequest.getAmountInCents()) {
-                throw new InsufficientBalanceException("Solde insuffisant");
+            if (transferConcurrency.isOptimistic()) {
+                moveOnEntities(sender.getId(), receiver.getId(), transactionRequest.getAmountInCents());
+            } else if (sender.getId() < receiver.getId()) {
+                debit(sender.getId(), transactionRequest.getAmountInCents());
+                credit(receiver.getId(), transactionRequest.getAmountInCents());
+            } else {
+                // Rows are written in ascending user id order, so that two opposite transfers cannot
+                // deadlock; the credit is rolled back with the transaction if the debit is refused
+                credit(receiver.getId(), transactionRequest.getAmountInCents());
+                debit(sender.getId(), transactionRequest.getAmountInCents());
             }
-            loggingService.info("Balance check passed. Sender balance: " + sender.getBalanceInCents() + " cents");
+            loggingService.info("Balances updated. Debited sender " + sender.getId() + " and credited receiver "
+                    + receiver.getId() + " with " + transactionRequest.getAmountInCents() + " cents");
 
             // Create transaction
             Transaction transaction = new Transaction();
@@ -65,32 +122,241 @@ public class TransactionServiceImpl implements TransactionService {
             transaction.setSender(sender);
             transaction.setReceiver(receiver);
 
-            // Update balances
-            sender.setBalanceInCents(sender.getBalanceInCents() - transactionRequest.getAmountInCents());
-            receiver.setBalanceInCents(receiver.getBalanceInCents() + transactionRequest.getAmountInCents());
-            userRepository.save(sender);
-            userRepository.save(receiver);
-            loggingService.info("Balances updated. New sender balance: " + sender.getBalanceInCents()
-                    + " cents, New receiver balance: " + receiver.getBalanceInCents() + " cents");
-
             finalTransaction = transactionRepository.save(transaction);
             loggingService.info("Transaction created successfully with ID: " + finalTransaction.getId());
+            accountEvents.transfersCreated(List.of(finalTransaction));
+        } catch (ConcurrencyFailureException e) {
+            // Lost a lock or version conflict: rolled back and retried as a whole by the caller
+            throw e;
         } catch (Exception e) {
             loggingService.error("Transaction failed before creation - " + e.getMessage());
+            // The failure is reported through a null result, so make sure no partial write is committed
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            }
+            finalTransaction = null;
         }
         return finalTransaction;
     }
 
+    @Override
+    @RetryOnConflict
+    @Transactional
+    public BatchTransactionResultDTO createTransactions(Integer senderId, List<CreateTransactionRequestDTO> requests,
+            BatchTransactionRequestDTO.Mode mode) {
+        boolean allOrNothing = mode == BatchTransactionRequestDTO.Mode.ALL_OR_NOTHING;
+        loggingService.info("Starting batch of " + requests.size() + " transactions from user " + senderId + " ("
+                + mode + ")");
+
+        // One query for every receiver instead of a lookup per item
+        Set<Integer> receiverIds = new HashSet<>();
+        for (CreateTransactionRequestDTO request : requests) {
+            if (request != null && request.getReceiverId() != null) {
+                receiverIds.add(request.getReceiverId());
+            }
+        }
+        Set<Integer> existingReceivers = receiverIds.isEmpty() ? Set.of()
+                : new HashSet<>(walletRepository.findExistingIds(receiverIds));
+
+        // Validate every item before touching a balance
+        List<BatchTransactionItemResultDTO> results = new ArrayList<>(requests.size());
+        List<Integer> executable = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            CreateTransactionRequestDTO request = requests.get(i);
+            String error = validateBatchItem(senderId, request, existingReceivers);
+            results.add(itemResult(i, request, error == null ? null : BatchTransactionItemResultDTO.Status.REJECTED,
+                    error));
+            if (error == null) {
+                executable.add(i);
+            }
+        }
+        if (allOrNothing && executable.size() < requests.size()) {
+            return abortBatch(mode, results, executable, null);
+        }
+
+        List<Integer> accounts = new ArrayList<>(executable.size() + 1);
+        accounts.add(senderId);
+        for (Integer index : executable) {
+            accounts.add(requests.get(index).getReceiverId());
+        }
+        lockAccounts(accounts);
+
+        // Single guarded debit for the whole batch; best effort keeps the longest prefix the balance covers
+        long total = sumAmounts(requests, executable);
+        while (!executable.isEmpty() && walletRepository.debitBalance(senderId, total) == 0) {
+            if (allOrNothing) {
+                return abortBatch(mode, results, executable, "Solde insuffisant");
+            }
+            long balance = walletRepository.findBalanceById(senderId).orElse(0L);
+            long covered = 0;
+            int kept = 0;
+            while (kept < executable.size()
+                    && covered + requests.get(executable.get(kept)).getAmountInCents() <= balance) {
+                covered += requests.get(executable.get(kept)).getAmountInCents();
+                kept++;
+            }
+            if (kept == executable.size()) {
+                // The balance changed between the debit and the read: try again
+                continue;
+            }
+            for (Integer index : executable.subList(kept, executable.size())) {
+                results.get(index).setStatus(BatchTransactionItemResultDTO.Status.REJECTED);
+                results.get(index).setMessage("Solde insuffisant");
+            }
+            executable = new ArrayList<>(executable.subList(0, kept));
+            total = covered;
+        }
+
+        // Credits in ascending receiver id order, one JDBC batch
+        SortedMap<Integer, Long> credits = new TreeMap<>();
+        for (Integer index : executable) {
+            credits.merge(requests.get(index).getReceiverId(), requests.get(index).getAmountInCents(), Long::sum);
+        }
+        if (!credits.isEmpty() && walletRepository.creditBalances(credits) > 0) {
+            // A receiver disappeared since the lookup: roll the whole batch back
+            throw new UserNotFoundException("A receiver of the batch no longer exists");
+        }
+
+        // Ids come from the pooled generator, so the inserts go out in JDBC batches at commit
+        User sender = userRepository.getReferenceById(senderId);
+        List<Transaction> transactions = new ArrayList<>(executable.size());
+        for (Integer index : executable) {
+            CreateTransactionRequestDTO request = requests.get(index);
+            Transaction transaction = new Transaction();
+            transaction.setSender(sender);
+            transaction.setReceiver(userRepository.getReferenceById(request.getReceiverId()));
+            transaction.setAmountInCents(request.getAmountInCents());
+            transaction.setDescription(request.getDescription());
+            transactions.add(transaction);
+        }
+        List<Transaction> saved = transactionRepository.saveAll(transactions);
+        for (int i = 0; i < executable.size(); i++) {
+            BatchTransactionItemResultDTO result = results.get(executable.get(i));
+            result.setStatus(BatchTransactionItemResultDTO.Status.CREATED);
+            result.setTransactionId(saved.get(i).getId());
+        }
+        accountEvents.transfersCreated(saved);
+
+        loggingService.info("Batch from user " + senderId + ": " + executable.size() + " of " + requests.size()
+                + " transactions created, " + total + " cents debited");
+        return new BatchTransactionResultDTO(mode, executable.size(), requests.size() - executable.size(), total,
+                results);
+    }
+
+    private void debit(Integer senderId, long amountInCents) {
+        // Guarded debit: balance check and write in one statement
+        if (walletRepository.debitBalance(senderId, amountInCents) == 0) {
+            throw new InsufficientBalanceException("Solde insuffisant");
+        }
+    }
+
+    private void credit(Integer receiverId, long amountInCents) {
+        if (walletRepository.creditBalance(receiverId, amountInCents) == 0) {
+            throw new UserNotFoundException("user not found with ID: " + receiverId);
+        }
+    }
+
+    private void moveOnEntities(Integer senderId, Integer receiverId, long amountInCents) {
+        if (hotAccounts.isHot(senderId)) {
+            // Spendable money of a hot account may sit in its slots; fold them in before the entity is read
+            walletRepository.consolidateSlots(senderId);
+        }
+        // Written at flush with a version check: a concurrent change to either wallet fails the commit
+        Wallet payer = walletRepository.findById(senderId)
+                .orElseThrow(() -> new UserNotFoundException("user not found with ID: " + senderId));
+        Wallet payee = walletRepository.findById(receiverId)
+                .orElseThrow(() -> new UserNotFoundException("user not found with ID: " + receiverId));
+        if (payer.getBalanceInCents() < amountInCents) {
+            throw new InsufficientBalanceException("Solde insuffisant");
+        }
+        payer.setBalanceInCents(payer.getBalanceInCents() - amountInCents);
+        payee.setBalanceInCents(payee.getBalanceInCents() + amountInCents);
+    }
+
+    private void lockAccounts(List<Integer> userIds) {
+        if (!accountLockManager.isEnabled()) {
+            // Atomic mode: the guarded updates alone keep balances consistent
+            return;
+        }
+        // Same order for every transfer: in-JVM stripes first, then the wallets by ascending id
+        accountLockManager.lockUntilCompletion(userIds);
+        walletRepository.lockAllById(new TreeSet<>(userIds));
+    }
+
+    static String validateBatchItem(Integer senderId, CreateTransactionRequestDTO request,
+            Set<Integer> existingReceivers) {
+        if (request == null || request.getReceiverId() == null || request.getAmountInCents() == null) {
+            return "Receiver and amount are required";
+        }
+        if (request.getAmountInCents() <= 0) {
+            return "Amount must be greater than 0";
+        }
+        if (request.getDescription() != null && request.getDescription().length() > 255) {
+            return "Description must be less than 255 characters";
+        }
+        if (senderId.equals(request.getReceiverId())) {
+            return "Cannot send money to yourself";
+        }
+        if (!existingReceivers.contains(request.getReceiverId())) {
+            return "user not found with ID: " + request.getReceiverId();
+        }
+        return null;
+    }
+
+    static BatchTransactionItemResultDTO itemResult(int index, CreateTransactionRequestDTO request,
+            BatchTransactionItemResultDTO.Status status, String message) {
+        return new BatchTransactionItemResultDTO(index, status, null,
+                request == null ? null : request.getReceiverId(),
+                request == null ? null : request.getAmountInCents(), message);
+    }
+
+    private static long sumAmounts(List<CreateTransactionRequestDTO> requests, List<Integer> indexes) {
+        long total = 0;
+        for (Integer index : indexes) {
+            total = Math.addExact(total, requests.get(index).getAmountInCents());
+        }
+        return total;
+    }
+
+    private BatchTransactionResultDTO abortBatch(BatchTransactionRequestDTO.Mode mode,
+            List<BatchTransactionItemResultDTO> results, List<Integer> executable, String reason) {
+        // Nothing has been written yet, so there is nothing to roll back
+        for (Integer index : executable) {
+            results.get(index).setStatus(reason == null ? BatchTransactionItemResultDTO.Status.NOT_EXECUTED
+                    : BatchTransactionItemResultDTO.Status.REJECTED);
+            results.get(index).setMessage(reason);
+        }
+        loggingService.error("Batch rejected, no transaction created" + (reason == null ? "" : ": " + reason));
+        return new BatchTransactionResultDTO(mode, 0, results.size(), 0L, results);
+    }
+
     @Override
     public List<PublicTransactionDTO> getUserTransactions(Integer userId) {
-        return transactionRepository.findAllTransactionsForUser(userId).stream()
-                .map(transaction -> new PublicTransactionDTO(transaction.getId(),
-                        new PublicUserDTO(transaction.getSender().getId(), transaction.getSender().getUsername(),
-                                transaction.getSender().getEmail()),
-                        new PublicUserDTO(transaction.getReceiver().getId(), transaction.getReceiver().getUsername(),
-                                transaction.getReceiver().getEmail()),
-                        transaction.getDescription(), transaction.getAmountInCents()))
-                .collect(Collectors.toList());
+        List<PublicTransactionDTO> sent = transactionRepository.findSentBefore(userId, Integer.MAX_VALUE,
+                Pageable.unpaged());
+        List<PublicTransactionDTO> received = transactionRepository.findReceivedBefore(userId, Integer.MAX_VALUE,
+                Pageable.unpaged());
+        return TransactionHistoryMerger.newestFirst(sent, received, PublicTransactionDTO::getId, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public TransactionPageDTO getUserTransactions(Integer userId, Integer before, Integer limit) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        int cursor = before == null ? Integer.MAX_VALUE : before;
+
+        // Each side is an index range scan; fetch one extra row to know whether another page exists
+        Pageable window = PageRequest.of(0, pageSize + 1);
+        List<PublicTransactionDTO> sent = transactionRepository.findSentBefore(userId, cursor, window);
+        List<PublicTransactionDTO> received = transactionRepository.findReceivedBefore(userId, cursor, window);
+        List<PublicTransactionDTO> items = TransactionHistoryMerger.newestFirst(sent, received,
+                PublicTransactionDTO::getId, pageSize + 1);
+
+        Integer nextCursor = null;
+        if (items.size() > pageSize) {
+            items = items.subList(0, pageSize);
+            nextCursor = items.get(pageSize - 1).getId();
+        }
+        return new TransactionPageDTO(items, nextCursor);
     }
 
 }
@@ -1,46 +1,84 @@
 package com.paymybuddy.services.implementations;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 
+import com.paymybuddy.config.RetryOnConflict;
+import com.paymybuddy.exceptions.InvalidAmountException;
+import com.paymybuddy.exceptions.ServiceOverloadedException;
+import com.paymybuddy.exceptions.UserNotFoundException;
+import com.paymybuddy.models.AuthenticatedUser;
+import com.paymybuddy.models.TopUp;
 import com.paymybuddy.models.User;
+import com.paymybuddy.models.Wallet;
+import com.paymybuddy.models.WalletBalance;
 import com.paymybuddy.models.dtos.UserCredentialsDTO;
 import com.paymybuddy.models.dtos.PublicUserDTO;
 import com.paymybuddy.logging.LoggingService;
+import com.paymybuddy.repository.TopUpRepository;
 import com.paymybuddy.repository.UserRepository;
+import com.paymybuddy.repository.WalletRepository;
+import com.paymybuddy.services.AccountEvents;
+import com.paymybuddy.services.UserIdentityCache;
 import com.paymybuddy.services.interfaces.UserService;
 
 @Service
 public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
+    private final WalletRepository walletRepository;
     private final LoggingService loggingService;
     private final PasswordEncoder passwordEncoder;
+    private final UserIdentityCache userIdentityCache;
+    private final TopUpRepository topUpRepository;
+    private final AccountEvents accountEvents;
+    private final TransactionTemplate transactionTemplate;
 
     @PersistenceContext
     private EntityManager entityManager;
 
-    public UserServiceImpl(UserRepository userRepository, LoggingService loggingService,
-            PasswordEncoder passwordEncoder) {
+    public UserServiceImpl(UserRepository userRepository, WalletRepository walletRepository,
+            LoggingService loggingService, PasswordEncoder passwordEncoder, UserIdentityCache userIdentityCache,
+            TopUpRepository topUpRepository, AccountEvents accountEvents,
+            PlatformTransactionManager transactionManager) {
         this.userRepository = userRepository;
+        this.walletRepository = walletRepository;
         this.loggingService = loggingService;
         this.passwordEncoder = passwordEncoder;
+        this.userIdentityCache = userIdentityCache;
+        this.topUpRepository = topUpRepository;
+        this.accountEvents = accountEvents;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     @Override
     public PublicUserDTO register(User user) {
         try {
-            // Encode the password with BCrypt
+            // Encode the password with BCrypt before the transaction: the hash may wait for a slot
+            // of the bounded encoder and must not hold a connection meanwhile
             String encodedPassword = passwordEncoder.encode(user.getPassword());
-            user.setBalanceInCents(10000L);
             user.setPassword(encodedPassword);
-            userRepository.save(user);
-            return new PublicUserDTO(user.getId(), user.getUsername(), user.getEmail());
+            return transactionTemplate.execute(status -> {
+                userRepository.save(user);
+                walletRepository.save(new Wallet(user.getId(), 10000L));
+                return new PublicUserDTO(user.getId(), user.getUsername(), user.getEmail());
+            });
+        } catch (ServiceOverloadedException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException("Failed to register user", e);
         } finally {
@@ -55,10 +93,72 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
-    public void addMoney(User user, Long amountInCents) {
-        user.setBalanceInCents(user.getBalanceInCents() + amountInCents);
-        userRepository.save(user);
-        loggingService.info("UserService: Money added to user ID: " + user.getId() + " amount: " + amountInCents);
+    @RetryOnConflict
+    @Transactional
+    public long addMoney(Integer userId, Long amountInCents) {
+        if (amountInCents == null || amountInCents <= 0) {
+            throw new InvalidAmountException("Amount must be greater than 0");
+        }
+        // One increment statement; the row stays locked by it, so the read back is exactly our result.
+        // For a hot account only the credited slot is locked: the balance may include concurrent credits.
+        if (walletRepository.creditBalance(userId, amountInCents) == 0) {
+            throw new UserNotFoundException("user not found with ID: " + userId);
+        }
+        long balance = walletRepository.findBalanceById(userId)
+                .orElseThrow(() -> new UserNotFoundException("user not found with ID: " + userId));
+        TopUp topUp = new TopUp(null, userId, amountInCents, balance, Instant.now());
+        topUpRepository.save(topUp);
+        loggingService.info("UserService: Money added to user ID: " + userId + " amount: " + amountInCents);
+        accountEvents.topUpsCreated(List.of(topUp));
+        return balance;
+    }
+
+    @Override
+    @RetryOnConflict
+    @Transactional
+    public List<TopUp> addMoney(Map<Integer, Long> amountsByUserId) {
+        SortedMap<Integer, Long> credits = validateCredits(amountsByUserId);
+        if (credits.isEmpty()) {
+            return List.of();
+        }
+        if (walletRepository.creditBalances(credits) > 0) {
+            // All or nothing: the whole settlement batch rolls back
+            throw new UserNotFoundException("A user of the top-up batch does not exist");
+        }
+
+        Map<Integer, Long> balances = walletRepository.findBalances(credits.keySet());
+        Instant now = Instant.now();
+        List<TopUp> topUps = new ArrayList<>(credits.size());
+        for (Map.Entry<Integer, Long> credit : credits.entrySet()) {
+            topUps.add(new TopUp(null, credit.getKey(), credit.getValue(), balances.get(credit.getKey()), now));
+        }
+        List<TopUp> saved = topUpRepository.saveAll(topUps);
+        loggingService.info("UserService: " + saved.size() + " top-ups applied in one batch");
+        accountEvents.topUpsCreated(saved);
+        return saved;
+    }
+
+    /**
+     * Check the amounts of a top-up batch, shared with the ledger
+     * implementation
+     *
+     * @return the credits in ascending user ID order, like every other
+     *         multi-row balance write
+     */
+    static SortedMap<Integer, Long> validateCredits(Map<Integer, Long> amountsByUserId) {
+        SortedMap<Integer, Long> credits = new TreeMap<>();
+        for (Map.Entry<Integer, Long> credit : amountsByUserId.entrySet()) {
+            if (credit.getKey() == null || credit.getValue() == null || credit.getValue() <= 0) {
+                throw new InvalidAmountException("Amount must be greater than 0 for user ID: " + credit.getKey());
+            }
+            credits.put(credit.getKey(), credit.getValue());
+        }
+        return credits;
+    }
+
+    @Override
+    public Optional<WalletBalance> findBalance(Integer userId) {
+        return walletRepository.findBalanceWithVersionById(userId);
     }
 
     @Override
@@ -66,39 +166,64 @@ public class UserServiceImpl implements UserService {
         return userRepository.findByEmail(email);
     }
 
+    @Override
+    public Optional<Integer> resolveUserId(UserDetails principal) {
+        if (principal == null) {
+            return Optional.empty();
+        }
+        if (principal instanceof AuthenticatedUser authenticatedUser) {
+            return Optional.of(authenticatedUser.getId());
+        }
+
+        String email = principal.getUsername();
+        Optional<Integer> cachedId = userIdentityCache.get(email);
+        if (cachedId.isPresent()) {
+            return cachedId;
+        }
+        Optional<Integer> userId = userRepository.findIdByEmail(email);
+        userId.ifPresent(id -> userIdentityCache.put(email, id));
+        return userId;
+    }
+
     @Override
     public Optional<User> findById(Integer userId) {
         return userRepository.findById(userId);
     }
 
     @Override
-    @Transactional
     public User updateUser(Integer userId, String username, String email, String password) {
         try {
-            // Update username if provided
-            if (username != null && !username.trim().isEmpty()) {
-                userRepository.updateUsername(userId, username.trim());
-            }
-
-            // Update email if provided
-            if (email != null && !email.trim().isEmpty()) {
-                userRepository.updateEmail(userId, email.trim());
-            }
-
-            // Update password if provided
-            if (password != null && !password.trim().isEmpty()) {
-                System.out.println("Password: " + password.trim());
-                String encodedPassword = passwordEncoder.encode(password.trim());
-                userRepository.updatePassword(userId, encodedPassword);
-            }
-
-            // Force flush to ensure all updates are written to database
-            entityManager.flush();
-            entityManager.clear();
-
-            // Get updated user
-            Optional<User> updatedUser = userRepository.findById(userId);
-            if (updatedUser.isEmpty()) {
+            // Hash the new password before the transaction, as register does: the hash may wait for a
+            // slot of the bounded encoder and must not hold a connection meanwhile
+            String encodedPassword = password != null && !password.trim().isEmpty()
+                    ? passwordEncoder.encode(password.trim())
+                    : null;
+
+            Optional<User> updatedUser = transactionTemplate.execute(status -> {
+                // Update username if provided
+                if (username != null && !username.trim().isEmpty()) {
+                    userRepository.updateUsername(userId, username.trim());
+                }
+
+                // Update email if provided
+                if (email != null && !email.trim().isEmpty()) {
+                    userRepository.updateEmail(userId, email.trim());
+                    userIdentityCache.evictUser(userId);
+                }
+
+                // Update password if provided
+                if (encodedPassword != null) {
+                    userRepository.updatePassword(userId, encodedPassword);
+                }
+
+                // Force flush to ensure all updates are written to database
+                entityManager.flush();
+                entityManager.clear();
+
+                // Get updated user
+                return userRepository.findById(userId);
+            });
+            if (updatedUser == null || updatedUser.isEmpty()) {
                 throw new RuntimeException("User not found after update");
             }
 
@@ -107,6 +232,8 @@ public class UserServiceImpl implements UserService {
                     (email != null ? ", Email: " + email : "") +
                     (password != null ? ", Password: updated" : ""));
             return updatedUser.get();
+        } catch (ServiceOverloadedException e) {
+            throw e;
         } catch (Exception e) {
             loggingService.error("UserService: Failed to update user ID: " + userId + " - " + e.getMessage());
             throw new RuntimeException("Failed to update user", e);
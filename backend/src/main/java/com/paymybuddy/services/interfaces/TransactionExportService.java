@@ -0,0 +1,45 @@
+package com.paymybuddy.services.interfaces;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface TransactionExportService {
+
+    /**
+     * Supported export formats
+     */
+    enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String mediaType;
+        private final String extension;
+
+        Format(String mediaType, String extension) {
+            this.mediaType = mediaType;
+            this.extension = extension;
+        }
+
+        public String getMediaType() {
+            return mediaType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    /**
+     * Write the complete transaction history of a user (sent and received),
+     * newest first. Rows are read from the database in fixed-size pages and
+     * flushed in chunks, so memory use does not depend on the size of the
+     * history and no connection is held between two pages.
+     * 
+     * @param userId the user ID
+     * @param format the output format
+     * @param out    the stream to write to (not closed)
+     * @return the number of exported transactions
+     * @throws IOException if writing to the stream fails
+     */
+    long exportUserTransactions(Integer userId, Format format, OutputStream out) throws IOException;
+}
@@ -1,23 +1,39 @@
 package com.paymybuddy.services.interfaces;
 
 import com.paymybuddy.models.Transaction;
-import com.paymybuddy.models.User;
+import com.paymybuddy.models.dtos.BatchTransactionRequestDTO;
+import com.paymybuddy.models.dtos.BatchTransactionResultDTO;
 import com.paymybuddy.models.dtos.CreateTransactionRequestDTO;
 
 import java.util.List;
 import com.paymybuddy.models.dtos.PublicTransactionDTO;
+import com.paymybuddy.models.dtos.TransactionPageDTO;
 
 public interface TransactionService {
 
     /**
      * Create a new transaction
      * 
-     * @param sender             the sender user
+     * @param senderId           the sender ID
      * @param transactionRequest the transaction request containing receiver ID,
      *                           amount, and description
-     * @return the created transaction
+     * @return the created transaction, with both users loaded
      */
-    Transaction createTransaction(User sender, CreateTransactionRequestDTO transactionRequest);
+    Transaction createTransaction(Integer senderId, CreateTransactionRequestDTO transactionRequest);
+
+    /**
+     * Create several transactions from one sender in a single database
+     * transaction: the sender is debited once for the sum of the executed items,
+     * receivers are credited in ascending id order and the rows are inserted in
+     * JDBC batches
+     * 
+     * @param senderId the sender user ID
+     * @param requests the transactions to create, in order
+     * @param mode     all-or-nothing or best-effort execution
+     * @return the outcome of every item, in request order
+     */
+    BatchTransactionResultDTO createTransactions(Integer senderId, List<CreateTransactionRequestDTO> requests,
+            BatchTransactionRequestDTO.Mode mode);
 
     /**
      * Get all transactions for a user (sent and received)
@@ -26,4 +42,14 @@ public interface TransactionService {
      * @return list of user transactions
      */
     List<PublicTransactionDTO> getUserTransactions(Integer userId);
+
+    /**
+     * Get one page of a user's transactions (sent and received), newest first
+     * 
+     * @param userId the user ID
+     * @param before cursor returned by the previous page, null for the first page
+     * @param limit  requested page size, clamped server side
+     * @return the page and the cursor of the next one
+     */
+    TransactionPageDTO getUserTransactions(Integer userId, Integer before, Integer limit);
 }
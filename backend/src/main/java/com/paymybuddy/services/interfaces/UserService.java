@@ -1,9 +1,15 @@
 package com.paymybuddy.services.interfaces;
 
+import org.springframework.security.core.userdetails.UserDetails;
+
+import com.paymybuddy.models.TopUp;
 import com.paymybuddy.models.User;
+import com.paymybuddy.models.WalletBalance;
 import com.paymybuddy.models.dtos.UserCredentialsDTO;
 import com.paymybuddy.models.dtos.PublicUserDTO;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface UserService {
@@ -25,12 +31,30 @@ public interface UserService {
     Optional<PublicUserDTO> login(UserCredentialsDTO userCredentials);
 
     /**
-     * Add money to a user
-     * 
-     * @param user          the user to add money to
+     * Add money to a user with one atomic increment, recorded as a top-up
+     *
+     * @param userId        the user to add money to
      * @param amountInCents the amount to add
+     * @return the new balance
+     */
+    long addMoney(Integer userId, Long amountInCents);
+
+    /**
+     * Add money to several users in one batch (settlement), all or nothing
+     *
+     * @param amountsByUserId the amount to add per user ID
+     * @return the recorded top-ups, one per user, in ascending user ID order
+     */
+    List<TopUp> addMoney(Map<Integer, Long> amountsByUserId);
+
+    /**
+     * Read only the balance of a user and the version of its wallet, without
+     * loading the user
+     *
+     * @param userId the user ID
+     * @return the balance if the user exists
      */
-    void addMoney(User user, Long amountInCents);
+    Optional<WalletBalance> findBalance(Integer userId);
 
     /**
      * Find user by ID
@@ -48,6 +72,16 @@ public interface UserService {
      */
     Optional<User> findByEmail(String email);
 
+    /**
+     * Resolve the ID of the authenticated user without loading the user. The
+     * ID is read from the principal when it carries one, otherwise from the
+     * identity cache, and only then from the database.
+     * 
+     * @param principal the authenticated principal
+     * @return the user ID if the principal maps to an existing user
+     */
+    Optional<Integer> resolveUserId(UserDetails principal);
+
     /**
      * Update user information
      * 
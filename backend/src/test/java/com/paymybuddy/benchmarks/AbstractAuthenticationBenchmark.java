@@ -0,0 +1,81 @@
+package com.paymybuddy.benchmarks;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+/**
+ * Measures the per-request cost of an authenticated call through the whole
+ * security filter chain. Subclasses pick the authentication mode; the
+ * endpoint and its database work are the same, so the difference between the
+ * reported figures is the authentication overhead.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public abstract class AbstractAuthenticationBenchmark {
+
+    protected static final String CREDENTIALS = "{\"email\":\"auth.bench@example.com\",\"password\":\"password123\"}";
+
+    private static final int ITERATIONS = Integer.getInteger("bench.auth.iterations", 20_000);
+
+    @Autowired
+    protected MockMvc mockMvc;
+
+    @BeforeAll
+    void registerUser() throws Exception {
+        mockMvc.perform(post("/register")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"authBench\",\"email\":\"auth.bench@example.com\","
+                        + "\"password\":\"password123\"}"))
+                .andExpect(status().isOk());
+    }
+
+    /**
+     * @return the label of the authentication mode in the report
+     */
+    protected abstract String mode();
+
+    /**
+     * Log in once and return what every subsequent request must carry
+     */
+    protected abstract RequestPostProcessor authenticate() throws Exception;
+
+    protected MvcResult login() throws Exception {
+        return mockMvc.perform(post("/login")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(CREDENTIALS))
+                .andExpect(status().isOk())
+                .andReturn();
+    }
+
+    @Test
+    void benchmarkAuthenticatedRequest() throws Exception {
+        RequestPostProcessor credentials = authenticate();
+
+        for (int i = 0; i < ITERATIONS / 4; i++) {
+            mockMvc.perform(get("/connections").with(credentials)).andExpect(status().isOk());
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            mockMvc.perform(get("/connections").with(credentials)).andExpect(status().isOk());
+        }
+        double averageMicros = (System.nanoTime() - start) / 1_000.0 / ITERATIONS;
+        System.out.printf("[benchmark] GET /connections, %-8s %10.1f us/op%n", mode(), averageMicros);
+    }
+}
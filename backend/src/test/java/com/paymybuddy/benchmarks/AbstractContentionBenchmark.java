@@ -0,0 +1,214 @@
+package com.paymybuddy.benchmarks;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import com.paymybuddy.models.dtos.CreateTransactionRequestDTO;
+import com.paymybuddy.perf.ZipfDistribution;
+import com.paymybuddy.repository.IdSequenceRepository;
+import com.paymybuddy.services.interfaces.TransactionService;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Contention harness: concurrent transfers under increasingly skewed account
+ * choice, from uniform to every transfer touching one hot account, and
+ * reports throughput, latency percentiles, retries and transfers that gave
+ * up. Subclasses pick app.transfers.concurrency, so the three strategies can
+ * be compared on the same workloads.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestPropertySource(properties = {
+        "spring.datasource.hikari.maximum-pool-size=64",
+        "spring.jpa.show-sql=false",
+        "logging.level.com.paymybuddy=ERROR"
+})
+public abstract class AbstractContentionBenchmark {
+
+    private static final int USERS = Integer.getInteger("bench.contention.users", 1_000);
+    private static final int CLIENTS = Integer.getInteger("bench.contention.clients", 32);
+    private static final long DURATION_MILLIS = Long.getLong("bench.contention.duration-ms", 5_000L);
+    private static final List<String> SKEWS = Arrays.stream(System.getProperty("bench.contention.skews",
+            "uniform,zipf,hot50,hot").split(",")).map(String::trim).toList();
+    private static final long INITIAL_BALANCE = 1_000_000_000L;
+    private static final int HOT_ACCOUNT = 1;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private IdSequenceRepository idSequenceRepository;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ZipfDistribution zipf = new ZipfDistribution(USERS, 1.0);
+
+    /**
+     * @return the label of the concurrency mode in the report
+     */
+    protected abstract String mode();
+
+    @BeforeAll
+    void seed() {
+        List<Object[]> users = new ArrayList<>();
+        for (int id = 1; id <= USERS; id++) {
+            String email = "contention" + id + "@bench.example.com";
+            users.add(new Object[] { id, "contention" + id, email, email, "hash" });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (id, username, email, email_lower, password) "
+                + "VALUES (?, ?, ?, ?, ?)", users);
+        jdbcTemplate.update("INSERT INTO wallets (user_id, balance_in_cents, version) SELECT id, ?, 0 FROM users",
+                INITIAL_BALANCE);
+        idSequenceRepository.advanceTo("users", USERS + 1L);
+    }
+
+    @Test
+    void benchmarkIncreasingSkew() throws Exception {
+        run("uniform", 1_000);
+        for (String skew : SKEWS) {
+            double retriesBefore = retries();
+            Result result = run(skew, DURATION_MILLIS);
+            System.out.printf("[benchmark] %-11s %-7s c=%-4d %9.1f transfers/s  p50 %7.3f ms  p99 %8.3f ms  "
+                    + "retries %6.0f  gave up %d  rejected %d%n", mode(), skew, CLIENTS, result.throughput(),
+                    result.p50Millis(), result.p99Millis(), retries() - retriesBefore, result.gaveUp(),
+                    result.rejected());
+        }
+
+        // Whatever the strategy, no money is created or lost
+        assertEquals(USERS * INITIAL_BALANCE,
+                jdbcTemplate.queryForObject("SELECT SUM(balance_in_cents) FROM wallets", Long.class));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM wallets w WHERE w.balance_in_cents <> "
+                + INITIAL_BALANCE
+                + " + COALESCE((SELECT SUM(amount_in_cents) FROM transactions WHERE receiver_id = w.user_id), 0)"
+                + " - COALESCE((SELECT SUM(amount_in_cents) FROM transactions WHERE sender_id = w.user_id), 0)",
+                Integer.class));
+    }
+
+    private Result run(String skew, long durationMillis) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        List<Future<Worker>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        try (ExecutorService clients = Executors.newFixedThreadPool(CLIENTS)) {
+            for (int i = 0; i < CLIENTS; i++) {
+                SplittableRandom random = new SplittableRandom(i);
+                futures.add(clients.submit(() -> drive(skew, random, deadline)));
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        List<Long> latencies = new ArrayList<>();
+        int gaveUp = 0;
+        int rejected = 0;
+        for (Future<Worker> future : futures) {
+            Worker worker = future.get();
+            latencies.addAll(worker.latencies);
+            gaveUp += worker.gaveUp;
+            rejected += worker.rejected;
+        }
+        Collections.sort(latencies);
+        return new Result(latencies.size() / seconds, percentile(latencies, 0.50), percentile(latencies, 0.99),
+                gaveUp, rejected);
+    }
+
+    private Worker drive(String skew, SplittableRandom random, long deadline) {
+        Worker worker = new Worker();
+        while (System.nanoTime() < deadline) {
+            int[] pair = pick(skew, random);
+            CreateTransactionRequestDTO request = new CreateTransactionRequestDTO();
+            request.setReceiverId(pair[1]);
+            request.setAmountInCents(1L + random.nextInt(100));
+            request.setDescription("contention");
+
+            long begin = System.nanoTime();
+            try {
+                if (transactionService.createTransaction(pair[0], request) == null) {
+                    worker.rejected++;
+                }
+            } catch (ConcurrencyFailureException e) {
+                worker.gaveUp++;
+            }
+            worker.latencies.add(System.nanoTime() - begin);
+        }
+        return worker;
+    }
+
+    private int[] pick(String skew, SplittableRandom random) {
+        int sender;
+        int receiver;
+        switch (skew) {
+            case "uniform" -> {
+                sender = 1 + random.nextInt(USERS);
+                receiver = other(sender, 1 + random.nextInt(USERS));
+            }
+            case "zipf" -> {
+                sender = zipf.sample(random);
+                receiver = other(sender, zipf.sample(random));
+            }
+            case "hot50", "hot" -> {
+                sender = 1 + random.nextInt(USERS);
+                receiver = other(sender, 1 + random.nextInt(USERS));
+                if (skew.equals("hot") || random.nextBoolean()) {
+                    // Paid to or by the hot account, in equal shares
+                    int counterpart = other(HOT_ACCOUNT, sender);
+                    boolean pays = random.nextBoolean();
+                    sender = pays ? HOT_ACCOUNT : counterpart;
+                    receiver = pays ? counterpart : HOT_ACCOUNT;
+                }
+            }
+            default -> throw new IllegalArgumentException("Unknown skew: " + skew);
+        }
+        return new int[] { sender, receiver };
+    }
+
+    private static int other(int account, int candidate) {
+        return candidate != account ? candidate : 1 + candidate % USERS;
+    }
+
+    private double retries() {
+        return meterRegistry.find("paymybuddy.transfers.retries").counters().stream()
+                .mapToDouble(Counter::count).sum();
+    }
+
+    private static double percentile(List<Long> sorted, double quantile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = Math.min(sorted.size() - 1, (int) Math.ceil(sorted.size() * quantile) - 1);
+        return sorted.get(Math.max(0, index)) / 1_000_000.0;
+    }
+
+    private static class Worker {
+        private final List<Long> latencies = new ArrayList<>();
+        private int gaveUp;
+        private int rejected;
+    }
+
+    private record Result(double throughput, double p50Millis, double p99Millis, int gaveUp, int rejected) {
+    }
+}
@@ -0,0 +1,255 @@
+package com.paymybuddy.benchmarks;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import com.paymybuddy.services.JwtService;
+
+/**
+ * HTTP load harness: drives a mix of GET /transactions, GET /user/balance and
+ * POST /transaction over real HTTP at increasing concurrency, and reports
+ * throughput and latency percentiles. Subclasses pick the request execution
+ * mode (platform or virtual threads).
+ * Every JDBC statement is delayed by bench.load.jdbc-latency-ms to stand in
+ * for the network round trip to MySQL; in-memory H2 alone barely blocks.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@Import(AbstractHttpLoadBenchmark.JdbcLatencyConfig.class)
+@TestPropertySource(properties = {
+        "spring.jpa.show-sql=false",
+        "logging.level.com.paymybuddy=WARN",
+        "app.security.mode=jwt",
+        "app.security.jwt.secret=http-load-benchmark-secret-0123456789abcdef",
+        // Enough connections that the request threads, not the pool, are the cap in platform mode
+        "spring.datasource.hikari.maximum-pool-size=${bench.load.pool-size:256}",
+        "server.tomcat.max-connections=10000",
+        "server.tomcat.accept-count=10000"
+})
+public abstract class AbstractHttpLoadBenchmark {
+
+    private static final int USERS = Integer.getInteger("bench.load.users", 1_000);
+    private static final int[] CONCURRENCY = parseLevels(System.getProperty("bench.load.concurrency", "16,64,256,1024"));
+    private static final long DURATION_MILLIS = Long.getLong("bench.load.duration-ms", 10_000L);
+    private static final long JDBC_LATENCY_MILLIS = Long.getLong("bench.load.jdbc-latency-ms", 2L);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JwtService jwtService;
+
+    private final List<String> accessTokens = new ArrayList<>();
+    private HttpClient client;
+
+    /**
+     * @return the label of the execution mode in the report
+     */
+    protected abstract String mode();
+
+    @BeforeAll
+    void seed() {
+        List<Object[]> users = new ArrayList<>();
+        for (int id = 1; id <= USERS; id++) {
+            String email = "load" + id + "@bench.example.com";
+            users.add(new Object[] { id, "load" + id, email, email, "hash" });
+            accessTokens.add(JwtService.BEARER_PREFIX + jwtService.issueTokens(id, email).accessToken());
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (id, username, email, email_lower, password) "
+                + "VALUES (?, ?, ?, ?, ?)", users);
+        jdbcTemplate.update("INSERT INTO wallets (user_id, balance_in_cents, version) SELECT id, ?, 0 FROM users",
+                1_000_000_000L);
+
+        client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+    }
+
+    @Test
+    void benchmarkIncreasingConcurrency() throws Exception {
+        for (int concurrency : CONCURRENCY) {
+            Result result = run(concurrency);
+            System.out.printf("[benchmark] %-8s c=%-5d %9.1f req/s  p50 %8.2f ms  p99 %8.2f ms  errors %d%n",
+                    mode(), concurrency, result.throughput(), result.p50Millis(), result.p99Millis(),
+                    result.errors());
+            assertTrue(result.requests() > 0);
+        }
+    }
+
+    private Result run(int concurrency) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DURATION_MILLIS);
+        List<Future<Worker>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        // Load generators are virtual threads in both modes, so only the server side changes
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                int seed = i;
+                futures.add(clients.submit(() -> drive(seed, deadline)));
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        List<Long> latencies = new ArrayList<>();
+        int errors = 0;
+        for (Future<Worker> future : futures) {
+            latencies.addAll(future.get().latencies);
+            errors += future.get().errors;
+        }
+        Collections.sort(latencies);
+        return new Result(latencies.size(), latencies.size() / seconds, percentile(latencies, 0.50),
+                percentile(latencies, 0.99), errors);
+    }
+
+    private Worker drive(int seed, long deadline) {
+        Random random = new Random(seed);
+        Worker worker = new Worker();
+        int userIndex = seed % USERS;
+        while (System.nanoTime() < deadline) {
+            HttpRequest request = nextRequest(random, userIndex);
+            long begin = System.nanoTime();
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() / 100 != 2) {
+                    worker.errors++;
+                }
+            } catch (Exception e) {
+                worker.errors++;
+            }
+            worker.latencies.add(System.nanoTime() - begin);
+        }
+        return worker;
+    }
+
+    /**
+     * Read-heavy mix: 50% history pages, 30% balance reads, 20% transfers
+     */
+    private HttpRequest nextRequest(Random random, int userIndex) {
+        String accessToken = accessTokens.get(userIndex);
+        int draw = random.nextInt(10);
+        if (draw < 5) {
+            return HttpRequest.newBuilder(uri("/transactions")).header("Authorization", accessToken).GET().build();
+        }
+        if (draw < 8) {
+            return HttpRequest.newBuilder(uri("/user/balance")).header("Authorization", accessToken).GET().build();
+        }
+        int receiverId = 1 + (userIndex + 1 + random.nextInt(USERS - 1)) % USERS;
+        String body = "{\"receiverId\":" + receiverId + ",\"amountInCents\":" + (1 + random.nextInt(100))
+                + ",\"description\":\"load\"}";
+        return HttpRequest.newBuilder(uri("/transaction"))
+                .header("Authorization", accessToken)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static double percentile(List<Long> sorted, double quantile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = Math.min(sorted.size() - 1, (int) Math.ceil(sorted.size() * quantile) - 1);
+        return sorted.get(Math.max(0, index)) / 1_000_000.0;
+    }
+
+    private static int[] parseLevels(String levels) {
+        return Arrays.stream(levels.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    }
+
+    private static class Worker {
+        private final List<Long> latencies = new ArrayList<>();
+        private int errors;
+    }
+
+    private record Result(int requests, double throughput, double p50Millis, double p99Millis, int errors) {
+    }
+
+    /**
+     * Wraps the DataSource so that every statement execution first sleeps for
+     * the configured latency, like a round trip to a remote database would
+     */
+    @TestConfiguration
+    static class JdbcLatencyConfig {
+
+        private static final Set<String> EXECUTE_METHODS = Set.of("execute", "executeQuery", "executeUpdate",
+                "executeBatch", "executeLargeUpdate", "executeLargeBatch");
+
+        @Bean
+        static BeanPostProcessor jdbcLatencyPostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (bean instanceof DataSource dataSource && JDBC_LATENCY_MILLIS > 0) {
+                        return proxy(DataSource.class, dataSource);
+                    }
+                    return bean;
+                }
+            };
+        }
+
+        private static Object proxy(Class<?> type, Object target) {
+            InvocationHandler handler = (proxy, method, args) -> {
+                if (EXECUTE_METHODS.contains(method.getName())) {
+                    Thread.sleep(JDBC_LATENCY_MILLIS);
+                }
+                Object result;
+                try {
+                    result = method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                Class<?> returnType = method.getReturnType();
+                if (result != null && (Connection.class.isAssignableFrom(returnType)
+                        || Statement.class.isAssignableFrom(returnType))) {
+                    return proxy(returnType, result);
+                }
+                return result;
+            };
+            return Proxy.newProxyInstance(AbstractHttpLoadBenchmark.class.getClassLoader(), new Class<?>[] { type },
+                    handler);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.paymybuddy.benchmarks;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Contention harness with app.transfers.concurrency=atomic.
+ * Run with: mvn -Pbenchmarks test -Dtest=AtomicContentionBenchmarkTest
+ */
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:atomiccontentionbench;MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "app.transfers.concurrency=atomic"
+})
+public class AtomicContentionBenchmarkTest extends AbstractContentionBenchmark {
+
+    @Override
+    protected String mode() {
+        return "atomic";
+    }
+}
@@ -0,0 +1,136 @@
+package com.paymybuddy.benchmarks;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.function.Supplier;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.paymybuddy.models.Transaction;
+import com.paymybuddy.models.User;
+import com.paymybuddy.repository.UserRepository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Times N inserts through Hibernate with the former IDENTITY mapping (one
+ * statement and one generated-key fetch per row) and with the pooled table
+ * generator (JDBC batches of hibernate.jdbc.batch_size rows).
+ * Run with: mvn -Pbenchmarks test -Dtest=BatchInsertBenchmarkTest
+ */
+@Tag("benchmark")
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:insertbench;MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.com.paymybuddy=WARN",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+})
+public class BatchInsertBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("bench.insert.rows", 100_000);
+    private static final int FLUSH_EVERY = 50;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User sender;
+    private User receiver;
+
+    @BeforeAll
+    void seed() {
+        sender = saveUser("sender");
+        receiver = saveUser("receiver");
+    }
+
+    @Test
+    void benchmarkIdentityVersusPooledIds() {
+        // Warm up both paths before measuring
+        insert("identity", 2_000, this::identityRow);
+        insert("pooled", 2_000, this::pooledRow);
+
+        long identityNanos = insert("identity", ROWS, this::identityRow);
+        long pooledNanos = insert("pooled", ROWS, this::pooledRow);
+
+        assertEquals(2_000L + ROWS, count("identity_transactions"));
+        assertEquals(2_000L + ROWS, count("transactions"));
+        System.out.printf("[benchmark] insert %,d rows: IDENTITY %,d ms, pooled ids + batching %,d ms (x%.1f)%n",
+                ROWS, identityNanos / 1_000_000, pooledNanos / 1_000_000, (double) identityNanos / pooledNanos);
+    }
+
+    private long insert(String label, int rows, Supplier<Object> row) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        long start = System.nanoTime();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 1; i <= rows; i++) {
+                entityManager.persist(row.get());
+                if (i % FLUSH_EVERY == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+        });
+
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("[benchmark] %-8s %,d rows in %,d ms, %,d statements prepared%n", label, rows,
+                elapsed / 1_000_000, statistics.getPrepareStatementCount());
+        return elapsed;
+    }
+
+    private Object identityRow() {
+        IdentityTransaction transaction = new IdentityTransaction();
+        transaction.setSender(entityManager.getReference(User.class, sender.getId()));
+        transaction.setReceiver(entityManager.getReference(User.class, receiver.getId()));
+        transaction.setDescription("insert benchmark");
+        transaction.setAmountInCents(100L);
+        return transaction;
+    }
+
+    private Object pooledRow() {
+        Transaction transaction = new Transaction();
+        transaction.setSender(entityManager.getReference(User.class, sender.getId()));
+        transaction.setReceiver(entityManager.getReference(User.class, receiver.getId()));
+        transaction.setDescription("insert benchmark");
+        transaction.setAmountInCents(100L);
+        return transaction;
+    }
+
+    private long count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+    }
+
+    private User saveUser(String name) {
+        User user = new User();
+        user.setUsername(name);
+        user.setEmail(name + "@bench.example.com");
+        user.setPassword("hash");
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,137 @@
+package com.paymybuddy.benchmarks;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paymybuddy.models.AuthenticatedUser;
+import com.paymybuddy.models.User;
+import com.paymybuddy.models.Wallet;
+import com.paymybuddy.models.dtos.BatchTransactionRequestDTO;
+import com.paymybuddy.models.dtos.CreateTransactionRequestDTO;
+import com.paymybuddy.repository.UserRepository;
+import com.paymybuddy.repository.WalletRepository;
+
+/**
+ * Pays the same N receivers with N sequential POST /transaction calls and with
+ * one POST /transactions/batch, through the full MVC and security stack.
+ * Run with: mvn -Pbenchmarks test -Dtest=BatchTransferBenchmarkTest
+ */
+@Tag("benchmark")
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:batchtransferbench;MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.jpa.show-sql=false",
+        "logging.level.com.paymybuddy=WARN"
+})
+public class BatchTransferBenchmarkTest {
+
+    private static final int RECEIVERS = Integer.getInteger("bench.batch.receivers", 500);
+    private static final long AMOUNT = 100L;
+    private static final long INITIAL_BALANCE = 100_000_000L;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    private User sender;
+    private AuthenticatedUser principal;
+    private final List<CreateTransactionRequestDTO> payments = new ArrayList<>();
+
+    @BeforeAll
+    void seed() {
+        sender = userRepository.save(newUser("payroll"));
+        walletRepository.save(new Wallet(sender.getId(), INITIAL_BALANCE));
+        principal = new AuthenticatedUser(sender.getId(), sender.getEmail(), "hash",
+                AuthorityUtils.createAuthorityList("USER"));
+
+        List<User> receivers = new ArrayList<>();
+        for (int i = 0; i < RECEIVERS; i++) {
+            receivers.add(newUser("employee" + i));
+        }
+        for (User receiver : userRepository.saveAll(receivers)) {
+            walletRepository.save(new Wallet(receiver.getId(), 0L));
+            CreateTransactionRequestDTO payment = new CreateTransactionRequestDTO();
+            payment.setReceiverId(receiver.getId());
+            payment.setAmountInCents(AMOUNT);
+            payment.setDescription("Salary");
+            payments.add(payment);
+        }
+    }
+
+    @Test
+    void benchmarkSequentialVersusBatch() throws Exception {
+        // Warm up both endpoints
+        sequential(payments.subList(0, 20));
+        batch(payments.subList(0, 20));
+
+        long start = System.nanoTime();
+        sequential(payments);
+        long sequentialNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        batch(payments);
+        long batchNanos = System.nanoTime() - start;
+
+        long expectedBalance = INITIAL_BALANCE - 2 * (RECEIVERS + 20) * AMOUNT;
+        assertEquals(expectedBalance, walletRepository.findBalanceById(sender.getId()).orElseThrow());
+        System.out.printf("[benchmark] %,d payments: sequential %,d ms, batch %,d ms (x%.1f)%n", RECEIVERS,
+                sequentialNanos / 1_000_000, batchNanos / 1_000_000, (double) sequentialNanos / batchNanos);
+    }
+
+    private void sequential(List<CreateTransactionRequestDTO> items) throws Exception {
+        for (CreateTransactionRequestDTO item : items) {
+            mockMvc.perform(post("/transaction")
+                    .with(user(principal)).with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(item)))
+                    .andExpect(status().isOk());
+        }
+    }
+
+    private void batch(List<CreateTransactionRequestDTO> items) throws Exception {
+        BatchTransactionRequestDTO request = new BatchTransactionRequestDTO();
+        request.setItems(items);
+        mockMvc.perform(post("/transactions/batch")
+                .with(user(principal)).with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk());
+    }
+
+    private static User newUser(String name) {
+        User user = new User();
+        user.setUsername(name);
+        user.setEmail(name + "@bench.example.com");
+        user.setPassword("hash");
+        return user;
+    }
+}
@@ -0,0 +1,248 @@
+package com.paymybuddy.benchmarks;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.paymybuddy.logging.LoggingService;
+import com.paymybuddy.models.Transaction;
+import com.paymybuddy.models.dtos.CreateTransactionRequestDTO;
+import com.paymybuddy.repository.IdSequenceRepository;
+import com.paymybuddy.repository.TransactionRepository;
+import com.paymybuddy.repository.UserRepository;
+import com.paymybuddy.repository.WalletRepository;
+import com.paymybuddy.services.AccountEvents;
+import com.paymybuddy.services.GroupCommitTransferWriter;
+import com.paymybuddy.services.TransferConcurrency;
+import com.paymybuddy.services.interfaces.TransactionService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Throughput and latency of concurrent transfers, one transaction per transfer
+ * versus group commit with max batch sizes 1, 8, 64 and 256. Every commit
+ * sleeps for bench.groupcommit.commit-latency-ms to stand in for the log
+ * flush of a durable database; in-memory H2 commits for free.
+ * Run with: mvn -Pbenchmarks test -Dtest=GroupCommitBenchmarkTest
+ */
+@Tag("benchmark")
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@Import(GroupCommitBenchmarkTest.CommitLatencyConfig.class)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:groupcommitbench;MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.datasource.hikari.maximum-pool-size=${bench.groupcommit.pool-size:64}",
+        "spring.jpa.show-sql=false",
+        "logging.level.com.paymybuddy=WARN"
+})
+public class GroupCommitBenchmarkTest {
+
+    private static final int USERS = Integer.getInteger("bench.groupcommit.users", 1_000);
+    private static final int CLIENTS = Integer.getInteger("bench.groupcommit.clients", 256);
+    private static final int[] BATCH_SIZES = Arrays.stream(System.getProperty("bench.groupcommit.batch-sizes",
+            "1,8,64,256").split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    private static final long MAX_WAIT_MICROS = Long.getLong("bench.groupcommit.max-wait-micros", 200L);
+    private static final long DURATION_MILLIS = Long.getLong("bench.groupcommit.duration-ms", 5_000L);
+    private static final long COMMIT_LATENCY_MILLIS = Long.getLong("bench.groupcommit.commit-latency-ms", 2L);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private IdSequenceRepository idSequenceRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private LoggingService loggingService;
+
+    @Autowired
+    private AccountEvents accountEvents;
+
+    @BeforeAll
+    void seed() {
+        List<Object[]> users = new ArrayList<>();
+        for (int id = 1; id <= USERS; id++) {
+            String email = "group" + id + "@bench.example.com";
+            users.add(new Object[] { id, "group" + id, email, email, "hash" });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (id, username, email, email_lower, password) "
+                + "VALUES (?, ?, ?, ?, ?)", users);
+        jdbcTemplate.update("INSERT INTO wallets (user_id, balance_in_cents, version) SELECT id, ?, 0 FROM users",
+                1_000_000_000L);
+        idSequenceRepository.advanceTo("users", USERS + 1L);
+    }
+
+    @Test
+    void benchmarkBatchSizes() throws Exception {
+        // Warm up the JPA and JDBC paths
+        run(transactionService::createTransaction, 1_000);
+
+        Result baseline = run(transactionService::createTransaction, DURATION_MILLIS);
+        report("off", baseline);
+        for (int batchSize : BATCH_SIZES) {
+            try (GroupCommitTransferWriter writer = new GroupCommitTransferWriter(transactionManager, userRepository,
+                    walletRepository, transactionRepository, loggingService, accountEvents,
+                    new TransferConcurrency("atomic"), new SimpleMeterRegistry(), "jpa", true, batchSize,
+                    MAX_WAIT_MICROS, CLIENTS * 2, 1)) {
+                Result result = run(writer::submit, DURATION_MILLIS);
+                report("batch=" + batchSize, result);
+                assertTrue(result.transfers() > 0);
+            }
+        }
+    }
+
+    private Result run(BiFunction<Integer, CreateTransactionRequestDTO, Transaction> transfer, long durationMillis)
+            throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        List<Future<Worker>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CLIENTS; i++) {
+                int seed = i;
+                futures.add(clients.submit(() -> drive(transfer, seed, deadline)));
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        List<Long> latencies = new ArrayList<>();
+        int failures = 0;
+        for (Future<Worker> future : futures) {
+            latencies.addAll(future.get().latencies);
+            failures += future.get().failures;
+        }
+        Collections.sort(latencies);
+        return new Result(latencies.size(), latencies.size() / seconds, percentile(latencies, 0.50),
+                percentile(latencies, 0.99), failures);
+    }
+
+    private Worker drive(BiFunction<Integer, CreateTransactionRequestDTO, Transaction> transfer, int seed,
+            long deadline) {
+        Random random = new Random(seed);
+        Worker worker = new Worker();
+        // The principal's id, as the controller passes it: the sender row is resolved inside the transfer
+        int senderId = 1 + seed % USERS;
+        while (System.nanoTime() < deadline) {
+            CreateTransactionRequestDTO request = new CreateTransactionRequestDTO();
+            request.setReceiverId(1 + (senderId + random.nextInt(USERS - 1)) % USERS);
+            request.setAmountInCents(1L + random.nextInt(100));
+            request.setDescription("group commit");
+
+            long begin = System.nanoTime();
+            try {
+                if (transfer.apply(senderId, request) == null) {
+                    worker.failures++;
+                }
+            } catch (RuntimeException e) {
+                worker.failures++;
+            }
+            worker.latencies.add(System.nanoTime() - begin);
+        }
+        return worker;
+    }
+
+    private static void report(String label, Result result) {
+        System.out.printf("[benchmark] group-commit %-10s c=%-4d %9.1f transfers/s  p50 %7.2f ms  p99 %7.2f ms  "
+                + "failures %d%n", label, CLIENTS, result.throughput(), result.p50Millis(), result.p99Millis(),
+                result.failures());
+    }
+
+    private static double percentile(List<Long> sorted, double quantile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = Math.min(sorted.size() - 1, (int) Math.ceil(sorted.size() * quantile) - 1);
+        return sorted.get(Math.max(0, index)) / 1_000_000.0;
+    }
+
+    private static class Worker {
+        private final List<Long> latencies = new ArrayList<>();
+        private int failures;
+    }
+
+    private record Result(int transfers, double throughput, double p50Millis, double p99Millis, int failures) {
+    }
+
+    /**
+     * Wraps the DataSource so that every commit first sleeps for the configured
+     * latency, like the log flush of a durable database would
+     */
+    @TestConfiguration
+    static class CommitLatencyConfig {
+
+        @Bean
+        static BeanPostProcessor commitLatencyPostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (bean instanceof DataSource dataSource && COMMIT_LATENCY_MILLIS > 0) {
+                        return proxy(DataSource.class, dataSource);
+                    }
+                    return bean;
+                }
+            };
+        }
+
+        private static Object proxy(Class<?> type, Object target) {
+            InvocationHandler handler = (proxy, method, args) -> {
+                if (type == Connection.class && method.getName().equals("commit")) {
+                    Thread.sleep(COMMIT_LATENCY_MILLIS);
+                }
+                Object result;
+                try {
+                    result = method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                if (result instanceof Connection connection && type == DataSource.class) {
+                    return proxy(Connection.class, connection);
+                }
+                return result;
+            };
+            return Proxy.newProxyInstance(GroupCommitBenchmarkTest.class.getClassLoader(), new Class<?>[] { type },
+                    handler);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.paymybuddy.benchmarks;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import com.paymybuddy.models.dtos.CreateTransactionRequestDTO;
+import com.paymybuddy.repository.IdSequenceRepository;
+import com.paymybuddy.repository.WalletRepository;
+import com.paymybuddy.services.HotAccounts;
+import com.paymybuddy.services.interfaces.TransactionService;
+
+/**
+ * Every transfer pays the same receiver, as a popular merchant would be paid.
+ * Runs with the receiver's credits on its wallet row, then with the receiver
+ * promoted to hot and its credits spread over app.wallets.hot.slots slots.
+ * Run with: mvn -Pbenchmarks test -Dtest=HotAccountBenchmarkTest
+ */
+@Tag("benchmark")
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:hotaccountbench;MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.datasource.hikari.maximum-pool-size=64",
+        "spring.jpa.show-sql=false",
+        "logging.level.com.paymybuddy=ERROR",
+        "app.wallets.hot.slots=${bench.hot.slots:16}"
+})
+public class HotAccountBenchmarkTest {
+
+    private static final int PAYERS = Integer.getInteger("bench.hot.payers", 1_000);
+    private static final int CLIENTS = Integer.getInteger("bench.hot.clients", 48);
+    private static final long DURATION_MILLIS = Long.getLong("bench.hot.duration-ms", 5_000L);
+    private static final long INITIAL_BALANCE = 1_000_000_000L;
+    // One receiver per run, so that the hot run starts from empty slots
+    private static final int PLAIN_RECEIVER = PAYERS + 1;
+    private static final int HOT_RECEIVER = PAYERS + 2;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private IdSequenceRepository idSequenceRepository;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private HotAccounts hotAccounts;
+
+    @BeforeAll
+    void seed() {
+        List<Object[]> users = new ArrayList<>();
+        for (int id = 1; id <= HOT_RECEIVER; id++) {
+            String email = "hot" + id + "@bench.example.com";
+            users.add(new Object[] { id, "hot" + id, email, email, "hash" });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (id, username, email, email_lower, password) "
+                + "VALUES (?, ?, ?, ?, ?)", users);
+        jdbcTemplate.update("INSERT INTO wallets (user_id, balance_in_cents, version) SELECT id, ?, 0 FROM users",
+                INITIAL_BALANCE);
+        idSequenceRepository.advanceTo("users", HOT_RECEIVER + 1L);
+    }
+
+    @Test
+    void benchmarkOneReceiver() throws Exception {
+        // Warm up the transfer path on another receiver
+        run(1, 1_000);
+
+        Result plain = run(PLAIN_RECEIVER, DURATION_MILLIS);
+        report("off", plain);
+        hotAccounts.promote(HOT_RECEIVER);
+        Result hot = run(HOT_RECEIVER, DURATION_MILLIS);
+        report("hot", hot);
+        assertTrue(hot.transfers() > 0);
+
+        // The receiver spends what its slots collected: the payout folds them back
+        long received = walletRepository.findBalanceById(HOT_RECEIVER).orElseThrow();
+        assertEquals(1, walletRepository.debitBalance(HOT_RECEIVER, received));
+        assertEquals(0L, walletRepository.findBalanceById(HOT_RECEIVER).orElseThrow());
+        walletRepository.creditBalance(HOT_RECEIVER, received);
+
+        // Transfers only move money around
+        assertEquals(HOT_RECEIVER * INITIAL_BALANCE, jdbcTemplate.queryForObject(
+                "SELECT (SELECT SUM(balance_in_cents) FROM wallets) + (SELECT COALESCE(SUM(balance_in_cents), 0) "
+                        + "FROM wallet_slots)", Long.class));
+    }
+
+    private Result run(int receiverId, long durationMillis) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        List<Future<List<Long>>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        try (ExecutorService clients = Executors.newFixedThreadPool(CLIENTS)) {
+            for (int i = 0; i < CLIENTS; i++) {
+                SplittableRandom random = new SplittableRandom(i);
+                futures.add(clients.submit(() -> pay(receiverId, random, deadline)));
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        List<Long> latencies = new ArrayList<>();
+        for (Future<List<Long>> future : futures) {
+            latencies.addAll(future.get());
+        }
+        Collections.sort(latencies);
+        return new Result(latencies.size(), latencies.size() / seconds, percentile(latencies, 0.50),
+                percentile(latencies, 0.99));
+    }
+
+    private List<Long> pay(int receiverId, SplittableRandom random, long deadline) {
+        List<Long> latencies = new ArrayList<>();
+        while (System.nanoTime() < deadline) {
+            int senderId = 1 + random.nextInt(PAYERS);
+            if (senderId == receiverId) {
+                continue;
+            }
+            CreateTransactionRequestDTO request = new CreateTransactionRequestDTO();
+            request.setReceiverId(receiverId);
+            request.setAmountInCents(1L + random.nextInt(100));
+            request.setDescription("merchant");
+            long begin = System.nanoTime();
+            if (transactionService.createTransaction(senderId, request) != null) {
+                latencies.add(System.nanoTime() - begin);
+            }
+        }
+        return latencies;
+    }
+
+    private static void report(String mode, Result result) {
+        System.out.printf("[benchmark] hot-account %-4s c=%-3d %9.1f transfers/s  p50 %7.3f ms  p99 %8.3f ms%n",
+                mode, CLIENTS, result.throughput(), result.p50Millis(), result.p99Millis());
+    }
+
+    private static double percentile(List<Long> sorted, double quantile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = Math.min(sorted.size() - 1, (int) Math.ceil(sorted.size() * quantile) - 1);
+        return sorted.get(Math.max(0, index)) / 1_000_000.0;
+    }
+
+    private record Result(int transfers, double throughput, double p50Millis, double p99Millis) {
+    }
+}
@@ -0,0 +1,34 @@
+package com.paymybuddy.benchmarks;
+
+import com.paymybuddy.models.User;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * Copy of the Transaction mapping with the former IDENTITY id, kept as the
+ * baseline of {@link BatchInsertBenchmarkTest}. Test-only table.
+ */
+@Entity
+@Table(name = "identity_transactions")
+@Data
+public class IdentityTransaction {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "sender_id", nullable = false)
+    private User sender;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "receiver_id", nullable = false)
+    private User receiver;
+
+    @Column(name = "description", length = 255)
+    private String description;
+
+    @Column(name = "amount_in_cents", nullable = false)
+    private Long amountInCents;
+}
@@ -0,0 +1,34 @@
+package com.paymybuddy.benchmarks;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+/**
+ * JWT mode: every request carries a bearer token whose signature and expiry
+ * are checked in the filter, without any session or database lookup.
+ * Run with: mvn -Pbenchmarks test -Dtest=JwtAuthenticationBenchmarkTest
+ */
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:jwtauthbench;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.jpa.show-sql=false",
+        "logging.level.com.paymybuddy=WARN",
+        "app.security.mode=jwt",
+        "app.security.jwt.secret=authentication-benchmark-secret-0123456789"
+})
+public class JwtAuthenticationBenchmarkTest extends AbstractAuthenticationBenchmark {
+
+    @Override
+    protected String mode() {
+        return "jwt";
+    }
+
+    @Override
+    protected RequestPostProcessor authenticate() throws Exception {
+        String accessToken = login().getResponse().getHeader(HttpHeaders.AUTHORIZATION);
+        return request -> {
+            request.addHeader(HttpHeaders.AUTHORIZATION, accessToken);
+            return request;
+        };
+    }
+}
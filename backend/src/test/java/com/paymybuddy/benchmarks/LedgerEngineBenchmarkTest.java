@@ -0,0 +1,194 @@
+package com.paymybuddy.benchmarks;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.paymybuddy.ledger.LedgerEngine;
+import com.paymybuddy.logging.LoggingService;
+import com.paymybuddy.models.dtos.CreateTransactionRequestDTO;
+import com.paymybuddy.repository.IdSequenceRepository;
+import com.paymybuddy.repository.TopUpRepository;
+import com.paymybuddy.repository.TransactionRepository;
+import com.paymybuddy.repository.UserRepository;
+import com.paymybuddy.repository.WalletRepository;
+import com.paymybuddy.services.AccountEvents;
+import com.paymybuddy.services.implementations.LedgerTransactionServiceImpl;
+import com.paymybuddy.services.implementations.TransactionServiceImpl;
+import com.paymybuddy.services.interfaces.TransactionService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Concurrent transfers through the JPA TransactionService and through the
+ * in-memory ledger engine, at increasing client counts, on the same data set.
+ * Run with: mvn -Pbenchmarks test -Dtest=LedgerEngineBenchmarkTest
+ */
+@Tag("benchmark")
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ledgerbench;MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.datasource.hikari.maximum-pool-size=64",
+        "spring.jpa.show-sql=false",
+        "logging.level.com.paymybuddy=WARN"
+})
+public class LedgerEngineBenchmarkTest {
+
+    private static final int USERS = Integer.getInteger("bench.ledger.users", 10_000);
+    private static final int[] CLIENTS = Arrays.stream(System.getProperty("bench.ledger.clients", "1,16,64,256")
+            .split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    private static final long DURATION_MILLIS = Long.getLong("bench.ledger.duration-ms", 5_000L);
+    private static final int PARTITIONS = Integer.getInteger("bench.ledger.partitions", 4);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private IdSequenceRepository idSequenceRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TopUpRepository topUpRepository;
+
+    @Autowired
+    private TransactionServiceImpl jpaTransactionService;
+
+    @Autowired
+    private LoggingService loggingService;
+
+    @Autowired
+    private AccountEvents accountEvents;
+
+    @BeforeAll
+    void seed() {
+        List<Object[]> users = new ArrayList<>();
+        for (int id = 1; id <= USERS; id++) {
+            String email = "ledger" + id + "@bench.example.com";
+            users.add(new Object[] { id, "ledger" + id, email, email, "hash" });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (id, username, email, email_lower, password) "
+                + "VALUES (?, ?, ?, ?, ?)", users);
+        jdbcTemplate.update("INSERT INTO wallets (user_id, balance_in_cents, version) SELECT id, ?, 0 FROM users",
+                1_000_000_000L);
+        idSequenceRepository.advanceTo("users", USERS + 1L);
+    }
+
+    @Test
+    void benchmarkJpaVersusLedger() throws Exception {
+        // Warm up the JPA path
+        run(jpaTransactionService, 16, 1_000);
+        for (int clients : CLIENTS) {
+            report("jpa", clients, run(jpaTransactionService, clients, DURATION_MILLIS));
+        }
+
+        // Started after the JPA runs so that it rebuilds from their final balances
+        try (LedgerEngine engine = new LedgerEngine(jdbcTemplate, transactionManager, userRepository,
+                walletRepository, transactionRepository, topUpRepository, loggingService, accountEvents,
+                new SimpleMeterRegistry(), PARTITIONS, 65_536, 512, 1)) {
+            TransactionService ledger = new LedgerTransactionServiceImpl(engine, jpaTransactionService,
+                    userRepository, loggingService);
+            run(ledger, 16, 1_000);
+            for (int clients : CLIENTS) {
+                Result result = run(ledger, clients, DURATION_MILLIS);
+                report("ledger", clients, result);
+                assertEquals(0, result.failures());
+            }
+        }
+        assertEquals((long) USERS * 1_000_000_000L,
+                jdbcTemplate.queryForObject("SELECT SUM(balance_in_cents) FROM wallets", Long.class));
+    }
+
+    private Result run(TransactionService service, int clients, long durationMillis) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        List<Future<Worker>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                int seed = i;
+                futures.add(executor.submit(() -> drive(service, seed, deadline)));
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        List<Long> latencies = new ArrayList<>();
+        int failures = 0;
+        for (Future<Worker> future : futures) {
+            latencies.addAll(future.get().latencies);
+            failures += future.get().failures;
+        }
+        Collections.sort(latencies);
+        return new Result(latencies.size() / seconds, percentile(latencies, 0.50), percentile(latencies, 0.99),
+                failures);
+    }
+
+    private Worker drive(TransactionService service, int seed, long deadline) {
+        Random random = new Random(seed);
+        Worker worker = new Worker();
+        while (System.nanoTime() < deadline) {
+            int senderId = 1 + random.nextInt(USERS);
+            CreateTransactionRequestDTO request = new CreateTransactionRequestDTO();
+            request.setReceiverId(1 + (senderId + random.nextInt(USERS - 1)) % USERS);
+            request.setAmountInCents(1L + random.nextInt(100));
+            request.setDescription("ledger");
+
+            long begin = System.nanoTime();
+            if (service.createTransaction(senderId, request) == null) {
+                worker.failures++;
+            }
+            worker.latencies.add(System.nanoTime() - begin);
+        }
+        return worker;
+    }
+
+    private static void report(String engine, int clients, Result result) {
+        System.out.printf("[benchmark] engine %-6s c=%-4d %9.1f transfers/s  p50 %7.3f ms  p99 %7.3f ms  "
+                + "failures %d%n", engine, clients, result.throughput(), result.p50Millis(), result.p99Millis(),
+                result.failures());
+    }
+
+    private static double percentile(List<Long> sorted, double quantile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = Math.min(sorted.size() - 1, (int) Math.ceil(sorted.size() * quantile) - 1);
+        return sorted.get(Math.max(0, index)) / 1_000_000.0;
+    }
+
+    private static class Worker {
+        private final List<Long> latencies = new ArrayList<>();
+        private int failures;
+    }
+
+    private record Result(double throughput, double p50Millis, double p99Millis, int failures) {
+    }
+}
@@ -0,0 +1,138 @@
+package com.paymybuddy.benchmarks;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Load test: floods /login while measuring GET /transactions over real HTTP.
+ * Password hashing runs on its own small pool, so the /transactions latency
+ * should hold while excess logins get 503 with Retry-After.
+ * Run with: mvn -Pbenchmarks test -Dtest=LoginSaturationBenchmarkTest
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:loginstormbench;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.jpa.show-sql=false",
+        "logging.level.com.paymybuddy=WARN",
+        "app.security.mode=jwt",
+        "app.security.jwt.secret=login-saturation-benchmark-secret-0123456789",
+        "app.password-hashing.threads=2",
+        "app.password-hashing.queue-capacity=8",
+        "app.password-hashing.max-wait-ms=500"
+})
+public class LoginSaturationBenchmarkTest {
+
+    private static final String CREDENTIALS = "{\"email\":\"storm@example.com\",\"password\":\"password123\"}";
+    private static final int LOGIN_THREADS = Integer.getInteger("bench.login.threads", 64);
+    private static final int SAMPLES = Integer.getInteger("bench.login.samples", 300);
+
+    @LocalServerPort
+    private int port;
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    @Test
+    void benchmarkTransactionsLatencyDuringLoginStorm() throws Exception {
+        send(post("/register",
+                "{\"username\":\"storm\",\"email\":\"storm@example.com\",\"password\":\"password123\"}"));
+        HttpResponse<String> login = send(post("/login", CREDENTIALS));
+        assertEquals(200, login.statusCode());
+        String accessToken = login.headers().firstValue("Authorization").orElseThrow();
+
+        List<Long> baseline = sampleTransactions(accessToken);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger retryAfterHeaders = new AtomicInteger();
+        ExecutorService storm = Executors.newFixedThreadPool(LOGIN_THREADS);
+        for (int i = 0; i < LOGIN_THREADS; i++) {
+            storm.submit(() -> {
+                while (running.get()) {
+                    HttpResponse<String> response = send(post("/login", CREDENTIALS));
+                    if (response.statusCode() == 503) {
+                        rejected.incrementAndGet();
+                        if (response.headers().firstValue("Retry-After").isPresent()) {
+                            retryAfterHeaders.incrementAndGet();
+                        }
+                    } else if (response.statusCode() == 200) {
+                        accepted.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+
+        Thread.sleep(1_000);
+        List<Long> underStorm = sampleTransactions(accessToken);
+        running.set(false);
+        storm.shutdown();
+        storm.awaitTermination(30, TimeUnit.SECONDS);
+
+        report("idle", baseline);
+        report("during login storm", underStorm);
+        System.out.printf("[benchmark] logins during storm: %d accepted, %d rejected with 503%n", accepted.get(),
+                rejected.get());
+
+        assertTrue(rejected.get() > 0, "the login storm should saturate the hashing pool");
+        assertEquals(rejected.get(), retryAfterHeaders.get(), "every 503 must carry Retry-After");
+    }
+
+    private List<Long> sampleTransactions(String accessToken) throws Exception {
+        List<Long> latencies = new ArrayList<>();
+        for (int i = 0; i < SAMPLES; i++) {
+            HttpRequest request = HttpRequest.newBuilder(uri("/transactions"))
+                    .header("Authorization", accessToken)
+                    .GET()
+                    .build();
+            long start = System.nanoTime();
+            HttpResponse<String> response = send(request);
+            latencies.add(System.nanoTime() - start);
+            assertEquals(200, response.statusCode());
+        }
+        return latencies;
+    }
+
+    private HttpRequest post(String path, String json) {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws Exception {
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static void report(String label, List<Long> latencies) {
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        double p50 = sorted.get(sorted.size() / 2) / 1_000_000.0;
+        double p99 = sorted.get((int) Math.ceil(sorted.size() * 0.99) - 1) / 1_000_000.0;
+        System.out.printf("[benchmark] GET /transactions %-20s p50 %7.2f ms, p99 %7.2f ms%n", label, p50, p99);
+    }
+}
@@ -0,0 +1,19 @@
+package com.paymybuddy.benchmarks;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Contention harness with app.transfers.concurrency=optimistic.
+ * Run with: mvn -Pbenchmarks test -Dtest=OptimisticContentionBenchmarkTest
+ */
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:optimisticcontentionbench;MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "app.transfers.concurrency=optimistic"
+})
+public class OptimisticContentionBenchmarkTest extends AbstractContentionBenchmark {
+
+    @Override
+    protected String mode() {
+        return "optimistic";
+    }
+}
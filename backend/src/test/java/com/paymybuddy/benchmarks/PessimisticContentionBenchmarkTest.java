@@ -0,0 +1,19 @@
+package com.paymybuddy.benchmarks;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Contention harness with app.transfers.concurrency=pessimistic.
+ * Run with: mvn -Pbenchmarks test -Dtest=PessimisticContentionBenchmarkTest
+ */
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:pessimisticcontentionbench;MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "app.transfers.concurrency=pessimistic"
+})
+public class PessimisticContentionBenchmarkTest extends AbstractContentionBenchmark {
+
+    @Override
+    protected String mode() {
+        return "pessimistic";
+    }
+}
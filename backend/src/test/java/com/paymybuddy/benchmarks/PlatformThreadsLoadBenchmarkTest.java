@@ -0,0 +1,19 @@
+package com.paymybuddy.benchmarks;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Load harness with spring.threads.virtual.enabled=false.
+ * Run with: mvn -Pbenchmarks test -Dtest=PlatformThreadsLoadBenchmarkTest
+ */
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:platformloadbench;MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.threads.virtual.enabled=false"
+})
+public class PlatformThreadsLoadBenchmarkTest extends AbstractHttpLoadBenchmark {
+
+    @Override
+    protected String mode() {
+        return "platform";
+    }
+}
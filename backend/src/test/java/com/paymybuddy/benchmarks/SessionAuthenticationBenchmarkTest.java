@@ -0,0 +1,34 @@
+package com.paymybuddy.benchmarks;
+
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+/**
+ * Session mode: the security context is read back from the HTTP session on
+ * every request. In-process this is a map lookup; behind a load balancer it
+ * also needs sticky sessions or a shared session store, not measured here.
+ * Run with: mvn -Pbenchmarks test -Dtest=SessionAuthenticationBenchmarkTest
+ */
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sessionauthbench;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.jpa.show-sql=false",
+        "logging.level.com.paymybuddy=WARN",
+        "app.security.mode=session"
+})
+public class SessionAuthenticationBenchmarkTest extends AbstractAuthenticationBenchmark {
+
+    @Override
+    protected String mode() {
+        return "session";
+    }
+
+    @Override
+    protected RequestPostProcessor authenticate() throws Exception {
+        MockHttpSession session = (MockHttpSession) login().getRequest().getSession(false);
+        return request -> {
+            request.setSession(session);
+            return request;
+        };
+    }
+}
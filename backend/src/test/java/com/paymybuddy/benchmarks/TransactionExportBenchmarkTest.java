@@ -0,0 +1,117 @@
+package com.paymybuddy.benchmarks;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import com.paymybuddy.services.interfaces.TransactionExportService;
+
+/**
+ * Exports a million-row history while the benchmarks profile caps the heap
+ * (see the argLine of the profile in pom.xml). The database lives in a file
+ * so that only the export itself competes for heap.
+ * Run with: mvn -Pbenchmarks test -Dtest=TransactionExportBenchmarkTest
+ */
+@Tag("benchmark")
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:file:./target/benchmarks/exportbench;MODE=MySQL;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.jpa.show-sql=false",
+        "logging.level.com.paymybuddy=WARN"
+})
+public class TransactionExportBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("bench.export.rows", 1_000_000);
+    private static final int OTHER_USERS = 100;
+    private static final int EXPORTER_ID = 1;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionExportService transactionExportService;
+
+    @BeforeAll
+    void seed() {
+        List<Object[]> users = new ArrayList<>();
+        for (int id = 1; id <= OTHER_USERS + 1; id++) {
+            String email = "user" + id + "@bench.example.com";
+            users.add(new Object[] { id, "user" + id, email, email, "hash" });
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO users (id, username, email, email_lower, password) "
+                        + "VALUES (?, ?, ?, ?, ?)", users);
+
+        Random random = new Random(7);
+        List<Object[]> batch = new ArrayList<>();
+        for (int id = 1; id <= ROWS; id++) {
+            int other = 2 + random.nextInt(OTHER_USERS);
+            boolean sent = random.nextBoolean();
+            batch.add(new Object[] { id, sent ? EXPORTER_ID : other, sent ? other : EXPORTER_ID,
+                    "export row " + id, 1L + random.nextInt(10_000) });
+            if (batch.size() == 10_000) {
+                insertTransactions(batch);
+                batch.clear();
+            }
+        }
+        insertTransactions(batch);
+    }
+
+    @Test
+    void benchmarkExportUnderSmallHeap() throws Exception {
+        for (TransactionExportService.Format format : TransactionExportService.Format.values()) {
+            CountingOutputStream out = new CountingOutputStream();
+            long start = System.nanoTime();
+
+            long exported = transactionExportService.exportUserTransactions(EXPORTER_ID, format, out);
+
+            double seconds = (System.nanoTime() - start) / 1e9;
+            assertEquals(ROWS, exported);
+            System.out.printf("[benchmark] export %-6s %,d rows, %,d bytes in %.1f s, peak used heap %,d MB "
+                    + "(max %,d MB)%n", format, exported, out.bytes, seconds, out.peakUsedHeap >> 20,
+                    Runtime.getRuntime().maxMemory() >> 20);
+        }
+    }
+
+    private void insertTransactions(List<Object[]> batch) {
+        jdbcTemplate.batchUpdate("INSERT INTO transactions (id, sender_id, receiver_id, description, amount_in_cents) "
+                + "VALUES (?, ?, ?, ?, ?)", batch);
+    }
+
+    /**
+     * Discards the export and samples heap usage on every flushed chunk
+     */
+    private static class CountingOutputStream extends OutputStream {
+        private long bytes;
+        private long peakUsedHeap;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+
+        @Override
+        public void flush() {
+            Runtime runtime = Runtime.getRuntime();
+            peakUsedHeap = Math.max(peakUsedHeap, runtime.totalMemory() - runtime.freeMemory());
+        }
+    }
+}
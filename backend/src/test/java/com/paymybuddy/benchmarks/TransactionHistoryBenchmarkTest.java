@@ -0,0 +1,126 @@
+package com.paymybuddy.benchmarks;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import com.paymybuddy.models.dtos.PublicTransactionDTO;
+import com.paymybuddy.services.interfaces.TransactionService;
+
+/**
+ * Compares the former OR-based history query with the merge of the two
+ * index-ordered streams over a large synthetic history.
+ * Run with: mvn -Pbenchmarks test -Dtest=TransactionHistoryBenchmarkTest
+ */
+@Tag("benchmark")
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:historybench;MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.jpa.show-sql=false",
+        "logging.level.com.paymybuddy=WARN"
+})
+public class TransactionHistoryBenchmarkTest {
+
+    private static final int USERS = Integer.getInteger("bench.history.users", 1_000);
+    private static final int TRANSACTIONS = Integer.getInteger("bench.history.transactions", 200_000);
+    private static final int HEAVY_USER_ID = 1;
+    private static final int PAGE_SIZE = 20;
+    private static final int ITERATIONS = 200;
+
+    /** The shape of the former findAllTransactionsForUser query, with the page cursor */
+    private static final String OR_QUERY = "SELECT id FROM transactions WHERE (sender_id = ? OR receiver_id = ?) "
+            + "AND id < ? ORDER BY id DESC LIMIT ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @BeforeAll
+    void seed() {
+        List<Object[]> users = new ArrayList<>();
+        for (int id = 1; id <= USERS; id++) {
+            String email = "user" + id + "@bench.example.com";
+            users.add(new Object[] { id, "user" + id, email, email, "hash" });
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO users (id, username, email, email_lower, password) "
+                        + "VALUES (?, ?, ?, ?, ?)", users);
+
+        // About one row in ten involves the heavy user, the rest is spread uniformly
+        Random random = new Random(42);
+        List<Object[]> batch = new ArrayList<>();
+        for (int id = 1; id <= TRANSACTIONS; id++) {
+            int sender = random.nextInt(10) == 0 ? HEAVY_USER_ID : 2 + random.nextInt(USERS - 1);
+            int receiver = 2 + random.nextInt(USERS - 1);
+            if (random.nextBoolean() && sender == HEAVY_USER_ID) {
+                receiver = sender;
+                sender = 2 + random.nextInt(USERS - 1);
+            }
+            if (receiver == sender) {
+                receiver = sender == USERS ? 2 : sender + 1;
+            }
+            batch.add(new Object[] { id, sender, receiver, "bench", 1L + random.nextInt(10_000) });
+            if (batch.size() == 5_000) {
+                insertTransactions(batch);
+                batch.clear();
+            }
+        }
+        insertTransactions(batch);
+    }
+
+    @Test
+    void benchmarkFirstAndDeepPages() {
+        int deepCursor = TRANSACTIONS / 2;
+
+        // Both shapes must return the same page
+        for (Integer cursor : new Integer[] { Integer.MAX_VALUE, deepCursor }) {
+            List<Integer> expected = orPage(cursor);
+            List<Integer> actual = transactionService.getUserTransactions(HEAVY_USER_ID, cursor, PAGE_SIZE)
+                    .getItems().stream().map(PublicTransactionDTO::getId).collect(Collectors.toList());
+            assertEquals(expected, actual);
+        }
+
+        report("OR query, first page", () -> orPage(Integer.MAX_VALUE));
+        report("merged streams, first page",
+                () -> transactionService.getUserTransactions(HEAVY_USER_ID, null, PAGE_SIZE));
+        report("OR query, deep page", () -> orPage(deepCursor));
+        report("merged streams, deep page",
+                () -> transactionService.getUserTransactions(HEAVY_USER_ID, deepCursor, PAGE_SIZE));
+    }
+
+    private List<Integer> orPage(int before) {
+        return jdbcTemplate.queryForList(OR_QUERY, Integer.class, HEAVY_USER_ID, HEAVY_USER_ID, before, PAGE_SIZE);
+    }
+
+    private void insertTransactions(List<Object[]> batch) {
+        jdbcTemplate.batchUpdate("INSERT INTO transactions (id, sender_id, receiver_id, description, amount_in_cents) "
+                + "VALUES (?, ?, ?, ?, ?)", batch);
+    }
+
+    private void report(String label, Runnable query) {
+        for (int i = 0; i < ITERATIONS / 4; i++) {
+            query.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            query.run();
+        }
+        double averageMicros = (System.nanoTime() - start) / 1_000.0 / ITERATIONS;
+        System.out.printf("[benchmark] %-30s %10.1f us/op over %d rows%n", label, averageMicros, TRANSACTIONS);
+    }
+}
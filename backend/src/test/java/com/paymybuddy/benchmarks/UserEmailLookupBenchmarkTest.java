@@ -0,0 +1,105 @@
+package com.paymybuddy.benchmarks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import com.paymybuddy.repository.UserRepository;
+
+/**
+ * Compares the former LOWER(email) = LOWER(?) lookup with the exact match on
+ * the normalized email_lower column over a large users table.
+ * Run with: mvn -Pbenchmarks test -Dtest=UserEmailLookupBenchmarkTest
+ */
+@Tag("benchmark")
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:file:./target/benchmarks/emailbench;MODE=MySQL;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.jpa.show-sql=false",
+        "logging.level.com.paymybuddy=WARN"
+})
+public class UserEmailLookupBenchmarkTest {
+
+    private static final int USERS = Integer.getInteger("bench.email.users", 1_000_000);
+    private static final int SCAN_ITERATIONS = 20;
+    private static final int INDEXED_ITERATIONS = 10_000;
+
+    /** The shape of the former findByEmail query */
+    private static final String LOWER_QUERY = "SELECT id FROM users WHERE LOWER(email) = LOWER(?)";
+    private static final String EXACT_QUERY = "SELECT id FROM users WHERE email_lower = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeAll
+    void seed() {
+        List<Object[]> batch = new ArrayList<>();
+        for (int id = 1; id <= USERS; id++) {
+            String email = "User" + id + "@Bench.example.com";
+            batch.add(new Object[] { id, "user" + id, email, email.toLowerCase(), "hash" });
+            if (batch.size() == 10_000) {
+                insertUsers(batch);
+                batch.clear();
+            }
+        }
+        insertUsers(batch);
+    }
+
+    @Test
+    void benchmarkLoginLookup() {
+        Random random = new Random(11);
+        IntFunction<String> typedEmail = id -> "user" + id + "@bench.EXAMPLE.com";
+
+        // Both shapes must resolve the same user, and only the new one may use the index
+        int probe = USERS / 2;
+        assertEquals(probe, jdbcTemplate.queryForObject(LOWER_QUERY, Integer.class, typedEmail.apply(probe)));
+        assertEquals(probe, userRepository.findIdByEmail(typedEmail.apply(probe)).orElseThrow());
+        assertThat(explain(EXACT_QUERY.replace("?", "'user1@bench.example.com'")).toUpperCase())
+                .contains("UK_USERS_EMAIL_LOWER");
+
+        report("LOWER(email) = LOWER(?)", SCAN_ITERATIONS, () -> jdbcTemplate.queryForObject(LOWER_QUERY,
+                Integer.class, typedEmail.apply(1 + random.nextInt(USERS))));
+        report("email_lower = ?", INDEXED_ITERATIONS, () -> jdbcTemplate.queryForObject(EXACT_QUERY,
+                Integer.class, typedEmail.apply(1 + random.nextInt(USERS)).toLowerCase()));
+        report("UserRepository.findIdByEmail", INDEXED_ITERATIONS,
+                () -> userRepository.findIdByEmail(typedEmail.apply(1 + random.nextInt(USERS))));
+    }
+
+    private String explain(String sql) {
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+    }
+
+    private void insertUsers(List<Object[]> batch) {
+        jdbcTemplate.batchUpdate("INSERT INTO users (id, username, email, email_lower, password) "
+                + "VALUES (?, ?, ?, ?, ?)", batch);
+    }
+
+    private void report(String label, int iterations, Runnable query) {
+        for (int i = 0; i < Math.max(1, iterations / 4); i++) {
+            query.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            query.run();
+        }
+        double averageMicros = (System.nanoTime() - start) / 1_000.0 / iterations;
+        System.out.printf("[benchmark] %-30s %12.1f us/op over %,d users%n", label, averageMicros, USERS);
+    }
+}
@@ -0,0 +1,19 @@
+package com.paymybuddy.benchmarks;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Load harness with spring.threads.virtual.enabled=true.
+ * Run with: mvn -Pbenchmarks test -Dtest=VirtualThreadsLoadBenchmarkTest
+ */
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:virtualloadbench;MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.threads.virtual.enabled=true"
+})
+public class VirtualThreadsLoadBenchmarkTest extends AbstractHttpLoadBenchmark {
+
+    @Override
+    protected String mode() {
+        return "virtual";
+    }
+}
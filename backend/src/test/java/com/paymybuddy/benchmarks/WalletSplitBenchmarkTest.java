@@ -0,0 +1,188 @@
+package com.paymybuddy.benchmarks;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.paymybuddy.models.dtos.CreateTransactionRequestDTO;
+import com.paymybuddy.repository.IdSequenceRepository;
+import com.paymybuddy.repository.WalletRepository;
+import com.paymybuddy.services.interfaces.TransactionService;
+import com.paymybuddy.services.interfaces.UserService;
+
+/**
+ * Mixed workload on a few hot accounts: transfers between them while their
+ * owners edit their profiles. Profile edits are timed with the balance in its
+ * own wallet row (as shipped) and with the edit also locking the wallet row,
+ * which is what a profile UPDATE did when the balance lived on the users row.
+ * Run with: mvn -Pbenchmarks test -Dtest=WalletSplitBenchmarkTest
+ */
+@Tag("benchmark")
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:walletsplitbench;MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.datasource.hikari.maximum-pool-size=64",
+        "spring.jpa.show-sql=false",
+        "logging.level.com.paymybuddy=ERROR"
+})
+public class WalletSplitBenchmarkTest {
+
+    private static final int HOT_USERS = Integer.getInteger("bench.wallet.hot-users", 8);
+    private static final int TRANSFER_CLIENTS = Integer.getInteger("bench.wallet.transfer-clients", 32);
+    private static final int PROFILE_CLIENTS = Integer.getInteger("bench.wallet.profile-clients", 8);
+    private static final long DURATION_MILLIS = Long.getLong("bench.wallet.duration-ms", 5_000L);
+    private static final long INITIAL_BALANCE = 1_000_000_000L;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private IdSequenceRepository idSequenceRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private UserService userService;
+
+    @BeforeAll
+    void seed() {
+        List<Object[]> users = new ArrayList<>();
+        for (int id = 1; id <= HOT_USERS; id++) {
+            String email = "wallet" + id + "@bench.example.com";
+            users.add(new Object[] { id, "wallet" + id, email, email, "hash" });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (id, username, email, email_lower, password) "
+                + "VALUES (?, ?, ?, ?, ?)", users);
+        jdbcTemplate.update("INSERT INTO wallets (user_id, balance_in_cents, version) SELECT id, ?, 0 FROM users",
+                INITIAL_BALANCE);
+        idSequenceRepository.advanceTo("users", HOT_USERS + 1L);
+    }
+
+    @Test
+    void benchmarkProfileEditsUnderTransferLoad() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Profile split = userId -> userService.updateUser(userId, "edited" + userId, null, null);
+        // The old layout: the profile UPDATE row-locked the row every transfer writes
+        Profile sharedRow = userId -> transactionTemplate.executeWithoutResult(status -> {
+            walletRepository.lockAllById(List.of(userId));
+            userService.updateUser(userId, "edited" + userId, null, null);
+        });
+
+        // Warm up both paths
+        run(split, 1_000);
+        run(sharedRow, 1_000);
+
+        for (String layout : List.of("split", "shared-row")) {
+            Result result = run(layout.equals("split") ? split : sharedRow, DURATION_MILLIS);
+            System.out.printf("[benchmark] layout %-10s profile edits %8.1f/s  p50 %7.3f ms  p99 %8.3f ms  "
+                    + "transfers %9.1f/s%n", layout, result.editsPerSecond(), result.editP50Millis(),
+                    result.editP99Millis(), result.transfersPerSecond());
+            assertTrue(result.editsPerSecond() > 0);
+        }
+
+        // Transfers between the hot users only move money around
+        assertEquals(HOT_USERS * INITIAL_BALANCE,
+                jdbcTemplate.queryForObject("SELECT SUM(balance_in_cents) FROM wallets", Long.class));
+    }
+
+    private Result run(Profile profile, long durationMillis) throws Exception {
+        AtomicBoolean stop = new AtomicBoolean();
+        List<Future<Integer>> transfers = new ArrayList<>();
+        List<Future<List<Long>>> edits = new ArrayList<>();
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newFixedThreadPool(TRANSFER_CLIENTS + PROFILE_CLIENTS)) {
+            for (int i = 0; i < TRANSFER_CLIENTS; i++) {
+                SplittableRandom random = new SplittableRandom(i);
+                transfers.add(executor.submit(() -> transfer(random, stop)));
+            }
+            for (int i = 0; i < PROFILE_CLIENTS; i++) {
+                SplittableRandom random = new SplittableRandom(1_000 + i);
+                edits.add(executor.submit(() -> edit(profile, random, stop)));
+            }
+            Thread.sleep(durationMillis);
+            stop.set(true);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        int transferCount = 0;
+        for (Future<Integer> future : transfers) {
+            transferCount += future.get();
+        }
+        List<Long> latencies = new ArrayList<>();
+        for (Future<List<Long>> future : edits) {
+            latencies.addAll(future.get());
+        }
+        Collections.sort(latencies);
+        return new Result(latencies.size() / seconds, percentile(latencies, 0.50), percentile(latencies, 0.99),
+                transferCount / seconds);
+    }
+
+    private int transfer(SplittableRandom random, AtomicBoolean stop) {
+        int done = 0;
+        while (!stop.get()) {
+            int senderId = 1 + random.nextInt(HOT_USERS);
+            CreateTransactionRequestDTO request = new CreateTransactionRequestDTO();
+            request.setReceiverId(1 + (senderId + random.nextInt(HOT_USERS - 1)) % HOT_USERS);
+            request.setAmountInCents(1L + random.nextInt(100));
+            request.setDescription("wallet");
+            if (transactionService.createTransaction(senderId, request) != null) {
+                done++;
+            }
+        }
+        return done;
+    }
+
+    private List<Long> edit(Profile profile, SplittableRandom random, AtomicBoolean stop) {
+        List<Long> latencies = new ArrayList<>();
+        while (!stop.get()) {
+            long begin = System.nanoTime();
+            profile.edit(1 + random.nextInt(HOT_USERS));
+            latencies.add(System.nanoTime() - begin);
+        }
+        return latencies;
+    }
+
+    private static double percentile(List<Long> sorted, double quantile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = Math.min(sorted.size() - 1, (int) Math.ceil(sorted.size() * quantile) - 1);
+        return sorted.get(Math.max(0, index)) / 1_000_000.0;
+    }
+
+    @FunctionalInterface
+    private interface Profile {
+        void edit(Integer userId);
+    }
+
+    private record Result(double editsPerSecond, double editP50Millis, double editP99Millis,
+            double transfersPerSecond) {
+    }
+}
@@ -0,0 +1,138 @@
+package com.paymybuddy.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.paymybuddy.exceptions.ServiceOverloadedException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class BoundedPasswordEncoderTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private CountDownLatch release;
+    private ExecutorService callers;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        release = new CountDownLatch(1);
+        callers = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        callers.shutdownNow();
+    }
+
+    @Test
+    void testEncodeAndMatches_DelegatedAndTimed() {
+        try (BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(new ReversingEncoder(null), 2, 4, 1000, 1,
+                meterRegistry)) {
+            assertEquals("terces", encoder.encode("secret"));
+            assertTrue(encoder.matches("secret", "terces"));
+        }
+
+        assertEquals(1, meterRegistry.get("paymybuddy.password.hash").tag("operation", "encode").timer().count());
+        assertEquals(1, meterRegistry.get("paymybuddy.password.hash").tag("operation", "matches").timer().count());
+    }
+
+    @Test
+    void testEncode_RejectedWhenQueueIsFull() throws Exception {
+        try (BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(new ReversingEncoder(release), 1, 1, 5000, 3,
+                meterRegistry)) {
+            // One task running, one queued
+            callers.submit(() -> encoder.encode("running"));
+            waitUntil(() -> meterRegistry.get("paymybuddy.password.active").gauge().value() == 1);
+            callers.submit(() -> encoder.encode("queued"));
+            waitUntil(() -> meterRegistry.get("paymybuddy.password.queue.depth").gauge().value() == 1);
+
+            ServiceOverloadedException exception = assertThrows(ServiceOverloadedException.class,
+                    () -> encoder.encode("rejected"));
+
+            assertEquals(3, exception.getRetryAfterSeconds());
+            assertEquals(1, meterRegistry.get("paymybuddy.password.rejected").counter().count());
+        }
+    }
+
+    @Test
+    void testMatches_RejectedAfterMaxWait() throws Exception {
+        try (BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(new ReversingEncoder(release), 1, 4, 50, 1,
+                meterRegistry)) {
+            callers.submit(() -> encoder.encode("running"));
+            waitUntil(() -> meterRegistry.get("paymybuddy.password.active").gauge().value() == 1);
+
+            assertThrows(ServiceOverloadedException.class, () -> encoder.matches("waiting", "gnitiaw"));
+            assertEquals(1, meterRegistry.get("paymybuddy.password.rejected").counter().count());
+            // The stale task is dropped rather than hashed later for nobody
+            assertEquals(0, meterRegistry.get("paymybuddy.password.queue.depth").gauge().value());
+        }
+    }
+
+    @Test
+    void testEncode_StartedHashOutlivesMaxWait() throws Exception {
+        try (BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(new ReversingEncoder(release), 1, 4, 50, 1,
+                meterRegistry)) {
+            Future<String> running = callers.submit(() -> encoder.encode("running"));
+            waitUntil(() -> meterRegistry.get("paymybuddy.password.active").gauge().value() == 1);
+            Thread.sleep(150);
+            release.countDown();
+
+            assertEquals("gninnur", running.get(5, TimeUnit.SECONDS));
+            assertEquals(0, meterRegistry.get("paymybuddy.password.rejected").counter().count());
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not reached in time");
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Cheap stand-in for BCrypt that can be held until a latch is released
+     */
+    private static class ReversingEncoder implements PasswordEncoder {
+        private final CountDownLatch release;
+
+        ReversingEncoder(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            awaitRelease();
+            return new StringBuilder(rawPassword).reverse().toString();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            awaitRelease();
+            return new StringBuilder(rawPassword).reverse().toString().equals(encodedPassword);
+        }
+
+        private void awaitRelease() {
+            if (release != null) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
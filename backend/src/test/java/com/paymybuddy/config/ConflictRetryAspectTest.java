@@ -0,0 +1,148 @@
+package com.paymybuddy.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.sql.SQLTimeoutException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import com.paymybuddy.logging.LoggingService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ConflictRetryAspectTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ConflictRetryAspect aspect;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        aspect = new ConflictRetryAspect(mock(LoggingService.class), meterRegistry, 3, 1, 4, 0.5);
+    }
+
+    @Test
+    void testRetry_LockConflictRunsAgain() {
+        FlakyTransfer transfer = proxy(new FlakyTransfer(2, new CannotAcquireLockException("busy")));
+
+        assertEquals("done", transfer.run());
+        assertEquals(3, transfer.calls());
+        assertEquals(2, meterRegistry.get("paymybuddy.transfers.retries").tag("operation", "run").counter().count());
+    }
+
+    @Test
+    void testRetry_GivesUpAfterMaxAttempts() {
+        FlakyTransfer transfer = proxy(new FlakyTransfer(10, new CannotAcquireLockException("busy")));
+
+        assertThrows(CannotAcquireLockException.class, transfer::run);
+        assertEquals(3, transfer.calls());
+        assertEquals(1, meterRegistry.get("paymybuddy.transfers.retry.exhausted").counter().count());
+    }
+
+    @Test
+    void testRetry_StaleVersionRunsAgain() {
+        FlakyTransfer transfer = proxy(new FlakyTransfer(1,
+                new ObjectOptimisticLockingFailureException(Object.class, 1)));
+
+        assertEquals("done", transfer.run());
+        assertEquals(2, transfer.calls());
+        assertEquals(1, meterRegistry.get("paymybuddy.transfers.retries").tag("conflict", "optimistic").counter()
+                .count());
+    }
+
+    @Test
+    void testRetry_LockWaitReportedAsStatementTimeoutRunsAgain() {
+        QueryTimeoutException lockTimeout = new QueryTimeoutException("CREDIT_WALLET",
+                new SQLTimeoutException("Timeout trying to lock table", "HYT00", 50200));
+        FlakyTransfer transfer = proxy(new FlakyTransfer(1, lockTimeout));
+
+        assertEquals("done", transfer.run());
+        assertEquals(1, meterRegistry.get("paymybuddy.transfers.retries").tag("conflict", "pessimistic").counter()
+                .count());
+    }
+
+    @Test
+    void testRetry_SlowStatementIsNotRetried() {
+        FlakyTransfer transfer = proxy(new FlakyTransfer(1, new QueryTimeoutException("slow",
+                new SQLTimeoutException("Statement was canceled", "57014", 57014))));
+
+        assertThrows(QueryTimeoutException.class, transfer::run);
+        assertEquals(1, transfer.calls());
+    }
+
+    @Test
+    void testRetry_AnnotationOverridesAttempts() {
+        FlakyTransfer transfer = proxy(new FlakyTransfer(10, new CannotAcquireLockException("busy")));
+
+        assertThrows(CannotAcquireLockException.class, transfer::runOnce);
+        assertEquals(1, transfer.calls());
+    }
+
+    @Test
+    void testRetry_OtherFailuresAreNotRetried() {
+        FlakyTransfer transfer = proxy(new FlakyTransfer(1, new DataIntegrityViolationException("duplicate")));
+
+        assertThrows(DataIntegrityViolationException.class, transfer::run);
+        assertEquals(1, transfer.calls());
+    }
+
+    @Test
+    void testBackoff_StaysWithinTheDoublingCeiling() {
+        for (int i = 0; i < 100; i++) {
+            long first = aspect.backoffMillis(1, 1, 4);
+            long third = aspect.backoffMillis(3, 1, 4);
+            long capped = aspect.backoffMillis(10, 1, 4);
+            assertEquals(1, first);
+            assertTrue(third >= 2 && third <= 4, "third " + third);
+            assertTrue(capped >= 2 && capped <= 4, "capped " + capped);
+        }
+    }
+
+    private FlakyTransfer proxy(FlakyTransfer target) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(aspect);
+        return factory.getProxy();
+    }
+
+    static class FlakyTransfer {
+
+        private final int failures;
+        private final RuntimeException failure;
+        private int calls;
+
+        FlakyTransfer() {
+            this(0, null);
+        }
+
+        FlakyTransfer(int failures, RuntimeException failure) {
+            this.failures = failures;
+            this.failure = failure;
+        }
+
+        @RetryOnConflict
+        public String run() {
+            calls++;
+            if (calls <= failures) {
+                throw failure;
+            }
+            return "done";
+        }
+
+        @RetryOnConflict(maxAttempts = 1)
+        public String runOnce() {
+            return run();
+        }
+
+        public int calls() {
+            return calls;
+        }
+    }
+}
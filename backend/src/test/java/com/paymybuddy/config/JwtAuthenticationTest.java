@@ -0,0 +1,107 @@
+package com.paymybuddy.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.paymybuddy.services.JwtService;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for the stateless (app.security.mode=jwt) security configuration
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:jwtdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "app.security.mode=jwt",
+        "app.security.jwt.secret=jwt-authentication-test-secret-0123456789"
+})
+public class JwtAuthenticationTest {
+
+    private static final String CREDENTIALS = "{\"email\":\"jwt.user@example.com\",\"password\":\"password123\"}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void registerUser() throws Exception {
+        // Registration is rejected with 400 once the user exists, which is fine here
+        mockMvc.perform(post("/register")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"jwtUser\",\"email\":\"jwt.user@example.com\",\"password\":\"password123\"}"));
+    }
+
+    @Test
+    public void testLoginReturnsTokensWithoutSession() throws Exception {
+        MvcResult result = login();
+
+        assertThat(result.getResponse().getHeader(HttpHeaders.AUTHORIZATION)).startsWith("Bearer ");
+        assertThat(result.getResponse().getHeader(JwtService.REFRESH_TOKEN_HEADER)).isNotBlank();
+        assertThat(result.getRequest().getSession(false)).isNull();
+    }
+
+    @Test
+    public void testBearerTokenAuthenticatesRequest() throws Exception {
+        String accessToken = login().getResponse().getHeader(HttpHeaders.AUTHORIZATION);
+
+        MvcResult result = mockMvc.perform(get("/user").header(HttpHeaders.AUTHORIZATION, accessToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.email").value("jwt.user@example.com"))
+                .andReturn();
+
+        assertThat(result.getRequest().getSession(false)).isNull();
+    }
+
+    @Test
+    public void testMissingOrInvalidTokenReturns401() throws Exception {
+        mockMvc.perform(get("/user"))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/user").header(HttpHeaders.AUTHORIZATION, "Bearer not-a-token"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    public void testRefreshRotatesRefreshToken() throws Exception {
+        String refreshToken = login().getResponse().getHeader(JwtService.REFRESH_TOKEN_HEADER);
+
+        MvcResult refreshed = mockMvc.perform(post("/token/refresh")
+                .header(JwtService.REFRESH_TOKEN_HEADER, refreshToken))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertThat(refreshed.getResponse().getHeader(HttpHeaders.AUTHORIZATION)).startsWith("Bearer ");
+        mockMvc.perform(post("/token/refresh")
+                .header(JwtService.REFRESH_TOKEN_HEADER, refreshToken))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    public void testLogoutRevokesAccessToken() throws Exception {
+        String accessToken = login().getResponse().getHeader(HttpHeaders.AUTHORIZATION);
+
+        mockMvc.perform(post("/log-out").header(HttpHeaders.AUTHORIZATION, accessToken))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/user").header(HttpHeaders.AUTHORIZATION, accessToken))
+                .andExpect(status().isUnauthorized());
+    }
+
+    private MvcResult login() throws Exception {
+        return mockMvc.perform(post("/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(CREDENTIALS))
+                .andExpect(status().isOk())
+                .andReturn();
+    }
+}
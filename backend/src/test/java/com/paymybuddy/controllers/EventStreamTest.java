@@ -0,0 +1,97 @@
+package com.paymybuddy.controllers;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.paymybuddy.models.User;
+import com.paymybuddy.models.Wallet;
+import com.paymybuddy.models.dtos.CreateTransactionRequestDTO;
+import com.paymybuddy.repository.UserRepository;
+import com.paymybuddy.repository.WalletRepository;
+import com.paymybuddy.services.interfaces.TransactionService;
+import com.paymybuddy.services.interfaces.UserService;
+
+/**
+ * Opens GET /events for a user and checks that committed top-ups and
+ * transfers reach the stream.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+public class EventStreamTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Test
+    void testStream_ReceivesBalanceAndIncomingTransfers() throws Exception {
+        User sender = newUser("events-sender", 10_000L);
+        User receiver = newUser("events-receiver", 5_000L);
+
+        MvcResult stream = mockMvc.perform(get("/events").with(user(receiver.getEmail())))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MockHttpServletResponse response = stream.getResponse();
+        await(response, "\"balanceInCents\":5000");
+
+        userService.addMoney(receiver.getId(), 1_000L);
+        await(response, "\"balanceInCents\":6000");
+
+        CreateTransactionRequestDTO request = new CreateTransactionRequestDTO();
+        request.setReceiverId(receiver.getId());
+        request.setAmountInCents(2_500L);
+        request.setDescription("Diner");
+        assertNotNull(transactionService.createTransaction(sender.getId(), request));
+
+        await(response, "event:transaction-received");
+        await(response, "\"balanceInCents\":8500");
+        assertTrue(response.getContentAsString().contains("\"senderId\":" + sender.getId()));
+    }
+
+    @Test
+    void testStream_UnknownPrincipalIsUnauthorized() throws Exception {
+        mockMvc.perform(get("/events").with(user("nobody@example.com")))
+                .andExpect(status().isUnauthorized());
+    }
+
+    private User newUser(String name, long balance) {
+        User user = new User();
+        user.setUsername(name);
+        user.setEmail(name + "." + System.nanoTime() + "@example.com");
+        user.setPassword("password123");
+        userRepository.save(user);
+        walletRepository.save(new Wallet(user.getId(), balance));
+        return user;
+    }
+
+    private static void await(MockHttpServletResponse response, String expected) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!response.getContentAsString().contains(expected)) {
+            assertTrue(System.nanoTime() < deadline, "no " + expected + " in " + response.getContentAsString());
+            Thread.sleep(10);
+        }
+    }
+}
@@ -6,9 +6,12 @@ import static org.springframework.security.test.web.servlet.request.SecurityMock
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -16,16 +19,25 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.paymybuddy.logging.LoggingService;
 import com.paymybuddy.models.Transaction;
 import com.paymybuddy.models.User;
+import com.paymybuddy.models.dtos.BatchTransactionItemResultDTO;
+import com.paymybuddy.models.dtos.BatchTransactionRequestDTO;
+import com.paymybuddy.models.dtos.BatchTransactionResultDTO;
 import com.paymybuddy.models.dtos.CreateTransactionRequestDTO;
 import com.paymybuddy.models.dtos.PublicTransactionDTO;
 import com.paymybuddy.models.dtos.PublicUserDTO;
+import com.paymybuddy.models.dtos.TransactionPageDTO;
+import com.paymybuddy.services.GroupCommitTransferWriter;
+import com.paymybuddy.services.IdempotencyService;
+import com.paymybuddy.services.interfaces.TransactionExportService;
 import com.paymybuddy.services.interfaces.TransactionService;
 import com.paymybuddy.services.interfaces.UserService;
 
@@ -41,9 +53,18 @@ public class TransactionControllerTest {
     @MockitoBean
     private TransactionService transactionService;
 
+    @MockitoBean
+    private TransactionExportService transactionExportService;
+
     @MockitoBean
     private UserService userService;
 
+    @MockitoBean
+    private IdempotencyService idempotencyService;
+
+    @MockitoBean
+    private GroupCommitTransferWriter groupCommitTransferWriter;
+
     @MockitoBean
     private LoggingService loggingService;
 
@@ -57,13 +78,11 @@ public class TransactionControllerTest {
         sender.setId(1);
         sender.setUsername("sender");
         sender.setEmail("sender@example.com");
-        sender.setBalanceInCents(10000L);
 
         receiver = new User();
         receiver.setId(2);
         receiver.setUsername("receiver");
         receiver.setEmail("receiver@example.com");
-        receiver.setBalanceInCents(5000L);
 
         transaction = new Transaction();
         transaction.setId(1);
@@ -81,8 +100,8 @@ public class TransactionControllerTest {
         request.setAmountInCents(1000L);
         request.setDescription("Test transaction");
 
-        when(userService.findByEmail("sender@example.com")).thenReturn(Optional.of(sender));
-        when(transactionService.createTransaction(any(User.class), any(CreateTransactionRequestDTO.class)))
+        when(userService.resolveUserId(any())).thenReturn(Optional.of(sender.getId()));
+        when(transactionService.createTransaction(eq(1), any(CreateTransactionRequestDTO.class)))
                 .thenReturn(transaction);
 
         mockMvc.perform(post("/transaction")
@@ -93,6 +112,8 @@ public class TransactionControllerTest {
                 .andExpect(jsonPath("$.id").value(1))
                 .andExpect(jsonPath("$.amountInCents").value(1000))
                 .andExpect(jsonPath("$.description").value("Test transaction"));
+        // The sender is loaded by the transfer itself
+        verify(userService, never()).findById(any());
     }
 
     @Test
@@ -103,7 +124,7 @@ public class TransactionControllerTest {
         request.setAmountInCents(1000L);
         request.setDescription("Test transaction");
 
-        when(userService.findByEmail("sender@example.com")).thenReturn(Optional.empty());
+        when(userService.resolveUserId(any())).thenReturn(Optional.empty());
 
         mockMvc.perform(post("/transaction")
                 .with(csrf())
@@ -112,6 +133,116 @@ public class TransactionControllerTest {
                 .andExpect(status().isUnauthorized());
     }
 
+    @Test
+    @WithMockUser(username = "sender@example.com")
+    @SuppressWarnings("unchecked")
+    void testCreateTransaction_WithIdempotencyKey() throws Exception {
+        CreateTransactionRequestDTO request = new CreateTransactionRequestDTO();
+        request.setReceiverId(2);
+        request.setAmountInCents(1000L);
+        request.setDescription("Test transaction");
+
+        when(userService.resolveUserId(any())).thenReturn(Optional.of(sender.getId()));
+        when(transactionService.createTransaction(eq(1), any(CreateTransactionRequestDTO.class)))
+                .thenReturn(transaction);
+        when(idempotencyService.execute(eq(1), eq("retry-1"), any(CreateTransactionRequestDTO.class),
+                eq(PublicTransactionDTO.class), any()))
+                .thenAnswer(invocation -> ((Supplier<ResponseEntity<PublicTransactionDTO>>) invocation.getArgument(4))
+                        .get());
+
+        mockMvc.perform(post("/transaction")
+                .with(csrf())
+                .header(IdempotencyService.HEADER, "retry-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1));
+        verify(idempotencyService).execute(eq(1), eq("retry-1"), any(CreateTransactionRequestDTO.class),
+                eq(PublicTransactionDTO.class), any());
+    }
+
+    @Test
+    @WithMockUser(username = "sender@example.com")
+    void testCreateTransaction_GroupCommit() throws Exception {
+        CreateTransactionRequestDTO request = new CreateTransactionRequestDTO();
+        request.setReceiverId(2);
+        request.setAmountInCents(1000L);
+        request.setDescription("Test transaction");
+
+        when(userService.resolveUserId(any())).thenReturn(Optional.of(sender.getId()));
+        when(groupCommitTransferWriter.isEnabled()).thenReturn(true);
+        when(groupCommitTransferWriter.submit(eq(1), any(CreateTransactionRequestDTO.class)))
+                .thenReturn(transaction);
+
+        mockMvc.perform(post("/transaction")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1));
+        verify(transactionService, never()).createTransaction(any(), any());
+    }
+
+    @Test
+    @WithMockUser(username = "sender@example.com")
+    void testCreateTransactions_ReportsPerItemOutcome() throws Exception {
+        BatchTransactionRequestDTO request = new BatchTransactionRequestDTO();
+        request.setItems(List.of(batchItem(2, 1000L), batchItem(3, 500L)));
+        request.setMode(BatchTransactionRequestDTO.Mode.BEST_EFFORT);
+
+        when(userService.resolveUserId(any())).thenReturn(Optional.of(sender.getId()));
+        when(transactionService.createTransactions(eq(1), anyList(), eq(BatchTransactionRequestDTO.Mode.BEST_EFFORT)))
+                .thenReturn(new BatchTransactionResultDTO(BatchTransactionRequestDTO.Mode.BEST_EFFORT, 1, 1, 1000L,
+                        List.of(new BatchTransactionItemResultDTO(0, BatchTransactionItemResultDTO.Status.CREATED, 10,
+                                2, 1000L, null),
+                                new BatchTransactionItemResultDTO(1, BatchTransactionItemResultDTO.Status.REJECTED,
+                                        null, 3, 500L, "Solde insuffisant"))));
+
+        mockMvc.perform(post("/transactions/batch")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.items[0].transactionId").value(10))
+                .andExpect(jsonPath("$.items[1].status").value("REJECTED"));
+        verify(userService, times(1)).resolveUserId(any());
+    }
+
+    @Test
+    @WithMockUser(username = "sender@example.com")
+    void testCreateTransactions_NothingCreated() throws Exception {
+        BatchTransactionRequestDTO request = new BatchTransactionRequestDTO();
+        request.setItems(List.of(batchItem(2, 1000L)));
+
+        when(userService.resolveUserId(any())).thenReturn(Optional.of(sender.getId()));
+        when(transactionService.createTransactions(eq(1), anyList(), eq(BatchTransactionRequestDTO.Mode.ALL_OR_NOTHING)))
+                .thenReturn(new BatchTransactionResultDTO(BatchTransactionRequestDTO.Mode.ALL_OR_NOTHING, 0, 1, 0L,
+                        List.of(new BatchTransactionItemResultDTO(0, BatchTransactionItemResultDTO.Status.REJECTED,
+                                null, 2, 1000L, "Solde insuffisant"))));
+
+        mockMvc.perform(post("/transactions/batch")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.items[0].message").value("Solde insuffisant"));
+    }
+
+    @Test
+    @WithMockUser(username = "sender@example.com")
+    void testCreateTransactions_EmptyBatch() throws Exception {
+        BatchTransactionRequestDTO request = new BatchTransactionRequestDTO();
+        request.setItems(List.of());
+
+        mockMvc.perform(post("/transactions/batch")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+        verify(transactionService, never()).createTransactions(any(), any(), any());
+    }
+
     @Test
     @WithMockUser(username = "sender@example.com")
     void testCreateTransaction_SelfTransaction() throws Exception {
@@ -120,7 +251,7 @@ public class TransactionControllerTest {
         request.setAmountInCents(1000L);
         request.setDescription("Test transaction");
 
-        when(userService.findByEmail("sender@example.com")).thenReturn(Optional.of(sender));
+        when(userService.resolveUserId(any())).thenReturn(Optional.of(sender.getId()));
 
         mockMvc.perform(post("/transaction")
                 .with(csrf())
@@ -144,25 +275,83 @@ public class TransactionControllerTest {
                 new PublicTransactionDTO(2, new PublicUserDTO(1, "sender", "sender@example.com"),
                         new PublicUserDTO(2, "receiver", "receiver@example.com"), "Test transaction", 2000L));
 
-        when(userService.findByEmail("sender@example.com")).thenReturn(Optional.of(sender));
-        when(transactionService.getUserTransactions(1)).thenReturn(transactions);
+        when(userService.resolveUserId(any())).thenReturn(Optional.of(sender.getId()));
+        when(transactionService.getUserTransactions(1, null, null))
+                .thenReturn(new TransactionPageDTO(transactions, null));
 
         mockMvc.perform(get("/transactions"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$[0].id").value(1))
-                .andExpect(jsonPath("$[0].amountInCents").value(1000))
-                .andExpect(jsonPath("$[1].id").value(2))
-                .andExpect(jsonPath("$[1].amountInCents").value(2000));
+                .andExpect(jsonPath("$.items[0].id").value(1))
+                .andExpect(jsonPath("$.items[0].amountInCents").value(1000))
+                .andExpect(jsonPath("$.items[1].id").value(2))
+                .andExpect(jsonPath("$.items[1].amountInCents").value(2000))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    @WithMockUser(username = "sender@example.com")
+    void testGetTransactions_WithCursor() throws Exception {
+        List<PublicTransactionDTO> transactions = Arrays.asList(
+                new PublicTransactionDTO(9, new PublicUserDTO(1, "sender", "sender@example.com"),
+                        new PublicUserDTO(2, "receiver", "receiver@example.com"), "Test transaction", 1000L));
+
+        when(userService.resolveUserId(any())).thenReturn(Optional.of(sender.getId()));
+        when(transactionService.getUserTransactions(1, 10, 1))
+                .thenReturn(new TransactionPageDTO(transactions, 9));
+
+        mockMvc.perform(get("/transactions").param("limit", "1").param("before", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(9))
+                .andExpect(jsonPath("$.nextCursor").value(9));
     }
 
     @Test
     @WithMockUser(username = "sender@example.com")
     void testGetTransactions_EmptyList() throws Exception {
-        when(userService.findByEmail("sender@example.com")).thenReturn(Optional.of(sender));
-        when(transactionService.getUserTransactions(1)).thenReturn(Arrays.asList());
+        when(userService.resolveUserId(any())).thenReturn(Optional.of(sender.getId()));
+        when(transactionService.getUserTransactions(1, null, null))
+                .thenReturn(new TransactionPageDTO(Arrays.asList(), null));
 
         mockMvc.perform(get("/transactions"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$").isEmpty());
+                .andExpect(jsonPath("$.items").isEmpty());
+    }
+
+    @Test
+    @WithMockUser(username = "sender@example.com")
+    void testExportTransactions_StreamsCsv() throws Exception {
+        when(userService.resolveUserId(any())).thenReturn(Optional.of(sender.getId()));
+        when(transactionExportService.exportUserTransactions(eq(1), eq(TransactionExportService.Format.CSV), any()))
+                .thenAnswer(invocation -> {
+                    OutputStream out = invocation.getArgument(2);
+                    out.write("id\n1\n".getBytes(StandardCharsets.UTF_8));
+                    return 1L;
+                });
+
+        MvcResult result = mockMvc.perform(get("/transactions/export").param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"transactions.csv\""))
+                .andExpect(content().string("id\n1\n"));
+    }
+
+    @Test
+    @WithMockUser(username = "sender@example.com")
+    void testExportTransactions_UnsupportedFormat() throws Exception {
+        mockMvc.perform(get("/transactions/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+
+        verify(transactionExportService, never()).exportUserTransactions(any(), any(), any());
+    }
+
+    private CreateTransactionRequestDTO batchItem(Integer receiverId, Long amountInCents) {
+        CreateTransactionRequestDTO request = new CreateTransactionRequestDTO();
+        request.setReceiverId(receiverId);
+        request.setAmountInCents(amountInCents);
+        request.setDescription("Payroll");
+        return request;
     }
 }
@@ -1,5 +1,6 @@
 package com.paymybuddy.controllers;
 
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -74,7 +75,7 @@ public class UserConnectionControllerTest {
         AddConnectionRequestDTO request = new AddConnectionRequestDTO();
         request.setConnectionEmail("connection@example.com");
 
-        when(userService.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
+        when(userService.resolveUserId(any())).thenReturn(Optional.of(testUser.getId()));
         when(userConnectionService.addConnection(1, "connection@example.com")).thenReturn(userConnection);
 
         mockMvc.perform(post("/add-connection")
@@ -93,7 +94,7 @@ public class UserConnectionControllerTest {
         AddConnectionRequestDTO request = new AddConnectionRequestDTO();
         request.setConnectionEmail("connection@example.com");
 
-        when(userService.findByEmail("test@example.com")).thenReturn(Optional.empty());
+        when(userService.resolveUserId(any())).thenReturn(Optional.empty());
 
         mockMvc.perform(post("/add-connection")
                 .with(csrf())
@@ -117,7 +118,7 @@ public class UserConnectionControllerTest {
 
         List<UserConnection> connections = Arrays.asList(userConnection, userConnection2);
 
-        when(userService.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
+        when(userService.resolveUserId(any())).thenReturn(Optional.of(testUser.getId()));
         when(userConnectionService.getConnections(1)).thenReturn(connections);
 
         mockMvc.perform(get("/connections"))
@@ -131,7 +132,7 @@ public class UserConnectionControllerTest {
     @Test
     @WithMockUser(username = "test@example.com")
     void testGetConnections_UserNotFound() throws Exception {
-        when(userService.findByEmail("test@example.com")).thenReturn(Optional.empty());
+        when(userService.resolveUserId(any())).thenReturn(Optional.empty());
 
         mockMvc.perform(get("/connections"))
                 .andExpect(status().isUnauthorized());
@@ -140,7 +141,7 @@ public class UserConnectionControllerTest {
     @Test
     @WithMockUser(username = "test@example.com")
     void testGetConnections_EmptyList() throws Exception {
-        when(userService.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
+        when(userService.resolveUserId(any())).thenReturn(Optional.of(testUser.getId()));
         when(userConnectionService.getConnections(1)).thenReturn(Arrays.asList());
 
         mockMvc.perform(get("/connections"))
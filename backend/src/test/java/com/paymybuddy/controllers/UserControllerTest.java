@@ -23,15 +23,21 @@ import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
 
+import com.paymybuddy.config.GlobalExceptionHandler;
+import com.paymybuddy.exceptions.InvalidAmountException;
 import com.paymybuddy.logging.LoggingService;
 import com.paymybuddy.models.User;
+import com.paymybuddy.models.WalletBalance;
 import com.paymybuddy.models.dtos.PublicUserDTO;
+import com.paymybuddy.models.dtos.UserCredentialsDTO;
 import com.paymybuddy.services.AuthenticationService;
+import com.paymybuddy.services.JwtService;
 import com.paymybuddy.services.interfaces.UserService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 @WebMvcTest(UserController.class)
-@ContextConfiguration(classes = { UserController.class, UserControllerTest.TestSecurityConfig.class })
+@ContextConfiguration(classes = { UserController.class, GlobalExceptionHandler.class,
+        UserControllerTest.TestSecurityConfig.class })
 public class UserControllerTest {
 
     @Autowired
@@ -46,6 +52,9 @@ public class UserControllerTest {
     @MockitoBean
     private AuthenticationService authenticationService;
 
+    @MockitoBean
+    private JwtService jwtService;
+
     @MockitoBean
     private LoggingService loggingService;
 
@@ -59,7 +68,6 @@ public class UserControllerTest {
         testUser.setUsername("testUser");
         testUser.setEmail("test@example.com");
         testUser.setPassword("password123");
-        testUser.setBalanceInCents(10000L);
 
         publicUserDTO = new PublicUserDTO(1, "testUser", "test@example.com");
     }
@@ -93,7 +101,8 @@ public class UserControllerTest {
     @Test
     @WithMockUser(username = "test@example.com")
     void testGetUser_Success() throws Exception {
-        when(userService.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
+        when(userService.resolveUserId(any())).thenReturn(Optional.of(testUser.getId()));
+        when(userService.findById(testUser.getId())).thenReturn(Optional.of(testUser));
 
         mockMvc.perform(get("/user"))
                 .andExpect(status().isOk())
@@ -105,7 +114,7 @@ public class UserControllerTest {
     @Test
     @WithMockUser(username = "test@example.com")
     void testGetUser_Unauthorized() throws Exception {
-        when(userService.findByEmail("test@example.com")).thenReturn(Optional.empty());
+        when(userService.resolveUserId(any())).thenReturn(Optional.empty());
 
         mockMvc.perform(get("/user"))
                 .andExpect(status().isUnauthorized());
@@ -114,17 +123,46 @@ public class UserControllerTest {
     @Test
     @WithMockUser(username = "test@example.com")
     void testGetBalance_Success() throws Exception {
-        when(userService.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
+        WalletBalance balance = new WalletBalance(10000L, 3L);
+        when(userService.resolveUserId(any())).thenReturn(Optional.of(testUser.getId()));
+        when(userService.findBalance(testUser.getId())).thenReturn(Optional.of(balance));
 
         mockMvc.perform(get("/user/balance"))
                 .andExpect(status().isOk())
+                .andExpect(header().string("ETag", balance.eTag()))
                 .andExpect(content().string("10000"));
+
+        // Only the wallet is read, never the profile
+        verify(userService, never()).findById(any());
+    }
+
+    @Test
+    @WithMockUser(username = "test@example.com")
+    void testGetBalance_UnchangedIsNotModified() throws Exception {
+        WalletBalance balance = new WalletBalance(10000L, 3L);
+        when(userService.resolveUserId(any())).thenReturn(Optional.of(testUser.getId()));
+        when(userService.findBalance(testUser.getId())).thenReturn(Optional.of(balance));
+
+        mockMvc.perform(get("/user/balance").header("If-None-Match", balance.eTag()))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    @WithMockUser(username = "test@example.com")
+    void testGetBalance_ChangedSinceTheTagIsSentAgain() throws Exception {
+        when(userService.resolveUserId(any())).thenReturn(Optional.of(testUser.getId()));
+        when(userService.findBalance(testUser.getId())).thenReturn(Optional.of(new WalletBalance(12000L, 4L)));
+
+        mockMvc.perform(get("/user/balance").header("If-None-Match", new WalletBalance(10000L, 3L).eTag()))
+                .andExpect(status().isOk())
+                .andExpect(content().string("12000"));
     }
 
     @Test
     @WithMockUser(username = "test@example.com")
     void testGetBalance_Unauthorized() throws Exception {
-        when(userService.findByEmail("test@example.com")).thenReturn(Optional.empty());
+        when(userService.resolveUserId(any())).thenReturn(Optional.empty());
 
         mockMvc.perform(get("/user/balance"))
                 .andExpect(status().isUnauthorized());
@@ -133,16 +171,32 @@ public class UserControllerTest {
     @Test
     @WithMockUser(username = "test@example.com")
     void testAddMoney_Success() throws Exception {
-        when(userService.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
-        doNothing().when(userService).addMoney(any(User.class), anyLong());
+        when(userService.resolveUserId(any())).thenReturn(Optional.of(testUser.getId()));
+        when(userService.addMoney(testUser.getId(), 5000L)).thenReturn(15000L);
 
         mockMvc.perform(post("/add-money")
                 .with(csrf())
                 .contentType(MediaType.APPLICATION_JSON)
                 .content("5000"))
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(content().string("15000"));
 
-        verify(userService, times(1)).addMoney(any(User.class), eq(5000L));
+        verify(userService, times(1)).addMoney(testUser.getId(), 5000L);
+        verify(userService, never()).findById(anyInt());
+    }
+
+    @Test
+    @WithMockUser(username = "test@example.com")
+    void testAddMoney_InvalidAmount() throws Exception {
+        when(userService.resolveUserId(any())).thenReturn(Optional.of(testUser.getId()));
+        when(userService.addMoney(testUser.getId(), -1L))
+                .thenThrow(new InvalidAmountException("Amount must be greater than 0"));
+
+        mockMvc.perform(post("/add-money")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("-1"))
+                .andExpect(status().isBadRequest());
     }
 
     @Test
@@ -154,6 +208,49 @@ public class UserControllerTest {
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON));
     }
 
+    @Test
+    void testLogin_JwtModeReturnsTokenHeaders() throws Exception {
+        when(jwtService.isEnabled()).thenReturn(true);
+        when(authenticationService.verifyCredentials(any(UserCredentialsDTO.class))).thenReturn(true);
+        when(userService.login(any(UserCredentialsDTO.class))).thenReturn(Optional.of(publicUserDTO));
+        when(jwtService.issueTokens(1, "test@example.com"))
+                .thenReturn(new JwtService.TokenPair("access-token", "refresh-token"));
+
+        mockMvc.perform(post("/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"email\":\"test@example.com\",\"password\":\"password123\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Authorization", "Bearer access-token"))
+                .andExpect(header().string(JwtService.REFRESH_TOKEN_HEADER, "refresh-token"))
+                .andExpect(jsonPath("$.id").value(1));
+
+        verify(authenticationService, never()).authenticate(any(), any());
+    }
+
+    @Test
+    void testRefreshToken_Success() throws Exception {
+        when(jwtService.isEnabled()).thenReturn(true);
+        when(jwtService.consumeRefreshToken("refresh-token")).thenReturn(Optional.of(1));
+        when(userService.findById(1)).thenReturn(Optional.of(testUser));
+        when(jwtService.issueTokens(1, "test@example.com"))
+                .thenReturn(new JwtService.TokenPair("new-access-token", "new-refresh-token"));
+
+        mockMvc.perform(post("/token/refresh")
+                .header(JwtService.REFRESH_TOKEN_HEADER, "refresh-token"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Authorization", "Bearer new-access-token"))
+                .andExpect(header().string(JwtService.REFRESH_TOKEN_HEADER, "new-refresh-token"));
+    }
+
+    @Test
+    void testRefreshToken_SessionModeNotFound() throws Exception {
+        when(jwtService.isEnabled()).thenReturn(false);
+
+        mockMvc.perform(post("/token/refresh")
+                .header(JwtService.REFRESH_TOKEN_HEADER, "refresh-token"))
+                .andExpect(status().isNotFound());
+    }
+
     @Configuration
     @EnableWebSecurity
     static class TestSecurityConfig {
@@ -161,7 +258,7 @@ public class UserControllerTest {
         public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
             http
                     .authorizeHttpRequests(auth -> auth
-                            .requestMatchers("/register", "/login").permitAll()
+                            .requestMatchers("/register", "/login", "/token/refresh").permitAll()
                             .anyRequest().authenticated())
                     .csrf(csrf -> csrf.disable());
             return http.build();
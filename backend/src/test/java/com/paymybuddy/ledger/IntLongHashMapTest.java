@@ -0,0 +1,29 @@
+package com.paymybuddy.ledger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class IntLongHashMapTest {
+
+    @Test
+    void testPut_GrowsAndKeepsValues() {
+        IntLongHashMap map = new IntLongHashMap(4);
+        for (int key = 1; key <= 10_000; key++) {
+            map.put(key, key * 10L);
+        }
+        map.addTo(42, 5L);
+        map.addTo(20_000, -7L);
+
+        assertEquals(10_001, map.size());
+        assertEquals(425L, map.get(42, -1L));
+        assertEquals(-7L, map.get(20_000, -1L));
+        assertEquals(-1L, map.get(30_000, -1L));
+        assertFalse(map.containsKey(30_000));
+    }
+
+    @Test
+    void testPut_RejectsReservedKey() {
+        assertThrows(IllegalArgumentException.class, () -> new IntLongHashMap(4).put(0, 1L));
+    }
+}
@@ -0,0 +1,216 @@
+package com.paymybuddy.ledger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.paymybuddy.exceptions.ServiceOverloadedException;
+import com.paymybuddy.logging.LoggingService;
+import com.paymybuddy.repository.IdSequenceRepository;
+import com.paymybuddy.repository.TopUpRepository;
+import com.paymybuddy.repository.TransactionRepository;
+import com.paymybuddy.repository.UserRepository;
+import com.paymybuddy.repository.WalletRepository;
+import com.paymybuddy.services.AccountEvents;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Kills a ledger engine under load, then checks that the database journal is
+ * consistent, that every acknowledged transfer survived and that a new engine
+ * rebuilds the same balances from it.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ledgerrecoverydb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.jpa.show-sql=false",
+        "logging.level.com.paymybuddy=WARN"
+})
+public class LedgerEngineRecoveryTest {
+
+    private static final int USERS = 20;
+    private static final long INITIAL_BALANCE = 100_000L;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private IdSequenceRepository idSequenceRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TopUpRepository topUpRepository;
+
+    @Autowired
+    private LoggingService loggingService;
+
+    @Autowired
+    private AccountEvents accountEvents;
+
+    @BeforeEach
+    void seed() {
+        jdbcTemplate.update("DELETE FROM transactions");
+        jdbcTemplate.update("DELETE FROM wallets");
+        jdbcTemplate.update("DELETE FROM users");
+        List<Object[]> users = new ArrayList<>();
+        List<Object[]> wallets = new ArrayList<>();
+        for (int id = 1; id <= USERS; id++) {
+            String email = "ledger" + id + "@example.com";
+            users.add(new Object[] { id, "ledger" + id, email, email, "hash" });
+            wallets.add(new Object[] { id, INITIAL_BALANCE });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (id, username, email, email_lower, password) "
+                + "VALUES (?, ?, ?, ?, ?)", users);
+        jdbcTemplate.batchUpdate("INSERT INTO wallets (user_id, balance_in_cents, version) VALUES (?, ?, 0)",
+                wallets);
+        idSequenceRepository.advanceTo("users", USERS + 1L);
+    }
+
+    @Test
+    void testCrash_AcknowledgedTransfersSurviveAndStateIsRebuilt() throws Exception {
+        LedgerEngine engine = engine();
+        ConcurrentLinkedQueue<CompletableFuture<LedgerTransfer>> submitted = new ConcurrentLinkedQueue<>();
+        AtomicBoolean stop = new AtomicBoolean();
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            SplittableRandom random = new SplittableRandom(i);
+            clients.submit(() -> {
+                while (!stop.get()) {
+                    int sender = 1 + random.nextInt(USERS);
+                    int receiver = 1 + (sender + random.nextInt(USERS - 1)) % USERS;
+                    try {
+                        submitted.add(engine.submit(LedgerTransfer.single(sender, receiver,
+                                1 + random.nextInt(5_000), "recovery")));
+                    } catch (ServiceOverloadedException e) {
+                        Thread.onSpinWait();
+                    } catch (IllegalStateException e) {
+                        return;
+                    }
+                }
+            });
+        }
+
+        // Crash while transfers are still flowing
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (acknowledged(submitted).size() < 500 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        engine.halt();
+        stop.set(true);
+        clients.shutdown();
+        assertTrue(clients.awaitTermination(5, TimeUnit.SECONDS));
+
+        List<LedgerTransfer> acknowledged = acknowledged(submitted);
+        assertTrue(acknowledged.size() >= 500, "only " + acknowledged.size() + " transfers acknowledged");
+
+        // The journal is self-consistent: no money created or lost, no overdraft, balances match the rows
+        assertEquals(USERS * INITIAL_BALANCE,
+                jdbcTemplate.queryForObject("SELECT SUM(balance_in_cents) FROM wallets", Long.class));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM wallets WHERE balance_in_cents < 0", Integer.class));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM wallets w WHERE w.balance_in_cents <> "
+                + INITIAL_BALANCE
+                + " + COALESCE((SELECT SUM(amount_in_cents) FROM transactions WHERE receiver_id = w.user_id), 0)"
+                + " - COALESCE((SELECT SUM(amount_in_cents) FROM transactions WHERE sender_id = w.user_id), 0)",
+                Integer.class));
+
+        // Every acknowledged transfer was written
+        Set<Integer> written = new HashSet<>(jdbcTemplate.queryForList("SELECT id FROM transactions",
+                Integer.class));
+        for (LedgerTransfer transfer : acknowledged) {
+            LedgerTransfer.Leg leg = transfer.getLegs().get(0);
+            if (leg.getStatus() == LedgerTransfer.Status.ACCEPTED) {
+                assertTrue(written.contains(leg.getTransaction().getId()));
+            }
+        }
+
+        // A new engine starts from the journal
+        try (LedgerEngine recovered = engine()) {
+            for (Map<String, Object> row : jdbcTemplate.queryForList(
+                    "SELECT user_id, balance_in_cents FROM wallets")) {
+                int userId = ((Number) row.get("user_id")).intValue();
+                assertEquals(((Number) row.get("balance_in_cents")).longValue(),
+                        recovered.balance(userId).get(5, TimeUnit.SECONDS));
+            }
+
+            long before = walletRepository.findBalanceById(2).orElseThrow();
+            LedgerTransfer transfer = recovered.submit(LedgerTransfer.single(1, 2, 1L, "after recovery"))
+                    .get(5, TimeUnit.SECONDS);
+            assertEquals(LedgerTransfer.Status.ACCEPTED, transfer.getLegs().get(0).getStatus());
+            assertEquals(before + 1, walletRepository.findBalanceById(2).orElseThrow());
+        }
+    }
+
+    @Test
+    void testSubmit_UnknownReceiverIsRefunded() throws Exception {
+        try (LedgerEngine engine = engine()) {
+            LedgerTransfer transfer = engine.submit(LedgerTransfer.single(1, 9_999, 500L, "nobody"))
+                    .get(5, TimeUnit.SECONDS);
+
+            assertEquals(LedgerTransfer.Status.REJECTED, transfer.getLegs().get(0).getStatus());
+            assertEquals(INITIAL_BALANCE, engine.balance(1).get(5, TimeUnit.SECONDS));
+            assertEquals(INITIAL_BALANCE, walletRepository.findBalanceById(1).orElseThrow());
+        }
+    }
+
+    @Test
+    void testSubmit_PartialTransferKeepsTheCoveredPrefix() throws Exception {
+        try (LedgerEngine engine = engine()) {
+            LedgerTransfer transfer = engine.submit(new LedgerTransfer(1, List.of(
+                    new LedgerTransfer.Leg(2, 60_000L, "first"),
+                    new LedgerTransfer.Leg(3, 30_000L, "second"),
+                    new LedgerTransfer.Leg(4, 20_000L, "third")), true)).get(5, TimeUnit.SECONDS);
+
+            assertEquals(90_000L, transfer.getDebitedInCents());
+            assertEquals(LedgerTransfer.Status.REJECTED, transfer.getLegs().get(2).getStatus());
+            assertEquals(INITIAL_BALANCE - 90_000L, walletRepository.findBalanceById(1).orElseThrow());
+            assertEquals(INITIAL_BALANCE + 30_000L, engine.balance(3).get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    private LedgerEngine engine() {
+        return new LedgerEngine(jdbcTemplate, transactionManager, userRepository, walletRepository,
+                transactionRepository, topUpRepository, loggingService, accountEvents, new SimpleMeterRegistry(), 4,
+                1024, 64, 1);
+    }
+
+    private static List<LedgerTransfer> acknowledged(ConcurrentLinkedQueue<CompletableFuture<LedgerTransfer>> all) {
+        List<LedgerTransfer> done = new ArrayList<>();
+        for (CompletableFuture<LedgerTransfer> future : all) {
+            if (future.isDone() && !future.isCompletedExceptionally()) {
+                done.add(future.join());
+            }
+        }
+        return done;
+    }
+}
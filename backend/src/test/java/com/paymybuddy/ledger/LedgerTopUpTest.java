@@ -0,0 +1,105 @@
+package com.paymybuddy.ledger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import com.paymybuddy.exceptions.UserNotFoundException;
+import com.paymybuddy.models.TopUp;
+import com.paymybuddy.models.User;
+import com.paymybuddy.models.Wallet;
+import com.paymybuddy.models.dtos.CreateTransactionRequestDTO;
+import com.paymybuddy.repository.UserRepository;
+import com.paymybuddy.repository.WalletRepository;
+import com.paymybuddy.services.interfaces.TransactionService;
+import com.paymybuddy.services.interfaces.UserService;
+
+/**
+ * Top-ups with app.transfers.engine=ledger: the money added must be spendable
+ * right away, which it only is if the engine's in-memory balance saw it.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ledgertopupdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "app.transfers.engine=ledger"
+})
+public class LedgerTopUpTest {
+
+    @Autowired
+    private LedgerEngine ledgerEngine;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Test
+    void testAddMoney_ThenSpend() throws Exception {
+        User payer = newUser("ledger-topup-payer", 0L);
+        User payee = newUser("ledger-topup-payee", 0L);
+        // Loaded into the engine before the top-up, as any earlier activity would
+        assertEquals(0L, ledgerEngine.balance(payer.getId()).get());
+
+        assertEquals(1_000L, userService.addMoney(payer.getId(), 1_000L));
+
+        assertEquals(1_000L, ledgerEngine.balance(payer.getId()).get());
+        assertNotNull(transactionService.createTransaction(payer.getId(), request(payee, 800L)));
+        assertNull(transactionService.createTransaction(payer.getId(), request(payee, 300L)));
+        assertEquals(200L, walletRepository.findBalanceById(payer.getId()).orElseThrow());
+        assertEquals(800L, walletRepository.findBalanceById(payee.getId()).orElseThrow());
+    }
+
+    @Test
+    void testAddMoneyBulk_ThenSpend() throws Exception {
+        User first = newUser("ledger-settlement-first", 100L);
+        User second = newUser("ledger-settlement-second", 0L);
+
+        List<TopUp> topUps = userService.addMoney(Map.of(first.getId(), 400L, second.getId(), 250L));
+
+        assertEquals(List.of(500L, 250L), topUps.stream().map(TopUp::getBalanceAfterInCents).toList());
+        assertEquals(250L, ledgerEngine.balance(second.getId()).get());
+        assertNotNull(transactionService.createTransaction(second.getId(), request(first, 250L)));
+        assertEquals(750L, walletRepository.findBalanceById(first.getId()).orElseThrow());
+    }
+
+    @Test
+    void testAddMoneyBulk_UnknownUserRejectsTheBatch() throws Exception {
+        User user = newUser("ledger-settlement-known", 0L);
+
+        assertThrows(UserNotFoundException.class,
+                () -> userService.addMoney(Map.of(user.getId(), 100L, 999_999, 100L)));
+        assertEquals(0L, ledgerEngine.balance(user.getId()).get());
+        assertEquals(0L, walletRepository.findBalanceById(user.getId()).orElseThrow());
+    }
+
+    private static CreateTransactionRequestDTO request(User receiver, long amountInCents) {
+        CreateTransactionRequestDTO request = new CreateTransactionRequestDTO();
+        request.setReceiverId(receiver.getId());
+        request.setAmountInCents(amountInCents);
+        request.setDescription("Top-up then spend");
+        return request;
+    }
+
+    private User newUser(String name, long balance) {
+        User user = new User();
+        user.setUsername(name);
+        user.setEmail(name + "." + System.nanoTime() + "@example.com");
+        user.setPassword("password123");
+        userRepository.save(user);
+        walletRepository.save(new Wallet(user.getId(), balance));
+        return user;
+    }
+}
@@ -0,0 +1,77 @@
+package com.paymybuddy.ledger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class MpscRingBufferTest {
+
+    @Test
+    void testOffer_FullBufferIsReported() {
+        MpscRingBuffer<Integer> ring = new MpscRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(i));
+        }
+
+        assertFalse(ring.offer(4));
+        assertEquals(0, ring.poll());
+        assertTrue(ring.offer(4));
+        assertEquals(4, ring.size());
+    }
+
+    @Test
+    void testConcurrentProducers_EveryElementOnceInProducerOrder() throws Exception {
+        int producers = 8;
+        int perProducer = 100_000;
+        MpscRingBuffer<long[]> ring = new MpscRingBuffer<>(1024);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            for (int p = 0; p < producers; p++) {
+                int producer = p;
+                executor.submit(() -> {
+                    start.await();
+                    for (long i = 0; i < perProducer; i++) {
+                        long[] element = { producer, i };
+                        while (!ring.offer(element)) {
+                            Thread.onSpinWait();
+                        }
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+
+            long[] next = new long[producers];
+            List<String> errors = new ArrayList<>();
+            long received = 0;
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (received < (long) producers * perProducer && System.nanoTime() < deadline) {
+                long[] element = ring.poll();
+                if (element == null) {
+                    ring.await(TimeUnit.MILLISECONDS.toNanos(1));
+                    continue;
+                }
+                int producer = (int) element[0];
+                if (element[1] != next[producer] && errors.size() < 10) {
+                    errors.add("producer " + producer + ": expected " + next[producer] + " got " + element[1]);
+                }
+                next[producer] = element[1] + 1;
+                received++;
+            }
+
+            assertEquals(List.of(), errors);
+            assertEquals((long) producers * perProducer, received);
+            assertNull(ring.poll());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
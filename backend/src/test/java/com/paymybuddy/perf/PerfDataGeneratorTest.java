@@ -0,0 +1,102 @@
+package com.paymybuddy.perf;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import com.paymybuddy.models.Transaction;
+import com.paymybuddy.repository.TransactionRepository;
+import com.paymybuddy.repository.UserRepository;
+
+/**
+ * Boots the perf profile with a small dataset and checks its shape.
+ */
+@SpringBootTest
+@ActiveProfiles("perf")
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:perfgendb;MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "perf.generator.users=500",
+        "perf.generator.transactions=20000",
+        "perf.generator.max-connections-per-user=20",
+        "perf.generator.threads=4",
+        "perf.generator.batch-size=300"
+})
+public class PerfDataGeneratorTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Test
+    void testUsersShareTheConfiguredPassword() {
+        assertEquals(500, count("SELECT COUNT(*) FROM users"));
+        assertEquals(1, count("SELECT COUNT(DISTINCT password) FROM users"));
+        String hash = jdbcTemplate.queryForObject("SELECT password FROM users WHERE email = ?", String.class,
+                PerfDataGenerator.email(42));
+        assertTrue(passwordEncoder.matches("perf-password", hash));
+    }
+
+    @Test
+    void testConnectionGraphIsSkewedTowardPopularUsers() {
+        long connections = count("SELECT COUNT(*) FROM user_connections");
+        assertTrue(connections >= 500, "every user has at least one connection");
+        assertEquals(0, count("SELECT COUNT(*) FROM user_connections WHERE user_id = connection_id"));
+
+        long topFollowers = count("SELECT COUNT(*) FROM user_connections WHERE connection_id = 1");
+        assertTrue(topFollowers > 10 * connections / 500, "user 1 is followed far more than the average user");
+    }
+
+    @Test
+    void testTransactionsAreSkewedTowardHotReceivers() {
+        assertEquals(20000, count("SELECT COUNT(*) FROM transactions WHERE description = 'perf transfer'"));
+        assertEquals(0, count("SELECT COUNT(*) FROM transactions WHERE sender_id = receiver_id"));
+
+        long hottest = count("SELECT COUNT(*) FROM transactions WHERE receiver_id = 1");
+        assertTrue(hottest > 20 * 20000 / 500, "user 1 receives far more than the average user");
+    }
+
+    @Test
+    void testGeneratedIdsContinueAfterLoadedRows() {
+        Transaction transaction = new Transaction();
+        transaction.setSender(userRepository.getReferenceById(1));
+        transaction.setReceiver(userRepository.getReferenceById(2));
+        transaction.setDescription("after load");
+        transaction.setAmountInCents(100L);
+
+        assertEquals(20001, transactionRepository.save(transaction).getId());
+    }
+
+    @Test
+    void testZipfDistributionFavoursLowRanks() {
+        ZipfDistribution zipf = new ZipfDistribution(1000, 1.1);
+        SplittableRandom random = new SplittableRandom(1);
+        int[] hits = new int[1001];
+        for (int i = 0; i < 100_000; i++) {
+            int rank = zipf.sample(random);
+            assertTrue(rank >= 1 && rank <= 1000);
+            hits[rank]++;
+        }
+
+        assertTrue(hits[1] > hits[2] && hits[2] > hits[10] && hits[10] > hits[1000]);
+    }
+
+    private long count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class);
+    }
+}
@@ -0,0 +1,76 @@
+package com.paymybuddy.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import com.paymybuddy.models.Transaction;
+import com.paymybuddy.models.User;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Checks with Hibernate statistics that table-generated ids let inserts go out
+ * in JDBC batches instead of one statement per row.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:batchinsertdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+        "spring.jpa.properties.paymybuddy.id.allocation_size=50"
+})
+public class TransactionBatchInsertTest {
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void testSaveAll_InsertsInBatchesWithContiguousIds() {
+        User sender = saveUser("batch-sender");
+        User receiver = saveUser("batch-receiver");
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            Transaction transaction = new Transaction();
+            transaction.setSender(sender);
+            transaction.setReceiver(receiver);
+            transaction.setAmountInCents(100L + i);
+            transaction.setDescription("batch " + i);
+            transactions.add(transaction);
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<Transaction> saved = transactionRepository.saveAll(transactions);
+
+        assertEquals(120, statistics.getEntityInsertCount());
+        // 3 batches of inserts plus a few id block reservations, far below one statement per row
+        assertTrue(statistics.getPrepareStatementCount() < 20,
+                "prepared " + statistics.getPrepareStatementCount() + " statements");
+        for (int i = 1; i < saved.size(); i++) {
+            assertEquals(saved.get(i - 1).getId() + 1, saved.get(i).getId());
+        }
+    }
+
+    private User saveUser(String name) {
+        User user = new User();
+        user.setUsername(name);
+        user.setEmail(name + "." + System.nanoTime() + "@example.com");
+        user.setPassword("password123");
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,55 @@
+package com.paymybuddy.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import com.paymybuddy.logging.LoggingService;
+import com.paymybuddy.services.HotAccounts;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Guards the history read path against plan regressions: each side of the
+ * history must be served by its composite index rather than a table scan.
+ */
+@DataJpaTest
+// The wallet repository routes hot account credits through HotAccounts
+@Import({ HotAccounts.class, LoggingService.class, SimpleMeterRegistry.class })
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:explaindb;MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.jpa.show-sql=false"
+})
+public class TransactionRepositoryExplainTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void testSentHistoryUsesSenderIdIndex() {
+        String plan = explain("SELECT t.id FROM transactions t WHERE t.sender_id = 1 AND t.id < 2147483647 "
+                + "ORDER BY t.id DESC LIMIT 21");
+
+        assertThat(plan.toUpperCase()).contains("IDX_TRANSACTIONS_SENDER_ID_ID");
+    }
+
+    @Test
+    void testReceivedHistoryUsesReceiverIdIndex() {
+        String plan = explain("SELECT t.id FROM transactions t WHERE t.receiver_id = 1 AND t.id < 2147483647 "
+                + "ORDER BY t.id DESC LIMIT 21");
+
+        assertThat(plan.toUpperCase()).contains("IDX_TRANSACTIONS_RECEIVER_ID_ID");
+    }
+
+    private String explain(String sql) {
+        return String.valueOf(entityManager.createNativeQuery("EXPLAIN " + sql).getSingleResult());
+    }
+}
@@ -0,0 +1,65 @@
+package com.paymybuddy.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import com.paymybuddy.logging.LoggingService;
+import com.paymybuddy.models.User;
+import com.paymybuddy.services.HotAccounts;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Guards the email lookup against plan regressions and checks that the
+ * normalized email column is kept in sync by the entity and by updateEmail.
+ */
+@DataJpaTest
+// The wallet repository routes hot account credits through HotAccounts
+@Import({ HotAccounts.class, LoggingService.class, SimpleMeterRegistry.class })
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:userexplaindb;MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.jpa.show-sql=false"
+})
+public class UserRepositoryExplainTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void testEmailLookupUsesEmailLowerIndex() {
+        String plan = String.valueOf(entityManager
+                .createNativeQuery("EXPLAIN SELECT u.id FROM users u WHERE u.email_lower = 'test@example.com'")
+                .getSingleResult());
+
+        assertThat(plan.toUpperCase()).contains("UK_USERS_EMAIL_LOWER");
+    }
+
+    @Test
+    void testEmailLowerMaintainedOnSaveAndUpdateEmail() {
+        User user = new User();
+        user.setUsername("mixedCase");
+        user.setEmail("Mixed.Case@Example.com");
+        user.setPassword("password123");
+        user = userRepository.saveAndFlush(user);
+
+        assertThat(userRepository.findIdByEmail("mixed.case@example.COM")).contains(user.getId());
+
+        userRepository.updateEmail(user.getId(), "New.Address@Example.com");
+        entityManager.clear();
+
+        assertThat(userRepository.findByEmail("new.address@example.com")).isPresent();
+        assertThat(userRepository.findIdByEmail("mixed.case@example.com")).isEmpty();
+    }
+}
@@ -0,0 +1,53 @@
+package com.paymybuddy.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.sql.Statement;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.paymybuddy.services.HotAccounts;
+
+@ExtendWith(MockitoExtension.class)
+public class WalletBatchRepositoryImplTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private HotAccounts hotAccounts;
+
+    private WalletBatchRepositoryImpl walletBatchRepository;
+
+    @BeforeEach
+    void setUp() {
+        walletBatchRepository = new WalletBatchRepositoryImpl(jdbcTemplate, hotAccounts, 2000);
+    }
+
+    @Test
+    void testApplyBalanceDeltas_CountsMissingWallets() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[] { 1, 0, 1 });
+
+        assertEquals(1, walletBatchRepository.applyBalanceDeltas(new TreeMap<>(Map.of(1, 10L, 2, -5L, 3, 7L))));
+        verify(jdbcTemplate, never()).queryForObject(anyString(), eq(Integer.class), any(Object[].class));
+    }
+
+    @Test
+    void testApplyBalanceDeltas_RereadsWalletsWhenTheDriverGivesNoCounts() {
+        int noInfo = Statement.SUCCESS_NO_INFO;
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[] { noInfo, noInfo, noInfo });
+        when(jdbcTemplate.queryForObject(startsWith("SELECT COUNT(*) FROM wallets"), eq(Integer.class), eq(1),
+                eq(2), eq(3))).thenReturn(2);
+
+        assertEquals(1, walletBatchRepository.applyBalanceDeltas(new TreeMap<>(Map.of(1, 10L, 2, -5L, 3, 7L))));
+    }
+}
@@ -0,0 +1,92 @@
+package com.paymybuddy.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.paymybuddy.models.User;
+import com.paymybuddy.models.Wallet;
+
+/**
+ * Row locks of the pessimistic transfer mode: taken in user id order and
+ * released at commit, with other transactions waiting at most wait-ms.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:wallet-locks;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "app.transfers.locks.wait-ms=200" })
+public class WalletLockTest {
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void testLockAllById_ReturnsTheWalletsInUserIdOrder() {
+        Integer first = newWallet("lock-a");
+        Integer second = newWallet("lock-b");
+
+        List<Wallet> locked = transactionTemplate.execute(status ->
+                walletRepository.lockAllById(new TreeSet<>(List.of(second, first))));
+
+        assertEquals(List.of(first, second), locked.stream().map(Wallet::getUserId).toList());
+    }
+
+    @Test
+    void testLockAllById_SecondLockerWaitsThenFails() throws Exception {
+        Integer userId = newWallet("lock-held");
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            Future<?> holder = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                walletRepository.lockAllById(List.of(userId));
+                held.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            assertTrue(held.await(10, TimeUnit.SECONDS));
+
+            try {
+                assertThrows(DataAccessException.class, () -> transactionTemplate.executeWithoutResult(status ->
+                        walletRepository.lockAllById(List.of(userId))));
+            } finally {
+                release.countDown();
+            }
+            holder.get(10, TimeUnit.SECONDS);
+        }
+
+        // Released at commit
+        assertEquals(1, transactionTemplate.execute(status -> walletRepository.lockAllById(List.of(userId))).size());
+    }
+
+    private Integer newWallet(String name) {
+        User user = new User();
+        user.setUsername(name);
+        user.setEmail(name + "." + System.nanoTime() + "@example.com");
+        user.setPassword("password123");
+        Integer userId = userRepository.save(user).getId();
+        walletRepository.save(new Wallet(userId, 1_000L));
+        return userId;
+    }
+}
@@ -0,0 +1,160 @@
+package com.paymybuddy.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.paymybuddy.models.User;
+import com.paymybuddy.models.Wallet;
+import com.paymybuddy.models.WalletBalance;
+import com.paymybuddy.services.HotAccounts;
+
+/**
+ * Credits to a hot account land in its slots, the balance read is the wallet
+ * plus the slots, and debits fold the slots back when the wallet runs short.
+ */
+@SpringBootTest
+public class WalletSlotsTest {
+
+    private static final int THREADS = 32;
+    private static final int CREDITS_PER_THREAD = 50;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private HotAccounts hotAccounts;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testConcurrentCredits_SpreadOverSlotsAndNoneLost() throws Exception {
+        Integer userId = newWallet("slots", 0L);
+        hotAccounts.promote(userId);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < CREDITS_PER_THREAD; i++) {
+                        assertEquals(1, walletRepository.creditBalance(userId, 10L));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        }
+
+        long expected = THREADS * CREDITS_PER_THREAD * 10L;
+        assertEquals(expected, walletRepository.findBalanceById(userId).orElseThrow());
+        assertEquals(expected, walletRepository.findBalances(List.of(userId)).get(userId));
+        assertEquals(0L, walletRepository.findById(userId).orElseThrow().getBalanceInCents());
+        assertTrue(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM wallet_slots WHERE user_id = ?",
+                Integer.class, userId) > 1, "credits went to a single slot");
+    }
+
+    @Test
+    void testDebitBalance_ConsolidatesSlotsWhenTheWalletRunsShort() {
+        Integer userId = newWallet("payout", 100L);
+        hotAccounts.promote(userId);
+        walletRepository.creditBalance(userId, 400L);
+
+        assertEquals(1, walletRepository.debitBalance(userId, 300L));
+
+        assertEquals(200L, walletRepository.findBalanceById(userId).orElseThrow());
+        assertEquals(200L, walletRepository.findById(userId).orElseThrow().getBalanceInCents());
+        assertEquals(0L, jdbcTemplate.queryForObject(
+                "SELECT SUM(balance_in_cents) FROM wallet_slots WHERE user_id = ?", Long.class, userId));
+    }
+
+    @Test
+    void testDebitBalance_SpendsSlotsOfAnAccountHotOnAnotherNode() {
+        // Credited in a slot by a node that promoted the account; this one does not know it is hot
+        Integer userId = newWallet("elsewhere", 100L);
+        jdbcTemplate.update("INSERT INTO wallet_slots (user_id, slot, balance_in_cents) VALUES (?, 0, 400)", userId);
+
+        assertEquals(1, walletRepository.debitBalance(userId, 300L));
+
+        assertEquals(200L, walletRepository.findBalanceById(userId).orElseThrow());
+        assertEquals(200L, walletRepository.findById(userId).orElseThrow().getBalanceInCents());
+    }
+
+    @Test
+    void testDebitBalance_FailsWhenWalletAndSlotsDoNotCover() {
+        Integer userId = newWallet("short", 100L);
+        hotAccounts.promote(userId);
+        walletRepository.creditBalance(userId, 50L);
+
+        assertEquals(0, walletRepository.debitBalance(userId, 500L));
+
+        assertEquals(150L, walletRepository.findBalanceById(userId).orElseThrow());
+    }
+
+    @Test
+    void testFindBalanceWithVersion_TagChangesWithSlotCredits() {
+        Integer userId = newWallet("etag", 100L);
+        hotAccounts.promote(userId);
+        WalletBalance before = walletRepository.findBalanceWithVersionById(userId).orElseThrow();
+
+        walletRepository.creditBalance(userId, 25L);
+        WalletBalance after = walletRepository.findBalanceWithVersionById(userId).orElseThrow();
+
+        // The wallet row is untouched by a slot credit, yet the tag must change
+        assertEquals(before.version(), after.version());
+        assertEquals(125L, after.balanceInCents());
+        assertNotEquals(before.eTag(), after.eTag());
+    }
+
+    @Test
+    void testCreditBalances_HotAndPlainAccountsInOneBatch() {
+        Integer hot = newWallet("batch-hot", 0L);
+        Integer plain = newWallet("batch-plain", 0L);
+        hotAccounts.promote(hot);
+        TreeMap<Integer, Long> credits = new TreeMap<>(Map.of(hot, 70L, plain, 30L, -1, 5L));
+
+        // The unknown user is the only miss
+        assertEquals(1, walletRepository.creditBalances(credits));
+
+        assertEquals(70L, walletRepository.findBalanceById(hot).orElseThrow());
+        assertEquals(0L, walletRepository.findById(hot).orElseThrow().getBalanceInCents());
+        assertEquals(30L, walletRepository.findById(plain).orElseThrow().getBalanceInCents());
+    }
+
+    @Test
+    void testCreditBalance_HotAccountWithoutWalletIsReported() {
+        hotAccounts.promote(-2);
+
+        assertEquals(0, walletRepository.creditBalance(-2, 10L));
+    }
+
+    private Integer newWallet(String name, long balance) {
+        User user = new User();
+        user.setUsername(name);
+        user.setEmail(name + "." + System.nanoTime() + "@example.com");
+        user.setPassword("password123");
+        userRepository.save(user);
+        walletRepository.save(new Wallet(user.getId(), balance));
+        return user.getId();
+    }
+}
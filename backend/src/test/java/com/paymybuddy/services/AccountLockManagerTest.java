@@ -0,0 +1,107 @@
+package com.paymybuddy.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class AccountLockManagerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private AccountLockManager lockManager;
+    private ExecutorService others;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        lockManager = new AccountLockManager(meterRegistry, new TransferConcurrency("pessimistic"), 64, 100);
+        others = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        others.shutdownNow();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testLock_OppositeOrdersDoNotDeadlock() throws Exception {
+        AccountLockManager slowLocks = new AccountLockManager(meterRegistry, new TransferConcurrency("pessimistic"),
+                64, 10_000);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Integer> forward = List.of(1, 2);
+        List<Integer> backward = List.of(2, 1);
+        Future<?> first = others.submit(() -> lockRepeatedly(slowLocks, forward, start));
+        Future<?> second = others.submit(() -> lockRepeatedly(slowLocks, backward, start));
+
+        start.countDown();
+        first.get(30, TimeUnit.SECONDS);
+        second.get(30, TimeUnit.SECONDS);
+        assertEquals(0, meterRegistry.get("paymybuddy.transfers.lock.timeouts").counter().count());
+    }
+
+    @Test
+    void testLock_BusyStripeTimesOutAndIsMetered() throws Exception {
+        int stripe = lockManager.stripeOf(42);
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> holder = others.submit(() -> {
+            int[] locked = lockManager.lock(List.of(42));
+            held.countDown();
+            release.await();
+            lockManager.unlock(locked);
+            return null;
+        });
+        assertTrue(held.await(5, TimeUnit.SECONDS));
+
+        assertThrows(CannotAcquireLockException.class, () -> lockManager.lock(List.of(7, 42)));
+
+        release.countDown();
+        holder.get(5, TimeUnit.SECONDS);
+        assertEquals(1, meterRegistry.get("paymybuddy.transfers.lock.timeouts").counter().count());
+        assertEquals(1, meterRegistry.get("paymybuddy.transfers.lock.contentions")
+                .tag("stripe", Integer.toString(stripe)).functionCounter().count());
+        // The stripe of user 7 was released when the second one timed out
+        assertDoesNotThrow(() -> others.submit(() -> lockManager.unlock(lockManager.lock(List.of(7, 42))))
+                .get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testLockUntilCompletion_ReleasedWhenTransactionCompletes() throws Exception {
+        assertThrows(IllegalStateException.class, () -> lockManager.lockUntilCompletion(List.of(1)));
+
+        TransactionSynchronizationManager.initSynchronization();
+        lockManager.lockUntilCompletion(List.of(1, 2));
+        assertThrows(Exception.class, () -> others.submit(() -> lockManager.lock(List.of(2))).get());
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+        assertDoesNotThrow(() -> others.submit(() -> lockManager.unlock(lockManager.lock(List.of(1, 2))))
+                .get(5, TimeUnit.SECONDS));
+    }
+
+    private static Void lockRepeatedly(AccountLockManager locks, List<Integer> userIds, CountDownLatch start)
+            throws InterruptedException {
+        start.await();
+        for (int i = 0; i < 10_000; i++) {
+            locks.unlock(locks.lock(userIds));
+        }
+        return null;
+    }
+}
@@ -15,6 +15,7 @@ import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 
+import com.paymybuddy.exceptions.ServiceOverloadedException;
 import com.paymybuddy.logging.LoggingService;
 import com.paymybuddy.models.dtos.UserCredentialsDTO;
 
@@ -103,6 +104,15 @@ public class AuthenticationServiceTest {
         verify(loggingService, times(1)).error(contains("Authentication failed"));
     }
 
+    @Test
+    void testAuthenticate_OverloadedIsNotAFailedLogin() {
+        when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
+                .thenThrow(new ServiceOverloadedException("Password hashing is saturated", 1));
+
+        assertThrows(ServiceOverloadedException.class, () -> authenticationService.authenticate(credentials, request));
+        verify(request, never()).getSession(anyBoolean());
+    }
+
     @Test
     void testAuthenticate_SessionCreated() {
         when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
@@ -0,0 +1,196 @@
+package com.paymybuddy.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.paymybuddy.logging.LoggingService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class EventHubTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private List<RecordingEmitter> emitters;
+    private CountDownLatch release;
+    private EventHub hub;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        emitters = new CopyOnWriteArrayList<>();
+        release = new CountDownLatch(0);
+        hub = hub(4, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        while (release.getCount() > 0) {
+            release.countDown();
+        }
+        hub.close();
+    }
+
+    @Test
+    void testPublish_ReachesEveryStreamOfTheUserOnly() throws Exception {
+        hub.subscribe(1);
+        hub.subscribe(1);
+        hub.subscribe(2);
+
+        hub.publish(1, EventHub.BALANCE_CHANGED, 100L);
+
+        await(() -> emitters.get(0).sent.size() == 1 && emitters.get(1).sent.size() == 1);
+        assertTrue(emitters.get(2).sent.isEmpty());
+        assertTrue(emitters.get(0).sent.get(0).contains("event:" + EventHub.BALANCE_CHANGED));
+    }
+
+    @Test
+    void testPublish_WithoutStreamsIsANoOp() {
+        hub.publish(7, EventHub.BALANCE_CHANGED, 100L);
+
+        assertFalse(hub.hasSubscribers(7));
+        assertEquals(0.0, meterRegistry.get("paymybuddy.events.published").counter().count());
+    }
+
+    @Test
+    void testSlowStream_IsEvictedWithoutBlockingThePublisher() throws Exception {
+        release = new CountDownLatch(1);
+        hub.subscribe(1);
+
+        // The first write blocks; the buffer of 4 then fills up and the next publish evicts the stream
+        long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            hub.publish(1, EventHub.BALANCE_CHANGED, (long) i);
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1), "publish waited for the client");
+
+        assertFalse(hub.hasSubscribers(1));
+        assertEquals(0, hub.streamCount());
+        assertEquals(1.0, meterRegistry.get("paymybuddy.events.evicted").counter().count());
+        release.countDown();
+        await(() -> emitters.get(0).completed);
+    }
+
+    @Test
+    void testFailedWrite_RemovesTheStream() throws Exception {
+        hub.subscribe(1);
+        emitters.get(0).failing = true;
+
+        hub.publish(1, EventHub.BALANCE_CHANGED, 100L);
+
+        await(() -> !hub.hasSubscribers(1));
+        assertEquals(0, hub.streamCount());
+    }
+
+    @Test
+    void testSubscribe_ClosesTheOldestStreamBeyondTheLimit() throws Exception {
+        hub.subscribe(1);
+        hub.subscribe(1);
+        hub.subscribe(1);
+
+        await(() -> emitters.get(0).completed);
+        assertEquals(2, hub.streamCount());
+        hub.publish(1, EventHub.BALANCE_CHANGED, 100L);
+        await(() -> emitters.get(1).sent.size() == 1 && emitters.get(2).sent.size() == 1);
+        assertTrue(emitters.get(0).sent.isEmpty());
+    }
+
+    @Test
+    void testSubscribe_SendsTheSnapshotToTheNewStreamOnly() throws Exception {
+        hub.subscribe(1);
+
+        hub.subscribe(1, EventHub.BALANCE_CHANGED, () -> 500L);
+
+        await(() -> emitters.get(1).sent.size() == 1);
+        assertTrue(emitters.get(1).sent.get(0).contains("500"));
+        assertTrue(emitters.get(0).sent.isEmpty());
+    }
+
+    @Test
+    void testSubscribe_TakesTheSnapshotOnceTheStreamIsOpen() throws Exception {
+        // A change published while the snapshot is read reaches the new stream, before the snapshot
+        hub.subscribe(1, EventHub.BALANCE_CHANGED, () -> {
+            hub.publish(1, EventHub.BALANCE_CHANGED, 400L);
+            return 500L;
+        });
+
+        await(() -> emitters.get(0).sent.size() == 2);
+        assertTrue(emitters.get(0).sent.get(0).contains("400"));
+        assertTrue(emitters.get(0).sent.get(1).contains("500"));
+    }
+
+    @Test
+    void testSubscribe_FailedSnapshotClosesTheStream() throws Exception {
+        assertThrows(IllegalStateException.class, () -> hub.subscribe(1, EventHub.BALANCE_CHANGED, () -> {
+            throw new IllegalStateException("database down");
+        }));
+
+        assertFalse(hub.hasSubscribers(1));
+        assertEquals(0, hub.streamCount());
+        await(() -> emitters.get(0).completed);
+    }
+
+    private EventHub hub(int bufferSize, int maxStreamsPerUser) {
+        return new EventHub(mock(LoggingService.class), meterRegistry, bufferSize, maxStreamsPerUser, 3_600, 30) {
+            @Override
+            SseEmitter newEmitter(long timeoutMillis) {
+                RecordingEmitter emitter = new RecordingEmitter();
+                emitters.add(emitter);
+                return emitter;
+            }
+        };
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met in time");
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Records the events instead of writing them; blocks writes while the
+     * test holds the release latch
+     */
+    private class RecordingEmitter extends SseEmitter {
+
+        private final List<String> sent = new CopyOnWriteArrayList<>();
+        private volatile boolean failing;
+        private volatile boolean completed;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failing) {
+                throw new IOException("Broken pipe");
+            }
+            StringBuilder text = new StringBuilder();
+            for (ResponseBodyEmitter.DataWithMediaType data : builder.build()) {
+                text.append(data.getData());
+            }
+            sent.add(text.toString());
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.paymybuddy.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionSystemException;
+
+import com.paymybuddy.logging.LoggingService;
+import com.paymybuddy.models.Transaction;
+import com.paymybuddy.models.User;
+import com.paymybuddy.models.dtos.CreateTransactionRequestDTO;
+import com.paymybuddy.repository.TransactionRepository;
+import com.paymybuddy.repository.UserRepository;
+import com.paymybuddy.repository.WalletRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+public class GroupCommitTransferWriterTest {
+
+    // Wide enough that every concurrent submit of a test lands in the same batch
+    private static final long WAIT_MICROS = 300_000;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private WalletRepository walletRepository;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private LoggingService loggingService;
+
+    @Mock
+    private AccountEvents accountEvents;
+
+    private GroupCommitTransferWriter writer;
+    private final List<User> users = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        // Senders 1 to 4, receivers 100 to 103
+        for (int id = 1; id < 5; id++) {
+            users.add(user(id));
+            users.add(user(id + 99));
+        }
+        // Lenient: the configuration checks fail before any transfer
+        lenient().when(userRepository.findAllById(any())).thenReturn(users);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    @Test
+    void testSubmit_ConcurrentTransfersShareOneCommit() throws Exception {
+        writer = writer(64);
+        when(walletRepository.debitBalance(anyInt(), anyLong())).thenReturn(1);
+
+        List<Transaction> results = submitAll(List.of(1, 2, 3, 4), 100, 101, 102, 103);
+
+        results.forEach(Assertions::assertNotNull);
+        verify(transactionManager, times(1)).commit(any());
+        verify(walletRepository, times(1)).creditBalances(any());
+        verify(transactionRepository).saveAll(argThat(transactions -> ((List<?>) transactions).size() == 4));
+    }
+
+    @Test
+    void testSubmit_RejectedTransferDoesNotFailItsBatch() throws Exception {
+        writer = writer(64);
+        when(walletRepository.debitBalance(eq(1), anyLong())).thenReturn(0);
+        when(walletRepository.debitBalance(eq(2), anyLong())).thenReturn(1);
+
+        List<Transaction> results = submitAll(List.of(1, 2), 100, 101);
+
+        assertNull(results.get(0));
+        assertNotNull(results.get(1));
+        assertEquals(101, results.get(1).getReceiver().getId());
+        verify(transactionManager, times(1)).commit(any());
+        verify(transactionRepository).saveAll(argThat(transactions -> ((List<?>) transactions).size() == 1));
+    }
+
+    @Test
+    void testSubmit_UnknownReceiverIsRejectedBeforeDebit() {
+        writer = writer(1);
+
+        assertNull(writer.submit(1, request(999, 500L)));
+        verify(walletRepository, never()).debitBalance(anyInt(), anyLong());
+    }
+
+    @Test
+    void testSubmit_UnknownSenderIsRejectedBeforeDebit() {
+        writer = writer(1);
+
+        assertNull(writer.submit(999, request(100, 500L)));
+        verify(walletRepository, never()).debitBalance(anyInt(), anyLong());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSubmit_SendersAreLoadedWithTheReceivers() {
+        writer = writer(1);
+        when(walletRepository.debitBalance(anyInt(), anyLong())).thenReturn(1);
+
+        Transaction transaction = writer.submit(2, request(100, 500L));
+
+        assertEquals("user2", transaction.getSender().getUsername());
+        ArgumentCaptor<Iterable<Integer>> ids = ArgumentCaptor.forClass(Iterable.class);
+        verify(userRepository, times(1)).findAllById(ids.capture());
+        Set<Integer> loaded = new HashSet<>();
+        ids.getValue().forEach(loaded::add);
+        assertEquals(Set.of(2, 100), loaded);
+    }
+
+    @Test
+    void testSubmit_FailedGroupCommitIsReplayedOneByOne() throws Exception {
+        writer = writer(64);
+        when(walletRepository.debitBalance(anyInt(), anyLong())).thenReturn(1);
+        doThrow(new TransactionSystemException("Deadlock found")).doNothing().when(transactionManager).commit(any());
+
+        List<Transaction> results = submitAll(List.of(1, 2), 100, 101);
+
+        results.forEach(Assertions::assertNotNull);
+        // The shared attempt, then one transaction per transfer
+        verify(transactionManager, times(3)).commit(any());
+    }
+
+    @Test
+    void testSubmit_ReplayedTransferIsRetriedOnConflict() throws Exception {
+        writer = writer(64);
+        when(walletRepository.debitBalance(anyInt(), anyLong())).thenReturn(1);
+        doThrow(new TransactionSystemException("Deadlock found"))
+                .doThrow(new CannotAcquireLockException("Lock wait timeout exceeded"))
+                .doNothing().when(transactionManager).commit(any());
+
+        List<Transaction> results = submitAll(List.of(1, 2), 100, 101);
+
+        results.forEach(Assertions::assertNotNull);
+        // The shared attempt, the conflicting replay and its retry, then the other transfer
+        verify(transactionManager, times(4)).commit(any());
+    }
+
+    @Test
+    void testConstructor_RefusesTheLedgerEngine() {
+        assertThrows(IllegalStateException.class, () -> writer(64, "ledger", "atomic"));
+    }
+
+    @Test
+    void testConstructor_RefusesLockingConcurrencyModes() {
+        assertThrows(IllegalStateException.class, () -> writer(64, "jpa", "pessimistic"));
+        assertThrows(IllegalStateException.class, () -> writer(64, "jpa", "optimistic"));
+    }
+
+    private GroupCommitTransferWriter writer(int maxBatchSize) {
+        return writer(maxBatchSize, "jpa", "atomic");
+    }
+
+    private GroupCommitTransferWriter writer(int maxBatchSize, String engine, String concurrency) {
+        return new GroupCommitTransferWriter(transactionManager, userRepository, walletRepository,
+                transactionRepository, loggingService, accountEvents, new TransferConcurrency(concurrency),
+                new SimpleMeterRegistry(), engine, true, maxBatchSize, WAIT_MICROS, 16, 1);
+    }
+
+    /**
+     * Submit one transfer per sender at the same time, sender i paying the
+     * i-th receiver
+     */
+    private List<Transaction> submitAll(List<Integer> senders, int... receiverIds) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(senders.size());
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Transaction>> futures = new ArrayList<>();
+            for (int i = 0; i < senders.size(); i++) {
+                Integer sender = senders.get(i);
+                CreateTransactionRequestDTO request = request(receiverIds[i], 500L);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return writer.submit(sender, request);
+                }));
+            }
+            start.countDown();
+
+            List<Transaction> results = new ArrayList<>();
+            for (Future<Transaction> future : futures) {
+                results.add(future.get(5, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static CreateTransactionRequestDTO request(int receiverId, Long amountInCents) {
+        CreateTransactionRequestDTO request = new CreateTransactionRequestDTO();
+        request.setReceiverId(receiverId);
+        request.setAmountInCents(amountInCents);
+        request.setDescription("Group commit");
+        return request;
+    }
+
+    private static User user(int id) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername("user" + id);
+        user.setEmail("user" + id + "@example.com");
+        return user;
+    }
+}
@@ -0,0 +1,109 @@
+package com.paymybuddy.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.paymybuddy.logging.LoggingService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class HotAccountsTest {
+
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(20);
+    private static final long FAST = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private SimpleMeterRegistry meterRegistry;
+    private LoggingService loggingService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        loggingService = mock(LoggingService.class);
+    }
+
+    @Test
+    void testConfiguredAccountsAreHot() {
+        HotAccounts hotAccounts = hotAccounts("7, 42", false);
+
+        assertTrue(hotAccounts.isHot(7));
+        assertTrue(hotAccounts.isHot(42));
+        assertFalse(hotAccounts.isHot(8));
+        assertEquals(2.0, meterRegistry.get("paymybuddy.wallets.hot.accounts").gauge().value());
+    }
+
+    @Test
+    void testRecordCredit_PromotesAfterEnoughSlowCredits() {
+        HotAccounts hotAccounts = hotAccounts("", true);
+
+        for (int i = 0; i < 2; i++) {
+            hotAccounts.recordCredit(5, SLOW);
+        }
+        assertFalse(hotAccounts.isHot(5));
+        hotAccounts.recordCredit(5, SLOW);
+
+        assertTrue(hotAccounts.isHot(5));
+        assertEquals(1.0, meterRegistry.get("paymybuddy.wallets.hot.promotions").counter().count());
+        verify(loggingService).info(contains("account 5 promoted"));
+    }
+
+    @Test
+    void testRecordCredit_FastCreditsNeverPromote() {
+        HotAccounts hotAccounts = hotAccounts("", true);
+
+        for (int i = 0; i < 100; i++) {
+            hotAccounts.recordCredit(5, FAST);
+        }
+
+        assertFalse(hotAccounts.isHot(5));
+        assertEquals(0.0, meterRegistry.get("paymybuddy.wallets.credit.slow").counter().count());
+    }
+
+    @Test
+    void testRecordCredit_OnlyCountsWhenAutoDetectIsOff() {
+        HotAccounts hotAccounts = hotAccounts("", false);
+
+        for (int i = 0; i < 100; i++) {
+            hotAccounts.recordCredit(5, SLOW);
+        }
+
+        assertFalse(hotAccounts.isHot(5));
+        assertEquals(100.0, meterRegistry.get("paymybuddy.wallets.credit.slow").counter().count());
+    }
+
+    @Test
+    void testSlotFor_StaysInRangeAndSpreadsThreads() throws Exception {
+        HotAccounts hotAccounts = hotAccounts("1", false);
+        Set<Integer> used = new HashSet<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(32)) {
+            for (int i = 0; i < 32; i++) {
+                Future<Integer> slot = executor.submit(() -> hotAccounts.slotFor(1));
+                used.add(slot.get());
+            }
+        }
+
+        for (int slot : used) {
+            assertTrue(slot >= 0 && slot < 4, "slot " + slot);
+        }
+        assertTrue(used.size() > 1, "every thread used the same slot");
+    }
+
+    @Test
+    void testConstructor_RejectsZeroSlots() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new HotAccounts(loggingService, meterRegistry, "", 0, false, 5, 3, 10_000));
+    }
+
+    private HotAccounts hotAccounts(String accounts, boolean autoDetect) {
+        return new HotAccounts(loggingService, meterRegistry, accounts, 4, autoDetect, 5, 3, 10_000);
+    }
+}
@@ -0,0 +1,300 @@
+package com.paymybuddy.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paymybuddy.exceptions.IdempotencyKeyReusedException;
+import com.paymybuddy.exceptions.IdempotentRequestInProgressException;
+import com.paymybuddy.logging.LoggingService;
+import com.paymybuddy.models.IdempotencyRecord;
+import com.paymybuddy.repository.IdempotencyRecordRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+@SuppressWarnings("rawtypes")
+public class IdempotencyServiceTest {
+
+    @Mock
+    private IdempotencyRecordRepository recordRepository;
+
+    @Mock
+    private LoggingService loggingService;
+
+    @Mock
+    private TransactionRunner transactionRunner;
+
+    private SimpleMeterRegistry meterRegistry;
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void testExecute_DuplicateIsReplayedWithoutRunningAgain() {
+        IdempotencyService service = service(600, false);
+
+        ResponseEntity<Map> first = service.execute(1, "key-1", Map.of("amount", 100), Map.class, this::pay);
+        ResponseEntity<Map> second = service.execute(1, "key-1", Map.of("amount", 100), Map.class, this::pay);
+
+        assertEquals(1, executions.get());
+        assertNull(first.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals("true", second.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(first.getBody(), second.getBody());
+        assertEquals(1.0, meterRegistry.counter("paymybuddy.idempotency.requests", "outcome", "replayed").count());
+        assertEquals(1.0, meterRegistry.get("paymybuddy.idempotency.store.size").gauge().value());
+    }
+
+    @Test
+    void testExecute_KeysAreScopedToTheirUser() {
+        IdempotencyService service = service(600, false);
+
+        service.execute(1, "key-1", Map.of("amount", 100), Map.class, this::pay);
+        service.execute(2, "key-1", Map.of("amount", 100), Map.class, this::pay);
+
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void testExecute_KeyReusedWithAnotherBody() {
+        IdempotencyService service = service(600, false);
+        service.execute(1, "key-1", Map.of("amount", 100), Map.class, this::pay);
+
+        assertThrows(IdempotencyKeyReusedException.class,
+                () -> service.execute(1, "key-1", Map.of("amount", 200), Map.class, this::pay));
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void testExecute_FailedRequestCanBeRetried() {
+        IdempotencyService service = service(600, false);
+
+        assertThrows(IllegalStateException.class, () -> service.execute(1, "key-1", Map.of("amount", 100), Map.class,
+                () -> {
+                    throw new IllegalStateException("database down");
+                }));
+        service.execute(1, "key-1", Map.of("amount", 100), Map.class, this::pay);
+
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void testExecute_ExpiredKeyRunsAgain() {
+        IdempotencyService service = service(0, false);
+
+        service.execute(1, "key-1", Map.of("amount", 100), Map.class, this::pay);
+        service.execute(1, "key-1", Map.of("amount", 100), Map.class, this::pay);
+
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void testExecute_ConcurrentDuplicatesAreCoalesced() throws Exception {
+        IdempotencyService service = service(600, false);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<ResponseEntity<Map>>> responses = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                responses.add(executor.submit(() -> service.execute(1, "key-1", Map.of("amount", 100), Map.class,
+                        () -> {
+                            awaitQuietly(release);
+                            return pay();
+                        })));
+            }
+            Thread.sleep(200);
+            release.countDown();
+
+            for (Future<ResponseEntity<Map>> response : responses) {
+                assertEquals(200, response.get(5, TimeUnit.SECONDS).getStatusCode().value());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, executions.get());
+        assertEquals(7.0, meterRegistry.counter("paymybuddy.idempotency.requests", "outcome", "replayed").count());
+    }
+
+    @Test
+    void testExecute_PersistentReplaysResponseStoredByAnotherNode() throws Exception {
+        IdempotencyService service = service(600, true);
+        String fingerprint = service.fingerprint(Map.of("amount", 100));
+        when(recordRepository.tryClaim(eq("1:key-1"), eq(fingerprint), anyLong())).thenReturn(false);
+        when(recordRepository.findById("1:key-1")).thenReturn(Optional.of(new IdempotencyRecord("1:key-1",
+                fingerprint, 200, new ObjectMapper().writeValueAsString(Map.of("id", 7)), Long.MAX_VALUE)));
+
+        ResponseEntity<Map> response = service.execute(1, "key-1", Map.of("amount", 100), Map.class, this::pay);
+
+        assertEquals(0, executions.get());
+        assertEquals(7, response.getBody().get("id"));
+        assertEquals("true", response.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+    }
+
+    @Test
+    void testExecute_PersistentStoresResponseOfClaimedKey() {
+        IdempotencyService service = service(600, true);
+        when(recordRepository.tryClaim(eq("1:key-1"), anyString(), anyLong())).thenReturn(true);
+        when(recordRepository.complete(anyString(), anyLong(), anyInt(), anyString(), anyLong())).thenReturn(true);
+
+        service.execute(1, "key-1", Map.of("amount", 100), Map.class, this::pay);
+
+        assertEquals(1, executions.get());
+        verify(recordRepository).complete(eq("1:key-1"), anyLong(), eq(200), contains("\"id\":"), anyLong());
+    }
+
+    @Test
+    void testExecute_PersistentClaimIsLeasedUntilTheResponseIsStored() {
+        IdempotencyService service = service(600, true);
+        when(recordRepository.tryClaim(eq("1:key-1"), anyString(), anyLong())).thenReturn(true);
+        long before = System.currentTimeMillis();
+
+        service.execute(1, "key-1", Map.of("amount", 100), Map.class, this::pay);
+
+        ArgumentCaptor<Long> claimExpiry = ArgumentCaptor.forClass(Long.class);
+        ArgumentCaptor<Long> recordExpiry = ArgumentCaptor.forClass(Long.class);
+        verify(recordRepository).tryClaim(eq("1:key-1"), anyString(), claimExpiry.capture());
+        verify(recordRepository).complete(eq("1:key-1"), eq(claimExpiry.getValue()), eq(200), anyString(),
+                recordExpiry.capture());
+        assertTrue(claimExpiry.getValue() <= System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(60));
+        assertTrue(recordExpiry.getValue() >= before + TimeUnit.SECONDS.toMillis(600));
+    }
+
+    @Test
+    void testExecute_PersistentKeepsTheClaimWhenTheResponseCannotBeStored() {
+        IdempotencyService service = service(600, true);
+        when(recordRepository.tryClaim(eq("1:key-1"), anyString(), anyLong())).thenReturn(true);
+        doThrow(new IllegalStateException("database down")).when(recordRepository)
+                .complete(anyString(), anyLong(), anyInt(), anyString(), anyLong());
+
+        ResponseEntity<Map> response = service.execute(1, "key-1", Map.of("amount", 100), Map.class, this::pay);
+
+        // The request committed: releasing the key would let a retry run it twice
+        assertEquals(200, response.getStatusCode().value());
+        verify(recordRepository, never()).release(anyString(), anyLong());
+        ResponseEntity<Map> duplicate = service.execute(1, "key-1", Map.of("amount", 100), Map.class, this::pay);
+        assertEquals(1, executions.get());
+        assertEquals("true", duplicate.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+    }
+
+    @Test
+    void testExecute_PersistentExpiredClaimFailsClosedWithGroupCommit() {
+        IdempotencyService service = service(600, true, true);
+        String fingerprint = service.fingerprint(Map.of("amount", 100));
+        when(recordRepository.tryClaim(eq("1:key-1"), eq(fingerprint), anyLong())).thenReturn(false);
+        when(recordRepository.findById("1:key-1")).thenReturn(Optional.of(new IdempotencyRecord("1:key-1",
+                fingerprint, null, null, System.currentTimeMillis() - 1)));
+
+        // The original may have paid in a batch committed elsewhere: neither replay nor run again
+        assertThrows(IdempotentRequestInProgressException.class,
+                () -> service.execute(1, "key-1", Map.of("amount", 100), Map.class, this::pay));
+        assertEquals(0, executions.get());
+        verify(recordRepository, never()).takeOver(anyString(), anyLong(), anyLong());
+        assertEquals(1.0, meterRegistry.counter("paymybuddy.idempotency.requests", "outcome", "unresolved").count());
+    }
+
+    @Test
+    void testExecute_PersistentStoresResponseInTheTransferTransaction() {
+        IdempotencyService service = service(600, true, false);
+        givenTransactions();
+        when(recordRepository.tryClaim(eq("1:key-1"), anyString(), anyLong())).thenReturn(true);
+        when(recordRepository.complete(anyString(), anyLong(), anyInt(), anyString(), anyLong())).thenReturn(true);
+
+        service.execute(1, "key-1", Map.of("amount", 100), Map.class, this::pay);
+
+        assertEquals(1, executions.get());
+        verify(transactionRunner).run(any());
+        verify(recordRepository, times(1)).complete(eq("1:key-1"), anyLong(), eq(200), anyString(), anyLong());
+    }
+
+    @Test
+    void testExecute_PersistentExpiredClaimIsTakenOverWhenStoredWithTheTransfer() {
+        IdempotencyService service = service(600, true, false);
+        givenTransactions();
+        String fingerprint = service.fingerprint(Map.of("amount", 100));
+        long staleLease = System.currentTimeMillis() - 1;
+        when(recordRepository.tryClaim(eq("1:key-1"), eq(fingerprint), anyLong())).thenReturn(false);
+        when(recordRepository.findById("1:key-1")).thenReturn(Optional.of(new IdempotencyRecord("1:key-1",
+                fingerprint, null, null, staleLease)));
+        when(recordRepository.takeOver(eq("1:key-1"), eq(staleLease), anyLong())).thenReturn(true);
+        when(recordRepository.complete(anyString(), anyLong(), anyInt(), anyString(), anyLong())).thenReturn(true);
+
+        service.execute(1, "key-1", Map.of("amount", 100), Map.class, this::pay);
+
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void testExecute_PersistentTransferRollsBackWhenItsClaimWasTakenOver() {
+        IdempotencyService service = service(600, true, false);
+        givenTransactions();
+        when(recordRepository.tryClaim(eq("1:key-1"), anyString(), anyLong())).thenReturn(true);
+        when(recordRepository.complete(anyString(), anyLong(), anyInt(), anyString(), anyLong())).thenReturn(false);
+
+        // Thrown inside the transaction of the transfer, which therefore does not commit
+        assertThrows(IdempotentRequestInProgressException.class,
+                () -> service.execute(1, "key-1", Map.of("amount", 100), Map.class, this::pay));
+        verify(recordRepository).release(eq("1:key-1"), anyLong());
+    }
+
+    @Test
+    void testConstructor_RejectsLeaseShorterThanWait() {
+        assertThrows(IllegalArgumentException.class, () -> new IdempotencyService(new ObjectMapper(),
+                recordRepository, loggingService, meterRegistry, transactionRunner, 100, 600, 2000, 1, true, "jpa",
+                false));
+    }
+
+    private IdempotencyService service(long ttlSeconds, boolean persistent) {
+        // Group commit: the response is stored after the transfer, outside its transaction
+        return service(ttlSeconds, persistent, true);
+    }
+
+    private IdempotencyService service(long ttlSeconds, boolean persistent, boolean groupCommit) {
+        return new IdempotencyService(new ObjectMapper(), recordRepository, loggingService, meterRegistry,
+                transactionRunner, 100, ttlSeconds, 2000, 60, persistent, "jpa", groupCommit);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenTransactions() {
+        when(transactionRunner.run(any())).thenAnswer(invocation -> ((Function<TransactionStatus, Object>) invocation
+                .getArgument(0)).apply(new SimpleTransactionStatus()));
+    }
+
+    private ResponseEntity<Map> pay() {
+        return ResponseEntity.<Map>ok(Map.of("id", executions.incrementAndGet()));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
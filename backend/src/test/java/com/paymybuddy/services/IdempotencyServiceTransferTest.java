@@ -0,0 +1,124 @@
+package com.paymybuddy.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import com.paymybuddy.exceptions.IdempotentRequestInProgressException;
+import com.paymybuddy.models.Transaction;
+import com.paymybuddy.models.User;
+import com.paymybuddy.models.Wallet;
+import com.paymybuddy.models.dtos.CreateTransactionRequestDTO;
+import com.paymybuddy.repository.UserRepository;
+import com.paymybuddy.repository.WalletRepository;
+import com.paymybuddy.services.interfaces.TransactionService;
+
+/**
+ * With the jpa engine, the stored response of a keyed transfer commits in the
+ * transaction of the transfer, and a transfer whose claim was taken over
+ * meanwhile does not commit at all.
+ */
+@SpringBootTest
+@SuppressWarnings("rawtypes")
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:idempotency-transfers;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "app.idempotency.persistent=true" })
+public class IdempotencyServiceTransferTest {
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Integer senderId;
+    private Integer receiverId;
+
+    @BeforeEach
+    void setUp() {
+        senderId = newWallet("idem-sender", 10_000L);
+        receiverId = newWallet("idem-receiver", 0L);
+    }
+
+    @Test
+    void testKeyedTransfer_ResponseStoredWithTheTransfer() {
+        ResponseEntity<Map> response = idempotencyService.execute(senderId, "key-1", Map.of("amount", 100),
+                Map.class, this::transfer);
+
+        assertEquals(9_900L, walletRepository.findBalanceById(senderId).orElseThrow());
+        Map<String, Object> record = jdbcTemplate.queryForMap(
+                "SELECT status_code, response_body FROM idempotency_records WHERE id = ?", senderId + ":key-1");
+        assertEquals(200, record.get("STATUS_CODE"));
+        assertTrue(((String) record.get("RESPONSE_BODY")).contains("\"id\":" + response.getBody().get("id")));
+    }
+
+    @Test
+    void testKeyedTransfer_NotCommittedWhenTheClaimWasTakenOver() throws Exception {
+        String id = senderId + ":key-2";
+        try (ExecutorService otherNode = Executors.newSingleThreadExecutor()) {
+            assertThrows(IdempotentRequestInProgressException.class, () -> idempotencyService.execute(senderId,
+                    "key-2", Map.of("amount", 100), Map.class, () -> {
+                        ResponseEntity<Map> response = transfer();
+                        // A retry on another node takes the claim over while this attempt is still running
+                        await(otherNode.submit(() -> jdbcTemplate.update(
+                                "UPDATE idempotency_records SET expires_at = expires_at + 1 WHERE id = ?", id)));
+                        return response;
+                    }));
+        }
+
+        assertEquals(10_000L, walletRepository.findBalanceById(senderId).orElseThrow());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transactions WHERE sender_id = ?",
+                Integer.class, senderId));
+        // The claim is the retry's now: it stays in progress
+        assertNull(jdbcTemplate.queryForObject("SELECT status_code FROM idempotency_records WHERE id = ?",
+                Integer.class, id));
+    }
+
+    private ResponseEntity<Map> transfer() {
+        CreateTransactionRequestDTO request = new CreateTransactionRequestDTO();
+        request.setReceiverId(receiverId);
+        request.setAmountInCents(100L);
+        request.setDescription("keyed");
+        Transaction transaction = transactionService.createTransaction(senderId, request);
+        return ResponseEntity.ok(Map.of("id", transaction.getId()));
+    }
+
+    private Integer newWallet(String name, long balance) {
+        User user = new User();
+        user.setUsername(name);
+        user.setEmail(name + "." + System.nanoTime() + "@example.com");
+        user.setPassword("password123");
+        Integer userId = userRepository.save(user).getId();
+        walletRepository.save(new Wallet(userId, balance));
+        return userId;
+    }
+
+    private static void await(Future<?> future) {
+        try {
+            future.get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.paymybuddy.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.paymybuddy.models.AuthenticatedUser;
+import com.paymybuddy.repository.RefreshTokenRepository;
+
+public class JwtServiceTest {
+
+    private static final String SECRET = "test-secret-test-secret-test-secret-0123456789";
+
+    private TokenRevocationList revocationList;
+    private InMemoryRefreshTokens refreshTokens;
+    private JwtService jwtService;
+
+    @BeforeEach
+    void setUp() {
+        revocationList = new TokenRevocationList();
+        refreshTokens = new InMemoryRefreshTokens();
+        jwtService = new JwtService("jwt", SECRET, 900, 3600, revocationList, refreshTokens);
+    }
+
+    @Test
+    void testAuthenticate_ValidAccessToken() {
+        JwtService.TokenPair tokens = jwtService.issueTokens(7, "test@example.com");
+
+        Optional<AuthenticatedUser> principal = jwtService.authenticate("Bearer " + tokens.accessToken());
+
+        assertTrue(principal.isPresent());
+        assertEquals(7, principal.get().getId());
+        assertEquals("test@example.com", principal.get().getUsername());
+    }
+
+    @Test
+    void testAuthenticate_RejectsRefreshTokenAsAccessToken() {
+        JwtService.TokenPair tokens = jwtService.issueTokens(7, "test@example.com");
+
+        assertFalse(jwtService.authenticate(tokens.refreshToken()).isPresent());
+    }
+
+    @Test
+    void testAuthenticate_RejectsTokenSignedWithAnotherKey() {
+        JwtService otherNode = new JwtService("jwt", SECRET.replace('0', 'x'), 900, 3600, new TokenRevocationList(),
+                refreshTokens);
+        JwtService.TokenPair tokens = otherNode.issueTokens(7, "test@example.com");
+
+        assertFalse(jwtService.authenticate(tokens.accessToken()).isPresent());
+    }
+
+    @Test
+    void testAuthenticate_RejectsExpiredToken() {
+        JwtService expiring = new JwtService("jwt", SECRET, -60, 3600, revocationList, refreshTokens);
+        JwtService.TokenPair tokens = expiring.issueTokens(7, "test@example.com");
+
+        assertFalse(jwtService.authenticate(tokens.accessToken()).isPresent());
+    }
+
+    @Test
+    void testAuthenticate_RejectsRevokedToken() {
+        JwtService.TokenPair tokens = jwtService.issueTokens(7, "test@example.com");
+
+        jwtService.revoke("Bearer " + tokens.accessToken());
+
+        assertFalse(jwtService.authenticate(tokens.accessToken()).isPresent());
+        assertEquals(1, revocationList.size());
+    }
+
+    @Test
+    void testConsumeRefreshToken_OnlyOnce() {
+        JwtService.TokenPair tokens = jwtService.issueTokens(7, "test@example.com");
+
+        assertEquals(Optional.of(7), jwtService.consumeRefreshToken(tokens.refreshToken()));
+        assertFalse(jwtService.consumeRefreshToken(tokens.refreshToken()).isPresent());
+    }
+
+    @Test
+    void testConstructor_JwtModeRequiresSecret() {
+        assertThrows(IllegalStateException.class, () -> new JwtService("jwt", "", 900, 3600, revocationList,
+                refreshTokens));
+        assertFalse(new JwtService("session", "", 900, 3600, revocationList, refreshTokens).isEnabled());
+    }
+
+    @Test
+    void testConsumeRefreshToken_OnlyOnceAcrossNodes() {
+        // Same secret and table, separate in-memory revocation lists
+        JwtService otherNode = new JwtService("jwt", SECRET, 900, 3600, new TokenRevocationList(), refreshTokens);
+        JwtService.TokenPair tokens = jwtService.issueTokens(7, "test@example.com");
+
+        assertEquals(Optional.of(7), jwtService.consumeRefreshToken(tokens.refreshToken()));
+        assertFalse(otherNode.consumeRefreshToken(tokens.refreshToken()).isPresent());
+    }
+
+    @Test
+    void testRevoke_RefreshTokenIsRevokedOnEveryNode() {
+        JwtService otherNode = new JwtService("jwt", SECRET, 900, 3600, new TokenRevocationList(), refreshTokens);
+        JwtService.TokenPair tokens = jwtService.issueTokens(7, "test@example.com");
+
+        jwtService.revoke(tokens.refreshToken());
+
+        assertFalse(otherNode.consumeRefreshToken(tokens.refreshToken()).isPresent());
+        assertTrue(refreshTokens.tokens.isEmpty());
+        assertEquals(0, revocationList.size());
+    }
+
+    @Test
+    void testConsumeRefreshToken_RejectsAccessToken() {
+        JwtService.TokenPair tokens = jwtService.issueTokens(7, "test@example.com");
+
+        assertFalse(jwtService.consumeRefreshToken(tokens.accessToken()).isPresent());
+        assertEquals(1, refreshTokens.tokens.size());
+    }
+
+    /**
+     * The refresh_tokens table, shared by the JwtService instances of a test
+     * like it is by the nodes
+     */
+    private static class InMemoryRefreshTokens extends RefreshTokenRepository {
+
+        private final Map<String, Long> tokens = new ConcurrentHashMap<>();
+
+        InMemoryRefreshTokens() {
+            super(null);
+        }
+
+        @Override
+        public void save(String id, Integer userId, long expiresAt) {
+            tokens.put(id, expiresAt);
+        }
+
+        @Override
+        public boolean consume(String id) {
+            Long expiresAt = tokens.remove(id);
+            return expiresAt != null && expiresAt >= System.currentTimeMillis();
+        }
+
+        @Override
+        public void delete(String id) {
+            tokens.remove(id);
+        }
+
+        @Override
+        public int purgeExpired() {
+            int before = tokens.size();
+            tokens.values().removeIf(expiresAt -> expiresAt < System.currentTimeMillis());
+            return before - tokens.size();
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.paymybuddy.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.paymybuddy.models.OutboxEvent;
+import com.paymybuddy.models.TopUp;
+import com.paymybuddy.models.User;
+import com.paymybuddy.models.Wallet;
+import com.paymybuddy.models.Transaction;
+import com.paymybuddy.models.dtos.CreateTransactionRequestDTO;
+import com.paymybuddy.repository.OutboxEventRepository;
+import com.paymybuddy.repository.UserRepository;
+import com.paymybuddy.repository.WalletRepository;
+import com.paymybuddy.services.interfaces.TransactionService;
+import com.paymybuddy.services.interfaces.UserService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Writes transfers and top-ups, then drives the relay by hand (its thread is
+ * off) to check that their outbox events commit with them and reach the
+ * subscribers once, in order, and that a failing subscriber gets the event
+ * again without holding back the others.
+ */
+@SpringBootTest
+@Import(OutboxRelayTest.SubscriberConfig.class)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:outboxdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "app.outbox.relay.enabled=false",
+        "app.outbox.relay.batch-size=2",
+        "app.outbox.relay.retry-initial-backoff-ms=1",
+        "app.outbox.relay.retry-max-backoff-ms=1"
+})
+public class OutboxRelayTest {
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private AccountEvents accountEvents;
+
+    @Autowired
+    private RecordingSubscriber recordingSubscriber;
+
+    @Autowired
+    private FlakySubscriber flakySubscriber;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @BeforeEach
+    void clear() {
+        jdbcTemplate.update("DELETE FROM outbox");
+        recordingSubscriber.events.clear();
+        flakySubscriber.events.clear();
+        flakySubscriber.down = false;
+        flakySubscriber.hook = null;
+    }
+
+    @Test
+    void testRelay_DispatchesCommittedEventsInOrderOnce() {
+        User sender = newUser("outbox-sender", 10_000L);
+        User receiver = newUser("outbox-receiver", 0L);
+        userService.addMoney(sender.getId(), 500L);
+        Transaction transaction = transfer(sender, receiver, 2_500L);
+        assertNotNull(transaction);
+        assertEquals(2, outboxEventRepository.countPending());
+
+        assertEquals(2, outboxRelay.relayBatch());
+        assertEquals(0, outboxRelay.relayBatch());
+
+        List<OutboxEvent> events = recordingSubscriber.events;
+        assertEquals(List.of(OutboxEvent.TOP_UP_CREATED, OutboxEvent.TRANSFER_CREATED),
+                events.stream().map(OutboxEvent::getEventType).toList());
+        assertTrue(events.get(0).getPayload().contains("\"balanceAfterInCents\":10500"));
+        assertTrue(events.get(1).getPayload().contains("\"transactionId\":" + transaction.getId()));
+        assertTrue(events.get(1).getPayload().contains("\"receiverId\":" + receiver.getId()));
+        assertEquals(2, flakySubscriber.events.size());
+        assertEquals(0, outboxEventRepository.countPending());
+    }
+
+    @Test
+    void testRelay_RetriesOnlyTheFailedSubscriber() throws InterruptedException {
+        User user = newUser("outbox-retry", 0L);
+        userService.addMoney(user.getId(), 1_000L);
+        double failures = meterRegistry.get("paymybuddy.outbox.subscriber.failures").counter().count();
+        flakySubscriber.down = true;
+
+        assertEquals(1, outboxRelay.relayBatch());
+
+        // The healthy subscriber got the event, which stays pending for the other one
+        assertEquals(1, recordingSubscriber.events.size());
+        assertEquals(failures + 1, meterRegistry.get("paymybuddy.outbox.subscriber.failures").counter().count());
+        assertEquals(1, outboxEventRepository.countPending());
+        OutboxEvent pending = outboxEventRepository.findAll().get(0);
+        assertEquals(1, pending.getAttempts());
+        assertEquals("FlakySubscriber", pending.getPendingSubscribers());
+
+        flakySubscriber.down = false;
+        Thread.sleep(10);
+        assertEquals(1, outboxRelay.relayBatch());
+
+        assertEquals(1, recordingSubscriber.events.size());
+        assertEquals(1, flakySubscriber.events.size());
+        assertEquals(0, outboxEventRepository.countPending());
+    }
+
+    @Test
+    void testRelay_DispatchesLeasedEventsOutsideOfTransactions() {
+        User user = newUser("outbox-lease", 0L);
+        userService.addMoney(user.getId(), 1_000L);
+        AtomicInteger claimedMeanwhile = new AtomicInteger(-1);
+        boolean[] inTransaction = new boolean[1];
+        flakySubscriber.hook = () -> {
+            inTransaction[0] = TransactionSynchronizationManager.isActualTransactionActive();
+            claimedMeanwhile.set(outboxRelay.relayBatch());
+        };
+
+        assertEquals(1, outboxRelay.relayBatch());
+
+        assertFalse(inTransaction[0]);
+        // The event was leased, so a relay running during the dispatch skipped it
+        assertEquals(0, claimedMeanwhile.get());
+        assertEquals(0, outboxEventRepository.countPending());
+    }
+
+    @Test
+    void testRelay_ClaimsAtMostOneBatch() {
+        User sender = newUser("outbox-batch-sender", 10_000L);
+        User receiver = newUser("outbox-batch-receiver", 0L);
+        for (int i = 0; i < 3; i++) {
+            transfer(sender, receiver, 100L);
+        }
+
+        assertEquals(2, outboxRelay.relayBatch());
+        assertEquals(1, outboxEventRepository.countPending());
+        assertEquals(1, outboxRelay.relayBatch());
+        assertEquals(3, recordingSubscriber.events.size());
+    }
+
+    @Test
+    void testOutbox_RolledBackChangeLeavesNoEvent() {
+        User user = newUser("outbox-rollback", 0L);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            userService.addMoney(user.getId(), 1_000L);
+            status.setRollbackOnly();
+        });
+
+        assertEquals(0, outboxEventRepository.countPending());
+        assertEquals(0, outboxRelay.relayBatch());
+        assertTrue(recordingSubscriber.events.isEmpty());
+    }
+
+    @Test
+    void testOutbox_RequiresTheWritingTransaction() {
+        assertThrows(IllegalTransactionStateException.class,
+                () -> accountEvents.topUpsCreated(List.of(new TopUp())));
+    }
+
+    @Test
+    void testHousekeep_PurgesOldProcessedEvents() {
+        Timestamp threeDaysAgo = Timestamp.from(Instant.now().minus(3, ChronoUnit.DAYS));
+        jdbcTemplate.update("INSERT INTO outbox (id, event_type, payload, created_at, processed_at) "
+                + "VALUES (-1, 'top-up-created', '{}', ?, ?)", threeDaysAgo, threeDaysAgo);
+
+        outboxRelay.housekeep();
+
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox", Integer.class));
+    }
+
+    private Transaction transfer(User sender, User receiver, long amountInCents) {
+        CreateTransactionRequestDTO request = new CreateTransactionRequestDTO();
+        request.setReceiverId(receiver.getId());
+        request.setAmountInCents(amountInCents);
+        request.setDescription("Outbox");
+        return transactionService.createTransaction(sender.getId(), request);
+    }
+
+    private User newUser(String name, long balance) {
+        User user = new User();
+        user.setUsername(name);
+        user.setEmail(name + "." + System.nanoTime() + "@example.com");
+        user.setPassword("password123");
+        userRepository.save(user);
+        walletRepository.save(new Wallet(user.getId(), balance));
+        return user;
+    }
+
+    static class RecordingSubscriber implements OutboxSubscriber {
+
+        private final List<OutboxEvent> events = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onEvent(OutboxEvent event) {
+            events.add(event);
+        }
+    }
+
+    static class FlakySubscriber implements OutboxSubscriber {
+
+        private final List<OutboxEvent> events = new CopyOnWriteArrayList<>();
+        private volatile boolean down;
+        private volatile Runnable hook;
+
+        @Override
+        public void onEvent(OutboxEvent event) {
+            if (hook != null) {
+                hook.run();
+            }
+            if (down) {
+                throw new IllegalStateException("consumer down");
+            }
+            events.add(event);
+        }
+    }
+
+    @TestConfiguration
+    static class SubscriberConfig {
+
+        @Bean
+        RecordingSubscriber recordingSubscriber() {
+            return new RecordingSubscriber();
+        }
+
+        @Bean
+        FlakySubscriber flakySubscriber() {
+            return new FlakySubscriber();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.paymybuddy.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+public class UserIdentityCacheTest {
+
+    @Test
+    void testGet_IsCaseInsensitive() {
+        UserIdentityCache cache = new UserIdentityCache(10, 600);
+
+        cache.put("Test@Example.com", 1);
+
+        assertEquals(Optional.of(1), cache.get("test@example.com"));
+    }
+
+    @Test
+    void testPut_EvictsLeastRecentlyUsedWhenFull() {
+        UserIdentityCache cache = new UserIdentityCache(2, 600);
+
+        cache.put("a@example.com", 1);
+        cache.put("b@example.com", 2);
+        cache.get("a@example.com");
+        cache.put("c@example.com", 3);
+
+        assertEquals(2, cache.size());
+        assertTrue(cache.get("a@example.com").isPresent());
+        assertFalse(cache.get("b@example.com").isPresent());
+        assertTrue(cache.get("c@example.com").isPresent());
+    }
+
+    @Test
+    void testGet_ExpiredEntryIsDropped() {
+        UserIdentityCache cache = new UserIdentityCache(10, 0);
+
+        cache.put("test@example.com", 1);
+
+        assertFalse(cache.get("test@example.com").isPresent());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testEvictUser_RemovesEveryEmailOfUser() {
+        UserIdentityCache cache = new UserIdentityCache(10, 600);
+
+        cache.put("old@example.com", 1);
+        cache.put("other@example.com", 2);
+        cache.evictUser(1);
+
+        assertFalse(cache.get("old@example.com").isPresent());
+        assertEquals(Optional.of(2), cache.get("other@example.com"));
+    }
+}
@@ -0,0 +1,133 @@
+package com.paymybuddy.services.implementations;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.paymybuddy.models.TopUp;
+import com.paymybuddy.models.User;
+import com.paymybuddy.models.Wallet;
+import com.paymybuddy.repository.TopUpRepository;
+import com.paymybuddy.repository.UserRepository;
+import com.paymybuddy.repository.WalletRepository;
+import com.paymybuddy.services.interfaces.UserService;
+
+/**
+ * Hammers top-ups against H2 and checks that no credit is lost and that the
+ * top-up ledger agrees with the balance.
+ */
+@SpringBootTest
+public class TopUpConcurrencyTest {
+
+    private static final long INITIAL_BALANCE = 10_000L;
+    // Below the test pool size, so every thread waits on the row lock rather than on a connection
+    private static final int THREADS = 16;
+    private static final int TOP_UPS_PER_THREAD = 50;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private TopUpRepository topUpRepository;
+
+    @Test
+    void testConcurrentTopUps_OneAccountReceivesEveryCredit() throws Exception {
+        User user = newUser("topup");
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                long added = 0;
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < TOP_UPS_PER_THREAD; i++) {
+                    long amount = 1L + random.nextInt(1_000);
+                    userService.addMoney(user.getId(), amount);
+                    added += amount;
+                }
+                return added;
+            }));
+        }
+
+        start.countDown();
+        long added = 0;
+        for (Future<Long> future : futures) {
+            added += future.get(120, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        long balance = walletRepository.findBalanceById(user.getId()).orElseThrow();
+        assertEquals(INITIAL_BALANCE + added, balance);
+
+        List<TopUp> topUps = topUpRepository.findByUserIdOrderByIdAsc(user.getId());
+        assertEquals(THREADS * TOP_UPS_PER_THREAD, topUps.size());
+        assertEquals(added, topUps.stream().mapToLong(TopUp::getAmountInCents).sum());
+        // Each increment read back its own result: every balance after is distinct and the last one is the balance
+        Set<Long> balancesAfter = new HashSet<>();
+        for (TopUp topUp : topUps) {
+            assertTrue(balancesAfter.add(topUp.getBalanceAfterInCents()), "balance after seen twice");
+        }
+        assertEquals(balance, topUps.stream().mapToLong(TopUp::getBalanceAfterInCents).max().orElseThrow());
+    }
+
+    @Test
+    void testConcurrentBulkTopUps_EveryCreditApplied() throws Exception {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            users.add(newUser("bulk" + i));
+        }
+        Map<Integer, Long> batch = new LinkedHashMap<>();
+        for (User user : users) {
+            batch.put(user.getId(), 100L + user.getId() % 7);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<Future<List<TopUp>>> futures = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+            futures.add(executor.submit(() -> userService.addMoney(batch)));
+        }
+        for (Future<List<TopUp>> future : futures) {
+            assertEquals(users.size(), future.get(60, TimeUnit.SECONDS).size());
+        }
+        executor.shutdown();
+
+        for (User user : users) {
+            assertEquals(INITIAL_BALANCE + 16 * batch.get(user.getId()),
+                    walletRepository.findBalanceById(user.getId()).orElseThrow());
+            assertEquals(16, topUpRepository.findByUserIdOrderByIdAsc(user.getId()).size());
+        }
+    }
+
+    private User newUser(String name) {
+        String run = Long.toString(System.nanoTime());
+        User user = new User();
+        user.setUsername(name);
+        user.setEmail(name + "." + run + "@example.com");
+        user.setPassword("password123");
+        userRepository.save(user);
+        walletRepository.save(new Wallet(user.getId(), INITIAL_BALANCE));
+        return user;
+    }
+}
@@ -0,0 +1,111 @@
+package com.paymybuddy.services.implementations;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.springframework.data.domain.Pageable;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paymybuddy.logging.LoggingService;
+import com.paymybuddy.models.dtos.PublicTransactionDTO;
+import com.paymybuddy.repository.TransactionRepository;
+import com.paymybuddy.services.interfaces.TransactionExportService;
+
+@ExtendWith(MockitoExtension.class)
+public class TransactionExportServiceTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private LoggingService loggingService;
+
+    private TransactionExportServiceImpl transactionExportService;
+
+    @BeforeEach
+    void setUp() {
+        transactionExportService = new TransactionExportServiceImpl(transactionRepository, new ObjectMapper(),
+                loggingService);
+    }
+
+    @Test
+    void testExportCsv_MergesNewestFirstAndEscapes() throws Exception {
+        historyOfThree();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = transactionExportService.exportUserTransactions(1, TransactionExportService.Format.CSV, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, count);
+        assertEquals(4, lines.length);
+        assertEquals(TransactionExportServiceImpl.CSV_HEADER, lines[0]);
+        assertEquals("3,1,me,me@example.com,2,friend,friend@example.com,\"Pizza, drinks\",1500", lines[1]);
+        assertEquals("2,2,friend,friend@example.com,1,me,me@example.com,'=cmd,200", lines[2]);
+        assertEquals("1,1,me,me@example.com,2,friend,friend@example.com,Café,150", lines[3]);
+    }
+
+    @Test
+    void testExportNdjson_OneJsonObjectPerLine() throws Exception {
+        historyOfThree();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = transactionExportService.exportUserTransactions(1, TransactionExportService.Format.NDJSON, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, count);
+        assertEquals(3, lines.length);
+        ObjectMapper objectMapper = new ObjectMapper();
+        assertEquals(3, objectMapper.readTree(lines[0]).get("id").asInt());
+        assertEquals("friend", objectMapper.readTree(lines[1]).get("sender").get("username").asText());
+        assertEquals(150, objectMapper.readTree(lines[2]).get("amountInCents").asInt());
+    }
+
+    @Test
+    void testExport_ReadsFullPagesUntilAShortOne() throws Exception {
+        int pageSize = TransactionExportServiceImpl.PAGE_SIZE;
+        List<PublicTransactionDTO> firstPage = new ArrayList<>();
+        for (int id = pageSize + 1; id > 1; id--) {
+            firstPage.add(new PublicTransactionDTO(id, 1, "me", "me@example.com", 2, "friend", "friend@example.com",
+                    "Page", 100L));
+        }
+        when(transactionRepository.findSentBefore(eq(1), eq(Integer.MAX_VALUE), any(Pageable.class)))
+                .thenReturn(firstPage);
+        when(transactionRepository.findSentBefore(eq(1), eq(2), any(Pageable.class))).thenReturn(List.of(
+                new PublicTransactionDTO(1, 1, "me", "me@example.com", 2, "friend", "friend@example.com", "Last",
+                        100L)));
+        when(transactionRepository.findReceivedBefore(eq(1), eq(Integer.MAX_VALUE), any(Pageable.class)))
+                .thenReturn(List.of());
+
+        long count = transactionExportService.exportUserTransactions(1, TransactionExportService.Format.NDJSON,
+                new ByteArrayOutputStream());
+
+        assertEquals(pageSize + 1, count);
+        verify(transactionRepository, times(2)).findSentBefore(eq(1), anyInt(),
+                argThat(pageable -> pageable.getPageSize() == pageSize));
+        verify(transactionRepository, times(1)).findReceivedBefore(eq(1), anyInt(), any(Pageable.class));
+    }
+
+    private void historyOfThree() {
+        when(transactionRepository.findSentBefore(eq(1), eq(Integer.MAX_VALUE), any(Pageable.class)))
+                .thenReturn(List.of(
+                        new PublicTransactionDTO(3, 1, "me", "me@example.com", 2, "friend", "friend@example.com",
+                                "Pizza, drinks", 1500L),
+                        new PublicTransactionDTO(1, 1, "me", "me@example.com", 2, "friend", "friend@example.com",
+                                "Café", 150L)));
+        when(transactionRepository.findReceivedBefore(eq(1), eq(Integer.MAX_VALUE), any(Pageable.class)))
+                .thenReturn(List.of(
+                        new PublicTransactionDTO(2, 2, "friend", "friend@example.com", 1, "me", "me@example.com",
+                                "=cmd", 200L)));
+    }
+}
@@ -0,0 +1,83 @@
+package com.paymybuddy.services.implementations;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import com.paymybuddy.models.Transaction;
+import com.paymybuddy.models.User;
+import com.paymybuddy.models.dtos.TransactionPageDTO;
+import com.paymybuddy.repository.TransactionRepository;
+import com.paymybuddy.repository.UserRepository;
+import com.paymybuddy.services.interfaces.TransactionService;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Checks with Hibernate statistics that a history page is read with one
+ * projection SELECT per side and without materializing any entity.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:historystatsdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        // The statistics are global: a relay poll on its own thread would count as a statement of the page
+        "app.outbox.relay.enabled=false"
+})
+public class TransactionHistoryStatisticsTest {
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        owner = saveUser("owner");
+        User friend = saveUser("friend");
+        for (int i = 0; i < 30; i++) {
+            Transaction transaction = new Transaction();
+            transaction.setSender(i % 2 == 0 ? owner : friend);
+            transaction.setReceiver(i % 2 == 0 ? friend : owner);
+            transaction.setAmountInCents(100L + i);
+            transaction.setDescription("stats " + i);
+            transactionRepository.save(transaction);
+        }
+    }
+
+    @Test
+    void testHistoryPage_TwoStatementsAndNoEntityLoaded() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        TransactionPageDTO page = transactionService.getUserTransactions(owner.getId(), null, 20);
+
+        assertEquals(20, page.getItems().size());
+        assertNotNull(page.getItems().get(0).getSender().getUsername());
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    private User saveUser(String name) {
+        User user = new User();
+        user.setUsername(name);
+        user.setEmail(name + "." + System.nanoTime() + "@example.com");
+        user.setPassword("password123");
+        return userRepository.save(user);
+    }
+}
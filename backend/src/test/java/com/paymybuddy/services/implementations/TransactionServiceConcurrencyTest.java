@@ -0,0 +1,134 @@
+package com.paymybuddy.services.implementations;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.paymybuddy.models.Transaction;
+import com.paymybuddy.models.User;
+import com.paymybuddy.models.Wallet;
+import com.paymybuddy.models.dtos.CreateTransactionRequestDTO;
+import com.paymybuddy.repository.TransactionRepository;
+import com.paymybuddy.repository.UserRepository;
+import com.paymybuddy.repository.WalletRepository;
+import com.paymybuddy.services.interfaces.TransactionService;
+
+/**
+ * Hammers the transfer path from several threads against H2 and checks that
+ * no money is created or lost and that no balance goes negative.
+ */
+@SpringBootTest
+public class TransactionServiceConcurrencyTest {
+
+    private static final int USERS = 4;
+    private static final long INITIAL_BALANCE = 10_000L;
+    private static final int THREADS = 16;
+    private static final int TRANSFERS_PER_THREAD = 50;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    private final List<User> users = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        String run = Long.toString(System.nanoTime());
+        for (int i = 0; i < USERS; i++) {
+            User user = new User();
+            user.setUsername("concurrent" + i);
+            user.setEmail("concurrent" + i + "." + run + "@example.com");
+            user.setPassword("password123");
+            users.add(userRepository.save(user));
+            walletRepository.save(new Wallet(user.getId(), INITIAL_BALANCE));
+        }
+    }
+
+    @Test
+    void testConcurrentTransfers_BalancesAlwaysAddUp() throws Exception {
+        int threads = threads();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> futures = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                int succeeded = 0;
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                    int from = random.nextInt(USERS);
+                    int to = (from + 1 + random.nextInt(USERS - 1)) % USERS;
+
+                    CreateTransactionRequestDTO request = new CreateTransactionRequestDTO();
+                    request.setReceiverId(users.get(to).getId());
+                    request.setAmountInCents(1L + random.nextInt(3000));
+                    request.setDescription("concurrent");
+
+                    if (transactionService.createTransaction(users.get(from).getId(), request) != null) {
+                        succeeded++;
+                    }
+                }
+                return succeeded;
+            }));
+        }
+
+        start.countDown();
+        int succeeded = 0;
+        for (Future<Integer> future : futures) {
+            succeeded += future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        long total = 0;
+        int recorded = 0;
+        for (User user : users) {
+            long balance = walletRepository.findBalanceById(user.getId()).orElseThrow();
+            assertTrue(balance >= 0, "balance must never go negative");
+            total += balance;
+
+            long expected = INITIAL_BALANCE;
+            for (Transaction transaction : transactionRepository.findBySenderId(user.getId())) {
+                expected -= transaction.getAmountInCents();
+                recorded++;
+            }
+            for (Transaction transaction : transactionRepository.findByReceiverId(user.getId())) {
+                expected += transaction.getAmountInCents();
+            }
+            assertEquals(expected, balance, "balance must match the transaction history");
+        }
+
+        assertEquals(USERS * INITIAL_BALANCE, total);
+        assertEquals(succeeded, recorded);
+        // Some transfers are refused for insufficient funds, but the balances must not hold because none ran
+        assertTrue(succeeded > threads * TRANSFERS_PER_THREAD / 2,
+                "only " + succeeded + " transfers succeeded");
+    }
+
+    /**
+     * Number of threads sending transfers at the same time
+     */
+    protected int threads() {
+        return THREADS;
+    }
+}
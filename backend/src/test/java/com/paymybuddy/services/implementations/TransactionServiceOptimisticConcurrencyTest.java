@@ -0,0 +1,23 @@
+package com.paymybuddy.services.implementations;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Same load as {@link TransactionServiceConcurrencyTest}, with balances
+ * written through versioned entities. Nearly every pair of transfers over
+ * four accounts touches a common wallet, so sixteen threads would serialize
+ * on retries; four threads still conflict constantly, and the retry budget is
+ * raised above the default for every transfer to land.
+ */
+@TestPropertySource(properties = {
+        "app.transfers.concurrency=optimistic",
+        "app.transfers.retry.max-attempts=30",
+        "app.transfers.retry.max-backoff-ms=20"
+})
+public class TransactionServiceOptimisticConcurrencyTest extends TransactionServiceConcurrencyTest {
+
+    @Override
+    protected int threads() {
+        return 4;
+    }
+}
@@ -0,0 +1,11 @@
+package com.paymybuddy.services.implementations;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Same load as {@link TransactionServiceConcurrencyTest}, with account locks
+ * and row locks taken before the balances are written.
+ */
+@TestPropertySource(properties = "app.transfers.concurrency=pessimistic")
+public class TransactionServicePessimisticConcurrencyTest extends TransactionServiceConcurrencyTest {
+}
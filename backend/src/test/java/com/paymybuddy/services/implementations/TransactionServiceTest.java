@@ -12,17 +12,30 @@ import java.util.Optional;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.data.domain.Pageable;
 
 import com.paymybuddy.logging.LoggingService;
 import com.paymybuddy.models.Transaction;
 import com.paymybuddy.models.User;
+import com.paymybuddy.models.Wallet;
+import com.paymybuddy.models.dtos.BatchTransactionItemResultDTO;
+import com.paymybuddy.models.dtos.BatchTransactionRequestDTO;
+import com.paymybuddy.models.dtos.BatchTransactionResultDTO;
 import com.paymybuddy.models.dtos.CreateTransactionRequestDTO;
 import com.paymybuddy.models.dtos.PublicTransactionDTO;
+import com.paymybuddy.models.dtos.TransactionPageDTO;
 import com.paymybuddy.repository.TransactionRepository;
 import com.paymybuddy.repository.UserRepository;
+import com.paymybuddy.repository.WalletRepository;
+import com.paymybuddy.services.AccountEvents;
+import com.paymybuddy.services.AccountLockManager;
+import com.paymybuddy.services.HotAccounts;
+import com.paymybuddy.services.TransferConcurrency;
 
 @ExtendWith(MockitoExtension.class)
 public class TransactionServiceTest {
@@ -33,9 +46,24 @@ public class TransactionServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private WalletRepository walletRepository;
+
     @Mock
     private LoggingService loggingService;
 
+    @Mock
+    private AccountLockManager accountLockManager;
+
+    @Mock
+    private TransferConcurrency transferConcurrency;
+
+    @Mock
+    private HotAccounts hotAccounts;
+
+    @Mock
+    private AccountEvents accountEvents;
+
     @InjectMocks
     private TransactionServiceImpl transactionService;
 
@@ -50,14 +78,12 @@ public class TransactionServiceTest {
         sender.setUsername("sender");
         sender.setEmail("sender@example.com");
         sender.setPassword("password123");
-        sender.setBalanceInCents(10000L);
 
         receiver = new User();
         receiver.setId(2);
         receiver.setUsername("receiver");
         receiver.setEmail("receiver@example.com");
         receiver.setPassword("password123");
-        receiver.setBalanceInCents(5000L);
 
         transactionRequest = new CreateTransactionRequestDTO();
         transactionRequest.setReceiverId(2);
@@ -74,11 +100,12 @@ public class TransactionServiceTest {
         savedTransaction.setAmountInCents(1000L);
         savedTransaction.setDescription("Test transaction");
 
-        when(userRepository.findById(2)).thenReturn(Optional.of(receiver));
-        when(userRepository.save(any(User.class))).thenReturn(sender, receiver);
+        givenUsers(sender, receiver);
+        when(walletRepository.debitBalance(1, 1000L)).thenReturn(1);
+        when(walletRepository.creditBalance(2, 1000L)).thenReturn(1);
         when(transactionRepository.save(any(Transaction.class))).thenReturn(savedTransaction);
 
-        Transaction result = transactionService.createTransaction(sender, transactionRequest);
+        Transaction result = transactionService.createTransaction(sender.getId(), transactionRequest);
 
         assertNotNull(result);
         assertEquals(1, result.getId());
@@ -86,13 +113,111 @@ public class TransactionServiceTest {
         assertEquals(receiver, result.getReceiver());
         assertEquals(1000L, result.getAmountInCents());
         verify(transactionRepository, times(1)).save(any(Transaction.class));
+        verify(accountEvents).transfersCreated(List.of(savedTransaction));
+    }
+
+    @Test
+    void testCreateTransaction_PessimisticLocksAccountsBeforeDebit() {
+        sender.setId(7);
+        when(accountLockManager.isEnabled()).thenReturn(true);
+        givenUsers(sender, receiver);
+        when(walletRepository.debitBalance(7, 1000L)).thenReturn(1);
+        when(walletRepository.creditBalance(2, 1000L)).thenReturn(1);
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertNotNull(transactionService.createTransaction(sender.getId(), transactionRequest));
+
+        InOrder inOrder = inOrder(accountLockManager, walletRepository);
+        inOrder.verify(accountLockManager).lockUntilCompletion(List.of(7, 2));
+        inOrder.verify(walletRepository).lockAllById(argThat(ids -> new ArrayList<>(ids).equals(List.of(2, 7))));
+        inOrder.verify(walletRepository).debitBalance(7, 1000L);
+    }
+
+    @Test
+    void testCreateTransaction_WritesWalletsInUserIdOrder() {
+        sender.setId(7);
+        givenUsers(sender, receiver);
+        when(walletRepository.creditBalance(2, 1000L)).thenReturn(1);
+        when(walletRepository.debitBalance(7, 1000L)).thenReturn(1);
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertNotNull(transactionService.createTransaction(sender.getId(), transactionRequest));
+
+        InOrder inOrder = inOrder(walletRepository);
+        inOrder.verify(walletRepository).creditBalance(2, 1000L);
+        inOrder.verify(walletRepository).debitBalance(7, 1000L);
+    }
+
+    @Test
+    void testCreateTransaction_LockConflictIsRethrownForRetry() {
+        when(accountLockManager.isEnabled()).thenReturn(true);
+        givenUsers(sender, receiver);
+        doThrow(new CannotAcquireLockException("busy")).when(accountLockManager).lockUntilCompletion(anyList());
+
+        assertThrows(CannotAcquireLockException.class,
+                () -> transactionService.createTransaction(sender.getId(), transactionRequest));
+        verify(walletRepository, never()).debitBalance(anyInt(), anyLong());
+    }
+
+    @Test
+    void testCreateTransaction_OptimisticWritesThroughVersionedEntities() {
+        Wallet senderWallet = new Wallet(1, 10000L);
+        Wallet receiverWallet = new Wallet(2, 5000L);
+        when(transferConcurrency.isOptimistic()).thenReturn(true);
+        givenUsers(sender, receiver);
+        when(walletRepository.findById(1)).thenReturn(Optional.of(senderWallet));
+        when(walletRepository.findById(2)).thenReturn(Optional.of(receiverWallet));
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertNotNull(transactionService.createTransaction(sender.getId(), transactionRequest));
+
+        assertEquals(9000L, senderWallet.getBalanceInCents());
+        assertEquals(6000L, receiverWallet.getBalanceInCents());
+        verify(walletRepository, never()).debitBalance(anyInt(), anyLong());
+        verify(walletRepository, never()).creditBalance(anyInt(), anyLong());
+        verify(walletRepository, never()).consolidateSlots(anyInt());
+    }
+
+    @Test
+    void testCreateTransaction_OptimisticHotSenderConsolidatesFirst() {
+        Wallet senderWallet = new Wallet(1, 10000L);
+        Wallet receiverWallet = new Wallet(2, 5000L);
+        when(transferConcurrency.isOptimistic()).thenReturn(true);
+        when(hotAccounts.isHot(1)).thenReturn(true);
+        givenUsers(sender, receiver);
+        when(walletRepository.findById(1)).thenReturn(Optional.of(senderWallet));
+        when(walletRepository.findById(2)).thenReturn(Optional.of(receiverWallet));
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertNotNull(transactionService.createTransaction(sender.getId(), transactionRequest));
+
+        InOrder inOrder = inOrder(walletRepository);
+        inOrder.verify(walletRepository).consolidateSlots(1);
+        inOrder.verify(walletRepository).findById(1);
+        assertEquals(9000L, senderWallet.getBalanceInCents());
+    }
+
+    @Test
+    void testCreateTransaction_OptimisticInsufficientBalance() {
+        Wallet senderWallet = new Wallet(1, 500L);
+        Wallet receiverWallet = new Wallet(2, 5000L);
+        when(transferConcurrency.isOptimistic()).thenReturn(true);
+        givenUsers(sender, receiver);
+        when(walletRepository.findById(1)).thenReturn(Optional.of(senderWallet));
+        when(walletRepository.findById(2)).thenReturn(Optional.of(receiverWallet));
+
+        assertNull(transactionService.createTransaction(sender.getId(), transactionRequest));
+
+        assertEquals(500L, senderWallet.getBalanceInCents());
+        assertEquals(5000L, receiverWallet.getBalanceInCents());
+        verify(loggingService, times(1)).error(contains("Solde insuffisant"));
     }
 
     @Test
     void testCreateTransaction_InvalidAmountZero() {
         transactionRequest.setAmountInCents(0L);
 
-        Transaction result = transactionService.createTransaction(sender, transactionRequest);
+        Transaction result = transactionService.createTransaction(sender.getId(), transactionRequest);
 
         assertNull(result);
         verify(transactionRepository, never()).save(any(Transaction.class));
@@ -103,7 +228,7 @@ public class TransactionServiceTest {
     void testCreateTransaction_InvalidAmountNegative() {
         transactionRequest.setAmountInCents(-100L);
 
-        Transaction result = transactionService.createTransaction(sender, transactionRequest);
+        Transaction result = transactionService.createTransaction(sender.getId(), transactionRequest);
 
         assertNull(result);
         verify(transactionRepository, never()).save(any(Transaction.class));
@@ -112,48 +237,58 @@ public class TransactionServiceTest {
 
     @Test
     void testCreateTransaction_InsufficientBalance() {
-        sender.setBalanceInCents(500L);
         transactionRequest.setAmountInCents(1000L);
 
-        when(userRepository.findById(2)).thenReturn(Optional.of(receiver));
+        givenUsers(sender, receiver);
+        when(walletRepository.debitBalance(1, 1000L)).thenReturn(0);
 
-        Transaction result = transactionService.createTransaction(sender, transactionRequest);
+        Transaction result = transactionService.createTransaction(sender.getId(), transactionRequest);
 
         assertNull(result);
+        verify(walletRepository, never()).creditBalance(anyInt(), anyLong());
         verify(transactionRepository, never()).save(any(Transaction.class));
         verify(loggingService, times(1)).error(contains("Solde insuffisant"));
     }
 
     @Test
     void testCreateTransaction_ReceiverNotFound() {
-        when(userRepository.findById(2)).thenReturn(Optional.empty());
+        givenUsers(sender);
 
-        Transaction result = transactionService.createTransaction(sender, transactionRequest);
+        Transaction result = transactionService.createTransaction(sender.getId(), transactionRequest);
 
         assertNull(result);
         verify(transactionRepository, never()).save(any(Transaction.class));
-        verify(userRepository, never()).save(any(User.class));
+        verify(walletRepository, never()).debitBalance(anyInt(), anyLong());
+        verify(walletRepository, never()).creditBalance(anyInt(), anyLong());
         verify(loggingService, times(1)).error(contains("user not found with ID: 2"));
     }
 
     @Test
-    void testCreateTransaction_BalancesUpdated() {
-        Long initialSenderBalance = sender.getBalanceInCents();
-        Long initialReceiverBalance = receiver.getBalanceInCents();
-        Long transactionAmount = transactionRequest.getAmountInCents();
+    void testCreateTransaction_SenderNotFound() {
+        givenUsers(receiver);
 
+        assertNull(transactionService.createTransaction(sender.getId(), transactionRequest));
+
+        verify(walletRepository, never()).debitBalance(anyInt(), anyLong());
+        verify(loggingService, times(1)).error(contains("user not found with ID: 1"));
+    }
+
+    @Test
+    void testCreateTransaction_BalancesUpdatedAtomically() {
         Transaction savedTransaction = new Transaction();
         savedTransaction.setId(1);
 
-        when(userRepository.findById(2)).thenReturn(Optional.of(receiver));
-        when(userRepository.save(any(User.class))).thenReturn(sender, receiver);
+        givenUsers(sender, receiver);
+        when(walletRepository.debitBalance(1, 1000L)).thenReturn(1);
+        when(walletRepository.creditBalance(2, 1000L)).thenReturn(1);
         when(transactionRepository.save(any(Transaction.class))).thenReturn(savedTransaction);
 
-        transactionService.createTransaction(sender, transactionRequest);
+        transactionService.createTransaction(sender.getId(), transactionRequest);
 
-        assertEquals(initialSenderBalance - transactionAmount, sender.getBalanceInCents());
-        assertEquals(initialReceiverBalance + transactionAmount, receiver.getBalanceInCents());
-        verify(userRepository, times(2)).save(any(User.class));
+        verify(walletRepository, times(1)).debitBalance(1, 1000L);
+        verify(walletRepository, times(1)).creditBalance(2, 1000L);
+        verify(userRepository, never()).save(any(User.class));
+        verify(walletRepository, never()).save(any(Wallet.class));
     }
 
     @Test
@@ -161,11 +296,12 @@ public class TransactionServiceTest {
         Transaction savedTransaction = new Transaction();
         savedTransaction.setId(1);
 
-        when(userRepository.findById(2)).thenReturn(Optional.of(receiver));
-        when(userRepository.save(any(User.class))).thenReturn(sender, receiver);
+        givenUsers(sender, receiver);
+        when(walletRepository.debitBalance(1, 1000L)).thenReturn(1);
+        when(walletRepository.creditBalance(2, 1000L)).thenReturn(1);
         when(transactionRepository.save(any(Transaction.class))).thenReturn(savedTransaction);
 
-        transactionService.createTransaction(sender, transactionRequest);
+        transactionService.createTransaction(sender.getId(), transactionRequest);
 
         verify(transactionRepository, times(1)).save(argThat(transaction -> transaction.getSender().equals(sender) &&
                 transaction.getReceiver().equals(receiver) &&
@@ -175,33 +311,28 @@ public class TransactionServiceTest {
 
     @Test
     void testGetUserTransactions_WithMultipleTransactions() {
-        Transaction transaction1 = new Transaction();
-        transaction1.setId(1);
-        transaction1.setSender(sender);
-        transaction1.setReceiver(receiver);
-        transaction1.setAmountInCents(1000L);
+        PublicTransactionDTO transaction1 = transaction(1, sender, receiver, 1000L);
+        PublicTransactionDTO transaction2 = transaction(2, sender, receiver, 2000L);
 
-        Transaction transaction2 = new Transaction();
-        transaction2.setId(2);
-        transaction2.setSender(sender);
-        transaction2.setReceiver(receiver);
-        transaction2.setAmountInCents(2000L);
-
-        List<Transaction> transactions = Arrays.asList(transaction1, transaction2);
-
-        when(transactionRepository.findAllTransactionsForUser(1)).thenReturn(transactions);
+        when(transactionRepository.findSentBefore(eq(1), eq(Integer.MAX_VALUE), any(Pageable.class)))
+                .thenReturn(Arrays.asList(transaction2, transaction1));
+        when(transactionRepository.findReceivedBefore(eq(1), eq(Integer.MAX_VALUE), any(Pageable.class)))
+                .thenReturn(new ArrayList<>());
 
         List<PublicTransactionDTO> result = transactionService.getUserTransactions(1);
 
         assertNotNull(result);
         assertEquals(2, result.size());
-        assertEquals(1000L, result.get(0).getAmountInCents());
-        assertEquals(2000L, result.get(1).getAmountInCents());
+        assertEquals(2000L, result.get(0).getAmountInCents());
+        assertEquals(1000L, result.get(1).getAmountInCents());
     }
 
     @Test
     void testGetUserTransactions_WithNoTransactions() {
-        when(transactionRepository.findAllTransactionsForUser(1)).thenReturn(new ArrayList<>());
+        when(transactionRepository.findSentBefore(eq(1), eq(Integer.MAX_VALUE), any(Pageable.class)))
+                .thenReturn(new ArrayList<>());
+        when(transactionRepository.findReceivedBefore(eq(1), eq(Integer.MAX_VALUE), any(Pageable.class)))
+                .thenReturn(new ArrayList<>());
 
         List<PublicTransactionDTO> result = transactionService.getUserTransactions(1);
 
@@ -215,27 +346,170 @@ public class TransactionServiceTest {
         otherUser.setId(3);
         otherUser.setUsername("other");
 
-        Transaction sentTransaction = new Transaction();
-        sentTransaction.setId(1);
-        sentTransaction.setSender(sender);
-        sentTransaction.setReceiver(receiver);
-        sentTransaction.setAmountInCents(1000L);
-
-        Transaction receivedTransaction = new Transaction();
-        receivedTransaction.setId(2);
-        receivedTransaction.setSender(otherUser);
-        receivedTransaction.setReceiver(sender);
-        receivedTransaction.setAmountInCents(2000L);
+        PublicTransactionDTO sentTransaction = transaction(1, sender, receiver, 1000L);
+        PublicTransactionDTO receivedTransaction = transaction(2, otherUser, sender, 2000L);
 
-        List<Transaction> transactions = Arrays.asList(sentTransaction, receivedTransaction);
-
-        when(transactionRepository.findAllTransactionsForUser(1)).thenReturn(transactions);
+        when(transactionRepository.findSentBefore(eq(1), eq(Integer.MAX_VALUE), any(Pageable.class)))
+                .thenReturn(List.of(sentTransaction));
+        when(transactionRepository.findReceivedBefore(eq(1), eq(Integer.MAX_VALUE), any(Pageable.class)))
+                .thenReturn(List.of(receivedTransaction));
 
         List<PublicTransactionDTO> result = transactionService.getUserTransactions(1);
 
         assertNotNull(result);
         assertEquals(2, result.size());
-        assertEquals(sender.getId(), result.get(0).getSender().getId());
-        assertEquals(sender.getId(), result.get(1).getReceiver().getId());
+        assertEquals(sender.getId(), result.get(0).getReceiver().getId());
+        assertEquals(sender.getId(), result.get(1).getSender().getId());
+    }
+
+    @Test
+    void testGetUserTransactionsPage_MergesSentAndReceivedById() {
+        User otherUser = new User();
+        otherUser.setId(3);
+        otherUser.setUsername("other");
+
+        when(transactionRepository.findSentBefore(eq(1), eq(31), any(Pageable.class)))
+                .thenReturn(List.of(transaction(30, sender, receiver, 100L), transaction(27, sender, receiver, 100L)));
+        when(transactionRepository.findReceivedBefore(eq(1), eq(31), any(Pageable.class)))
+                .thenReturn(List.of(transaction(29, otherUser, sender, 100L), transaction(28, otherUser, sender, 100L)));
+
+        TransactionPageDTO page = transactionService.getUserTransactions(1, 31, 2);
+
+        assertEquals(2, page.getItems().size());
+        assertEquals(30, page.getItems().get(0).getId());
+        assertEquals(29, page.getItems().get(1).getId());
+        assertEquals(29, page.getNextCursor());
+        verify(transactionRepository).findSentBefore(eq(1), eq(31), argThat(pageable -> pageable.getPageSize() == 3));
+        verify(transactionRepository).findReceivedBefore(eq(1), eq(31),
+                argThat(pageable -> pageable.getPageSize() == 3));
+    }
+
+    @Test
+    void testGetUserTransactionsPage_LastPageHasNoCursor() {
+        when(transactionRepository.findSentBefore(eq(1), eq(Integer.MAX_VALUE), any(Pageable.class)))
+                .thenReturn(List.of(transaction(1, sender, receiver, 100L)));
+        when(transactionRepository.findReceivedBefore(eq(1), eq(Integer.MAX_VALUE), any(Pageable.class)))
+                .thenReturn(new ArrayList<>());
+
+        TransactionPageDTO page = transactionService.getUserTransactions(1, null, null);
+
+        assertEquals(1, page.getItems().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void testGetUserTransactionsPage_LimitIsClamped() {
+        when(transactionRepository.findSentBefore(eq(1), eq(Integer.MAX_VALUE), any(Pageable.class)))
+                .thenReturn(new ArrayList<>());
+        when(transactionRepository.findReceivedBefore(eq(1), eq(Integer.MAX_VALUE), any(Pageable.class)))
+                .thenReturn(new ArrayList<>());
+
+        transactionService.getUserTransactions(1, null, 10_000);
+
+        verify(transactionRepository).findSentBefore(eq(1), eq(Integer.MAX_VALUE),
+                argThat(pageable -> pageable.getPageSize() == TransactionServiceImpl.MAX_PAGE_SIZE + 1));
+    }
+
+    @Test
+    void testCreateTransactions_DebitsOnceAndCreditsInIdOrder() {
+        when(walletRepository.findExistingIds(anyCollection())).thenReturn(List.of(2, 3));
+        when(walletRepository.debitBalance(1, 600L)).thenReturn(1);
+        when(walletRepository.creditBalances(any())).thenReturn(0);
+        when(userRepository.getReferenceById(anyInt())).thenAnswer(invocation -> userWithId(invocation.getArgument(0)));
+        when(transactionRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Transaction> transactions = invocation.getArgument(0);
+            for (int i = 0; i < transactions.size(); i++) {
+                transactions.get(i).setId(100 + i);
+            }
+            return transactions;
+        });
+
+        BatchTransactionResultDTO result = transactionService.createTransactions(1,
+                List.of(batchItem(3, 100L), batchItem(2, 200L), batchItem(3, 300L)),
+                BatchTransactionRequestDTO.Mode.ALL_OR_NOTHING);
+
+        assertEquals(3, result.getCreated());
+        assertEquals(600L, result.getDebitedInCents());
+        assertEquals(List.of(100, 101, 102),
+                result.getItems().stream().map(BatchTransactionItemResultDTO::getTransactionId).toList());
+        verify(walletRepository, times(1)).debitBalance(anyInt(), anyLong());
+        verify(walletRepository).creditBalances(argThat(credits -> List.of(2, 3).equals(List.copyOf(credits.keySet()))
+                && credits.get(2) == 200L && credits.get(3) == 400L));
+    }
+
+    @Test
+    void testCreateTransactions_AllOrNothingStopsOnInvalidItem() {
+        when(walletRepository.findExistingIds(anyCollection())).thenReturn(List.of(2));
+
+        BatchTransactionResultDTO result = transactionService.createTransactions(1,
+                List.of(batchItem(2, 100L), batchItem(99, 100L), batchItem(1, 100L)),
+                BatchTransactionRequestDTO.Mode.ALL_OR_NOTHING);
+
+        assertEquals(0, result.getCreated());
+        assertEquals(BatchTransactionItemResultDTO.Status.NOT_EXECUTED, result.getItems().get(0).getStatus());
+        assertEquals(BatchTransactionItemResultDTO.Status.REJECTED, result.getItems().get(1).getStatus());
+        assertEquals(BatchTransactionItemResultDTO.Status.REJECTED, result.getItems().get(2).getStatus());
+        verify(walletRepository, never()).debitBalance(anyInt(), anyLong());
+        verify(transactionRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void testCreateTransactions_AllOrNothingInsufficientBalance() {
+        when(walletRepository.findExistingIds(anyCollection())).thenReturn(List.of(2));
+        when(walletRepository.debitBalance(1, 20000L)).thenReturn(0);
+
+        BatchTransactionResultDTO result = transactionService.createTransactions(1,
+                List.of(batchItem(2, 10000L), batchItem(2, 10000L)), BatchTransactionRequestDTO.Mode.ALL_OR_NOTHING);
+
+        assertEquals(0, result.getCreated());
+        assertTrue(result.getItems().stream().allMatch(
+                item -> item.getStatus() == BatchTransactionItemResultDTO.Status.REJECTED));
+        verify(walletRepository, never()).creditBalances(any());
+    }
+
+    @Test
+    void testCreateTransactions_BestEffortKeepsPrefixCoveredByBalance() {
+        when(walletRepository.findExistingIds(anyCollection())).thenReturn(List.of(2));
+        when(walletRepository.debitBalance(1, 600L)).thenReturn(0);
+        when(walletRepository.findBalanceById(1)).thenReturn(Optional.of(350L));
+        when(walletRepository.debitBalance(1, 300L)).thenReturn(1);
+        when(walletRepository.creditBalances(any())).thenReturn(0);
+        when(userRepository.getReferenceById(anyInt())).thenAnswer(invocation -> userWithId(invocation.getArgument(0)));
+        when(transactionRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        BatchTransactionResultDTO result = transactionService.createTransactions(1,
+                List.of(batchItem(2, 100L), batchItem(2, 0L), batchItem(2, 200L), batchItem(2, 300L)),
+                BatchTransactionRequestDTO.Mode.BEST_EFFORT);
+
+        assertEquals(2, result.getCreated());
+        assertEquals(2, result.getRejected());
+        assertEquals(300L, result.getDebitedInCents());
+        assertEquals(BatchTransactionItemResultDTO.Status.CREATED, result.getItems().get(0).getStatus());
+        assertEquals(BatchTransactionItemResultDTO.Status.REJECTED, result.getItems().get(1).getStatus());
+        assertEquals(BatchTransactionItemResultDTO.Status.CREATED, result.getItems().get(2).getStatus());
+        assertEquals("Solde insuffisant", result.getItems().get(3).getMessage());
+    }
+
+    private CreateTransactionRequestDTO batchItem(Integer receiverId, Long amountInCents) {
+        CreateTransactionRequestDTO request = new CreateTransactionRequestDTO();
+        request.setReceiverId(receiverId);
+        request.setAmountInCents(amountInCents);
+        request.setDescription("Batch item");
+        return request;
+    }
+
+    private User userWithId(Integer id) {
+        User user = new User();
+        user.setId(id);
+        return user;
+    }
+
+    private PublicTransactionDTO transaction(Integer id, User from, User to, Long amountInCents) {
+        return new PublicTransactionDTO(id, from.getId(), from.getUsername(), from.getEmail(),
+                to.getId(), to.getUsername(), to.getEmail(), null, amountInCents);
+    }
+
+    private void givenUsers(User... found) {
+        when(userRepository.findAllById(List.of(sender.getId(), 2))).thenReturn(List.of(found));
     }
 }
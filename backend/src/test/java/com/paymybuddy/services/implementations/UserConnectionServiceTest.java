@@ -50,14 +50,12 @@ public class UserConnectionServiceTest {
         testUser.setUsername("testUser");
         testUser.setEmail("test@example.com");
         testUser.setPassword("password123");
-        testUser.setBalanceInCents(10000L);
 
         connectionUser = new User();
         connectionUser.setId(2);
         connectionUser.setUsername("connectionUser");
         connectionUser.setEmail("connection@example.com");
         connectionUser.setPassword("password123");
-        connectionUser.setBalanceInCents(10000L);
 
         testConnection = new UserConnection();
         testConnection.setId(1);
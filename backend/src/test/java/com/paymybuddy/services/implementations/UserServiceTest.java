@@ -4,22 +4,38 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import com.paymybuddy.exceptions.InvalidAmountException;
+import com.paymybuddy.exceptions.UserNotFoundException;
 import com.paymybuddy.logging.LoggingService;
+import com.paymybuddy.models.AuthenticatedUser;
+import com.paymybuddy.models.TopUp;
 import com.paymybuddy.models.User;
+import com.paymybuddy.models.WalletBalance;
 import com.paymybuddy.models.dtos.PublicUserDTO;
 import com.paymybuddy.models.dtos.UserCredentialsDTO;
+import com.paymybuddy.repository.TopUpRepository;
 import com.paymybuddy.repository.UserRepository;
+import com.paymybuddy.repository.WalletRepository;
+import com.paymybuddy.services.AccountEvents;
+import com.paymybuddy.services.UserIdentityCache;
 
 import jakarta.persistence.EntityManager;
 
@@ -29,6 +45,9 @@ public class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private WalletRepository walletRepository;
+
     @Mock
     private LoggingService loggingService;
 
@@ -38,6 +57,18 @@ public class UserServiceTest {
     @Mock
     private EntityManager entityManager;
 
+    @Mock
+    private UserIdentityCache userIdentityCache;
+
+    @Mock
+    private TopUpRepository topUpRepository;
+
+    @Mock
+    private AccountEvents accountEvents;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @InjectMocks
     private UserServiceImpl userService;
 
@@ -50,7 +81,6 @@ public class UserServiceTest {
         testUser.setUsername("testUser");
         testUser.setEmail("test@example.com");
         testUser.setPassword("password123");
-        testUser.setBalanceInCents(5000L);
 
         ReflectionTestUtils.setField(userService, "entityManager", entityManager);
     }
@@ -94,21 +124,44 @@ public class UserServiceTest {
         assertEquals("encodedPassword", newUser.getPassword());
     }
 
+    @Test
+    void testRegister_PasswordIsEncodedOutsideTheTransaction() {
+        User newUser = new User();
+        newUser.setUsername("newUser");
+        newUser.setEmail("newuser@example.com");
+        newUser.setPassword("plainPassword");
+
+        when(passwordEncoder.encode("plainPassword")).thenReturn("encodedPassword");
+        when(userRepository.save(any(User.class))).thenReturn(newUser);
+
+        userService.register(newUser);
+
+        InOrder inOrder = inOrder(passwordEncoder, transactionManager, userRepository);
+        inOrder.verify(passwordEncoder).encode("plainPassword");
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(userRepository).save(newUser);
+        inOrder.verify(transactionManager).commit(any());
+    }
+
     @Test
     void testRegister_InitialBalanceIsSet() {
         User newUser = new User();
         newUser.setUsername("newUser");
         newUser.setEmail("newuser@example.com");
         newUser.setPassword("plainPassword");
-        newUser.setBalanceInCents(0L);
 
         when(passwordEncoder.encode(anyString())).thenReturn("encodedPassword");
-        when(userRepository.save(any(User.class))).thenReturn(newUser);
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> {
+            User savedUser = invocation.getArgument(0);
+            savedUser.setId(1);
+            return savedUser;
+        });
 
         userService.register(newUser);
 
-        assertEquals(10000L, newUser.getBalanceInCents());
-        verify(userRepository, times(1)).save(argThat(user -> user.getBalanceInCents() == 10000L));
+        // The balance lives in its own wallet row, created with the user
+        verify(walletRepository, times(1)).save(argThat(wallet -> wallet.getUserId() == 1
+                && wallet.getBalanceInCents() == 10000L));
     }
 
     @Test
@@ -129,6 +182,15 @@ public class UserServiceTest {
         verify(loggingService, times(1)).info(anyString());
     }
 
+    @Test
+    void testFindBalance_ReadsTheWalletOnly() {
+        WalletBalance balance = new WalletBalance(5000L, 2L);
+        when(walletRepository.findBalanceWithVersionById(1)).thenReturn(Optional.of(balance));
+
+        assertEquals(Optional.of(balance), userService.findBalance(1));
+        verifyNoInteractions(userRepository);
+    }
+
     @Test
     void testLogin_Successful() {
         UserCredentialsDTO credentials = new UserCredentialsDTO();
@@ -159,25 +221,68 @@ public class UserServiceTest {
     }
 
     @Test
-    void testAddMoney_BalanceUpdated() {
-        testUser.setBalanceInCents(5000L);
-        when(userRepository.save(any(User.class))).thenReturn(testUser);
+    void testAddMoney_IncrementsAndRecordsTopUp() {
+        when(walletRepository.creditBalance(1, 3000L)).thenReturn(1);
+        when(walletRepository.findBalanceById(1)).thenReturn(Optional.of(8000L));
 
-        userService.addMoney(testUser, 3000L);
+        long balance = userService.addMoney(1, 3000L);
 
-        assertEquals(8000L, testUser.getBalanceInCents());
+        assertEquals(8000L, balance);
+        verify(topUpRepository).save(argThat(topUp -> topUp.getUserId() == 1 && topUp.getAmountInCents() == 3000L
+                && topUp.getBalanceAfterInCents() == 8000L && topUp.getCreatedAt() != null));
+        verify(userRepository, never()).save(any(User.class));
         verify(loggingService, times(1)).info(anyString());
+        verify(accountEvents).topUpsCreated(argThat(topUps -> topUps.size() == 1
+                && topUps.iterator().next().getBalanceAfterInCents() == 8000L));
     }
 
     @Test
-    void testAddMoney_UserSavedInRepository() {
-        testUser.setBalanceInCents(5000L);
-        when(userRepository.save(any(User.class))).thenReturn(testUser);
+    void testAddMoney_InvalidAmount() {
+        assertThrows(InvalidAmountException.class, () -> userService.addMoney(1, 0L));
+        assertThrows(InvalidAmountException.class, () -> userService.addMoney(1, -5L));
 
-        userService.addMoney(testUser, 3000L);
+        verify(walletRepository, never()).creditBalance(anyInt(), anyLong());
+    }
 
-        verify(userRepository, times(1)).save(argThat(user -> user.getId().equals(testUser.getId()) &&
-                user.getBalanceInCents() == 8000L));
+    @Test
+    void testAddMoney_UnknownUser() {
+        when(walletRepository.creditBalance(99, 3000L)).thenReturn(0);
+
+        assertThrows(UserNotFoundException.class, () -> userService.addMoney(99, 3000L));
+        verify(topUpRepository, never()).save(any(TopUp.class));
+        verifyNoInteractions(accountEvents);
+    }
+
+    @Test
+    void testAddMoneyBulk_OneBatchInIdOrder() {
+        Map<Integer, Long> amounts = new LinkedHashMap<>();
+        amounts.put(3, 300L);
+        amounts.put(1, 100L);
+        when(walletRepository.creditBalances(any())).thenReturn(0);
+        when(walletRepository.findBalances(any())).thenReturn(Map.of(1, 1100L, 3, 1300L));
+        when(topUpRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<TopUp> topUps = userService.addMoney(amounts);
+
+        verify(walletRepository).creditBalances(argThat(credits -> new ArrayList<>(credits.keySet())
+                .equals(List.of(1, 3))));
+        assertEquals(List.of(1, 3), topUps.stream().map(TopUp::getUserId).toList());
+        assertEquals(List.of(1100L, 1300L), topUps.stream().map(TopUp::getBalanceAfterInCents).toList());
+        verify(accountEvents).topUpsCreated(topUps);
+    }
+
+    @Test
+    void testAddMoneyBulk_UnknownUserRejectsTheBatch() {
+        when(walletRepository.creditBalances(any())).thenReturn(1);
+
+        assertThrows(UserNotFoundException.class, () -> userService.addMoney(Map.of(1, 100L, 99, 100L)));
+        verify(topUpRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void testAddMoneyBulk_InvalidAmountRejectsTheBatch() {
+        assertThrows(InvalidAmountException.class, () -> userService.addMoney(Map.of(1, 100L, 2, 0L)));
+        verify(walletRepository, never()).creditBalances(any());
     }
 
     @Test
@@ -200,6 +305,55 @@ public class UserServiceTest {
         assertFalse(result.isPresent());
     }
 
+    @Test
+    void testResolveUserId_FromAuthenticatedPrincipal() {
+        AuthenticatedUser principal = new AuthenticatedUser(1, "test@example.com", "password123",
+                AuthorityUtils.createAuthorityList("USER"));
+
+        Optional<Integer> result = userService.resolveUserId(principal);
+
+        assertEquals(Optional.of(1), result);
+        verifyNoInteractions(userIdentityCache, userRepository);
+    }
+
+    @Test
+    void testResolveUserId_FromCache() {
+        when(userIdentityCache.get("test@example.com")).thenReturn(Optional.of(1));
+
+        Optional<Integer> result = userService.resolveUserId(
+                org.springframework.security.core.userdetails.User.withUsername("test@example.com")
+                        .password("password123").authorities("USER").build());
+
+        assertEquals(Optional.of(1), result);
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void testResolveUserId_CacheMissLoadsAndCachesId() {
+        when(userIdentityCache.get("test@example.com")).thenReturn(Optional.empty());
+        when(userRepository.findIdByEmail("test@example.com")).thenReturn(Optional.of(1));
+
+        Optional<Integer> result = userService.resolveUserId(
+                org.springframework.security.core.userdetails.User.withUsername("test@example.com")
+                        .password("password123").authorities("USER").build());
+
+        assertEquals(Optional.of(1), result);
+        verify(userIdentityCache, times(1)).put("test@example.com", 1);
+    }
+
+    @Test
+    void testResolveUserId_UnknownUser() {
+        when(userIdentityCache.get("ghost@example.com")).thenReturn(Optional.empty());
+        when(userRepository.findIdByEmail("ghost@example.com")).thenReturn(Optional.empty());
+
+        Optional<Integer> result = userService.resolveUserId(
+                org.springframework.security.core.userdetails.User.withUsername("ghost@example.com")
+                        .password("password123").authorities("USER").build());
+
+        assertFalse(result.isPresent());
+        verify(userIdentityCache, never()).put(anyString(), anyInt());
+    }
+
     @Test
     void testFindById_UserFound() {
         when(userRepository.findById(1)).thenReturn(Optional.of(testUser));
@@ -262,6 +416,7 @@ public class UserServiceTest {
         verify(userRepository, never()).updateUsername(anyInt(), anyString());
         verify(userRepository, times(1)).updateEmail(1, "newemail@example.com");
         verify(userRepository, never()).updatePassword(anyInt(), anyString());
+        verify(userIdentityCache, times(1)).evictUser(1);
     }
 
     @Test
@@ -282,6 +437,10 @@ public class UserServiceTest {
 
         assertNotNull(result);
         verify(passwordEncoder, times(1)).encode("newPassword");
+        // Hashed before the transaction opens, so no connection is held while it runs
+        InOrder inOrder = inOrder(passwordEncoder, transactionManager);
+        inOrder.verify(passwordEncoder).encode("newPassword");
+        inOrder.verify(transactionManager).getTransaction(any());
         verify(userRepository, never()).updateUsername(anyInt(), anyString());
         verify(userRepository, never()).updateEmail(anyInt(), anyString());
         verify(userRepository, times(1)).updatePassword(1, "encodedNewPassword");
@@ -0,0 +1,7 @@
+-- Pay My Buddy - Composite indexes for the transaction history reader
+-- The history is read as two range scans (sent, received) ordered by id DESC.
+
+USE pay_my_buddy_db;
+
+CREATE INDEX idx_transactions_sender_id_id ON transactions (sender_id, id);
+CREATE INDEX idx_transactions_receiver_id_id ON transactions (receiver_id, id);
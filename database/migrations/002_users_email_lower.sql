@@ -0,0 +1,14 @@
+-- Pay My Buddy - Normalized email column for indexed, case-insensitive lookups
+-- LOWER(email) = LOWER(?) cannot use the unique index on email; lookups now
+-- match email_lower exactly.
+
+USE pay_my_buddy_db;
+
+ALTER TABLE users ADD COLUMN email_lower VARCHAR(100) NULL AFTER email;
+
+UPDATE users SET email_lower = LOWER(email);
+
+-- Fails if two accounts only differ by case; list them with:
+--   SELECT email_lower, COUNT(*) FROM users GROUP BY email_lower HAVING COUNT(*) > 1;
+ALTER TABLE users MODIFY email_lower VARCHAR(100) NOT NULL;
+ALTER TABLE users ADD CONSTRAINT uk_users_email_lower UNIQUE (email_lower);
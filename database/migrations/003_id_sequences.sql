@@ -0,0 +1,18 @@
+-- Pay My Buddy - Table-backed id generation
+-- IDENTITY ids are only known after each INSERT, which prevents Hibernate from
+-- batching inserts. Ids now come from id_sequences in blocks; the AUTO_INCREMENT
+-- attribute is kept so that manual inserts without an id still work, but such
+-- rows must be followed by an update of the matching id_sequences row.
+
+USE pay_my_buddy_db;
+
+CREATE TABLE id_sequences (
+  sequence_name VARCHAR(255) NOT NULL PRIMARY KEY,
+  next_val BIGINT
+);
+
+-- Run with the application stopped
+INSERT INTO id_sequences (sequence_name, next_val)
+SELECT 'users', COALESCE(MAX(id), 0) + 1 FROM users
+UNION ALL SELECT 'user_connections', COALESCE(MAX(id), 0) + 1 FROM user_connections
+UNION ALL SELECT 'transactions', COALESCE(MAX(id), 0) + 1 FROM transactions;
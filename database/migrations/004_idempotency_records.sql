@@ -0,0 +1,13 @@
+-- Pay My Buddy - Idempotency-Key records
+-- Claimed by INSERT before a POST /transaction with an Idempotency-Key runs,
+-- so that a retry reaching another node replays the stored response.
+
+USE pay_my_buddy_db;
+
+CREATE TABLE idempotency_records (
+  id VARCHAR(300) NOT NULL PRIMARY KEY,
+  request_fingerprint VARCHAR(64) NOT NULL,
+  status_code INT,
+  response_body VARCHAR(4000),
+  expires_at BIGINT NOT NULL
+);
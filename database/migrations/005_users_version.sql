@@ -0,0 +1,7 @@
+-- Pay My Buddy - Optimistic versioning of users
+-- Every write to a user row increments version; a JPA save from a copy read
+-- before another write fails instead of overwriting it (lost balance update).
+
+USE pay_my_buddy_db;
+
+ALTER TABLE users ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
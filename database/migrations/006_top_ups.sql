@@ -0,0 +1,18 @@
+-- Pay My Buddy - Top-up ledger
+-- One row per credit from outside (POST /add-money, settlement batches) with
+-- the balance it left, so that top-ups can be audited.
+
+USE pay_my_buddy_db;
+
+CREATE TABLE top_ups (
+  id INT AUTO_INCREMENT PRIMARY KEY,
+  user_id INT NOT NULL,
+  amount_in_cents BIGINT NOT NULL,
+  balance_after_in_cents BIGINT NOT NULL,
+  created_at DATETIME(6) NOT NULL,
+  FOREIGN KEY (user_id) REFERENCES users(id),
+  INDEX idx_top_ups_user_id_id (user_id, id)
+);
+
+-- Run with the application stopped
+INSERT INTO id_sequences (sequence_name, next_val) VALUES ('top_ups', 1);
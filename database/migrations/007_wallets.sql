@@ -0,0 +1,18 @@
+-- Pay My Buddy - Wallets
+-- Balances move from users to their own narrow table. Transfers and top-ups
+-- then lock and rewrite only the wallet row, and profile reads and edits no
+-- longer wait behind payment traffic.
+
+USE pay_my_buddy_db;
+
+CREATE TABLE wallets (
+  user_id INT NOT NULL PRIMARY KEY,
+  balance_in_cents BIGINT NOT NULL DEFAULT 0,
+  version BIGINT NOT NULL DEFAULT 0,
+  FOREIGN KEY (user_id) REFERENCES users(id)
+);
+
+-- Run with the application stopped, so that no balance changes between the copy and the drop
+INSERT INTO wallets (user_id, balance_in_cents) SELECT id, balance_in_cents FROM users;
+
+ALTER TABLE users DROP COLUMN balance_in_cents;
@@ -0,0 +1,15 @@
+-- Pay My Buddy - Wallet slots
+-- Sub-balances of hot accounts (app.wallets.hot.*). Credits to a hot account
+-- increment one of its slots instead of the wallet row, so concurrent credits
+-- do not queue on a single row lock. The balance of a user is its wallet plus
+-- the sum of its slots; debits fold the slots back into the wallet when needed.
+
+USE pay_my_buddy_db;
+
+CREATE TABLE wallet_slots (
+  user_id INT NOT NULL,
+  slot INT NOT NULL,
+  balance_in_cents BIGINT NOT NULL DEFAULT 0,
+  PRIMARY KEY (user_id, slot),
+  FOREIGN KEY (user_id) REFERENCES users(id)
+);
@@ -0,0 +1,19 @@
+-- Pay My Buddy - Transactional outbox
+-- One row per transfer or top-up, written in the transaction of the change.
+-- The relay of each node claims pending rows (processed_at IS NULL) with
+-- SELECT ... FOR UPDATE SKIP LOCKED, hands them to its subscribers and sets
+-- processed_at; processed rows are purged after app.outbox.retention-hours.
+
+USE pay_my_buddy_db;
+
+CREATE TABLE outbox (
+  id BIGINT AUTO_INCREMENT PRIMARY KEY,
+  event_type VARCHAR(50) NOT NULL,
+  payload VARCHAR(1000) NOT NULL,
+  created_at DATETIME(6) NOT NULL,
+  processed_at DATETIME(6),
+  INDEX idx_outbox_processed_at_id (processed_at, id)
+);
+
+-- Run with the application stopped
+INSERT INTO id_sequences (sequence_name, next_val) VALUES ('outbox', 1);
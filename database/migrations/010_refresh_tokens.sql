@@ -0,0 +1,14 @@
+-- Pay My Buddy - Refresh tokens
+-- Refresh tokens that can still be exchanged (app.security.mode=jwt), shared
+-- by every node: a row is deleted when its token is used or revoked, so a
+-- refresh token works once whichever node receives it, and logout holds
+-- everywhere. Expired rows are purged by the application.
+
+USE pay_my_buddy_db;
+
+CREATE TABLE refresh_tokens (
+  id VARCHAR(36) NOT NULL PRIMARY KEY,
+  user_id INT NOT NULL,
+  expires_at BIGINT NOT NULL,
+  INDEX idx_refresh_tokens_expires_at (expires_at)
+);
@@ -0,0 +1,12 @@
+-- Pay My Buddy - Outbox leases and retries
+-- The relay now leases the events it claims (next_attempt_at) and commits
+-- before dispatching them. An event a subscriber failed on stays pending,
+-- with its attempt count, the subscribers left to serve and the end of its
+-- backoff.
+
+USE pay_my_buddy_db;
+
+ALTER TABLE outbox
+  ADD COLUMN attempts INT NOT NULL DEFAULT 0,
+  ADD COLUMN next_attempt_at DATETIME(6),
+  ADD COLUMN pending_subscribers VARCHAR(500);
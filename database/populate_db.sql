@@ -3,9 +3,12 @@
 USE pay_my_buddy_db;
 
 -- Utilisateurs de démo => password3
-INSERT INTO users (username, email, password, balance_in_cents) VALUES
-('testuser3', 'test3@example.com', '$2a$10$PSGnSL..lxfxqtcuC.g5W.iucBHd/jVbn5u8AZJBQO7HwIeC3chNy', 10000),
-('testuser7', 'test7@example.com', '$2a$10$3uFU/EQdSU26OlzIYywlP.YIxWRxDruPVIzXYRhCLsoPgICfieVQe', 10000);
+INSERT INTO users (username, email, email_lower, password) VALUES
+('testuser3', 'test3@example.com', 'test3@example.com', '$2a$10$PSGnSL..lxfxqtcuC.g5W.iucBHd/jVbn5u8AZJBQO7HwIeC3chNy'),
+('testuser7', 'test7@example.com', 'test7@example.com', '$2a$10$3uFU/EQdSU26OlzIYywlP.YIxWRxDruPVIzXYRhCLsoPgICfieVQe');
+
+-- Wallets
+INSERT INTO wallets (user_id, balance_in_cents) SELECT id, 10000 FROM users;
 
 -- User connections
 INSERT INTO user_connections (user_id, connection_id) VALUES
@@ -30,3 +33,11 @@ INSERT INTO transactions (sender_id, receiver_id, description, amount_in_cents)
 (1, 2, 'Cadeau anniversaire', 2000),
 (2, 1, 'Sport', 350),
 (1, 2, 'Apéro', 450);
+
+-- Id generator: continue after the rows above
+INSERT INTO id_sequences (sequence_name, next_val)
+SELECT 'users', COALESCE(MAX(id), 0) + 1 FROM users
+UNION ALL SELECT 'user_connections', COALESCE(MAX(id), 0) + 1 FROM user_connections
+UNION ALL SELECT 'transactions', COALESCE(MAX(id), 0) + 1 FROM transactions
+UNION ALL SELECT 'top_ups', COALESCE(MAX(id), 0) + 1 FROM top_ups
+UNION ALL SELECT 'outbox', COALESCE(MAX(id), 0) + 1 FROM outbox;
@@ -4,17 +4,54 @@ CREATE DATABASE IF NOT EXISTS pay_my_buddy_db;
 USE pay_my_buddy_db;
 
 -- Tables
+DROP TABLE IF EXISTS outbox;
+DROP TABLE IF EXISTS top_ups;
+DROP TABLE IF EXISTS wallet_slots;
+DROP TABLE IF EXISTS wallets;
 DROP TABLE IF EXISTS transactions;
 DROP TABLE IF EXISTS user_connections;
 DROP TABLE IF EXISTS users;
+DROP TABLE IF EXISTS id_sequences;
+DROP TABLE IF EXISTS idempotency_records;
+DROP TABLE IF EXISTS refresh_tokens;
+
+-- Id generator: one row per table, next_val is the next free id. The
+-- application reserves ids in blocks so that it can batch inserts.
+CREATE TABLE id_sequences (
+  sequence_name VARCHAR(255) NOT NULL PRIMARY KEY,
+  next_val BIGINT
+);
 
 -- Users
 CREATE TABLE users (
   id INT AUTO_INCREMENT PRIMARY KEY,
   username VARCHAR(50) NOT NULL,
   email VARCHAR(100) NOT NULL UNIQUE,
+  -- Lowercased email, matched exactly by login and principal lookups
+  email_lower VARCHAR(100) NOT NULL,
   password VARCHAR(255) NOT NULL,
-  balance_in_cents BIGINT NOT NULL DEFAULT 0
+  -- Incremented by every write, checked by JPA saves (optimistic locking)
+  version BIGINT NOT NULL DEFAULT 0,
+  CONSTRAINT uk_users_email_lower UNIQUE (email_lower)
+);
+
+-- Wallets: one balance per user, apart from the profile row so that
+-- transfers and profile edits do not lock each other
+CREATE TABLE wallets (
+  user_id INT NOT NULL PRIMARY KEY,
+  balance_in_cents BIGINT NOT NULL DEFAULT 0,
+  version BIGINT NOT NULL DEFAULT 0,
+  FOREIGN KEY (user_id) REFERENCES users(id)
+);
+
+-- Wallet slots: sub-balances that take the credits of hot accounts; a
+-- balance is its wallet plus the sum of its slots
+CREATE TABLE wallet_slots (
+  user_id INT NOT NULL,
+  slot INT NOT NULL,
+  balance_in_cents BIGINT NOT NULL DEFAULT 0,
+  PRIMARY KEY (user_id, slot),
+  FOREIGN KEY (user_id) REFERENCES users(id)
 );
 
 -- User Connections
@@ -35,5 +72,49 @@ CREATE TABLE transactions (
   description VARCHAR(255),
   amount_in_cents BIGINT NOT NULL,
   FOREIGN KEY (sender_id) REFERENCES users(id),
-  FOREIGN KEY (receiver_id) REFERENCES users(id)
+  FOREIGN KEY (receiver_id) REFERENCES users(id),
+  -- History is read as two index range scans (sent, received) ordered by id
+  INDEX idx_transactions_sender_id_id (sender_id, id),
+  INDEX idx_transactions_receiver_id_id (receiver_id, id)
+);
+
+-- Top-up ledger: credits from outside with the balance they left
+CREATE TABLE top_ups (
+  id INT AUTO_INCREMENT PRIMARY KEY,
+  user_id INT NOT NULL,
+  amount_in_cents BIGINT NOT NULL,
+  balance_after_in_cents BIGINT NOT NULL,
+  created_at DATETIME(6) NOT NULL,
+  FOREIGN KEY (user_id) REFERENCES users(id),
+  INDEX idx_top_ups_user_id_id (user_id, id)
+);
+
+-- Transactional outbox: events written with each transfer or top-up, relayed to the subscribers
+CREATE TABLE outbox (
+  id BIGINT AUTO_INCREMENT PRIMARY KEY,
+  event_type VARCHAR(50) NOT NULL,
+  payload VARCHAR(1000) NOT NULL,
+  created_at DATETIME(6) NOT NULL,
+  processed_at DATETIME(6),
+  attempts INT NOT NULL DEFAULT 0,
+  next_attempt_at DATETIME(6),
+  pending_subscribers VARCHAR(500),
+  INDEX idx_outbox_processed_at_id (processed_at, id)
+);
+
+-- Idempotency-Key records shared between nodes (app.idempotency.persistent)
+CREATE TABLE idempotency_records (
+  id VARCHAR(300) NOT NULL PRIMARY KEY,
+  request_fingerprint VARCHAR(64) NOT NULL,
+  status_code INT,
+  response_body VARCHAR(4000),
+  expires_at BIGINT NOT NULL
+);
+
+-- Refresh tokens that can still be exchanged, shared between nodes (app.security.mode=jwt)
+CREATE TABLE refresh_tokens (
+  id VARCHAR(36) NOT NULL PRIMARY KEY,
+  user_id INT NOT NULL,
+  expires_at BIGINT NOT NULL,
+  INDEX idx_refresh_tokens_expires_at (expires_at)
 );
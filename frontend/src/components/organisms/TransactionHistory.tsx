@@ -1,16 +1,23 @@
 import React from 'react'
 import { Transaction, User } from '../../models'
 import TransactionItem from '../molecules/TransactionItem'
+import MainButton from '../atoms/MainButton'
 import './TransactionHistory.scss'
 
 interface TransactionHistoryProps {
     transactions: Transaction[]
     currentUser: User | null
+    hasMore?: boolean
+    isLoadingMore?: boolean
+    onLoadMore?: () => void
 }
 
 const TransactionHistory: React.FC<TransactionHistoryProps> = ({
     transactions,
     currentUser,
+    hasMore = false,
+    isLoadingMore = false,
+    onLoadMore,
 }) => {
     return (
         <div className="transactions-section">
@@ -36,6 +43,19 @@ const TransactionHistory: React.FC<TransactionHistoryProps> = ({
                         </div>
                     )}
                 </div>
+                {hasMore && onLoadMore && (
+                    <div className="load-more">
+                        <MainButton
+                            variant="secondary"
+                            size="small"
+                            onClick={onLoadMore}
+                            isLoading={isLoadingMore}
+                            disabled={isLoadingMore}
+                        >
+                            Voir plus
+                        </MainButton>
+                    </div>
+                )}
             </div>
         </div>
     )
@@ -9,6 +9,11 @@ export interface Transaction {
     createdAt: string
 }
 
+export interface TransactionPage {
+    items: Transaction[]
+    nextCursor: number | null
+}
+
 export interface CreateTransactionRequest {
     receiverId: number
     amountInCents: number
@@ -2,6 +2,7 @@
 export { User, fromJson as fromUserJson } from './User'
 export {
     Transaction,
+    TransactionPage,
     CreateTransactionRequest,
     fromJson as fromTransactionJson,
 } from './Transaction'
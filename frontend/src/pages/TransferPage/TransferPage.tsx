@@ -15,6 +15,9 @@ const TransferPage: React.FC = () => {
     const [connections, setConnections] = useState<User[]>([])
     const [transactions, setTransactions] = useState<Transaction[]>([])
     const [transactionLoading, setTransactionLoading] = useState(false)
+    // Curseur de la page suivante de l'historique, null quand tout est chargé
+    const [nextCursor, setNextCursor] = useState<number | null>(null)
+    const [loadingMore, setLoadingMore] = useState(false)
     const [snackbar, setSnackbar] = useState<{
         isVisible: boolean
         message: string
@@ -69,8 +72,9 @@ const TransferPage: React.FC = () => {
     const loadTransactions = async (tries: number = 0) => {
         try {
             setTransactionLoading(true)
-            const transactionsData = await api.getTransactions()
-            setTransactions(transactionsData || [])
+            const page = await api.getTransactionsPage()
+            setTransactions(page.items)
+            setNextCursor(page.nextCursor)
         } catch (error) {
             if (tries < 3) {
                 loadTransactions(tries + 1)
@@ -82,6 +86,28 @@ const TransferPage: React.FC = () => {
         }
     }
 
+    const loadMoreTransactions = async () => {
+        if (nextCursor === null || loadingMore) return
+        try {
+            setLoadingMore(true)
+            const page = await api.getTransactionsPage(nextCursor)
+            setTransactions((prev) => {
+                const known = new Set(prev.map((transaction) => transaction.id))
+                return [
+                    ...prev,
+                    ...page.items.filter(
+                        (transaction) => !known.has(transaction.id)
+                    ),
+                ]
+            })
+            setNextCursor(page.nextCursor)
+        } catch (error) {
+            showSnackbar('Erreur lors du chargement des transactions', false)
+        } finally {
+            setLoadingMore(false)
+        }
+    }
+
     const handleTransfer = async (data: {
         connection: User
         description: string
@@ -127,6 +153,9 @@ const TransferPage: React.FC = () => {
                     <TransactionHistory
                         transactions={transactions}
                         currentUser={user}
+                        hasMore={nextCursor !== null}
+                        isLoadingMore={loadingMore}
+                        onLoadMore={loadMoreTransactions}
                     />
                 )}
             </div>
@@ -6,6 +6,7 @@ const API_TIMEOUT_MILLISECONDS = 10000
 import {
     User,
     Transaction,
+    TransactionPage,
     CreateTransactionRequest,
     LoginRequest,
     AddConnectionRequest,
@@ -225,9 +226,19 @@ export const api = {
     },
 
     // Transactions
-    async getTransactions(): Promise<Transaction[]> {
-        const result = await apiRequest<Transaction[]>('/transactions')
-        return result || []
+    // Historique paginé : passer le nextCursor de la page précédente dans before
+    async getTransactionsPage(
+        before?: number,
+        limit?: number
+    ): Promise<TransactionPage> {
+        const params = new URLSearchParams()
+        if (before !== undefined) params.set('before', String(before))
+        if (limit !== undefined) params.set('limit', String(limit))
+        const query = params.toString()
+        const result = await apiRequest<TransactionPage>(
+            `/transactions${query ? `?${query}` : ''}`
+        )
+        return result || { items: [], nextCursor: null }
     },
 
     async getTransaction(transactionId: number): Promise<Transaction> {